@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import org.eclipse.lsp4xml.dom.DOMDocument;
+import org.eclipse.lsp4xml.dom.DOMParser;
+
+/**
+ * Generates the poms and the local repositories the benchmarks run against, so
+ * that the numbers don't depend on the content of the machine's
+ * <code>~/.m2</code>.
+ */
+public class BenchmarkFixtures {
+
+	public static final String GROUP_ID_PREFIX = "org.example.synthetic.g";
+	public static final String ARTIFACT_ID_PREFIX = "artifact-";
+
+	/**
+	 * Size of the default synthetic repository: enough artifacts for the
+	 * dependencies of a {@link PomSize#HUGE} pom.
+	 */
+	private static final int GROUPS = 10;
+	private static final int ARTIFACTS_PER_GROUP = 100;
+	private static final int VERSIONS_PER_ARTIFACT = 3;
+
+	public enum PomSize {
+		SMALL(10, 10), MEDIUM(100, 200), HUGE(1000, 2000);
+
+		final int dependencies;
+		final int properties;
+
+		PomSize(int dependencies, int properties) {
+			this.dependencies = dependencies;
+			this.properties = properties;
+		}
+	}
+
+	private BenchmarkFixtures() {
+	}
+
+	/**
+	 * Creates a temporary user home holding a synthetic
+	 * <code>.m2/repository</code>, and makes it the <code>user.home</code> of
+	 * this JVM. Must be called before any Maven class reads the local repository
+	 * location.
+	 */
+	public static Path installSyntheticHome() throws IOException {
+		Path home = Files.createTempDirectory("maven-xmlls-bench");
+		createLocalRepository(home.resolve(".m2").resolve("repository"), GROUPS, ARTIFACTS_PER_GROUP,
+				VERSIONS_PER_ARTIFACT);
+		System.setProperty("user.home", home.toString());
+		return home;
+	}
+
+	/**
+	 * Lays out <code>groups * artifactsPerGroup * versionsPerArtifact</code>
+	 * artifacts, each with a minimal pom, the way Maven does in a local
+	 * repository.
+	 */
+	public static void createLocalRepository(Path repository, int groups, int artifactsPerGroup,
+			int versionsPerArtifact) throws IOException {
+		for (int g = 0; g < groups; g++) {
+			String groupId = GROUP_ID_PREFIX + g;
+			Path groupDir = repository.resolve(groupId.replace('.', '/'));
+			for (int a = 0; a < artifactsPerGroup; a++) {
+				String artifactId = ARTIFACT_ID_PREFIX + a;
+				for (int v = 0; v < versionsPerArtifact; v++) {
+					String version = "1." + v + ".0";
+					Path versionDir = Files.createDirectories(groupDir.resolve(artifactId).resolve(version));
+					String pom = "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n" //
+							+ "  <modelVersion>4.0.0</modelVersion>\n" //
+							+ "  <groupId>" + groupId + "</groupId>\n" //
+							+ "  <artifactId>" + artifactId + "</artifactId>\n" //
+							+ "  <version>" + version + "</version>\n" //
+							+ "</project>\n";
+					Files.write(versionDir.resolve(artifactId + '-' + version + ".pom"),
+							pom.getBytes(StandardCharsets.UTF_8));
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the text of a pom of the given size. Its dependencies are all
+	 *         available in the repository of {@link #installSyntheticHome()}, half
+	 *         of them have their version in a property.
+	 */
+	public static String createPom(PomSize size) {
+		StringBuilder pom = new StringBuilder();
+		pom.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		pom.append("<project xmlns=\"http://maven.apache.org/POM/4.0.0\"\n");
+		pom.append("\txmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n");
+		pom.append("\txsi:schemaLocation=\"http://maven.apache.org/POM/4.0.0 http://maven.apache.org/xsd/maven-4.0.0.xsd\">\n");
+		pom.append("\t<modelVersion>4.0.0</modelVersion>\n");
+		pom.append("\t<groupId>org.example.bench</groupId>\n");
+		pom.append("\t<artifactId>bench-").append(size.name().toLowerCase()).append("</artifactId>\n");
+		pom.append("\t<version>1.0.0-SNAPSHOT</version>\n");
+		pom.append("\t<properties>\n");
+		for (int i = 0; i < size.properties; i++) {
+			pom.append("\t\t<property.").append(i).append(">value-").append(i).append("</property.").append(i)
+					.append(">\n");
+		}
+		for (int i = 0; i < size.dependencies; i += 2) {
+			pom.append("\t\t<").append(versionProperty(i)).append(">1.").append(i % VERSIONS_PER_ARTIFACT)
+					.append(".0</").append(versionProperty(i)).append(">\n");
+		}
+		pom.append("\t</properties>\n");
+		pom.append("\t<dependencies>\n");
+		for (int i = 0; i < size.dependencies; i++) {
+			String version = i % 2 == 0 ? "${" + versionProperty(i) + '}' : "1." + (i % VERSIONS_PER_ARTIFACT) + ".0";
+			pom.append("\t\t<dependency>\n");
+			pom.append("\t\t\t<groupId>").append(groupId(i)).append("</groupId>\n");
+			pom.append("\t\t\t<artifactId>").append(artifactId(i)).append("</artifactId>\n");
+			pom.append("\t\t\t<version>").append(version).append("</version>\n");
+			pom.append("\t\t</dependency>\n");
+		}
+		pom.append("\t</dependencies>\n");
+		pom.append("</project>\n");
+		return pom.toString();
+	}
+
+	private static String versionProperty(int dependency) {
+		return "dependency." + dependency + ".version";
+	}
+
+	private static String groupId(int dependency) {
+		return GROUP_ID_PREFIX + (dependency % GROUPS);
+	}
+
+	private static String artifactId(int dependency) {
+		return ARTIFACT_ID_PREFIX + (dependency / GROUPS);
+	}
+
+	/**
+	 * Writes the pom of the given size as <code>pom.xml</code> in a new
+	 * directory, as the project cache builds from the file on disk.
+	 *
+	 * @return the parsed document, at version 1.
+	 */
+	public static DOMDocument createPomDocument(Path parent, PomSize size) throws IOException {
+		Path dir = Files.createTempDirectory(Files.createDirectories(parent), "project");
+		Path pom = dir.resolve("pom.xml");
+		String text = createPom(size);
+		Files.write(pom, text.getBytes(StandardCharsets.UTF_8));
+		DOMDocument document = DOMParser.getInstance().parse(text, pom.toUri().toString(), null);
+		document.getTextDocument().setVersion(1);
+		return document;
+	}
+
+	public static void delete(Path root) throws IOException {
+		if (root == null || !Files.exists(root)) {
+			return;
+		}
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+}
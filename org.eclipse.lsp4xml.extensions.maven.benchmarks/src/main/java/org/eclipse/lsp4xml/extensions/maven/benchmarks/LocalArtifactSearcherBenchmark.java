@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.artifact.versioning.ArtifactVersion;
+import org.eclipse.lsp4xml.extensions.maven.searcher.LocalArtifactSearcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link LocalArtifactSearcher} on a synthetic repository of
+ * <code>groups * artifactsPerGroup * versionsPerArtifact</code> artifacts.
+ * <code>versionsCold</code> lists a version directory with a new searcher,
+ * <code>versionsCached</code> only checks it is unchanged.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocalArtifactSearcherBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	public int groups;
+
+	@Param({ "20" })
+	public int artifactsPerGroup;
+
+	@Param({ "5" })
+	public int versionsPerArtifact;
+
+	private Path repository;
+	private LocalArtifactSearcher searcher;
+	private String groupId;
+	private String artifactId;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		repository = Files.createTempDirectory("maven-xmlls-bench-repository");
+		BenchmarkFixtures.createLocalRepository(repository, groups, artifactsPerGroup, versionsPerArtifact);
+		searcher = new LocalArtifactSearcher(repository);
+		groupId = BenchmarkFixtures.GROUP_ID_PREFIX + (groups / 2);
+		artifactId = BenchmarkFixtures.ARTIFACT_ID_PREFIX + (artifactsPerGroup / 2);
+		searcher.searchVersions(groupId, artifactId);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		BenchmarkFixtures.delete(repository);
+	}
+
+	@Benchmark
+	public Set<String> groupIds() {
+		return searcher.searchGroupIds(null);
+	}
+
+	@Benchmark
+	public List<ArtifactVersion> versionsCold() {
+		return new LocalArtifactSearcher(repository).searchVersions(groupId, artifactId);
+	}
+
+	@Benchmark
+	public List<ArtifactVersion> versionsCached() {
+		return searcher.searchVersions(groupId, artifactId);
+	}
+
+}
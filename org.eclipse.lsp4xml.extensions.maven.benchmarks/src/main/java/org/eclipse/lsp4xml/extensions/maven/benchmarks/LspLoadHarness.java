@@ -0,0 +1,317 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.lsp4j.CompletionParams;
+import org.eclipse.lsp4j.DidChangeTextDocumentParams;
+import org.eclipse.lsp4j.DidOpenTextDocumentParams;
+import org.eclipse.lsp4j.InitializeParams;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
+import org.eclipse.lsp4j.TextDocumentIdentifier;
+import org.eclipse.lsp4j.TextDocumentItem;
+import org.eclipse.lsp4j.VersionedTextDocumentIdentifier;
+import org.eclipse.lsp4j.services.TextDocumentService;
+import org.eclipse.lsp4xml.extensions.maven.test.ClientServerConnection;
+
+import com.google.gson.GsonBuilder;
+
+/**
+ * End-to-end latency of the language server under typing, on a
+ * {@link SyntheticWorkspace}.
+ *
+ * Some leaf modules are opened, then a sentence containing a
+ * <code>${property}</code> reference is typed one character at a time in
+ * their description, round-robin, with a delay between keystrokes. A
+ * completion is requested after some of the keystrokes, the way editors do
+ * while typing. Reported latencies are:
+ * <ul>
+ * <li><code>completion</code>: from the request to its response,</li>
+ * <li><code>diagnostics.open</code> and <code>diagnostics.change</code>: from
+ * the notification to the next publishDiagnostics of the document. Changes and
+ * publications of a document are matched in order, changes whose diagnostics
+ * were never published are reported as <code>unanswered</code>.</li>
+ * </ul>
+ *
+ * <pre>
+ * LspLoadHarness [--modules n] [--depth n] [--properties n] [--dependencies n]
+ *                [--files n] [--keystrokes n] [--typing-delay ms] [--completion-every n] [--output file]
+ * </pre>
+ */
+public class LspLoadHarness {
+
+	private static final String TYPED_TEXT = "Typed at ${project.version} by the load harness. ";
+	private static final long DIAGNOSTICS_TIMEOUT_MS = 60_000;
+
+	private int modules = 50;
+	private int depth = 5;
+	private int properties = 500;
+	private int dependencies = 20;
+	private int files = 5;
+	private int keystrokes = 200;
+	private int typingDelay = 30;
+	private int completionEvery = 5;
+	private Path output;
+
+	private final Map<String, Queue<PendingDiagnostics>> pendingDiagnostics = new ConcurrentHashMap<>();
+	private final Map<String, Latencies> latencies = Collections.synchronizedMap(new LinkedHashMap<>());
+
+	/**
+	 * Latencies of one kind of operation, in nanoseconds.
+	 */
+	static class Latencies {
+
+		private long[] values = new long[1024];
+		private int count;
+		private int unanswered;
+
+		synchronized void add(long nanos) {
+			if (count == values.length) {
+				values = Arrays.copyOf(values, count * 2);
+			}
+			values[count++] = nanos;
+		}
+
+		synchronized void addUnanswered(int n) {
+			unanswered += n;
+		}
+
+		synchronized Map<String, Object> summarize() {
+			long[] sorted = Arrays.copyOf(values, count);
+			Arrays.sort(sorted);
+			Map<String, Object> summary = new LinkedHashMap<>();
+			summary.put("count", count);
+			summary.put("unanswered", unanswered);
+			summary.put("p50", toMillis(percentile(sorted, 50)));
+			summary.put("p90", toMillis(percentile(sorted, 90)));
+			summary.put("p99", toMillis(percentile(sorted, 99)));
+			summary.put("max", toMillis(count == 0 ? 0 : sorted[count - 1]));
+			return summary;
+		}
+
+		private static long percentile(long[] sorted, int percentile) {
+			if (sorted.length == 0) {
+				return 0;
+			}
+			// nearest-rank
+			int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+			return sorted[Math.max(0, rank - 1)];
+		}
+
+		private static double toMillis(long nanos) {
+			return Math.round(nanos / 10_000.0) / 100.0;
+		}
+	}
+
+	private static class PendingDiagnostics {
+
+		private final String kind;
+		private final long sent = System.nanoTime();
+
+		PendingDiagnostics(String kind) {
+			this.kind = kind;
+		}
+	}
+
+	private static class TypedDocument {
+
+		private final String uri;
+		private final int line;
+		private int character;
+		private int version = 1;
+		private int typed;
+
+		TypedDocument(String uri, int line, int character) {
+			this.uri = uri;
+			this.line = line;
+			this.character = character;
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		LspLoadHarness harness = new LspLoadHarness();
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "--modules":
+				harness.modules = Integer.parseInt(args[++i]);
+				break;
+			case "--depth":
+				harness.depth = Integer.parseInt(args[++i]);
+				break;
+			case "--properties":
+				harness.properties = Integer.parseInt(args[++i]);
+				break;
+			case "--dependencies":
+				harness.dependencies = Integer.parseInt(args[++i]);
+				break;
+			case "--files":
+				harness.files = Integer.parseInt(args[++i]);
+				break;
+			case "--keystrokes":
+				harness.keystrokes = Integer.parseInt(args[++i]);
+				break;
+			case "--typing-delay":
+				harness.typingDelay = Integer.parseInt(args[++i]);
+				break;
+			case "--completion-every":
+				harness.completionEvery = Integer.parseInt(args[++i]);
+				break;
+			case "--output":
+				harness.output = Paths.get(args[++i]);
+				break;
+			default:
+				System.err.println("Unknown option " + args[i]);
+				System.exit(2);
+				return;
+			}
+		}
+		Map<String, Object> report = harness.run();
+		String json = new GsonBuilder().setPrettyPrinting().create().toJson(report);
+		if (harness.output != null) {
+			Files.write(harness.output, json.getBytes(StandardCharsets.UTF_8));
+		}
+		System.out.println(json);
+		// the server threads aren't all daemons
+		System.exit(0);
+	}
+
+	public Map<String, Object> run() throws Exception {
+		SyntheticWorkspace workspace = SyntheticWorkspace.create(modules, depth, properties, dependencies);
+		// must happen before the server loads any Maven class
+		System.setProperty("user.home", workspace.getHome().toString());
+		ClientServerConnection connection = null;
+		try {
+			InitializeParams initParams = new InitializeParams();
+			initParams.setRootUri(workspace.getRoot().toUri().toString());
+			connection = new ClientServerConnection(initParams);
+			connection.setDiagnosticsListener(params -> {
+				Queue<PendingDiagnostics> pending = pendingDiagnostics.get(params.getUri());
+				PendingDiagnostics sent = pending != null ? pending.poll() : null;
+				if (sent != null) {
+					getLatencies(sent.kind).add(System.nanoTime() - sent.sent);
+				}
+			});
+			TextDocumentService service = connection.languageServer.getTextDocumentService();
+			List<TypedDocument> documents = open(service, workspace.getModules().subList(0,
+					Math.min(files, workspace.getModules().size())));
+			long start = System.nanoTime();
+			int operations = documents.size();
+			for (int k = 0; k < keystrokes; k++) {
+				for (TypedDocument document : documents) {
+					type(service, document);
+					operations++;
+					if (completionEvery > 0 && document.typed % completionEvery == 0) {
+						complete(service, document);
+						operations++;
+					}
+				}
+				Thread.sleep(typingDelay);
+			}
+			awaitDiagnostics();
+			double seconds = (System.nanoTime() - start) / 1e9;
+			pendingDiagnostics.values().forEach(pending -> {
+				getLatencies("diagnostics.change").addUnanswered(pending.size());
+			});
+			Map<String, Object> report = new LinkedHashMap<>();
+			Map<String, Object> setup = new LinkedHashMap<>();
+			setup.put("modules", modules);
+			setup.put("depth", depth);
+			setup.put("properties", properties);
+			setup.put("dependencies", dependencies);
+			setup.put("files", documents.size());
+			setup.put("keystrokes", keystrokes);
+			setup.put("typingDelayMs", typingDelay);
+			setup.put("completionEvery", completionEvery);
+			report.put("setup", setup);
+			Map<String, Object> latencyReport = new LinkedHashMap<>();
+			synchronized (latencies) {
+				latencies.forEach((kind, values) -> latencyReport.put(kind, values.summarize()));
+			}
+			report.put("latenciesMs", latencyReport);
+			report.put("durationSeconds", Math.round(seconds * 100) / 100.0);
+			report.put("throughputOpsPerSecond", Math.round(operations / seconds * 100) / 100.0);
+			return report;
+		} finally {
+			if (connection != null) {
+				connection.stop();
+			}
+			workspace.delete();
+		}
+	}
+
+	private List<TypedDocument> open(TextDocumentService service, List<Path> poms) throws Exception {
+		List<TypedDocument> documents = new ArrayList<>();
+		for (Path pom : poms) {
+			String text = new String(Files.readAllBytes(pom), StandardCharsets.UTF_8);
+			String uri = pom.toUri().toString();
+			// the caret is in the empty <description></description>
+			String[] lines = text.split("\n", -1);
+			int line = 0;
+			while (!lines[line].contains("<description>")) {
+				line++;
+			}
+			TypedDocument document = new TypedDocument(uri, line, lines[line].indexOf("</description>"));
+			pendingDiagnostics.computeIfAbsent(uri, u -> new ConcurrentLinkedQueue<>())
+					.add(new PendingDiagnostics("diagnostics.open"));
+			service.didOpen(new DidOpenTextDocumentParams(new TextDocumentItem(uri, "xml", document.version, text)));
+			documents.add(document);
+		}
+		return documents;
+	}
+
+	private void type(TextDocumentService service, TypedDocument document) {
+		String character = String.valueOf(TYPED_TEXT.charAt(document.typed % TYPED_TEXT.length()));
+		Position caret = new Position(document.line, document.character);
+		TextDocumentContentChangeEvent change = new TextDocumentContentChangeEvent(new Range(caret, caret), 0,
+				character);
+		document.version++;
+		document.character++;
+		document.typed++;
+		pendingDiagnostics.get(document.uri).add(new PendingDiagnostics("diagnostics.change"));
+		service.didChange(new DidChangeTextDocumentParams(
+				new VersionedTextDocumentIdentifier(document.uri, document.version), Collections.singletonList(change)));
+	}
+
+	private void complete(TextDocumentService service, TypedDocument document) throws Exception {
+		CompletionParams params = new CompletionParams(new TextDocumentIdentifier(document.uri),
+				new Position(document.line, document.character));
+		long start = System.nanoTime();
+		service.completion(params).get(DIAGNOSTICS_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+		getLatencies("completion").add(System.nanoTime() - start);
+	}
+
+	private void awaitDiagnostics() throws InterruptedException {
+		long deadline = System.currentTimeMillis() + DIAGNOSTICS_TIMEOUT_MS;
+		while (System.currentTimeMillis() < deadline
+				&& pendingDiagnostics.values().stream().anyMatch(pending -> !pending.isEmpty())) {
+			Thread.sleep(100);
+		}
+	}
+
+	private Latencies getLatencies(String kind) {
+		return latencies.computeIfAbsent(kind, k -> new Latencies());
+	}
+
+}
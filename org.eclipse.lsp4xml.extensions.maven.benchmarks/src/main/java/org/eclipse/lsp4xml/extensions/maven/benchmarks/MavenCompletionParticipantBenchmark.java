@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.plexus.DefaultPlexusContainer;
+import org.eclipse.lsp4j.CompletionItem;
+import org.eclipse.lsp4xml.dom.DOMDocument;
+import org.eclipse.lsp4xml.dom.DOMElement;
+import org.eclipse.lsp4xml.dom.DOMNode;
+import org.eclipse.lsp4xml.extensions.maven.MavenCompletionParticipant;
+import org.eclipse.lsp4xml.extensions.maven.MavenPlugin;
+import org.eclipse.lsp4xml.extensions.maven.MavenProjectCache;
+import org.eclipse.lsp4xml.extensions.maven.benchmarks.BenchmarkFixtures.PomSize;
+import org.eclipse.lsp4xml.services.extensions.ICompletionRequest;
+import org.eclipse.lsp4xml.services.extensions.ICompletionResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link MavenCompletionParticipant#onXMLContent} in a
+ * <code>${</code> property reference, in a dependency
+ * <code>&lt;groupId&gt;</code> (which lists the synthetic local repository)
+ * and in <code>&lt;dependencies&gt;</code> (snippets).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MavenCompletionParticipantBenchmark {
+
+	@Param({ "SMALL", "MEDIUM", "HUGE" })
+	public PomSize size;
+
+	private Path home;
+	private DefaultPlexusContainer container;
+	private MavenCompletionParticipant participant;
+	private ICompletionRequest propertiesRequest;
+	private ICompletionRequest groupIdRequest;
+	private ICompletionRequest snippetsRequest;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		home = BenchmarkFixtures.installSyntheticHome();
+		container = MavenPlugin.newPlexusContainer();
+		participant = new MavenCompletionParticipant(new MavenProjectCache(container));
+		DOMDocument document = BenchmarkFixtures.createPomDocument(home.resolve("workspace"), size);
+		String text = document.getText();
+		propertiesRequest = createRequest(document, text.indexOf("${") + 2);
+		groupIdRequest = createRequest(document, text.indexOf("<groupId>", text.indexOf("<dependency>")) + 9);
+		snippetsRequest = createRequest(document, text.indexOf("<dependencies>") + 14);
+		// builds the project and loads the snippets
+		properties();
+		snippets();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		container.dispose();
+		BenchmarkFixtures.delete(home);
+	}
+
+	@Benchmark
+	public List<CompletionItem> properties() throws Exception {
+		return complete(propertiesRequest);
+	}
+
+	@Benchmark
+	public List<CompletionItem> groupId() throws Exception {
+		return complete(groupIdRequest);
+	}
+
+	@Benchmark
+	public List<CompletionItem> snippets() throws Exception {
+		return complete(snippetsRequest);
+	}
+
+	private List<CompletionItem> complete(ICompletionRequest request) throws Exception {
+		List<CompletionItem> items = new ArrayList<>();
+		participant.onXMLContent(request, createResponse(items));
+		return items;
+	}
+
+	/**
+	 * Only the position accessors used by the participant are implemented, the
+	 * full lsp4xml request would also measure its own work.
+	 */
+	private static ICompletionRequest createRequest(DOMDocument document, int offset) throws Exception {
+		DOMNode node = document.findNodeAt(offset);
+		DOMElement parentElement = node.isElement() ? (DOMElement) node : node.getParentElement();
+		org.eclipse.lsp4j.Position position = document.positionAt(offset);
+		return (ICompletionRequest) Proxy.newProxyInstance(ICompletionRequest.class.getClassLoader(),
+				new Class<?>[] { ICompletionRequest.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getXMLDocument":
+						return document;
+					case "getNode":
+						return node;
+					case "getParentElement":
+						return parentElement;
+					case "getOffset":
+						return offset;
+					case "getPosition":
+						return position;
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	private static ICompletionResponse createResponse(List<CompletionItem> items) {
+		return (ICompletionResponse) Proxy.newProxyInstance(ICompletionResponse.class.getClassLoader(),
+				new Class<?>[] { ICompletionResponse.class }, (proxy, method, args) -> {
+					if (method.getName().equals("addCompletionItem")) {
+						items.add((CompletionItem) args[0]);
+						return null;
+					}
+					throw new UnsupportedOperationException(method.getName());
+				});
+	}
+
+}
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.benchmarks;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.plexus.DefaultPlexusContainer;
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4xml.dom.DOMDocument;
+import org.eclipse.lsp4xml.extensions.maven.DependencyTreeService;
+import org.eclipse.lsp4xml.extensions.maven.MavenDiagnosticParticipant;
+import org.eclipse.lsp4xml.extensions.maven.MavenPlugin;
+import org.eclipse.lsp4xml.extensions.maven.MavenProjectCache;
+import org.eclipse.lsp4xml.extensions.maven.benchmarks.BenchmarkFixtures.PomSize;
+import org.eclipse.lsp4xml.extensions.maven.index.WorkspaceIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link MavenDiagnosticParticipant#doDiagnostics} with the project and its
+ * dependency tree already built (<code>unchanged</code>), and after a change
+ * which requires a new build (<code>changed</code>).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MavenDiagnosticParticipantBenchmark {
+
+	@Param({ "SMALL", "MEDIUM", "HUGE" })
+	public PomSize size;
+
+	private Path home;
+	private DefaultPlexusContainer container;
+	private DependencyTreeService dependencyTreeService;
+	private MavenDiagnosticParticipant participant;
+	private DOMDocument document;
+	private int version = 1;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		home = BenchmarkFixtures.installSyntheticHome();
+		container = MavenPlugin.newPlexusContainer();
+		MavenProjectCache cache = new MavenProjectCache(container);
+		dependencyTreeService = new DependencyTreeService(container, cache);
+		participant = new MavenDiagnosticParticipant(cache, new WorkspaceIndex(), dependencyTreeService);
+		document = BenchmarkFixtures.createPomDocument(home.resolve("workspace"), size);
+		diagnose();
+		// the dependency validations only run once the tree is collected
+		URI uri = URI.create(document.getDocumentURI());
+		dependencyTreeService.getDependencyTree(uri, cache.getFullMavenProject(uri)).get();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		dependencyTreeService.dispose();
+		container.dispose();
+		BenchmarkFixtures.delete(home);
+	}
+
+	@Benchmark
+	public List<Diagnostic> unchanged() {
+		return diagnose();
+	}
+
+	@Benchmark
+	public List<Diagnostic> changed() {
+		document.getTextDocument().setVersion(++version);
+		return diagnose();
+	}
+
+	private List<Diagnostic> diagnose() {
+		List<Diagnostic> diagnostics = new ArrayList<>();
+		participant.doDiagnostics(document, diagnostics, () -> {
+		});
+		return diagnostics;
+	}
+
+}
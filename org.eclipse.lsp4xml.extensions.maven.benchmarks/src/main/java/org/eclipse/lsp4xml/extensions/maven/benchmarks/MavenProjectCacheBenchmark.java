@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.benchmarks;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.model.building.ModelProblem;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.DefaultPlexusContainer;
+import org.eclipse.lsp4xml.dom.DOMDocument;
+import org.eclipse.lsp4xml.extensions.maven.BuildMode;
+import org.eclipse.lsp4xml.extensions.maven.MavenPlugin;
+import org.eclipse.lsp4xml.extensions.maven.MavenProjectCache;
+import org.eclipse.lsp4xml.extensions.maven.benchmarks.BenchmarkFixtures.PomSize;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Builds of {@link MavenProjectCache#getProblemsFor(DOMDocument)}:
+ * <ul>
+ * <li><code>cold</code>: first build with a new cache, including the
+ * initialization of the Maven build state</li>
+ * <li><code>warm</code>: rebuild of a new version of the document</li>
+ * <li><code>cached</code>: same version, served from the cache</li>
+ * <li><code>fast</code> and <code>full</code>: rebuild of a new version in
+ * the given {@link BuildMode}</li>
+ * <li><code>save</code>: full build of the saved pom, as after
+ * {@link BuildMode#FAST} rebuilds</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MavenProjectCacheBenchmark {
+
+	@Param({ "SMALL", "MEDIUM", "HUGE" })
+	public PomSize size;
+
+	private Path home;
+	private DefaultPlexusContainer container;
+	private DOMDocument document;
+	private MavenProjectCache warmCache;
+	private MavenProjectCache coldCache;
+	private MavenProjectCache fastCache;
+	private MavenProjectCache fullCache;
+	private int version = 1;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		home = BenchmarkFixtures.installSyntheticHome();
+		container = MavenPlugin.newPlexusContainer();
+		document = BenchmarkFixtures.createPomDocument(home.resolve("workspace"), size);
+		warmCache = new MavenProjectCache(container);
+		warmCache.getProblemsFor(document);
+		fastCache = new MavenProjectCache(container);
+		fastCache.setBuildMode(BuildMode.FAST);
+		fastCache.getProblemsFor(document);
+		fullCache = new MavenProjectCache(container);
+		fullCache.setBuildMode(BuildMode.FULL);
+		fullCache.getProblemsFor(document);
+	}
+
+	@Setup(Level.Invocation)
+	public void newColdCache() {
+		coldCache = new MavenProjectCache(container);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		container.dispose();
+		BenchmarkFixtures.delete(home);
+	}
+
+	@Benchmark
+	public Collection<ModelProblem> cold() {
+		return coldCache.getProblemsFor(document);
+	}
+
+	@Benchmark
+	public Collection<ModelProblem> warm() {
+		document.getTextDocument().setVersion(++version);
+		return warmCache.getProblemsFor(document);
+	}
+
+	@Benchmark
+	public Collection<ModelProblem> cached() {
+		return warmCache.getProblemsFor(document);
+	}
+
+	@Benchmark
+	public Collection<ModelProblem> fast() {
+		document.getTextDocument().setVersion(++version);
+		return fastCache.getProblemsFor(document);
+	}
+
+	@Benchmark
+	public Collection<ModelProblem> full() {
+		document.getTextDocument().setVersion(++version);
+		return fullCache.getProblemsFor(document);
+	}
+
+	@Benchmark
+	public MavenProject save() {
+		return fastCache.buildFull(URI.create(document.getDocumentURI()));
+	}
+
+}
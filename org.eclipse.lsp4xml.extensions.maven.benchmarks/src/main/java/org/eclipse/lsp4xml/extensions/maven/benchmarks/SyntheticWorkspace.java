@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates a reactor shaped like the big enterprise ones, next to the fake
+ * <code>~/.m2</code> it resolves against:
+ * <ul>
+ * <li>a root aggregator with a big set of properties which imports a BOM of
+ * the whole synthetic repository,</li>
+ * <li>a chain of <code>depth</code> parents, each adding properties,</li>
+ * <li><code>modules</code> leaf modules inheriting from the last parent, whose
+ * dependencies are all managed by the BOM.</li>
+ * </ul>
+ */
+public class SyntheticWorkspace {
+
+	public static final String GROUP_ID = "org.example.reactor";
+	public static final String BOM_GROUP_ID = "org.example.synthetic";
+	public static final String BOM_ARTIFACT_ID = "synthetic-bom";
+	public static final String VERSION = "1.0.0-SNAPSHOT";
+
+	private static final int GROUPS = 10;
+	private static final int ARTIFACTS_PER_GROUP = 100;
+	private static final int VERSIONS_PER_ARTIFACT = 3;
+
+	private final Path home;
+	private final Path root;
+	private final List<Path> modules = new ArrayList<>();
+
+	private SyntheticWorkspace(Path home) {
+		this.home = home;
+		this.root = home.resolve("workspace");
+	}
+
+	/**
+	 * @param modules              number of leaf modules
+	 * @param depth                number of parents between the root and the
+	 *                             leaf modules
+	 * @param properties           number of properties of the root, each parent
+	 *                             declares a tenth of it
+	 * @param dependencies         number of dependencies of each leaf module
+	 */
+	public static SyntheticWorkspace create(int modules, int depth, int properties, int dependencies)
+			throws IOException {
+		SyntheticWorkspace workspace = new SyntheticWorkspace(Files.createTempDirectory("maven-xmlls-load"));
+		Path repository = workspace.home.resolve(".m2").resolve("repository");
+		BenchmarkFixtures.createLocalRepository(repository, GROUPS, ARTIFACTS_PER_GROUP, VERSIONS_PER_ARTIFACT);
+		workspace.writeBom(repository);
+		workspace.writeRoot(modules, depth, properties);
+		String parentArtifactId = "root";
+		for (int d = 1; d <= depth; d++) {
+			String artifactId = "parent-" + d;
+			workspace.writeParent(artifactId, parentArtifactId, properties / 10);
+			parentArtifactId = artifactId;
+		}
+		for (int m = 1; m <= modules; m++) {
+			workspace.modules.add(workspace.writeModule(m, parentArtifactId, dependencies));
+		}
+		return workspace;
+	}
+
+	/**
+	 * @return the user home holding the fake <code>.m2/repository</code>.
+	 */
+	public Path getHome() {
+		return home;
+	}
+
+	public Path getRoot() {
+		return root;
+	}
+
+	/**
+	 * @return the poms of the leaf modules.
+	 */
+	public List<Path> getModules() {
+		return modules;
+	}
+
+	public void delete() throws IOException {
+		BenchmarkFixtures.delete(home);
+	}
+
+	private void writeBom(Path repository) throws IOException {
+		StringBuilder pom = header(BOM_GROUP_ID, BOM_ARTIFACT_ID, "1.0.0", "pom");
+		pom.append("\t<dependencyManagement>\n\t\t<dependencies>\n");
+		for (int g = 0; g < GROUPS; g++) {
+			for (int a = 0; a < ARTIFACTS_PER_GROUP; a++) {
+				dependency(pom, BenchmarkFixtures.GROUP_ID_PREFIX + g, BenchmarkFixtures.ARTIFACT_ID_PREFIX + a,
+						"1." + ((g + a) % VERSIONS_PER_ARTIFACT) + ".0", null);
+			}
+		}
+		pom.append("\t\t</dependencies>\n\t</dependencyManagement>\n</project>\n");
+		Path dir = Files.createDirectories(
+				repository.resolve(BOM_GROUP_ID.replace('.', '/')).resolve(BOM_ARTIFACT_ID).resolve("1.0.0"));
+		write(dir.resolve(BOM_ARTIFACT_ID + "-1.0.0.pom"), pom);
+	}
+
+	private void writeRoot(int modules, int depth, int properties) throws IOException {
+		StringBuilder pom = header(GROUP_ID, "root", VERSION, "pom");
+		pom.append("\t<modules>\n");
+		for (int d = 1; d <= depth; d++) {
+			pom.append("\t\t<module>parent-").append(d).append("</module>\n");
+		}
+		for (int m = 1; m <= modules; m++) {
+			pom.append("\t\t<module>module-").append(m).append("</module>\n");
+		}
+		pom.append("\t</modules>\n");
+		properties(pom, "root", properties);
+		pom.append("\t<dependencyManagement>\n\t\t<dependencies>\n");
+		dependency(pom, BOM_GROUP_ID, BOM_ARTIFACT_ID, "1.0.0", "\t\t\t\t<type>pom</type>\n\t\t\t\t<scope>import</scope>\n");
+		pom.append("\t\t</dependencies>\n\t</dependencyManagement>\n</project>\n");
+		write(Files.createDirectories(root).resolve("pom.xml"), pom);
+	}
+
+	private void writeParent(String artifactId, String parentArtifactId, int properties) throws IOException {
+		StringBuilder pom = header(null, artifactId, null, "pom");
+		parent(pom, parentArtifactId);
+		properties(pom, artifactId, properties);
+		pom.append("</project>\n");
+		write(Files.createDirectories(root.resolve(artifactId)).resolve("pom.xml"), pom);
+	}
+
+	private Path writeModule(int module, String parentArtifactId, int dependencies) throws IOException {
+		StringBuilder pom = header(null, "module-" + module, null, null);
+		parent(pom, parentArtifactId);
+		// the load harness types in the description
+		pom.append("\t<description></description>\n");
+		pom.append("\t<dependencies>\n");
+		for (int i = 0; i < dependencies; i++) {
+			int artifact = (module * 7 + i * 13) % (GROUPS * ARTIFACTS_PER_GROUP);
+			dependency(pom, BenchmarkFixtures.GROUP_ID_PREFIX + (artifact % GROUPS),
+					BenchmarkFixtures.ARTIFACT_ID_PREFIX + (artifact / GROUPS), null, null);
+		}
+		pom.append("\t</dependencies>\n</project>\n");
+		Path pomFile = Files.createDirectories(root.resolve("module-" + module)).resolve("pom.xml");
+		write(pomFile, pom);
+		return pomFile;
+	}
+
+	private static StringBuilder header(String groupId, String artifactId, String version, String packaging) {
+		StringBuilder pom = new StringBuilder();
+		pom.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		pom.append("<project xmlns=\"http://maven.apache.org/POM/4.0.0\"\n");
+		pom.append("\txmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n");
+		pom.append("\txsi:schemaLocation=\"http://maven.apache.org/POM/4.0.0 http://maven.apache.org/xsd/maven-4.0.0.xsd\">\n");
+		pom.append("\t<modelVersion>4.0.0</modelVersion>\n");
+		if (groupId != null) {
+			pom.append("\t<groupId>").append(groupId).append("</groupId>\n");
+		}
+		pom.append("\t<artifactId>").append(artifactId).append("</artifactId>\n");
+		if (version != null) {
+			pom.append("\t<version>").append(version).append("</version>\n");
+		}
+		if (packaging != null) {
+			pom.append("\t<packaging>").append(packaging).append("</packaging>\n");
+		}
+		return pom;
+	}
+
+	private static void parent(StringBuilder pom, String parentArtifactId) {
+		String relativePath = "root".equals(parentArtifactId) ? "../pom.xml" : "../" + parentArtifactId + "/pom.xml";
+		pom.append("\t<parent>\n");
+		pom.append("\t\t<groupId>").append(GROUP_ID).append("</groupId>\n");
+		pom.append("\t\t<artifactId>").append(parentArtifactId).append("</artifactId>\n");
+		pom.append("\t\t<version>").append(VERSION).append("</version>\n");
+		pom.append("\t\t<relativePath>").append(relativePath).append("</relativePath>\n");
+		pom.append("\t</parent>\n");
+	}
+
+	private static void properties(StringBuilder pom, String prefix, int count) {
+		pom.append("\t<properties>\n");
+		for (int i = 0; i < count; i++) {
+			pom.append("\t\t<").append(prefix).append(".property.").append(i).append(">value-").append(i)
+					.append("</").append(prefix).append(".property.").append(i).append(">\n");
+		}
+		pom.append("\t</properties>\n");
+	}
+
+	private static void dependency(StringBuilder pom, String groupId, String artifactId, String version,
+			String extra) {
+		pom.append("\t\t\t<dependency>\n");
+		pom.append("\t\t\t\t<groupId>").append(groupId).append("</groupId>\n");
+		pom.append("\t\t\t\t<artifactId>").append(artifactId).append("</artifactId>\n");
+		if (version != null) {
+			pom.append("\t\t\t\t<version>").append(version).append("</version>\n");
+		}
+		if (extra != null) {
+			pom.append(extra);
+		}
+		pom.append("\t\t\t</dependency>\n");
+	}
+
+	private static void write(Path file, CharSequence content) throws IOException {
+		Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -16,6 +16,8 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 import org.eclipse.lsp4j.CompletionItem;
@@ -35,6 +37,8 @@ import com.google.gson.stream.JsonReader;
 
 public class SnippetRegistry {
 
+	private static final Logger LOGGER = Logger.getLogger(SnippetRegistry.class.getName());
+
 	private static final SnippetRegistry INSTANCE = new SnippetRegistry();
 
 	public static SnippetRegistry getInstance() {
@@ -67,8 +71,7 @@ public class SnippetRegistry {
 				lineDelimiter = document.lineDelimiter(lineNumber);
 				whitespacesIndent = StringUtils.getStartWhitespaces(lineText);
 			} catch (BadLocationException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
+				LOGGER.log(Level.WARNING, "Invalid snippet completion offset " + completionOffset, e);
 			}
 		}
 
@@ -137,7 +140,7 @@ public class SnippetRegistry {
 				item.setInsertTextFormat(InsertTextFormat.Snippet);
 				return item;
 			} catch (BadLocationException e) {
-				e.printStackTrace();
+				LOGGER.log(Level.WARNING, "Invalid snippet completion offset " + completionOffset, e);
 				return null;
 			}
 
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven;
+
+import java.util.Objects;
+
+/**
+ * <code>groupId:artifactId[:version]</code>, obtained from the
+ * {@link CoordinatePool} so that equal coordinates are the same instance, and
+ * with their hash computed once.
+ */
+public final class ArtifactCoordinates {
+
+	private final String groupId;
+	private final String artifactId;
+	private final String version;
+	private final int hash;
+
+	ArtifactCoordinates(String groupId, String artifactId, String version) {
+		this.groupId = groupId;
+		this.artifactId = artifactId;
+		this.version = version;
+		this.hash = Objects.hash(groupId, artifactId, version);
+	}
+
+	public String getGroupId() {
+		return groupId;
+	}
+
+	public String getArtifactId() {
+		return artifactId;
+	}
+
+	/**
+	 * @return the version, or <code>null</code> for version-less coordinates.
+	 */
+	public String getVersion() {
+		return version;
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ArtifactCoordinates)) {
+			return false;
+		}
+		ArtifactCoordinates other = (ArtifactCoordinates) obj;
+		return hash == other.hash && Objects.equals(groupId, other.groupId)
+				&& Objects.equals(artifactId, other.artifactId) && Objects.equals(version, other.version);
+	}
+
+	@Override
+	public String toString() {
+		return version == null ? groupId + ':' + artifactId : groupId + ':' + artifactId + ':' + version;
+	}
+}
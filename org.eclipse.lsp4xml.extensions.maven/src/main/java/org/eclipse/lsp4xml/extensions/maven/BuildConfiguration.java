@@ -0,0 +1,310 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenExecutionRequestPopulationException;
+import org.apache.maven.execution.MavenExecutionRequestPopulator;
+import org.apache.maven.internal.aether.DefaultRepositorySystemSessionFactory;
+import org.apache.maven.RepositoryUtils;
+import org.apache.maven.model.building.DefaultModelBuildingRequest;
+import org.apache.maven.model.building.ModelBuildingRequest;
+import org.apache.maven.project.DefaultProjectBuildingRequest;
+import org.apache.maven.project.ProjectBuildingRequest;
+import org.apache.maven.project.ProjectModelResolver;
+import org.apache.maven.settings.Settings;
+import org.apache.maven.settings.building.DefaultSettingsBuildingRequest;
+import org.apache.maven.settings.building.SettingsBuilder;
+import org.apache.maven.settings.building.SettingsBuildingException;
+import org.apache.maven.settings.building.SettingsBuildingResult;
+import org.codehaus.plexus.PlexusContainer;
+import org.codehaus.plexus.component.repository.exception.ComponentLookupException;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.impl.RemoteRepositoryManager;
+
+/**
+ * How the poms of a workspace are built: the settings.xml files and the
+ * arguments of its <code>.mvn/maven.config</code> (settings, profiles, user
+ * properties, offline), like the command line would, with the options suiting
+ * an editor: dependencies aren't resolved, and the models are validated at the
+ * Maven 3.0 level, as in a reactor build.
+ *
+ * {@link BuildMode#FULL} builds process the plugins and lifecycle like a build
+ * would, {@link BuildMode#FAST} ones only build the model.
+ *
+ * The repository session and the request are set up once, each build gets a
+ * copy of the request.
+ */
+public class BuildConfiguration {
+
+	private static final Logger LOGGER = Logger.getLogger(BuildConfiguration.class.getName());
+
+	public static final String MAVEN_CONFIG = ".mvn/maven.config";
+
+	private final Path root;
+	private final ProjectBuildingRequest template;
+	private final DefaultRepositorySystemSession repositorySystemSession;
+	private final RepositorySystem repositorySystem;
+	private final RemoteRepositoryManager remoteRepositoryManager;
+	// the configuration files, existing or not, to tell when to load it again
+	private final List<CacheStore.FileStamp> files = new ArrayList<>();
+	private final List<File> absentFiles = new ArrayList<>();
+
+	private BuildConfiguration(Path root, MavenExecutionRequest request,
+			DefaultRepositorySystemSession repositorySystemSession, RepositorySystem repositorySystem,
+			RemoteRepositoryManager remoteRepositoryManager) {
+		this.root = root;
+		this.repositorySystemSession = repositorySystemSession;
+		this.repositorySystem = repositorySystem;
+		this.remoteRepositoryManager = remoteRepositoryManager;
+		// with the profiles, properties and repositories of the populated request
+		ProjectBuildingRequest projectBuildingRequest = request.getProjectBuildingRequest();
+		projectBuildingRequest.setRepositorySession(repositorySystemSession);
+		projectBuildingRequest.setProcessPlugins(true);
+		projectBuildingRequest.setResolveDependencies(false);
+		projectBuildingRequest.setValidationLevel(ModelBuildingRequest.VALIDATION_LEVEL_MAVEN_3_0);
+		this.template = projectBuildingRequest;
+	}
+
+	/**
+	 * @return the directory of the workspace of the pom: the closest one with a
+	 *         <code>.mvn</code> directory, like Maven's
+	 *         <code>maven.multiModuleProjectDirectory</code>, or <code>null</code>.
+	 */
+	public static Path findRoot(File pom) {
+		for (File directory = pom.getAbsoluteFile().getParentFile(); directory != null; directory = directory
+				.getParentFile()) {
+			if (new File(directory, ".mvn").isDirectory()) {
+				return directory.toPath();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param root the directory of the workspace, <code>null</code> for poms
+	 *             outside of one.
+	 */
+	public static BuildConfiguration load(PlexusContainer container, Path root)
+			throws ComponentLookupException, MavenExecutionRequestPopulationException {
+		List<File> configurationFiles = new ArrayList<>();
+		List<String> arguments = new ArrayList<>();
+		if (root != null) {
+			File mavenConfig = root.resolve(MAVEN_CONFIG).toFile();
+			configurationFiles.add(mavenConfig);
+			arguments.addAll(readArguments(mavenConfig));
+		}
+
+		MavenExecutionRequest request = new DefaultMavenExecutionRequest();
+		Properties systemProperties = new Properties();
+		System.getenv().forEach((key, value) -> systemProperties.setProperty("env." + key, value));
+		systemProperties.putAll(System.getProperties());
+		Properties userProperties = new Properties();
+		List<String> activeProfiles = new ArrayList<>();
+		List<String> inactiveProfiles = new ArrayList<>();
+		File userSettings = new File(System.getProperty("user.home"), ".m2/settings.xml");
+		String mavenHome = System.getProperty("maven.home");
+		File globalSettings = mavenHome != null ? new File(mavenHome, "conf/settings.xml") : null;
+		for (int i = 0; i < arguments.size(); i++) {
+			String argument = arguments.get(i);
+			String next = i + 1 < arguments.size() ? arguments.get(i + 1) : null;
+			if (("-s".equals(argument) || "--settings".equals(argument)) && next != null) {
+				userSettings = resolve(root, next);
+				i++;
+			} else if (("-gs".equals(argument) || "--global-settings".equals(argument)) && next != null) {
+				globalSettings = resolve(root, next);
+				i++;
+			} else if (("-P".equals(argument) || "--activate-profiles".equals(argument)) && next != null) {
+				addProfiles(activeProfiles, inactiveProfiles, next);
+				i++;
+			} else if (argument.startsWith("-P") && argument.length() > 2) {
+				addProfiles(activeProfiles, inactiveProfiles, argument.substring(2));
+			} else if (("-D".equals(argument) || "--define".equals(argument)) && next != null) {
+				addProperty(userProperties, next);
+				i++;
+			} else if (argument.startsWith("-D") && argument.length() > 2) {
+				addProperty(userProperties, argument.substring(2));
+			} else if ("-o".equals(argument) || "--offline".equals(argument)) {
+				request.setOffline(true);
+			}
+		}
+		systemProperties.putAll(userProperties);
+		request.setSystemProperties(systemProperties);
+		request.setUserProperties(userProperties);
+		if (root != null) {
+			request.setBaseDirectory(root.toFile());
+			request.setMultiModuleProjectDirectory(root.toFile());
+		}
+
+		configurationFiles.add(userSettings);
+		if (globalSettings != null) {
+			configurationFiles.add(globalSettings);
+		}
+		Settings settings = readSettings(container, userSettings, globalSettings, systemProperties, userProperties);
+		boolean offline = request.isOffline();
+		MavenExecutionRequestPopulator populator = container.lookup(MavenExecutionRequestPopulator.class);
+		populator.populateFromSettings(request, settings);
+		// the command line adds to or wins over settings.xml, which resets them
+		request.addActiveProfiles(activeProfiles);
+		request.addInactiveProfiles(inactiveProfiles);
+		if (offline) {
+			request.setOffline(true);
+		}
+		String localRepository = userProperties.getProperty("maven.repo.local");
+		if (localRepository != null) {
+			request.setLocalRepositoryPath(resolve(root, localRepository));
+		}
+		populator.populateDefaults(request);
+		DefaultRepositorySystemSession session = container.lookup(DefaultRepositorySystemSessionFactory.class)
+				.newRepositorySession(request);
+
+		BuildConfiguration configuration = new BuildConfiguration(root, request, session,
+				container.lookup(RepositorySystem.class), container.lookup(RemoteRepositoryManager.class));
+		for (File file : configurationFiles) {
+			if (file.isFile()) {
+				configuration.files.add(CacheStore.FileStamp.of(file));
+			} else {
+				configuration.absentFiles.add(file);
+			}
+		}
+		return configuration;
+	}
+
+	/**
+	 * @return the arguments of a <code>.mvn/maven.config</code>, separated by
+	 *         white spaces, or none if it doesn't exist.
+	 */
+	private static List<String> readArguments(File mavenConfig) {
+		if (!mavenConfig.isFile()) {
+			return new ArrayList<>();
+		}
+		try {
+			String content = new String(Files.readAllBytes(mavenConfig.toPath()), StandardCharsets.UTF_8).trim();
+			return content.isEmpty() ? new ArrayList<>() : new ArrayList<>(Arrays.asList(content.split("\\s+")));
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Error while reading " + mavenConfig, e);
+			return new ArrayList<>();
+		}
+	}
+
+	private static Settings readSettings(PlexusContainer container, File userSettings, File globalSettings,
+			Properties systemProperties, Properties userProperties) throws ComponentLookupException {
+		DefaultSettingsBuildingRequest request = new DefaultSettingsBuildingRequest();
+		request.setUserSettingsFile(userSettings);
+		request.setGlobalSettingsFile(globalSettings);
+		request.setSystemProperties(systemProperties);
+		request.setUserProperties(userProperties);
+		try {
+			SettingsBuildingResult result = container.lookup(SettingsBuilder.class).build(request);
+			result.getProblems().forEach(problem -> LOGGER.warning(problem.toString()));
+			return result.getEffectiveSettings();
+		} catch (SettingsBuildingException e) {
+			LOGGER.log(Level.WARNING, "Error while reading the Maven settings", e);
+			return new Settings();
+		}
+	}
+
+	private static void addProfiles(List<String> activeProfiles, List<String> inactiveProfiles, String profiles) {
+		for (String profile : profiles.split(",")) {
+			profile = profile.trim();
+			if (profile.startsWith("!") || profile.startsWith("-")) {
+				inactiveProfiles.add(profile.substring(1));
+			} else if (profile.startsWith("+")) {
+				activeProfiles.add(profile.substring(1));
+			} else if (!profile.isEmpty()) {
+				activeProfiles.add(profile);
+			}
+		}
+	}
+
+	private static void addProperty(Properties properties, String definition) {
+		int equals = definition.indexOf('=');
+		if (equals < 0) {
+			properties.setProperty(definition, "true");
+		} else {
+			properties.setProperty(definition.substring(0, equals), definition.substring(equals + 1));
+		}
+	}
+
+	private static File resolve(Path root, String path) {
+		File file = new File(path);
+		return file.isAbsolute() || root == null ? file : root.resolve(path).toFile();
+	}
+
+	/**
+	 * @return the directory of the workspace, or <code>null</code>.
+	 */
+	public Path getRoot() {
+		return root;
+	}
+
+	/**
+	 * @return a new request for a build, from the shared configuration.
+	 */
+	public ProjectBuildingRequest newProjectBuildingRequest() {
+		return new DefaultProjectBuildingRequest(template);
+	}
+
+	/**
+	 * @return a new request for a {@link BuildMode#FAST} build of the given pom:
+	 *         the same profiles, properties and repositories as
+	 *         {@link #newProjectBuildingRequest()}, without the plugins.
+	 */
+	public ModelBuildingRequest newModelBuildingRequest(File pom) {
+		DefaultModelBuildingRequest request = new DefaultModelBuildingRequest();
+		request.setPomFile(pom);
+		request.setValidationLevel(template.getValidationLevel());
+		request.setProcessPlugins(false);
+		request.setTwoPhaseBuilding(false);
+		request.setLocationTracking(true);
+		request.setProfiles(template.getProfiles());
+		request.setActiveProfileIds(template.getActiveProfileIds());
+		request.setInactiveProfileIds(template.getInactiveProfileIds());
+		request.setSystemProperties(template.getSystemProperties());
+		request.setUserProperties(template.getUserProperties());
+		request.setBuildStartTime(template.getBuildStartTime());
+		// parents and imported poms of the repositories, no reactor
+		request.setModelResolver(new ProjectModelResolver(repositorySystemSession, null, repositorySystem,
+				remoteRepositoryManager, RepositoryUtils.toRepos(template.getRemoteRepositories()),
+				template.getRepositoryMerging(), null));
+		return request;
+	}
+
+	public DefaultRepositorySystemSession getRepositorySystemSession() {
+		return repositorySystemSession;
+	}
+
+	public ArtifactRepository getLocalRepository() {
+		return template.getLocalRepository();
+	}
+
+	/**
+	 * @return whether none of the configuration files changed, appeared or
+	 *         disappeared since the configuration was loaded.
+	 */
+	public boolean isUpToDate() {
+		return files.stream().allMatch(CacheStore.FileStamp::isUnchanged)
+				&& absentFiles.stream().noneMatch(File::exists);
+	}
+}
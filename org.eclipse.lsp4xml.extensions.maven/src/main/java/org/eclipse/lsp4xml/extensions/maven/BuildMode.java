@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven;
+
+/**
+ * How {@link MavenProjectCache} builds a pom when its document changes.
+ */
+public enum BuildMode {
+
+	/**
+	 * Only builds the effective model: inheritance, interpolation, profiles,
+	 * imports and management. Cheap enough for each change of the document; the
+	 * full project is built on save, or when a feature needs it.
+	 */
+	FAST,
+
+	/**
+	 * Builds the complete project with the ProjectBuilder, plugins and
+	 * lifecycle included, for each change of the document.
+	 */
+	FULL;
+
+	/**
+	 * <code>fast</code> (default) or <code>full</code>.
+	 */
+	public static final String PROPERTY = "maven.xmlls.buildMode";
+
+	public static BuildMode getDefault() {
+		return "full".equalsIgnoreCase(System.getProperty(PROPERTY)) ? FULL : FAST;
+	}
+}
@@ -0,0 +1,431 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.maven.artifact.versioning.ArtifactVersion;
+import org.apache.maven.model.building.DefaultModelProblem;
+import org.apache.maven.model.building.ModelProblem;
+import org.apache.maven.model.building.ModelProblem.Severity;
+import org.apache.maven.model.building.ModelProblem.Version;
+import org.eclipse.lsp4xml.extensions.maven.searcher.LocalArtifactSearcher;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+/**
+ * Saves the warm caches when the server stops and restores them when it
+ * starts, so that a restart doesn't build every pom and list the local
+ * repository again:
+ * <ul>
+ * <li>the {@link ProjectSnapshot}s and problems of the successful builds, with
+ * the stamps of the pom and parent files they were built from. A restored
+ * build is only used if none of these files changed, checked when the pom is
+ * first validated,</li>
+ * <li>the versions listed from the local repository, used as long as the
+ * artifact directory and its version directories without pom keep their
+ * modification time.</li>
+ * </ul>
+ * The file is <code>~/.lsp4xml/maven/caches.json.gz</code>, next to the lsp4xml
+ * cache, or the <code>maven.xmlls.cacheFile</code> system property, which
+ * disables the store when empty. Files of another format version are ignored.
+ */
+public class CacheStore {
+
+	public static final String FILE_PROPERTY = "maven.xmlls.cacheFile";
+
+	private static final Logger LOGGER = Logger.getLogger(CacheStore.class.getName());
+
+	private static final int FORMAT_VERSION = 3;
+
+	private final Path file;
+
+	/**
+	 * Size, modification time and checksum of a file a build read. The checksum
+	 * is only computed when saving, it tells a file whose content didn't change
+	 * apart from a touched one.
+	 */
+	public static class FileStamp {
+
+		private final String path;
+		private final long lastModified;
+		private final long size;
+		private final Long checksum;
+
+		private FileStamp(String path, long lastModified, long size, Long checksum) {
+			this.path = path;
+			this.lastModified = lastModified;
+			this.size = size;
+			this.checksum = checksum;
+		}
+
+		public static FileStamp of(File file) {
+			return new FileStamp(file.getPath(), file.lastModified(), file.length(), null);
+		}
+
+		public String getPath() {
+			return path;
+		}
+
+		/**
+		 * @return the stamp with the checksum of the file, or <code>null</code> if
+		 *         the file changed since it was stamped.
+		 */
+		FileStamp withChecksum() throws IOException {
+			File current = new File(path);
+			if (current.lastModified() != lastModified || current.length() != size) {
+				return null;
+			}
+			return checksum != null ? this : new FileStamp(path, lastModified, size, checksum(current.toPath()));
+		}
+
+		/**
+		 * @return whether the file still has the stamped content.
+		 */
+		public boolean isUnchanged() {
+			File current = new File(path);
+			if (!current.isFile() || current.length() != size) {
+				return false;
+			}
+			if (current.lastModified() == lastModified) {
+				return true;
+			}
+			try {
+				return checksum != null && checksum.longValue() == checksum(current.toPath());
+			} catch (IOException e) {
+				return false;
+			}
+		}
+
+		private static long checksum(Path file) throws IOException {
+			CRC32 crc = new CRC32();
+			crc.update(Files.readAllBytes(file));
+			return crc.getValue();
+		}
+	}
+
+	/**
+	 * The outcome of a successful build and the files it was built from, the pom
+	 * first.
+	 */
+	public static class ProjectEntry {
+
+		private final URI uri;
+		private final ProjectSnapshot snapshot;
+		private final Collection<ModelProblem> problems;
+		private final List<FileStamp> files;
+
+		public ProjectEntry(URI uri, ProjectSnapshot snapshot, Collection<ModelProblem> problems,
+				List<FileStamp> files) {
+			this.uri = uri;
+			this.snapshot = snapshot;
+			this.problems = problems;
+			this.files = files;
+		}
+
+		public URI getUri() {
+			return uri;
+		}
+
+		public ProjectSnapshot getSnapshot() {
+			return snapshot;
+		}
+
+		public Collection<ModelProblem> getProblems() {
+			return problems;
+		}
+
+		public List<FileStamp> getFiles() {
+			return files;
+		}
+
+		/**
+		 * @return whether building the pom again would read the same files.
+		 */
+		public boolean isUpToDate() {
+			return !files.isEmpty() && files.stream().allMatch(FileStamp::isUnchanged);
+		}
+	}
+
+	// serialized form
+
+	private static class StoredCaches {
+		int formatVersion;
+		List<StoredProject> projects = new ArrayList<>();
+		List<StoredVersions> localRepository = new ArrayList<>();
+	}
+
+	private static class StoredProject {
+		String uri;
+		List<FileStamp> files;
+		String groupId;
+		String artifactId;
+		String version;
+		String modelId;
+		String packaging;
+		StoredCoordinates parent;
+		Map<String, String> properties;
+		List<String> modules;
+		List<StoredCoordinates> dependencies;
+		List<StoredCoordinates> managedDependencies;
+		List<StoredCoordinates> plugins;
+		List<StoredProblem> problems;
+	}
+
+	private static class StoredCoordinates {
+		String groupId;
+		String artifactId;
+		String version;
+		String scope;
+		String source;
+		int line;
+		int column;
+	}
+
+	private static class StoredProblem {
+		String message;
+		String severity;
+		String source;
+		String modelId;
+		int line;
+		int column;
+	}
+
+	private static class StoredVersions {
+		String groupId;
+		String artifactId;
+		long lastModified;
+		List<String> versions;
+		Map<String, Long> skipped;
+	}
+
+	public CacheStore(Path file) {
+		this.file = file;
+	}
+
+	/**
+	 * @return the store of the default or configured file, or <code>null</code>
+	 *         if disabled.
+	 */
+	public static CacheStore createDefault() {
+		String configured = System.getProperty(FILE_PROPERTY);
+		if (configured == null) {
+			return new CacheStore(Paths.get(System.getProperty("user.home"), ".lsp4xml", "maven", "caches.json.gz"));
+		}
+		return configured.trim().isEmpty() ? null : new CacheStore(Paths.get(configured));
+	}
+
+	public Path getFile() {
+		return file;
+	}
+
+	public void save(MavenProjectCache cache, LocalArtifactSearcher searcher) {
+		StoredCaches caches = new StoredCaches();
+		caches.formatVersion = FORMAT_VERSION;
+		if (cache != null) {
+			for (ProjectEntry entry : cache.getEntries()) {
+				StoredProject project = toStored(entry);
+				if (project != null) {
+					caches.projects.add(project);
+				}
+			}
+		}
+		if (searcher != null) {
+			searcher.getCachedVersions().forEach((coordinates, cached) -> {
+				StoredVersions versions = new StoredVersions();
+				versions.groupId = coordinates.getGroupId();
+				versions.artifactId = coordinates.getArtifactId();
+				versions.lastModified = cached.getLastModified();
+				versions.versions = cached.getVersions().stream().map(ArtifactVersion::toString)
+						.collect(Collectors.toList());
+				versions.skipped = cached.getSkipped();
+				caches.localRepository.add(versions);
+			});
+		}
+		try {
+			Files.createDirectories(file.getParent());
+			Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+			try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp));
+					Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+				new Gson().toJson(caches, writer);
+			}
+			// readers never see a partial file
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Error while saving the caches to " + file, e);
+		}
+	}
+
+	/**
+	 * Reads the file in background and hands the entries to the caches, which
+	 * validate each of them when first used.
+	 */
+	public CompletableFuture<Void> restore(MavenProjectCache cache, LocalArtifactSearcher searcher) {
+		return CompletableFuture.runAsync(() -> {
+			StoredCaches caches = read();
+			if (caches == null) {
+				return;
+			}
+			if (cache != null) {
+				List<ProjectEntry> entries = new ArrayList<>();
+				for (StoredProject project : caches.projects) {
+					try {
+						entries.add(fromStored(project));
+					} catch (RuntimeException e) {
+						LOGGER.log(Level.FINE, "Ignoring the stored build of " + project.uri, e);
+					}
+				}
+				cache.restore(entries);
+			}
+			if (searcher != null) {
+				for (StoredVersions versions : caches.localRepository) {
+					if (versions.groupId != null && versions.artifactId != null && versions.versions != null
+							&& versions.skipped != null) {
+						searcher.restoreVersions(versions.groupId, versions.artifactId, versions.lastModified,
+								versions.versions, versions.skipped);
+					}
+				}
+			}
+		});
+	}
+
+	private StoredCaches read() {
+		if (!Files.isRegularFile(file)) {
+			return null;
+		}
+		try (InputStream in = new GZIPInputStream(Files.newInputStream(file));
+				Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+			StoredCaches caches = new Gson().fromJson(reader, StoredCaches.class);
+			if (caches == null || caches.formatVersion != FORMAT_VERSION) {
+				return null;
+			}
+			return caches;
+		} catch (IOException | JsonParseException e) {
+			LOGGER.log(Level.WARNING, "Error while restoring the caches from " + file, e);
+			return null;
+		}
+	}
+
+	private static StoredProject toStored(ProjectEntry entry) {
+		List<FileStamp> files = new ArrayList<>();
+		try {
+			for (FileStamp stamp : entry.getFiles()) {
+				FileStamp withChecksum = stamp.withChecksum();
+				if (withChecksum == null) {
+					// changed since the build, the entry is stale
+					return null;
+				}
+				files.add(withChecksum);
+			}
+		} catch (IOException e) {
+			return null;
+		}
+		ProjectSnapshot snapshot = entry.getSnapshot();
+		StoredProject project = new StoredProject();
+		project.uri = entry.getUri().toString();
+		project.files = files;
+		project.groupId = snapshot.getGroupId();
+		project.artifactId = snapshot.getArtifactId();
+		project.version = snapshot.getVersion();
+		project.modelId = snapshot.getModelId();
+		project.packaging = snapshot.getPackaging();
+		project.parent = snapshot.getParent() != null ? toStored(snapshot.getParent()) : null;
+		project.properties = snapshot.getProperties();
+		project.modules = snapshot.getModules();
+		project.dependencies = toStored(snapshot.getDependencies());
+		project.managedDependencies = toStored(snapshot.getManagedDependencies());
+		project.plugins = toStored(snapshot.getPlugins());
+		project.problems = new ArrayList<>();
+		for (ModelProblem problem : entry.getProblems()) {
+			StoredProblem stored = new StoredProblem();
+			stored.message = problem.getMessage();
+			stored.severity = problem.getSeverity().name();
+			stored.source = problem.getSource();
+			stored.modelId = problem.getModelId();
+			stored.line = problem.getLineNumber();
+			stored.column = problem.getColumnNumber();
+			project.problems.add(stored);
+		}
+		return project;
+	}
+
+	private static List<StoredCoordinates> toStored(List<ProjectSnapshot.Coordinates> coordinates) {
+		return coordinates.stream().map(CacheStore::toStored).collect(Collectors.toList());
+	}
+
+	private static StoredCoordinates toStored(ProjectSnapshot.Coordinates coordinates) {
+		StoredCoordinates stored = new StoredCoordinates();
+		stored.groupId = coordinates.getGroupId();
+		stored.artifactId = coordinates.getArtifactId();
+		stored.version = coordinates.getVersion();
+		stored.scope = coordinates.getScope();
+		stored.source = coordinates.getSource();
+		stored.line = coordinates.getLine();
+		stored.column = coordinates.getColumn();
+		return stored;
+	}
+
+	private static ProjectEntry fromStored(StoredProject project) {
+		ArtifactCoordinates coordinates = CoordinatePool.getInstance().get(project.groupId, project.artifactId,
+				project.version);
+		ProjectSnapshot snapshot = new ProjectSnapshot(coordinates,
+				project.modelId != null ? project.modelId : coordinates.toString(), project.packaging, project.parent != null ? fromStored(project.parent) : null,
+				project.properties != null ? project.properties : new HashMap<>(),
+				project.modules != null ? project.modules : Collections.emptyList(), fromStored(project.dependencies),
+				fromStored(project.managedDependencies), fromStored(project.plugins));
+		List<ModelProblem> problems = new ArrayList<>();
+		if (project.problems != null) {
+			for (StoredProblem problem : project.problems) {
+				problems.add(new DefaultModelProblem(problem.message, Severity.valueOf(problem.severity), Version.BASE,
+						problem.source, problem.line, problem.column, problem.modelId, null));
+			}
+		}
+		return new ProjectEntry(URI.create(project.uri), snapshot, problems,
+				project.files != null ? project.files : Collections.emptyList());
+	}
+
+	private static List<ProjectSnapshot.Coordinates> fromStored(List<StoredCoordinates> coordinates) {
+		if (coordinates == null) {
+			return Collections.emptyList();
+		}
+		return coordinates.stream().map(CacheStore::fromStored).collect(Collectors.toList());
+	}
+
+	private static ProjectSnapshot.Coordinates fromStored(StoredCoordinates coordinates) {
+		return new ProjectSnapshot.Coordinates(coordinates.groupId, coordinates.artifactId, coordinates.version,
+				coordinates.scope, coordinates.source, coordinates.line, coordinates.column);
+	}
+}
@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import org.eclipse.lsp4j.CompletionItem;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.TextEdit;
+import org.eclipse.lsp4xml.dom.DOMElement;
+import org.eclipse.lsp4xml.extensions.maven.metrics.MavenMetrics;
+
+/**
+ * Completion items computed for an element of a pom, served again while the
+ * user keeps filtering them in the same spot. Entries are keyed by document,
+ * element path and collector, and only valid while the state they were
+ * computed from is equal, e.g. the properties of the {@link ProjectSnapshot}
+ * or the parent the document declares: a new build or an edit changing it
+ * invalidates them, one which doesn't keeps them. Each request gets copies, with the text edits moved to
+ * its own range.
+ */
+public class CompletionCache {
+
+	private static final int MAX_ENTRIES = 64;
+
+	private static class CachedItems {
+
+		private final Object state;
+		private final List<CompletionItem> items;
+
+		CachedItems(Object state, List<CompletionItem> items) {
+			this.state = state;
+			this.items = items;
+		}
+	}
+
+	private final MavenMetrics metrics;
+	private final Map<String, CachedItems> entries = new LinkedHashMap<String, CachedItems>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CachedItems> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	public CompletionCache(MavenMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @param element   the element the completion is requested in
+	 * @param collector the name of the collector computing the items
+	 * @param state     what the items are computed from, compared with
+	 *                  <code>equals()</code>, <code>null</code> if they only
+	 *                  depend on the element
+	 * @param range     the range the text edits of the items replace
+	 * @param collect   computes the items on a miss
+	 * @return copies of the items, for the given range.
+	 */
+	public List<CompletionItem> get(DOMElement element, String collector, Object state, Range range,
+			Consumer<List<CompletionItem>> collect) {
+		String key = key(element, collector);
+		List<CompletionItem> items;
+		synchronized (entries) {
+			CachedItems cached = entries.get(key);
+			items = cached != null && Objects.equals(cached.state, state) ? cached.items : null;
+		}
+		if (items != null) {
+			metrics.increment("completionCache.hits");
+		} else {
+			metrics.increment("completionCache.misses");
+			List<CompletionItem> computed = new ArrayList<>();
+			collect.accept(computed);
+			items = Collections.unmodifiableList(computed);
+			synchronized (entries) {
+				entries.put(key, new CachedItems(state, items));
+			}
+		}
+		List<CompletionItem> res = new ArrayList<>(items.size());
+		for (CompletionItem item : items) {
+			res.add(withRange(item, range));
+		}
+		return res;
+	}
+
+	/**
+	 * @return <code>uri#/project/dependencies/dependency/scope#collector</code>.
+	 */
+	private static String key(DOMElement element, String collector) {
+		StringBuilder path = new StringBuilder();
+		for (DOMElement current = element; current != null; current = current.getParentElement()) {
+			path.insert(0, current.getLocalName()).insert(0, '/');
+		}
+		return element.getOwnerDocument().getDocumentURI() + '#' + path + '#' + collector;
+	}
+
+	private static CompletionItem withRange(CompletionItem item, Range range) {
+		CompletionItem copy = new CompletionItem(item.getLabel());
+		copy.setKind(item.getKind());
+		copy.setDetail(item.getDetail());
+		copy.setDocumentation(item.getDocumentation());
+		copy.setDeprecated(item.getDeprecated());
+		copy.setSortText(item.getSortText());
+		copy.setFilterText(item.getFilterText());
+		copy.setInsertText(item.getInsertText());
+		copy.setInsertTextFormat(item.getInsertTextFormat());
+		if (item.getTextEdit() != null) {
+			copy.setTextEdit(new TextEdit(range, item.getTextEdit().getNewText()));
+		}
+		return copy;
+	}
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Canonical instances of the strings and {@link ArtifactCoordinates} the
+ * caches and indexes hold, so that the groupIds, artifactIds and versions
+ * shared by thousands of poms are in memory once and compared by identity
+ * first.
+ *
+ * Entries are weakly held: what no cache references anymore, e.g. the partial
+ * names indexed while typing, is reclaimed.
+ */
+public class CoordinatePool {
+
+	private static final CoordinatePool INSTANCE = new CoordinatePool();
+
+	private final Map<String, WeakReference<String>> strings = new WeakHashMap<>();
+	private final Map<ArtifactCoordinates, WeakReference<ArtifactCoordinates>> coordinates = new WeakHashMap<>();
+
+	public static CoordinatePool getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * @return the canonical instance of the string, <code>null</code> for
+	 *         <code>null</code>.
+	 */
+	public String intern(String value) {
+		if (value == null) {
+			return null;
+		}
+		synchronized (strings) {
+			WeakReference<String> canonical = strings.get(value);
+			String res = canonical != null ? canonical.get() : null;
+			if (res == null) {
+				res = value;
+				strings.put(res, new WeakReference<>(res));
+			}
+			return res;
+		}
+	}
+
+	/**
+	 * @param version can be <code>null</code>
+	 * @return the canonical coordinates, added to the pool if needed.
+	 */
+	public ArtifactCoordinates get(String groupId, String artifactId, String version) {
+		ArtifactCoordinates probe = new ArtifactCoordinates(intern(groupId), intern(artifactId), intern(version));
+		synchronized (coordinates) {
+			WeakReference<ArtifactCoordinates> canonical = coordinates.get(probe);
+			ArtifactCoordinates res = canonical != null ? canonical.get() : null;
+			if (res == null) {
+				res = probe;
+				coordinates.put(res, new WeakReference<>(res));
+			}
+			return res;
+		}
+	}
+
+	/**
+	 * @return the number of pooled strings and coordinates.
+	 */
+	public long size() {
+		long size;
+		synchronized (strings) {
+			size = strings.size();
+		}
+		synchronized (coordinates) {
+			size += coordinates.size();
+		}
+		return size;
+	}
+}
@@ -0,0 +1,397 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven;
+
+import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.BiConsumer;
+
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.model.Exclusion;
+import org.apache.maven.model.InputLocation;
+import org.apache.maven.model.InputLocationTracker;
+import org.apache.maven.model.InputSource;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Parent;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.model.PluginManagement;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4xml.commons.BadLocationException;
+import org.eclipse.lsp4xml.dom.DOMAttr;
+import org.eclipse.lsp4xml.dom.DOMDocument;
+import org.eclipse.lsp4xml.dom.DOMElement;
+import org.eclipse.lsp4xml.dom.DOMNode;
+
+/**
+ * Reads the raw {@link Model} of a pom from its lsp4xml DOM, instead of parsing
+ * the text again with <code>MavenXpp3Reader</code>. Every model object and
+ * field gets the {@link InputLocation} of its element, the end of its start
+ * tag like Maven's reader, which {@link org.eclipse.lsp4xml.extensions.maven.index.PomLocationIndex}
+ * turns back into offsets.
+ *
+ * The project coordinates, parent, modules, properties, dependencies,
+ * dependency management and build plugins are read; profiles and reporting
+ * aren't. Models are cached per {@link DOMDocument}, i.e. per version of the
+ * document, and shared: they must not be modified.
+ */
+public class DOMModelReader {
+
+	private static final Map<DOMDocument, Model> MODELS = new WeakHashMap<>();
+
+	private final DOMDocument document;
+	private final InputSource source;
+
+	private DOMModelReader(DOMDocument document) {
+		this.document = document;
+		this.source = new InputSource();
+		try {
+			source.setLocation(new File(URI.create(document.getDocumentURI())).getPath());
+		} catch (IllegalArgumentException e) {
+			// not a file
+			source.setLocation(document.getDocumentURI());
+		}
+	}
+
+	/**
+	 * @return the model of the given version of the document, read once.
+	 */
+	public static Model getModel(DOMDocument document) {
+		synchronized (MODELS) {
+			Model model = MODELS.get(document);
+			if (model == null) {
+				model = read(document);
+				MODELS.put(document, model);
+			}
+			return model;
+		}
+	}
+
+	public static Model read(DOMDocument document) {
+		return new DOMModelReader(document).readModel();
+	}
+
+	private Model readModel() {
+		Model model = new Model();
+		DOMElement project = document.getDocumentElement();
+		if (project == null) {
+			return model;
+		}
+		model.setLocation("", location(project));
+		readChildren(project, model, (element, name) -> {
+			switch (name) {
+			case "modelVersion":
+				model.setModelVersion(DOMUtils.getText(element));
+				break;
+			case "groupId":
+				model.setGroupId(DOMUtils.getText(element));
+				break;
+			case "artifactId":
+				model.setArtifactId(DOMUtils.getText(element));
+				break;
+			case "version":
+				model.setVersion(DOMUtils.getText(element));
+				break;
+			case "packaging":
+				model.setPackaging(DOMUtils.getText(element));
+				break;
+			case "name":
+				model.setName(DOMUtils.getText(element));
+				break;
+			case "description":
+				model.setDescription(DOMUtils.getText(element));
+				break;
+			case "url":
+				model.setUrl(DOMUtils.getText(element));
+				break;
+			case "parent":
+				model.setParent(readParent(element));
+				break;
+			case "modules":
+				for (DOMElement module : DOMUtils.findChildElements(element, "module")) {
+					String text = DOMUtils.getText(module);
+					if (text != null) {
+						model.addModule(text);
+					}
+				}
+				break;
+			case "properties":
+				readChildren(element, null, (property, key) -> {
+					String value = DOMUtils.getText(property);
+					model.addProperty(key, value != null ? value : "");
+				});
+				break;
+			case "dependencies":
+				model.setDependencies(readDependencies(element));
+				break;
+			case "dependencyManagement":
+				DependencyManagement dependencyManagement = new DependencyManagement();
+				dependencyManagement.setLocation("", location(element));
+				dependencyManagement.setDependencies(
+						readDependencies(DOMUtils.findChildElement(element, "dependencies")));
+				model.setDependencyManagement(dependencyManagement);
+				break;
+			case "build":
+				model.setBuild(readBuild(element));
+				break;
+			default:
+				break;
+			}
+		});
+		return model;
+	}
+
+	private Parent readParent(DOMElement element) {
+		Parent parent = new Parent();
+		parent.setLocation("", location(element));
+		readChildren(element, parent, (child, name) -> {
+			switch (name) {
+			case "groupId":
+				parent.setGroupId(DOMUtils.getText(child));
+				break;
+			case "artifactId":
+				parent.setArtifactId(DOMUtils.getText(child));
+				break;
+			case "version":
+				parent.setVersion(DOMUtils.getText(child));
+				break;
+			case "relativePath":
+				String relativePath = DOMUtils.getText(child);
+				parent.setRelativePath(relativePath != null ? relativePath : "");
+				break;
+			default:
+				break;
+			}
+		});
+		return parent;
+	}
+
+	private List<Dependency> readDependencies(DOMElement element) {
+		List<Dependency> dependencies = new ArrayList<>();
+		for (DOMElement dependencyElement : DOMUtils.findChildElements(element, "dependency")) {
+			Dependency dependency = new Dependency();
+			dependency.setLocation("", location(dependencyElement));
+			readChildren(dependencyElement, dependency, (child, name) -> {
+				switch (name) {
+				case "groupId":
+					dependency.setGroupId(DOMUtils.getText(child));
+					break;
+				case "artifactId":
+					dependency.setArtifactId(DOMUtils.getText(child));
+					break;
+				case "version":
+					dependency.setVersion(DOMUtils.getText(child));
+					break;
+				case "type":
+					dependency.setType(DOMUtils.getText(child));
+					break;
+				case "classifier":
+					dependency.setClassifier(DOMUtils.getText(child));
+					break;
+				case "scope":
+					dependency.setScope(DOMUtils.getText(child));
+					break;
+				case "systemPath":
+					dependency.setSystemPath(DOMUtils.getText(child));
+					break;
+				case "optional":
+					dependency.setOptional(DOMUtils.getText(child));
+					break;
+				case "exclusions":
+					for (DOMElement exclusionElement : DOMUtils.findChildElements(child, "exclusion")) {
+						Exclusion exclusion = new Exclusion();
+						exclusion.setLocation("", location(exclusionElement));
+						exclusion.setGroupId(DOMUtils.getChildText(exclusionElement, "groupId"));
+						exclusion.setArtifactId(DOMUtils.getChildText(exclusionElement, "artifactId"));
+						dependency.addExclusion(exclusion);
+					}
+					break;
+				default:
+					break;
+				}
+			});
+			dependencies.add(dependency);
+		}
+		return dependencies;
+	}
+
+	private Build readBuild(DOMElement element) {
+		Build build = new Build();
+		build.setLocation("", location(element));
+		readChildren(element, build, (child, name) -> {
+			switch (name) {
+			case "defaultGoal":
+				build.setDefaultGoal(DOMUtils.getText(child));
+				break;
+			case "finalName":
+				build.setFinalName(DOMUtils.getText(child));
+				break;
+			case "directory":
+				build.setDirectory(DOMUtils.getText(child));
+				break;
+			case "sourceDirectory":
+				build.setSourceDirectory(DOMUtils.getText(child));
+				break;
+			case "testSourceDirectory":
+				build.setTestSourceDirectory(DOMUtils.getText(child));
+				break;
+			case "outputDirectory":
+				build.setOutputDirectory(DOMUtils.getText(child));
+				break;
+			case "plugins":
+				build.setPlugins(readPlugins(child));
+				break;
+			case "pluginManagement":
+				PluginManagement pluginManagement = new PluginManagement();
+				pluginManagement.setLocation("", location(child));
+				pluginManagement.setPlugins(readPlugins(DOMUtils.findChildElement(child, "plugins")));
+				build.setPluginManagement(pluginManagement);
+				break;
+			default:
+				break;
+			}
+		});
+		return build;
+	}
+
+	private List<Plugin> readPlugins(DOMElement element) {
+		List<Plugin> plugins = new ArrayList<>();
+		for (DOMElement pluginElement : DOMUtils.findChildElements(element, "plugin")) {
+			Plugin plugin = new Plugin();
+			plugin.setLocation("", location(pluginElement));
+			readChildren(pluginElement, plugin, (child, name) -> {
+				switch (name) {
+				case "groupId":
+					plugin.setGroupId(DOMUtils.getText(child));
+					break;
+				case "artifactId":
+					plugin.setArtifactId(DOMUtils.getText(child));
+					break;
+				case "version":
+					plugin.setVersion(DOMUtils.getText(child));
+					break;
+				case "extensions":
+					plugin.setExtensions(DOMUtils.getText(child));
+					break;
+				case "inherited":
+					plugin.setInherited(DOMUtils.getText(child));
+					break;
+				case "configuration":
+					plugin.setConfiguration(toXpp3Dom(child));
+					break;
+				case "dependencies":
+					plugin.setDependencies(readDependencies(child));
+					break;
+				case "executions":
+					for (DOMElement executionElement : DOMUtils.findChildElements(child, "execution")) {
+						plugin.addExecution(readExecution(executionElement));
+					}
+					break;
+				default:
+					break;
+				}
+			});
+			plugins.add(plugin);
+		}
+		return plugins;
+	}
+
+	private PluginExecution readExecution(DOMElement element) {
+		PluginExecution execution = new PluginExecution();
+		execution.setLocation("", location(element));
+		readChildren(element, execution, (child, name) -> {
+			switch (name) {
+			case "id":
+				execution.setId(DOMUtils.getText(child));
+				break;
+			case "phase":
+				execution.setPhase(DOMUtils.getText(child));
+				break;
+			case "inherited":
+				execution.setInherited(DOMUtils.getText(child));
+				break;
+			case "goals":
+				for (DOMElement goal : DOMUtils.findChildElements(child, "goal")) {
+					String text = DOMUtils.getText(goal);
+					if (text != null) {
+						execution.addGoal(text);
+					}
+				}
+				break;
+			case "configuration":
+				execution.setConfiguration(toXpp3Dom(child));
+				break;
+			default:
+				break;
+			}
+		});
+		return execution;
+	}
+
+	private static Xpp3Dom toXpp3Dom(DOMElement element) {
+		Xpp3Dom dom = new Xpp3Dom(element.getLocalName());
+		if (element.hasAttributes()) {
+			for (DOMAttr attribute : element.getAttributeNodes()) {
+				dom.setAttribute(attribute.getName(), attribute.getValue());
+			}
+		}
+		boolean hasChildElements = false;
+		for (DOMNode child : element.getChildren()) {
+			if (child.isElement() && child.getLocalName() != null) {
+				dom.addChild(toXpp3Dom((DOMElement) child));
+				hasChildElements = true;
+			}
+		}
+		if (!hasChildElements) {
+			dom.setValue(DOMUtils.getText(element));
+		}
+		return dom;
+	}
+
+	/**
+	 * Calls the reader with each child element and records its location in the
+	 * tracker, by element name.
+	 */
+	private void readChildren(DOMElement parent, InputLocationTracker tracker,
+			BiConsumer<DOMElement, String> reader) {
+		if (parent == null) {
+			return;
+		}
+		for (DOMNode child : parent.getChildren()) {
+			if (child.isElement() && child.getLocalName() != null) {
+				DOMElement element = (DOMElement) child;
+				reader.accept(element, element.getLocalName());
+				if (tracker != null) {
+					tracker.setLocation(element.getLocalName(), location(element));
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the 1-based line and column of the end of the start tag.
+	 */
+	private InputLocation location(DOMElement element) {
+		Integer startTagClose = element.getStartTagCloseOffset();
+		int offset = startTagClose != null ? startTagClose + 1 : element.getStart();
+		try {
+			Position position = document.positionAt(offset);
+			return new InputLocation(position.getLine() + 1, position.getCharacter() + 1, source);
+		} catch (BadLocationException e) {
+			return new InputLocation(-1, -1, source);
+		}
+	}
+}
@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.lsp4xml.dom.DOMElement;
+import org.eclipse.lsp4xml.dom.DOMNode;
+
+/**
+ * Helpers to read pom elements from the lsp4xml DOM.
+ */
+public class DOMUtils {
+
+	private DOMUtils() {
+	}
+
+	/**
+	 * @return the trimmed text content of the element, or <code>null</code> if the
+	 *         element has no text.
+	 */
+	public static String getText(DOMNode element) {
+		if (element == null || !element.hasChildNodes()) {
+			return null;
+		}
+		DOMNode child = element.getChild(0);
+		if (!child.isText() || child.getNodeValue() == null) {
+			return null;
+		}
+		return child.getNodeValue().trim();
+	}
+
+	public static DOMElement findChildElement(DOMNode parent, String localName) {
+		if (parent == null) {
+			return null;
+		}
+		for (DOMNode child : parent.getChildren()) {
+			if (child.isElement() && localName.equals(child.getLocalName())) {
+				return (DOMElement) child;
+			}
+		}
+		return null;
+	}
+
+	public static List<DOMElement> findChildElements(DOMNode parent, String localName) {
+		List<DOMElement> res = new ArrayList<>();
+		if (parent != null) {
+			for (DOMNode child : parent.getChildren()) {
+				if (child.isElement() && localName.equals(child.getLocalName())) {
+					res.add((DOMElement) child);
+				}
+			}
+		}
+		return res;
+	}
+
+	public static String getChildText(DOMNode parent, String localName) {
+		return getText(findChildElement(parent, localName));
+	}
+
+}
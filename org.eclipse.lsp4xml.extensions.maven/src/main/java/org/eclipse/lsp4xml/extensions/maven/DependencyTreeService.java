@@ -0,0 +1,317 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven;
+
+import java.lang.ref.WeakReference;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.apache.maven.RepositoryUtils;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.PlexusContainer;
+import org.codehaus.plexus.component.repository.exception.ComponentLookupException;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.ArtifactTypeRegistry;
+import org.eclipse.aether.RepositoryException;
+import org.eclipse.aether.collection.CollectRequest;
+import org.eclipse.aether.collection.DependencyCollectionException;
+import org.eclipse.aether.collection.DependencyGraphTransformationContext;
+import org.eclipse.aether.collection.DependencyGraphTransformer;
+import org.eclipse.aether.graph.DefaultDependencyNode;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.graph.DependencyNode;
+import org.eclipse.aether.graph.Exclusion;
+import org.eclipse.aether.util.graph.transformer.ConflictResolver;
+
+/**
+ * Collects the dependency tree of the projects held by the
+ * {@link MavenProjectCache}.
+ *
+ * The subtree of each direct dependency is collected separately and memoised
+ * by coordinates, scope, exclusions and dependency management, so that sibling
+ * modules sharing dependencies reuse each other's work, as long as one of the
+ * projects still uses them. The conflicts between the subtrees are then
+ * resolved on a copy of the whole tree, nearest wins, like a collection from
+ * the project would. Collections run on a bounded pool, never on the caller
+ * thread.
+ */
+public class DependencyTreeService {
+
+	private final PlexusContainer container;
+	private final MavenProjectCache cache;
+	private final ExecutorService executor;
+	private final Map<SubtreeKey, CompletableFuture<DependencyNode>> subtrees = new ConcurrentHashMap<>();
+	private final Map<URI, ProjectTree> trees = new ConcurrentHashMap<>();
+	private RepositorySystem repositorySystem;
+
+	private static class ProjectTree {
+
+		private final WeakReference<MavenProject> project;
+		private final Set<SubtreeKey> subtrees;
+		private final CompletableFuture<DependencyNode> root;
+
+		ProjectTree(MavenProject project, Set<SubtreeKey> subtrees, CompletableFuture<DependencyNode> root) {
+			this.project = new WeakReference<>(project);
+			this.subtrees = subtrees;
+			this.root = root;
+		}
+	}
+
+	/**
+	 * A direct dependency, with the dependency management it is collected with.
+	 */
+	private static class SubtreeKey {
+
+		private final String dependency;
+		// shared by the keys of a project
+		private final List<String> management;
+		private final int hash;
+
+		SubtreeKey(String dependency, List<String> management) {
+			this.dependency = dependency;
+			this.management = management;
+			this.hash = 31 * dependency.hashCode() + management.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof SubtreeKey)) {
+				return false;
+			}
+			SubtreeKey other = (SubtreeKey) obj;
+			return hash == other.hash && dependency.equals(other.dependency) && management.equals(other.management);
+		}
+	}
+
+	public DependencyTreeService(PlexusContainer container, MavenProjectCache cache) {
+		this.container = container;
+		this.cache = cache;
+		int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+		AtomicInteger count = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "maven-dependency-collector-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * @return the dependency tree of the given project, collecting it if needed.
+	 */
+	public CompletableFuture<DependencyNode> getDependencyTree(URI uri, MavenProject project) {
+		// MavenProject.equals() only compares coordinates, so check identity to spot a newer build
+		ProjectTree tree = trees.compute(uri, (u, previous) -> {
+			if (previous != null && previous.project.get() == project && !previous.root.isCompletedExceptionally()) {
+				return previous;
+			}
+			return collect(uri, project);
+		});
+		evictUnusedSubtrees();
+		return tree.root;
+	}
+
+	/**
+	 * @return the dependency tree of the given project if it is already
+	 *         collected, otherwise start collecting it and return
+	 *         <code>null</code>.
+	 */
+	public DependencyNode getDependencyTreeIfDone(URI uri, MavenProject project) {
+		CompletableFuture<DependencyNode> tree = getDependencyTree(uri, project);
+		return tree.isDone() && !tree.isCompletedExceptionally() ? tree.join() : null;
+	}
+
+	/**
+	 * @return the number of dependency subtrees being collected.
+	 */
+	public long getPendingCollections() {
+		return subtrees.values().stream().filter(subtree -> !subtree.isDone()).count();
+	}
+
+	/**
+	 * @return the number of dependency subtrees kept for the projects.
+	 */
+	public int getSubtreeCount() {
+		return subtrees.size();
+	}
+
+	public void dispose() {
+		executor.shutdownNow();
+		subtrees.clear();
+		trees.clear();
+	}
+
+	/**
+	 * Forgets the subtrees none of the projects' trees was collected from.
+	 */
+	private void evictUnusedSubtrees() {
+		Set<SubtreeKey> used = new HashSet<>();
+		trees.values().forEach(tree -> used.addAll(tree.subtrees));
+		subtrees.keySet().retainAll(used);
+	}
+
+	private ProjectTree collect(URI uri, MavenProject project) {
+		RepositorySystemSession session = cache.getRepositorySystemSession(uri);
+		if (session == null) {
+			CompletableFuture<DependencyNode> failed = new CompletableFuture<>();
+			failed.completeExceptionally(new IllegalStateException("Maven build state is not initialized"));
+			return new ProjectTree(project, new HashSet<>(), failed);
+		}
+		ArtifactTypeRegistry types = session.getArtifactTypeRegistry();
+		List<Dependency> managed = project.getDependencyManagement() == null ? new ArrayList<>()
+				: project.getDependencyManagement().getDependencies().stream()
+						.map(d -> RepositoryUtils.toDependency(d, types)).collect(Collectors.toList());
+		List<String> management = managed.stream().map(DependencyTreeService::toKey).collect(Collectors.toList());
+		Set<SubtreeKey> keys = new HashSet<>();
+		List<CompletableFuture<DependencyNode>> children = new ArrayList<>();
+		for (org.apache.maven.model.Dependency dependency : project.getDependencies()) {
+			Dependency d = RepositoryUtils.toDependency(dependency, types);
+			SubtreeKey key = new SubtreeKey(toKey(d), management);
+			keys.add(key);
+			// failures aren't reused, a later request may succeed (e.g. once online)
+			children.add(subtrees.compute(key,
+					(k, previous) -> previous == null || previous.isCompletedExceptionally()
+							? collectSubtree(d, managed, project, session)
+							: previous));
+		}
+		CompletableFuture<DependencyNode> root = CompletableFuture
+				.allOf(children.toArray(new CompletableFuture[children.size()])).thenApplyAsync(v -> {
+					DefaultDependencyNode node = new DefaultDependencyNode(
+							RepositoryUtils.toArtifact(project.getArtifact()));
+					// the subtrees are shared with other projects, resolve on copies
+					Map<DependencyNode, DependencyNode> copies = new IdentityHashMap<>();
+					node.setChildren(children.stream().map(child -> copy(child.join(), copies))
+							.collect(Collectors.toList()));
+					return resolveConflicts(node, session);
+				}, executor);
+		return new ProjectTree(project, keys, root);
+	}
+
+	private static DependencyNode copy(DependencyNode node, Map<DependencyNode, DependencyNode> copies) {
+		DependencyNode copy = copies.get(node);
+		if (copy == null) {
+			copy = new DefaultDependencyNode(node);
+			copies.put(node, copy);
+			List<DependencyNode> children = new ArrayList<>(node.getChildren().size());
+			for (DependencyNode child : node.getChildren()) {
+				children.add(copy(child, copies));
+			}
+			copy.setChildren(children);
+		}
+		return copy;
+	}
+
+	/**
+	 * Runs the graph transformer of the session, the conflict resolution
+	 * included, over the whole tree.
+	 */
+	private static DependencyNode resolveConflicts(DependencyNode root, RepositorySystemSession session) {
+		DependencyGraphTransformer transformer = session.getDependencyGraphTransformer();
+		if (transformer == null) {
+			return root;
+		}
+		try {
+			return transformer.transformGraph(root, new TransformationContext(verbose(session)));
+		} catch (RepositoryException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @return a session keeping the conflict losers in the graph, so that they
+	 *         can be reported.
+	 */
+	private static RepositorySystemSession verbose(RepositorySystemSession session) {
+		DefaultRepositorySystemSession verboseSession = new DefaultRepositorySystemSession(session);
+		verboseSession.setConfigProperty(ConflictResolver.CONFIG_PROP_VERBOSE, true);
+		return verboseSession;
+	}
+
+	private static class TransformationContext implements DependencyGraphTransformationContext {
+
+		private final RepositorySystemSession session;
+		private final Map<Object, Object> values = new ConcurrentHashMap<>();
+
+		TransformationContext(RepositorySystemSession session) {
+			this.session = session;
+		}
+
+		@Override
+		public RepositorySystemSession getSession() {
+			return session;
+		}
+
+		@Override
+		public Object get(Object key) {
+			return values.get(key);
+		}
+
+		@Override
+		public Object put(Object key, Object value) {
+			return value != null ? values.put(key, value) : values.remove(key);
+		}
+	}
+
+	private CompletableFuture<DependencyNode> collectSubtree(Dependency dependency, List<Dependency> managed,
+			MavenProject project, RepositorySystemSession session) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				CollectRequest request = new CollectRequest(dependency, project.getRemoteProjectRepositories());
+				request.setManagedDependencies(managed);
+				return getRepositorySystem().collectDependencies(verbose(session), request).getRoot();
+			} catch (DependencyCollectionException e) {
+				if (e.getResult() != null && e.getResult().getRoot() != null) {
+					return e.getResult().getRoot();
+				}
+				throw new IllegalStateException(e);
+			} catch (ComponentLookupException e) {
+				throw new IllegalStateException(e);
+			}
+		}, executor);
+	}
+
+	private synchronized RepositorySystem getRepositorySystem() throws ComponentLookupException {
+		if (repositorySystem == null) {
+			repositorySystem = container.lookup(RepositorySystem.class);
+		}
+		return repositorySystem;
+	}
+
+	private static String toKey(Dependency dependency) {
+		Artifact artifact = dependency.getArtifact();
+		StringBuilder key = new StringBuilder();
+		key.append(artifact.getGroupId()).append(':').append(artifact.getArtifactId()).append(':')
+				.append(artifact.getExtension()).append(':').append(artifact.getClassifier()).append(':')
+				.append(artifact.getVersion()).append('|').append(dependency.getScope()).append('|')
+				.append(dependency.isOptional());
+		for (Exclusion exclusion : dependency.getExclusions()) {
+			key.append('|').append(exclusion.getGroupId()).append(':').append(exclusion.getArtifactId());
+		}
+		return key.toString();
+	}
+
+}
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.graph.DependencyNode;
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.DiagnosticSeverity;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4xml.dom.DOMElement;
+import org.eclipse.lsp4xml.dom.DOMNode;
+import org.eclipse.lsp4xml.utils.XMLPositionUtility;
+
+/**
+ * Reports, on each direct <code>&lt;dependency&gt;</code>, the version
+ * conflicts found in its subtree and whether it is also brought transitively by
+ * another dependency.
+ */
+public class DependencyValidator {
+
+	private static class Occurrence {
+
+		private final String version;
+		private final int depth;
+		private final String via;
+
+		Occurrence(String version, int depth, String via) {
+			this.version = version;
+			this.depth = depth;
+			this.via = via;
+		}
+	}
+
+	private final Map<String, List<Occurrence>> occurrencesByKey = new HashMap<>();
+	private final Map<String, List<String>> conflictsByDirect = new HashMap<>();
+	private final Map<String, Set<String>> transitiveDuplicates = new HashMap<>();
+
+	public DependencyValidator(DependencyNode tree) {
+		for (DependencyNode direct : tree.getChildren()) {
+			String via = toKey(direct.getArtifact());
+			collect(direct, 1, via, new IdentityHashMap<>());
+		}
+		occurrencesByKey.forEach((key, occurrences) -> {
+			// nearest wins, then first declaration
+			Occurrence winner = null;
+			for (Occurrence occurrence : occurrences) {
+				if (winner == null || occurrence.depth < winner.depth) {
+					winner = occurrence;
+				}
+			}
+			for (Occurrence occurrence : occurrences) {
+				if (!occurrence.version.equals(winner.version)) {
+					conflictsByDirect.computeIfAbsent(occurrence.via, k -> new ArrayList<>())
+							.add(key + ':' + occurrence.version + " is overridden by " + winner.version
+									+ (winner.via.equals(occurrence.via) ? "" : " from " + winner.via));
+				} else if (occurrence.depth > 1 && !occurrence.via.equals(key)) {
+					transitiveDuplicates.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(occurrence.via);
+				}
+			}
+		});
+	}
+
+	private void collect(DependencyNode node, int depth, String via, Map<DependencyNode, Boolean> visited) {
+		if (node.getArtifact() == null || visited.put(node, Boolean.TRUE) != null) {
+			return;
+		}
+		occurrencesByKey.computeIfAbsent(toKey(node.getArtifact()), k -> new ArrayList<>())
+				.add(new Occurrence(node.getArtifact().getBaseVersion(), depth, via));
+		for (DependencyNode child : node.getChildren()) {
+			collect(child, depth + 1, via, visited);
+		}
+	}
+
+	public Diagnostic validateDependency(DiagnosticRequest diagnosticRequest) {
+		DOMNode node = diagnosticRequest.getNode();
+		DOMElement dependencies = node.getParentElement();
+		if (dependencies == null || dependencies.getParentElement() == null
+				|| !"dependencies".equals(dependencies.getLocalName())
+				|| "dependencyManagement".equals(dependencies.getParentElement().getLocalName())) {
+			return null;
+		}
+		String groupId = DOMUtils.getChildText(node, "groupId");
+		String artifactId = DOMUtils.getChildText(node, "artifactId");
+		if (groupId == null || artifactId == null) {
+			return null;
+		}
+		String directKey = groupId + ':' + artifactId;
+		List<String> conflicts = conflictsByDirect.getOrDefault(directKey, Collections.emptyList());
+		Set<String> duplicates = transitiveDuplicates.getOrDefault(directKey, Collections.emptySet());
+		if (conflicts.isEmpty() && duplicates.isEmpty()) {
+			return null;
+		}
+		DOMElement element = (DOMElement) node;
+		// the start tag may not be closed yet while it's edited
+		Integer startTagClose = element.getStartTagCloseOffset();
+		Range range = XMLPositionUtility.createRange(element.getStartTagOpenOffset(),
+				startTagClose != null ? startTagClose + 1 : element.getEnd(), diagnosticRequest.getDOMDocument());
+		if (!conflicts.isEmpty()) {
+			return new Diagnostic(range, "Dependency conflicts:\n" + String.join("\n", conflicts),
+					DiagnosticSeverity.Warning, diagnosticRequest.getDOMDocument().getDocumentURI(), "XML");
+		}
+		return new Diagnostic(range,
+				String.format("%s is already brought transitively by %s", directKey, String.join(", ", duplicates)),
+				DiagnosticSeverity.Information, diagnosticRequest.getDOMDocument().getDocumentURI(), "XML");
+	}
+
+	private static String toKey(Artifact artifact) {
+		return artifact.getGroupId() + ':' + artifact.getArtifactId();
+	}
+
+}
@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.maven.model.InputLocation;
+import org.apache.maven.model.InputSource;
+import org.apache.maven.model.io.xpp3.MavenXpp3WriterEx;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.lsp4j.jsonrpc.ResponseErrorException;
+import org.eclipse.lsp4j.jsonrpc.messages.ResponseError;
+import org.eclipse.lsp4j.jsonrpc.messages.ResponseErrorCode;
+import org.eclipse.lsp4xml.extensions.maven.protocol.EffectivePomChunk;
+import org.eclipse.lsp4xml.extensions.maven.protocol.EffectivePomParams;
+
+/**
+ * Serializes the effective POM of the {@link MavenProject} already held by the
+ * {@link MavenProjectCache}, of a fast or a full build, so that no new build is
+ * triggered as long as there's one. Each element is
+ * followed by a comment telling which file and line it comes from.
+ *
+ * The output is cut into chunks while it is written, and the chunks are kept
+ * until a newer build of the project replaces it, so that a client can page
+ * through huge models. They are held softly, and dropped with the project once
+ * the cache no longer holds it, e.g. when the pom is deleted.
+ */
+public class EffectivePomService {
+
+	static final int CHUNK_SIZE = 64 * 1024;
+
+	private final MavenProjectCache cache;
+	private final Map<URI, SoftReference<RenderedPom>> rendered = new ConcurrentHashMap<>();
+
+	public EffectivePomService(MavenProjectCache cache) {
+		this.cache = cache;
+	}
+
+	public EffectivePomChunk getEffectivePom(EffectivePomParams params) {
+		URI uri = URI.create(params.getUri());
+		MavenProject project = cache.getMavenProject(uri);
+		if (project == null) {
+			throw new ResponseErrorException(new ResponseError(ResponseErrorCode.InvalidParams,
+					"No Maven project was built yet for " + params.getUri(), null));
+		}
+		SoftReference<RenderedPom> reference = rendered.get(uri);
+		RenderedPom pom = reference != null ? reference.get() : null;
+		// MavenProject.equals() only compares coordinates, so check identity to spot a newer build
+		if (pom == null || pom.project.get() != project) {
+			pom = new RenderedPom(project, render(project, uri));
+			rendered.put(uri, new SoftReference<>(pom));
+		}
+		// the ones reclaimed, or of projects the cache dropped
+		rendered.values().removeIf(other -> {
+			RenderedPom otherPom = other.get();
+			return otherPom == null || otherPom.project.get() == null;
+		});
+		List<String> chunks = pom.chunks;
+		int chunk = params.getChunk();
+		if (chunk < 0 || chunk >= chunks.size()) {
+			throw new ResponseErrorException(new ResponseError(ResponseErrorCode.InvalidParams,
+					"Chunk " + chunk + " is out of range [0, " + chunks.size() + "[", null));
+		}
+		return new EffectivePomChunk(params.getUri(), chunk, chunks.size(), chunks.get(chunk));
+	}
+
+	private static List<String> render(MavenProject project, URI uri) {
+		MavenXpp3WriterEx writer = new MavenXpp3WriterEx();
+		String workingCopy = project.getFile() != null ? project.getFile().getPath() : null;
+		writer.setStringFormatter(new OriginFormatter(workingCopy, new File(uri).getPath()));
+		try (ChunkWriter out = new ChunkWriter(CHUNK_SIZE)) {
+			writer.write(out, project.getModel());
+			return out.getChunks();
+		} catch (IOException e) {
+			throw new ResponseErrorException(
+					new ResponseError(ResponseErrorCode.InternalError, e.getMessage(), null));
+		}
+	}
+
+	private static class RenderedPom {
+
+		private final WeakReference<MavenProject> project;
+		private final List<String> chunks;
+
+		RenderedPom(MavenProject project, List<String> chunks) {
+			this.project = new WeakReference<>(project);
+			this.chunks = chunks;
+		}
+	}
+
+	/**
+	 * Formats the origin of an element as <code>file, line N</code>. The project
+	 * itself is built from a temporary working copy, so the elements read from it
+	 * are reported against the edited pom.
+	 */
+	private static class OriginFormatter extends InputLocation.StringFormatter {
+
+		private final String workingCopy;
+		private final String projectFile;
+
+		OriginFormatter(String workingCopy, String projectFile) {
+			this.workingCopy = workingCopy;
+			this.projectFile = projectFile;
+		}
+
+		@Override
+		public String toString(InputLocation location) {
+			InputSource source = location.getSource();
+			String file;
+			if (source == null) {
+				file = "?";
+			} else if (source.getLocation() != null && source.getLocation().equals(workingCopy)) {
+				file = projectFile;
+			} else if (source.getLocation() != null) {
+				file = source.getLocation();
+			} else {
+				file = source.getModelId();
+			}
+			return ' ' + file + ", line " + location.getLineNumber() + ' ';
+		}
+	}
+
+	/**
+	 * Writer that splits what is written into strings of at most
+	 * <code>chunkSize</code> characters.
+	 */
+	private static class ChunkWriter extends Writer {
+
+		private final int chunkSize;
+		private final List<String> chunks = new ArrayList<>();
+		private StringBuilder current;
+
+		ChunkWriter(int chunkSize) {
+			this.chunkSize = chunkSize;
+			this.current = new StringBuilder(chunkSize);
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) {
+			while (len > 0) {
+				int n = Math.min(len, chunkSize - current.length());
+				current.append(cbuf, off, n);
+				off += n;
+				len -= n;
+				if (current.length() == chunkSize) {
+					cut();
+				}
+			}
+		}
+
+		@Override
+		public void flush() {
+			// chunks are only cut when full, or at the end
+		}
+
+		@Override
+		public void close() {
+			cut();
+		}
+
+		private void cut() {
+			if (current.length() > 0) {
+				chunks.add(current.toString());
+				current = new StringBuilder(chunkSize);
+			}
+		}
+
+		List<String> getChunks() {
+			cut();
+			return chunks;
+		}
+	}
+
+}
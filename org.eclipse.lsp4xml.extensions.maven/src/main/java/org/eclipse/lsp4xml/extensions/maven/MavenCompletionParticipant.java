@@ -8,13 +8,20 @@
  *******************************************************************************/
 package org.eclipse.lsp4xml.extensions.maven;
 
-import java.io.File;
 import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
-import org.apache.maven.project.MavenProject;
-import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Parent;
 import org.eclipse.lsp4j.CompletionItem;
 import org.eclipse.lsp4j.CompletionItemKind;
 import org.eclipse.lsp4j.InsertTextFormat;
@@ -26,6 +33,13 @@ import org.eclipse.lsp4xml.commons.TextDocument;
 import org.eclipse.lsp4xml.commons.snippets.SnippetRegistry;
 import org.eclipse.lsp4xml.dom.DOMDocument;
 import org.eclipse.lsp4xml.dom.DOMElement;
+import org.eclipse.lsp4xml.dom.DOMNode;
+import org.eclipse.lsp4xml.extensions.maven.index.PluginDescriptorIndex;
+import org.eclipse.lsp4xml.extensions.maven.index.PluginDescriptorIndex.Descriptor;
+import org.eclipse.lsp4xml.extensions.maven.index.PluginDescriptorIndex.Goal;
+import org.eclipse.lsp4xml.extensions.maven.index.PluginDescriptorIndex.Parameter;
+import org.eclipse.lsp4xml.extensions.maven.metrics.MavenMetrics;
+import org.eclipse.lsp4xml.extensions.maven.metrics.OperationTrace;
 import org.eclipse.lsp4xml.extensions.maven.searcher.ArtifactSearcherManager;
 import org.eclipse.lsp4xml.extensions.maven.searcher.LocalSubModuleSearcher;
 import org.eclipse.lsp4xml.extensions.maven.searcher.ParentSearcher;
@@ -36,11 +50,29 @@ import org.eclipse.lsp4xml.utils.XMLPositionUtility;
 
 public class MavenCompletionParticipant extends CompletionParticipantAdapter {
 
+	private static final Logger LOGGER = Logger.getLogger(MavenCompletionParticipant.class.getName());
+
 	private boolean snippetsLoaded;
 	private MavenProjectCache cache;
+	private PluginDescriptorIndex pluginDescriptorIndex;
+	private MavenMetrics metrics;
+	private CompletionCache completionCache;
 
 	public MavenCompletionParticipant(MavenProjectCache cache) {
+		this(cache, new MavenMetrics(false));
+	}
+
+	public MavenCompletionParticipant(MavenProjectCache cache, MavenMetrics metrics) {
+		this(cache, new PluginDescriptorIndex(
+				ArtifactSearcherManager.getInstance().getLocalSearcher().getLocalRepository()), metrics);
+	}
+
+	public MavenCompletionParticipant(MavenProjectCache cache, PluginDescriptorIndex pluginDescriptorIndex,
+			MavenMetrics metrics) {
 		this.cache = cache;
+		this.pluginDescriptorIndex = pluginDescriptorIndex;
+		this.metrics = metrics;
+		this.completionCache = new CompletionCache(metrics);
 	}
 
 	@Override
@@ -51,29 +83,50 @@ public class MavenCompletionParticipant extends CompletionParticipantAdapter {
 			return;
 		}
 		//TODO: These two switch cases should be combined into one
+		long start = metrics.start();
+		OperationTrace trace = OperationTrace.start("completion", request.getXMLDocument().getDocumentURI());
 		switch (parent.getParentElement().getLocalName()) {
 		case "parent":
-			collectParentCompletion(request, response);
+			addCached(request, response, "parent", declarationState(request), this::collectParentCompletion);
+			metrics.record("completion.parent", start);
+			trace.phase("parent");
 			break;
 		case "plugin":
 			break;
 		default:
 			break;
 		}
+		long collectorStart = metrics.start();
 		switch (parent.getLocalName()) {
 		case "scope":
-			collectScopeCompletion(request, response);
+			addCached(request, response, "scope", null, this::collectScopeCompletion);
+			metrics.record("completion.scope", collectorStart);
+			trace.phase("scope");
 			break;
 		case "groupId":
 			if (!parent.getParentElement().getLocalName().equals("parent")){
-				collectGroupIdCompletion(request, response);
+				addCached(request, response, "groupId", localRepositoryState(), this::collectGroupIdCompletion);
+				metrics.record("completion.groupId", collectorStart);
+				trace.phase("groupId");
 			}
 			break;
 		case "module":
-			collectSubModuleCompletion(request, response);
+			addCached(request, response, "module", declarationState(request), this::collectSubModuleCompletion);
 			if (!parent.getParentElement().getLocalName().equals("parent")){
-				collectGroupIdCompletion(request, response);
+				addCached(request, response, "groupId", localRepositoryState(), this::collectGroupIdCompletion);
 			}
+			metrics.record("completion.module", collectorStart);
+			trace.phase("module");
+			break;
+		case "goal":
+			collectGoalCompletion(request, response);
+			metrics.record("completion.goal", collectorStart);
+			trace.phase("goal");
+			break;
+		case "configuration":
+			collectConfigurationCompletion(request, response);
+			metrics.record("completion.configuration", collectorStart);
+			trace.phase("configuration");
 			break;
 		default:
 			initSnippets();
@@ -87,10 +140,17 @@ public class MavenCompletionParticipant extends CompletionParticipantAdapter {
 						}
 						return parent.getLocalName().equals(context.getValue());
 					}).forEach(completionItem -> response.addCompletionItem(completionItem));
+			metrics.record("completion.snippets", collectorStart);
+			trace.phase("snippets");
 		}
 		if (request.getNode().isText()) {
+			long propertiesStart = metrics.start();
 			completeProperties(request, response);
+			metrics.record("completion.properties", propertiesStart);
+			trace.phase("properties");
 		}
+		metrics.record("completion.total", start);
+		trace.end();
 	}
 
 	private void completeProperties(ICompletionRequest request, ICompletionResponse response) {
@@ -107,54 +167,177 @@ public class MavenCompletionParticipant extends CompletionParticipantAdapter {
 				break;
 			}
 		}
-		MavenProject project = cache.getLastSuccessfulMavenProject(request.getXMLDocument());
-		if (project != null && project.getProperties() != null) {
-			for (Entry<Object, Object> property : project.getProperties().entrySet()) {
+		ProjectSnapshot project = cache.getAvailableSnapshot(request.getXMLDocument());
+		if (project == null) {
+			return;
+		}
+		Range range;
+		try {
+			range = new Range(xmlDocument.positionAt(initialPropertyOffset), xmlDocument.positionAt(request.getOffset()));
+		} catch (BadLocationException e) {
+			LOGGER.log(Level.WARNING, "Invalid property completion offset " + initialPropertyOffset, e);
+			return;
+		}
+		completionCache.get(request.getParentElement(), "properties", project.getProperties(), range, items -> {
+			for (Entry<String, String> property : project.getProperties().entrySet()) {
 				CompletionItem item = new CompletionItem();
 				item.setLabel("${" + property.getKey() + '}');
 				item.setDocumentation("Default Value: " + property.getValue());
-				try {
-					TextEdit textEdit = new TextEdit();
-					textEdit.setNewText(item.getLabel());
-					textEdit.setRange(new Range(xmlDocument.positionAt(initialPropertyOffset), xmlDocument.positionAt(request.getOffset())));
-					item.setTextEdit(textEdit);
-				} catch (BadLocationException e) {
-					e.printStackTrace();
-					item.setInsertText(item.getLabel());
-				}
-				response.addCompletionItem(item, false);
+				item.setTextEdit(new TextEdit(range, item.getLabel()));
+				items.add(item);
 			}
-		}
+		}).forEach(item -> response.addCompletionItem(item, false));
 		// TODO add static properties
 	}
 
-	private void collectSubModuleCompletion(ICompletionRequest request, ICompletionResponse response) {
+	/**
+	 * Adds the items of a collector which only depends on the element and the
+	 * given state, computed once while the user filters them.
+	 */
+	private void addCached(ICompletionRequest request, ICompletionResponse response, String collector,
+			Object state, BiConsumer<ICompletionRequest, List<CompletionItem>> collect) {
+		DOMElement node = request.getParentElement();
+		DOMDocument doc = request.getXMLDocument();
+		Range range = XMLPositionUtility.createRange(node.getStartTagCloseOffset() + 1, node.getEndTagOpenOffset(),
+				doc);
+		completionCache.get(node, collector, state, range, items -> collect.accept(request, items))
+				.forEach(response::addCompletionItem);
+	}
+
+	/**
+	 * @return the parent and the modules the document declares, read from its
+	 *         DOM, for the collectors proposing them.
+	 */
+	private static Object declarationState(ICompletionRequest request) {
+		Model model = DOMModelReader.getModel(request.getXMLDocument());
+		Parent parent = model.getParent();
+		return Arrays.asList(parent != null ? parent.getId() : null, new ArrayList<>(model.getModules()));
+	}
+
+	/**
+	 * @return when a groupId was last added to the local repository.
+	 */
+	private static Long localRepositoryState() {
+		return ArtifactSearcherManager.getInstance().getLocalSearcher().getLocalRepository().toFile().lastModified();
+	}
+
+	private void collectSubModuleCompletion(ICompletionRequest request, List<CompletionItem> items) {
 		DOMElement node = request.getParentElement();
 		DOMDocument doc = request.getXMLDocument();
 
 		Range range = XMLPositionUtility.createRange(node.getStartTagCloseOffset() + 1, node.getEndTagOpenOffset(),
 				doc);
 
+		for (String module : LocalSubModuleSearcher.getInstance().getSubModules(doc)) {
+			String label = module;
+			CompletionItem item = new CompletionItem();
+			item.setLabel(label);
+			String insertText = label;
+			item.setKind(CompletionItemKind.Property);
+			item.setDocumentation(Either.forLeft(""));
+			item.setFilterText(insertText);
+			item.setTextEdit(new TextEdit(range, insertText));
+			item.setInsertTextFormat(InsertTextFormat.PlainText);
+			items.add(item);
+		}
+
+	}
+
+	private Descriptor getPluginDescriptor(DOMNode node, DOMDocument doc) {
+		DOMElement plugin = PluginConfigurationValidator.findPlugin(node);
+		if (plugin == null) {
+			return null;
+		}
+		// the effective version of managed plugins, without waiting for a build
+		return pluginDescriptorIndex.getDescriptor(plugin, cache.getCurrentSnapshot(URI.create(doc.getDocumentURI())));
+	}
+
+	private void collectGoalCompletion(ICompletionRequest request, ICompletionResponse response) {
+		DOMElement node = request.getParentElement();
+		DOMElement goals = node.getParentElement();
+		if (goals == null || !"goals".equals(goals.getLocalName())) {
+			return;
+		}
+		DOMDocument doc = request.getXMLDocument();
+		Descriptor descriptor = getPluginDescriptor(goals, doc);
+		if (descriptor == null) {
+			return;
+		}
+		Range range = XMLPositionUtility.createRange(node.getStartTagCloseOffset() + 1, node.getEndTagOpenOffset(),
+				doc);
+		for (Goal goal : descriptor.getGoals()) {
+			String label = goal.getName();
+			CompletionItem item = new CompletionItem();
+			item.setLabel(label);
+			String insertText = label;
+			item.setKind(CompletionItemKind.Function);
+			item.setDocumentation(Either.forLeft(goal.getDescription() != null ? goal.getDescription() : ""));
+			item.setFilterText(insertText);
+			item.setTextEdit(new TextEdit(range, insertText));
+			item.setInsertTextFormat(InsertTextFormat.PlainText);
+			response.addCompletionItem(item);
+		}
+	}
+
+	private void collectConfigurationCompletion(ICompletionRequest request, ICompletionResponse response) {
+		DOMElement node = request.getParentElement();
+		DOMDocument doc = request.getXMLDocument();
+		Descriptor descriptor = getPluginDescriptor(node, doc);
+		if (descriptor == null) {
+			return;
+		}
+		Set<String> configured = new HashSet<>();
+		for (DOMNode child : node.getChildren()) {
+			if (child.isElement()) {
+				configured.add(child.getLocalName());
+			}
+		}
+		Range range;
 		try {
-			//TODO: Get the File properly without using substring
-			LocalSubModuleSearcher subModuleSearcher = LocalSubModuleSearcher.getInstance();
-			subModuleSearcher.setPomFile(new File(doc.getDocumentURI().substring(5)));
-			for (String module : subModuleSearcher.getSubModules()) {
-				String label = module;
-				CompletionItem item = new CompletionItem();
-				item.setLabel(label);
-				String insertText = label;
-				item.setKind(CompletionItemKind.Property);
-				item.setDocumentation(Either.forLeft(""));
-				item.setFilterText(insertText);
-				item.setTextEdit(new TextEdit(range, insertText));
-				item.setInsertTextFormat(InsertTextFormat.PlainText);
-				response.addCompletionItem(item);
+			range = new Range(doc.positionAt(request.getOffset()), doc.positionAt(request.getOffset()));
+		} catch (BadLocationException e) {
+			LOGGER.log(Level.WARNING, "Invalid configuration completion offset " + request.getOffset(), e);
+			return;
+		}
+		for (Parameter parameter : descriptor.getParameters(PluginConfigurationValidator.getGoals(node)).values()) {
+			if (!parameter.isEditable() || configured.contains(parameter.getName())) {
+				continue;
 			}
-		} catch (IOException | XmlPullParserException e) {
-			e.printStackTrace();
+			String label = parameter.getName();
+			CompletionItem item = new CompletionItem();
+			item.setLabel(label);
+			item.setKind(CompletionItemKind.Property);
+			item.setDetail(parameter.getType());
+			item.setDocumentation(Either.forLeft(getDocumentation(parameter)));
+			item.setDeprecated(parameter.getDeprecated() != null);
+			item.setFilterText(label);
+			// the default value as placeholder, escaped for the snippet syntax
+			String placeholder = parameter.getDefaultValue() == null ? ""
+					: parameter.getDefaultValue().replace("\\", "\\\\").replace("$", "\\$").replace("}", "\\}");
+			item.setTextEdit(new TextEdit(range, '<' + label + ">${1:" + placeholder + "}</" + label + '>'));
+			item.setInsertTextFormat(InsertTextFormat.Snippet);
+			response.addCompletionItem(item);
 		}
+	}
 
+	private static String getDocumentation(Parameter parameter) {
+		StringBuilder documentation = new StringBuilder();
+		if (parameter.getDescription() != null) {
+			documentation.append(parameter.getDescription()).append("\n\n");
+		}
+		if (parameter.isRequired()) {
+			documentation.append("Required\n");
+		}
+		if (parameter.getDefaultValue() != null) {
+			documentation.append("Default Value: ").append(parameter.getDefaultValue()).append('\n');
+		}
+		if (parameter.getExpression() != null) {
+			documentation.append("User Property: ").append(parameter.getExpression()).append('\n');
+		}
+		if (parameter.getDeprecated() != null) {
+			documentation.append("Deprecated: ").append(parameter.getDeprecated()).append('\n');
+		}
+		return documentation.toString().trim();
 	}
 
 	private void initSnippets() {
@@ -166,7 +349,7 @@ public class MavenCompletionParticipant extends CompletionParticipantAdapter {
 				SnippetRegistry.getInstance()
 						.load(MavenCompletionParticipant.class.getResourceAsStream("pom-snippets.json"));
 			} catch (IOException e) {
-				e.printStackTrace();
+				LOGGER.log(Level.SEVERE, "Error while loading the pom snippets", e);
 			}
 		} finally {
 			snippetsLoaded = true;
@@ -174,36 +357,36 @@ public class MavenCompletionParticipant extends CompletionParticipantAdapter {
 
 	}
 
-	private void collectParentCompletion(ICompletionRequest request, ICompletionResponse response) {
+	private void collectParentCompletion(ICompletionRequest request, List<CompletionItem> items) {
 		DOMElement node = request.getParentElement();
 		DOMDocument doc = request.getXMLDocument();
 		Range range = XMLPositionUtility.createRange(node.getStartTagCloseOffset() + 1, node.getEndTagOpenOffset(),
 				doc);
-		try {
-			ParentSearcher.getInstance().setPomFile(new java.io.File(doc.getDocumentURI().substring(5)));
-		} catch (IOException | XmlPullParserException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
+		CompletionItem item = null;
 		switch (node.getLocalName()) {
 		case "artifactId":
-			response.addCompletionItem(getParentArtifactId(doc, range));
+			item = getParentArtifactId(doc, range);
 			break;
 		case "groupId":
-			response.addCompletionItem(getParentGroupID(doc, range));
+			item = getParentGroupID(doc, range);
 			break;
 		case "version":
-			response.addCompletionItem(getParentVersion(doc, range));
+			item = getParentVersion(doc, range);
 			break;
 		default:
 			//TODO: Make a snippet that autocompletes the entire parent (artifact, groupid and version)
 			break;
 		}
-
+		if (item != null) {
+			items.add(item);
+		}
 	}
 
 	private CompletionItem getParentGroupID(DOMDocument doc, Range range) {
-		String label = ParentSearcher.getInstance().getParentGroupId();
+		String label = ParentSearcher.getInstance().getParentGroupId(doc);
+		if (label == null) {
+			return null;
+		}
 		CompletionItem item = new CompletionItem();
 		item.setLabel(label);
 		String insertText = label;
@@ -216,7 +399,10 @@ public class MavenCompletionParticipant extends CompletionParticipantAdapter {
 	}
 
 	private CompletionItem getParentVersion(DOMDocument doc, Range range) {
-		String label = ParentSearcher.getInstance().getParentVersion();
+		String label = ParentSearcher.getInstance().getParentVersion(doc);
+		if (label == null) {
+			return null;
+		}
 		CompletionItem item = new CompletionItem();
 		item.setLabel(label);
 		String insertText = label;
@@ -229,7 +415,10 @@ public class MavenCompletionParticipant extends CompletionParticipantAdapter {
 	}
 
 	private CompletionItem getParentArtifactId(DOMDocument doc, Range range) {
-		String label = ParentSearcher.getInstance().getParentArtifactId();
+		String label = ParentSearcher.getInstance().getParentArtifactId(doc);
+		if (label == null) {
+			return null;
+		}
 		CompletionItem item = new CompletionItem();
 		item.setLabel(label);
 		String insertText = label;
@@ -241,7 +430,7 @@ public class MavenCompletionParticipant extends CompletionParticipantAdapter {
 		return item;
 	}
 
-	private void collectScopeCompletion(ICompletionRequest request, ICompletionResponse response) {
+	private void collectScopeCompletion(ICompletionRequest request, List<CompletionItem> items) {
 		DOMElement node = request.getParentElement();
 		DOMDocument doc = request.getXMLDocument();
 		Range range = XMLPositionUtility.createRange(node.getStartTagCloseOffset() + 1, node.getEndTagOpenOffset(),
@@ -257,11 +446,11 @@ public class MavenCompletionParticipant extends CompletionParticipantAdapter {
 			item.setFilterText(insertText);
 			item.setTextEdit(new TextEdit(range, insertText));
 			item.setInsertTextFormat(InsertTextFormat.PlainText);
-			response.addCompletionItem(item);
+			items.add(item);
 		}
 	}
 
-	private void collectGroupIdCompletion(ICompletionRequest request, ICompletionResponse response) {
+	private void collectGroupIdCompletion(ICompletionRequest request, List<CompletionItem> items) {
 		DOMElement groupIdElt = request.getParentElement();
 		DOMDocument doc = request.getXMLDocument();
 		Range range = XMLPositionUtility.createRange(groupIdElt.getStartTagCloseOffset() + 1,
@@ -280,7 +469,7 @@ public class MavenCompletionParticipant extends CompletionParticipantAdapter {
 			item.setFilterText(insertText);
 			item.setTextEdit(new TextEdit(range, insertText));
 			item.setInsertTextFormat(InsertTextFormat.PlainText);
-			response.addCompletionItem(item);
+			items.add(item);
 
 		}
 
@@ -9,43 +9,151 @@
 package org.eclipse.lsp4xml.extensions.maven;
 
 import java.io.File;
-import java.io.IOException;
+import java.net.URI;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.annotation.Nonnull;
 
 import org.apache.maven.model.building.ModelProblem;
 import org.apache.maven.model.building.ModelProblem.Severity;
-import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.graph.DependencyNode;
 import org.eclipse.lsp4j.Diagnostic;
 import org.eclipse.lsp4j.DiagnosticSeverity;
 import org.eclipse.lsp4j.Position;
 import org.eclipse.lsp4j.Range;
 import org.eclipse.lsp4j.jsonrpc.CancelChecker;
+import org.eclipse.lsp4xml.commons.BadLocationException;
 import org.eclipse.lsp4xml.dom.DOMDocument;
 import org.eclipse.lsp4xml.dom.DOMElement;
 import org.eclipse.lsp4xml.dom.DOMNode;
+import org.eclipse.lsp4xml.extensions.maven.index.PluginDescriptorIndex;
+import org.eclipse.lsp4xml.extensions.maven.index.PomLocationIndex;
+import org.eclipse.lsp4xml.extensions.maven.index.WorkspaceIndex;
+import org.eclipse.lsp4xml.extensions.maven.metrics.MavenMetrics;
+import org.eclipse.lsp4xml.extensions.maven.metrics.OperationTrace;
+import org.eclipse.lsp4xml.extensions.maven.searcher.ArtifactSearcherManager;
 import org.eclipse.lsp4xml.services.extensions.diagnostics.IDiagnosticsParticipant;
 
 public class MavenDiagnosticParticipant implements IDiagnosticsParticipant {
 
+	private static final Logger LOGGER = Logger.getLogger(MavenDiagnosticParticipant.class.getName());
+
 	private MavenProjectCache projectCache;
+	private WorkspaceIndex workspaceIndex;
+	private DependencyTreeService dependencyTreeService;
+	private PluginDescriptorIndex pluginDescriptorIndex;
+	private MavenMetrics metrics;
+	private volatile MavenExecutor modelBuildExecutor;
+	private volatile Consumer<DOMDocument> modelProblemsListener;
+	private volatile Consumer<DOMDocument> documentListener;
+	private final Map<URI, DOMDocument> pendingModelBuilds = new ConcurrentHashMap<>();
+	private final Set<URI> pendingFullBuilds = ConcurrentHashMap.newKeySet();
+
+	public MavenDiagnosticParticipant(MavenProjectCache projectCache, WorkspaceIndex workspaceIndex,
+			DependencyTreeService dependencyTreeService) {
+		this(projectCache, workspaceIndex, dependencyTreeService, new MavenMetrics(false));
+	}
+
+	public MavenDiagnosticParticipant(MavenProjectCache projectCache, WorkspaceIndex workspaceIndex,
+			DependencyTreeService dependencyTreeService, MavenMetrics metrics) {
+		this(projectCache, workspaceIndex, dependencyTreeService, new PluginDescriptorIndex(
+				ArtifactSearcherManager.getInstance().getLocalSearcher().getLocalRepository()), metrics);
+	}
 
-	public MavenDiagnosticParticipant(MavenProjectCache projectCache) {
+	public MavenDiagnosticParticipant(MavenProjectCache projectCache, WorkspaceIndex workspaceIndex,
+			DependencyTreeService dependencyTreeService, PluginDescriptorIndex pluginDescriptorIndex,
+			MavenMetrics metrics) {
 		this.projectCache = projectCache;
+		this.workspaceIndex = workspaceIndex;
+		this.dependencyTreeService = dependencyTreeService;
+		this.pluginDescriptorIndex = pluginDescriptorIndex;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Makes the Maven model problems a second phase of the diagnostics: when the
+	 * project of the validated version isn't built yet, the DOM validations are
+	 * returned right away with the problems of the last build, and the build runs
+	 * on the given executor, after the other tasks of the document. The listener
+	 * is notified once it is done, so that the document can be validated again.
+	 *
+	 * Without executor, the diagnostics wait for the build.
+	 */
+	public void setModelBuildExecutor(MavenExecutor executor, Consumer<DOMDocument> modelProblemsListener) {
+		this.modelBuildExecutor = executor;
+		this.modelProblemsListener = modelProblemsListener;
+	}
+
+	/**
+	 * @param documentListener told about each version of the opened documents,
+	 *                         before they are validated.
+	 */
+	public void setDocumentListener(Consumer<DOMDocument> documentListener) {
+		this.documentListener = documentListener;
 	}
 
 	@Override
 	public void doDiagnostics(DOMDocument xmlDocument, List<Diagnostic> diagnostics, CancelChecker monitor) {
-		projectCache.getProblemsFor(xmlDocument).stream().map(this::toDiagnostic).forEach(diagnostics::add);
+		Consumer<DOMDocument> listener = documentListener;
+		if (listener != null) {
+			listener.accept(xmlDocument);
+		}
+		validate(xmlDocument, diagnostics, false);
+	}
+
+	/**
+	 * Validates the content on disk of a file that isn't opened, e.g. from the
+	 * command line, with the problems of the full build of its current version
+	 * and its dependency tree, waiting for both: nothing validates it again
+	 * later. The workspace index isn't updated from it: it indexes the file
+	 * itself, and must not take it for an editor document.
+	 */
+	public void doFullDiagnostics(DOMDocument xmlDocument, List<Diagnostic> diagnostics) {
+		validate(xmlDocument, diagnostics, true);
+	}
+
+	private void validate(DOMDocument xmlDocument, List<Diagnostic> diagnostics, boolean full) {
+		long start = metrics.start();
+		OperationTrace trace = OperationTrace.start("diagnostics", xmlDocument.getDocumentURI());
+		URI uri = URI.create(xmlDocument.getDocumentURI());
+		if (!full) {
+			// diagnostics run on every change, keep the workspace index in sync
+			workspaceIndex.update(xmlDocument);
+		}
+		metrics.record("diagnostics.workspaceIndex", start);
+		trace.phase("workspaceIndex");
+		long modelStart = metrics.start();
+		// built first, so that the problems are the ones of the full build
+		MavenProject fullProject = full ? projectCache.getFullMavenProject(xmlDocument) : null;
+		Collection<ModelProblem> problems = getModelProblems(uri, xmlDocument, !full);
+		metrics.record("diagnostics.modelProblems", modelStart);
+		trace.phase("modelProblems");
+		// time spent per validator over the whole document
+		Map<String, Long> validatorNanos = metrics.isEnabled() ? new HashMap<>() : null;
 
 		DOMElement documentElement = xmlDocument.getDocumentElement();
+		long configureStart = metrics.start();
 		HashMap<String, Function<DiagnosticRequest, Diagnostic>> tagDiagnostics = configureDiagnosticFunctions(
-				xmlDocument);
+				xmlDocument, projectCache.getCurrentSnapshot(uri), full, fullProject);
+		metrics.record("diagnostics.configure", configureStart);
+		trace.phase("configure");
 
 		Deque<DOMNode> nodes = new ArrayDeque<>();
 		for (DOMNode node : documentElement.getChildren()) {
@@ -56,12 +164,16 @@ public class MavenDiagnosticParticipant implements IDiagnosticsParticipant {
 			for (String tagToValidate : tagDiagnostics.keySet()) {
 				if (node.getLocalName() != null && node.getLocalName().equals(tagToValidate)) {
 					Diagnostic diagnostic = null;
+					long validatorStart = validatorNanos != null ? System.nanoTime() : 0;
 					try {
 						diagnostic = tagDiagnostics.get(tagToValidate)
 								.apply(new DiagnosticRequest(node, xmlDocument, diagnostics));
 					} catch (Exception e) {
-						// TODO: Use plug-in error logger
-						e.printStackTrace();
+						LOGGER.log(Level.SEVERE, "Error while validating <" + tagToValidate + "> of "
+								+ xmlDocument.getDocumentURI(), e);
+					}
+					if (validatorNanos != null) {
+						validatorNanos.merge(tagToValidate, System.nanoTime() - validatorStart, Long::sum);
 					}
 
 					if (diagnostic != null) {
@@ -75,39 +187,213 @@ public class MavenDiagnosticParticipant implements IDiagnosticsParticipant {
 				}
 			}
 		}
+		if (validatorNanos != null) {
+			validatorNanos.forEach((tag, nanos) -> metrics.recordNanos("diagnostics.validator." + tag, nanos));
+		}
+		trace.phase("validators");
+		addModelDiagnostics(xmlDocument, problems, diagnostics);
+		metrics.record("diagnostics.total", start);
+		trace.end();
 	}
 
-	private HashMap<String, Function<DiagnosticRequest, Diagnostic>> configureDiagnosticFunctions(
-			DOMDocument xmlDocument) {
-		SubModuleValidator subModuleValidator= new SubModuleValidator();
+	/**
+	 * @return the problems of the given version of the document if its build is
+	 *         done or can't be deferred, otherwise the ones of the last build.
+	 */
+	private Collection<ModelProblem> getModelProblems(URI uri, DOMDocument xmlDocument, boolean deferModel) {
+		MavenExecutor executor = deferModel ? modelBuildExecutor : null;
+		if (executor == null) {
+			return projectCache.getProblemsFor(xmlDocument);
+		}
+		if (!projectCache.isUpToDate(xmlDocument)) {
+			scheduleModelBuild(executor, uri, xmlDocument);
+		}
+		Collection<ModelProblem> problems = projectCache.getCachedProblems(uri);
+		return problems != null ? problems : Collections.emptyList();
+	}
+
+	private void scheduleModelBuild(MavenExecutor executor, URI uri, DOMDocument xmlDocument) {
+		if (pendingModelBuilds.put(uri, xmlDocument) != null) {
+			// the queued build will pick this version
+			return;
+		}
 		try {
-			subModuleValidator.setPomFile(new File(xmlDocument.getDocumentURI().substring(5)));
-		} catch (IOException | XmlPullParserException e) {
-			// TODO: Use plug-in error logger
-			e.printStackTrace();
+			executor.submit(uri, () -> {
+				DOMDocument latest = pendingModelBuilds.remove(uri);
+				if (latest == null) {
+					return null;
+				}
+				projectCache.getProblemsFor(latest);
+				Consumer<DOMDocument> listener = modelProblemsListener;
+				if (listener != null) {
+					listener.accept(latest);
+				}
+				return null;
+			});
+		} catch (RejectedExecutionException e) {
+			// shutting down
+			pendingModelBuilds.remove(uri);
+		}
+	}
+
+	/**
+	 * Builds the full project, which the dependency validations need, after the
+	 * other tasks of the document, when there's none yet, e.g. after
+	 * {@link BuildMode#FAST} builds of a document that wasn't saved.
+	 */
+	private void scheduleFullBuild(URI uri, DOMDocument xmlDocument) {
+		MavenExecutor executor = modelBuildExecutor;
+		if (executor == null || !pendingFullBuilds.add(uri)) {
+			return;
 		}
-		Function<DiagnosticRequest, Diagnostic> versionFunc = VersionValidator::validateVersion;
+		try {
+			executor.submit(uri, () -> {
+				try {
+					if (projectCache.getCachedFullMavenProject(uri) == null) {
+						projectCache.getFullMavenProject(uri);
+					}
+				} finally {
+					pendingFullBuilds.remove(uri);
+				}
+				Consumer<DOMDocument> listener = modelProblemsListener;
+				if (listener != null && projectCache.getCachedFullMavenProject(uri) != null) {
+					listener.accept(xmlDocument);
+				}
+				return null;
+			});
+		} catch (RejectedExecutionException e) {
+			// shutting down
+			pendingFullBuilds.remove(uri);
+		}
+	}
+
+	/**
+	 * Adds the model problems, except the ones overlapping a DOM diagnostic of
+	 * the same severity, which reports the same issue.
+	 */
+	private void addModelDiagnostics(DOMDocument xmlDocument, Collection<ModelProblem> problems,
+			List<Diagnostic> diagnostics) {
+		if (problems.isEmpty()) {
+			return;
+		}
+		PomLocationIndex locationIndex = PomLocationIndex.get(xmlDocument);
+		String path = new File(URI.create(xmlDocument.getDocumentURI())).getPath();
+		List<Diagnostic> domDiagnostics = new ArrayList<>(diagnostics);
+		for (ModelProblem problem : problems) {
+			Diagnostic diagnostic = toDiagnostic(problem, locationIndex, path);
+			if (domDiagnostics.stream().noneMatch(domDiagnostic -> domDiagnostic.getSeverity() == diagnostic.getSeverity()
+					&& overlap(domDiagnostic.getRange(), diagnostic.getRange()))) {
+				diagnostics.add(diagnostic);
+			}
+		}
+	}
+
+	private static boolean overlap(Range a, Range b) {
+		return compare(a.getStart(), b.getEnd()) <= 0 && compare(b.getStart(), a.getEnd()) <= 0;
+	}
+
+	private static int compare(Position a, Position b) {
+		return a.getLine() != b.getLine() ? Integer.compare(a.getLine(), b.getLine())
+				: Integer.compare(a.getCharacter(), b.getCharacter());
+	}
+
+	/**
+	 * @param full        whether to wait for the dependency tree of the given
+	 *                    full project, rather than use the cached ones
+	 * @param fullProject the project of a full validation
+	 */
+	private HashMap<String, Function<DiagnosticRequest, Diagnostic>> configureDiagnosticFunctions(
+			DOMDocument xmlDocument, ProjectSnapshot snapshot, boolean full, MavenProject fullProject) {
+		SubModuleValidator subModuleValidator = new SubModuleValidator(new File(URI.create(xmlDocument.getDocumentURI())));
+		Function<DiagnosticRequest, Diagnostic> versionFunc = new VersionValidator(workspaceIndex, snapshot)::validateVersion;
 		Function<DiagnosticRequest, Diagnostic> submoduleExistenceFunc = subModuleValidator::validateSubModuleExistence;
-		// Below is a mock Diagnostic function which creates a warning between inside
-		// <configuration> tags
-		Function<DiagnosticRequest, Diagnostic> configFunc = diagnosticReq -> new Diagnostic(diagnosticReq.getRange(),
-				"Configuration Error", DiagnosticSeverity.Warning, xmlDocument.getDocumentURI(), "XML");
+		PluginConfigurationValidator pluginValidator = new PluginConfigurationValidator(pluginDescriptorIndex, snapshot);
 
 		HashMap<String, Function<DiagnosticRequest, Diagnostic>> tagDiagnostics = new HashMap<>();
 		tagDiagnostics.put("version", versionFunc);
-		tagDiagnostics.put("configuration", configFunc);
+		tagDiagnostics.put("configuration", pluginValidator::validateConfiguration);
+		tagDiagnostics.put("goal", pluginValidator::validateGoal);
 		tagDiagnostics.put("module", submoduleExistenceFunc);
+		tagDiagnostics.put("scope", ScopeValidator::validateScope);
+
+		URI uri = URI.create(xmlDocument.getDocumentURI());
+		if (full) {
+			// nothing validates the document again later, wait for its tree
+			DependencyNode tree = fullProject != null ? collectDependencyTree(uri, fullProject) : null;
+			if (tree != null) {
+				tagDiagnostics.put("dependency", new DependencyValidator(tree)::validateDependency);
+			}
+			return tagDiagnostics;
+		}
+		// dependency collection is slow: only report on trees already collected, the
+		// next validation picks up the ones still in progress
+		MavenProject project = projectCache.getCachedFullMavenProject(uri);
+		if (project == null) {
+			scheduleFullBuild(uri, xmlDocument);
+		} else {
+			DependencyNode tree = dependencyTreeService
+					.getDependencyTreeIfDone(uri, project);
+			if (tree != null) {
+				tagDiagnostics.put("dependency", new DependencyValidator(tree)::validateDependency);
+			}
+		}
 		return tagDiagnostics;
 	}
 
-	private Diagnostic toDiagnostic(@Nonnull ModelProblem problem) {
+	private DependencyNode collectDependencyTree(URI uri, MavenProject project) {
+		try {
+			return dependencyTreeService.getDependencyTree(uri, project).join();
+		} catch (CancellationException | CompletionException e) {
+			LOGGER.log(Level.WARNING, "Error while collecting the dependencies of " + uri, e);
+			return null;
+		}
+	}
+
+	/**
+	 * @param path the file of the document, problems of other files (e.g. the
+	 *             parent) are reported on the <code>&lt;parent&gt;</code>
+	 */
+	private Diagnostic toDiagnostic(@Nonnull ModelProblem problem, PomLocationIndex locationIndex, String path) {
 		Diagnostic diagnostic = new Diagnostic();
 		diagnostic.setMessage(problem.getMessage());
 		diagnostic.setSeverity(toDiagnosticSeverity(problem.getSeverity()));
-		diagnostic.setRange(new Range(new Position(problem.getLineNumber(), problem.getColumnNumber()), new Position(problem.getLineNumber(), problem.getColumnNumber() + 1)));
+		diagnostic.setRange(findRange(problem, locationIndex, path));
 		return diagnostic;
 	}
 
+	private Range findRange(ModelProblem problem, PomLocationIndex locationIndex, String path) {
+		DOMElement project = locationIndex.getDocument().getDocumentElement();
+		try {
+			boolean local = problem.getSource() == null || problem.getSource().isEmpty()
+					|| path.equals(problem.getSource());
+			DOMElement element = null;
+			if (!local) {
+				element = DOMUtils.findChildElement(project, "parent");
+			} else {
+				element = locationIndex.findElementForMessage(problem.getMessage());
+				int offset = locationIndex.getOffset(problem.getLineNumber(), problem.getColumnNumber());
+				if (element == null && offset >= 0) {
+					// Maven reports the end of the start tag, step back into the element
+					element = locationIndex.findElementAt(Math.max(0, offset - 1));
+				}
+				if (element == null && offset >= 0) {
+					// not well-formed, point where the parser stopped
+					Position position = locationIndex.toPosition(problem.getLineNumber(), problem.getColumnNumber());
+					return new Range(position, position);
+				}
+			}
+			if (element == null) {
+				element = project;
+			}
+			if (element != null) {
+				return locationIndex.getRange(element);
+			}
+		} catch (BadLocationException e) {
+			LOGGER.log(Level.WARNING, "Error while locating " + problem.getMessage(), e);
+		}
+		return new Range(new Position(0, 0), new Position(0, 0));
+	}
+
 	private DiagnosticSeverity toDiagnosticSeverity(Severity severity) {
 		switch (severity) {
 		case ERROR:
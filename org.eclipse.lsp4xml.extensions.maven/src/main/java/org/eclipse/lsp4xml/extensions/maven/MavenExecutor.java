@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import org.eclipse.lsp4xml.extensions.maven.metrics.MavenMetrics;
+
+/**
+ * Runs the blocking Maven work (project builds, Plexus lookups, repository and
+ * disk reads) off the lsp4xml threads. It uses virtual threads when the JVM has
+ * them (Java 21+), so that builds scale with the opened documents, otherwise a
+ * bounded pool of daemon threads.
+ *
+ * Tasks submitted for the same key, e.g. the URI of a document, run one after
+ * the other, in order. Cancelling the future of a task skips it if it didn't
+ * start yet, or interrupts it.
+ */
+public class MavenExecutor implements Executor {
+
+	private static final Logger LOGGER = Logger.getLogger(MavenExecutor.class.getName());
+
+	/**
+	 * Set to <code>false</code> to use the pool even if virtual threads are
+	 * available.
+	 */
+	public static final String VIRTUAL_THREADS_PROPERTY = "maven.xmlls.virtualThreads";
+
+	private static class Task<T> extends CompletableFuture<T> {
+
+		private Thread runner;
+
+		void run(Callable<T> task) {
+			synchronized (this) {
+				if (isDone()) {
+					// cancelled while queued
+					return;
+				}
+				runner = Thread.currentThread();
+			}
+			try {
+				complete(task.call());
+			} catch (Throwable e) {
+				completeExceptionally(e);
+			} finally {
+				synchronized (this) {
+					runner = null;
+					// don't leak an interruption to the next task of a pooled thread
+					Thread.interrupted();
+				}
+			}
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			synchronized (this) {
+				if (cancelled && runner != null) {
+					runner.interrupt();
+				}
+			}
+			return cancelled;
+		}
+	}
+
+	private final ExecutorService executor;
+	private final boolean virtualThreads;
+	// the last task of each key, the next one runs after it
+	private final Map<Object, CompletableFuture<?>> queues = new ConcurrentHashMap<>();
+	private final AtomicInteger pending = new AtomicInteger();
+
+	public MavenExecutor(MavenMetrics metrics) {
+		ExecutorService virtual = Boolean.parseBoolean(System.getProperty(VIRTUAL_THREADS_PROPERTY, "true"))
+				? newVirtualThreadExecutor()
+				: null;
+		this.virtualThreads = virtual != null;
+		this.executor = virtual != null ? virtual : newPool();
+		LOGGER.fine(() -> "Running the Maven tasks on " + (virtualThreads ? "virtual threads" : "a pool"));
+		metrics.registerGauge("executor.pending", pending::get);
+	}
+
+	private static ExecutorService newVirtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			// before Java 21
+			return null;
+		}
+	}
+
+	private static ExecutorService newPool() {
+		int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+		AtomicInteger count = new AtomicInteger();
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), runnable -> {
+					Thread thread = new Thread(runnable, "maven-worker-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+
+	/**
+	 * @return whether the tasks run on virtual threads.
+	 */
+	public boolean usesVirtualThreads() {
+		return virtualThreads;
+	}
+
+	/**
+	 * Runs a task without ordering.
+	 */
+	@Override
+	public void execute(Runnable command) {
+		submit(null, () -> {
+			command.run();
+			return null;
+		});
+	}
+
+	/**
+	 * @param key  the tasks of a same key, e.g. the URI of a document, run in
+	 *             submission order. Can be <code>null</code> for no ordering.
+	 * @param task
+	 * @return the result of the task, which can be cancelled.
+	 * @throws RejectedExecutionException once disposed
+	 */
+	public <T> CompletableFuture<T> submit(Object key, Callable<T> task) {
+		if (executor.isShutdown()) {
+			throw new RejectedExecutionException("The Maven executor is disposed");
+		}
+		Task<T> result = new Task<>();
+		pending.incrementAndGet();
+		if (key == null) {
+			try {
+				CompletableFuture.runAsync(() -> result.run(task), executor)
+						.whenComplete((v, e) -> done(result, e));
+			} catch (RejectedExecutionException e) {
+				pending.decrementAndGet();
+				throw e;
+			}
+			return result;
+		}
+		CompletableFuture<?> queued = queues.compute(key, (k, previous) -> {
+			CompletableFuture<?> after = previous != null ? previous : CompletableFuture.completedFuture(null);
+			// failures of the previous task are its own
+			return after.handle((v, e) -> null).thenRunAsync(() -> result.run(task), executor);
+		});
+		queued.whenComplete((v, e) -> {
+			queues.remove(key, queued);
+			done(result, e);
+		});
+		return result;
+	}
+
+	private void done(Task<?> result, Throwable error) {
+		pending.decrementAndGet();
+		if (error != null) {
+			// rejected, e.g. while disposing
+			result.completeExceptionally(error);
+		}
+	}
+
+	/**
+	 * @return the number of tasks submitted and not done.
+	 */
+	public int getPending() {
+		return pending.get();
+	}
+
+	public void dispose() {
+		executor.shutdownNow();
+	}
+}
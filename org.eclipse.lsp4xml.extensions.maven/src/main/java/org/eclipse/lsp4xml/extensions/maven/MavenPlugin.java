@@ -10,6 +10,17 @@
  */
 package org.eclipse.lsp4xml.extensions.maven;
 
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 import org.codehaus.plexus.ContainerConfiguration;
 import org.codehaus.plexus.DefaultContainerConfiguration;
 import org.codehaus.plexus.DefaultPlexusContainer;
@@ -20,12 +31,22 @@ import org.codehaus.plexus.classworlds.ClassWorld;
 import org.codehaus.plexus.classworlds.realm.ClassRealm;
 import org.codehaus.plexus.classworlds.realm.NoSuchRealmException;
 import org.eclipse.lsp4j.InitializeParams;
+import org.eclipse.lsp4j.PublishDiagnosticsParams;
+import org.eclipse.lsp4j.WorkspaceFolder;
 import org.eclipse.lsp4xml.dom.DOMDocument;
+import org.eclipse.lsp4xml.extensions.maven.index.ClassIndex;
+import org.eclipse.lsp4xml.extensions.maven.index.PluginDescriptorIndex;
+import org.eclipse.lsp4xml.extensions.maven.index.WorkspaceIndex;
+import org.eclipse.lsp4xml.extensions.maven.metrics.MavenMetrics;
+import org.eclipse.lsp4xml.extensions.maven.protocol.MavenProtocolExtensions;
+import org.eclipse.lsp4xml.extensions.maven.protocol.MavenProtocolService;
+import org.eclipse.lsp4xml.extensions.maven.searcher.ArtifactSearcherManager;
 import org.eclipse.lsp4xml.services.extensions.ICompletionParticipant;
+import org.eclipse.lsp4xml.services.extensions.IReferenceParticipant;
 import org.eclipse.lsp4xml.services.extensions.IXMLExtension;
 import org.eclipse.lsp4xml.services.extensions.XMLExtensionsRegistry;
-import org.eclipse.lsp4xml.services.extensions.diagnostics.IDiagnosticsParticipant;
 import org.eclipse.lsp4xml.services.extensions.save.ISaveContext;
+import org.eclipse.lsp4xml.services.extensions.save.ISaveContext.SaveContextType;
 
 /**
  * Extension for pom.xml.
@@ -33,33 +54,163 @@ import org.eclipse.lsp4xml.services.extensions.save.ISaveContext;
  */
 public class MavenPlugin implements IXMLExtension {
 
+	private static final Logger LOGGER = Logger.getLogger(MavenPlugin.class.getName());
+
 	private static final String POM_XML = "pom.xml";
 
 	private static final String MAVEN_XMLLS_EXTENSION_REALM_ID = MavenPlugin.class.getName();
 
 	private ICompletionParticipant completionParticipant;
-	private IDiagnosticsParticipant diagnosticParticipant;
+	private MavenDiagnosticParticipant diagnosticParticipant;
+	private IReferenceParticipant referenceParticipant;
 	private PlexusContainer container;
 	private MavenProjectCache cache;
+	private WorkspaceIndex workspaceIndex;
+	private DependencyTreeService dependencyTreeService;
+	private MavenProtocolService protocolService;
+	private WorkspaceValidator workspaceValidator;
+	private ClassIndex classIndex;
+	private MavenMetrics metrics;
+	private MavenExecutor executor;
+	private CacheStore cacheStore;
+	private volatile Consumer<String> diagnosticsRefresher;
 
 	public MavenPlugin() {
 	}
 
+	/**
+	 * Builds the full project of a saved pom in background, when the changes
+	 * only build its model, and validates it again.
+	 */
 	@Override public void doSave(ISaveContext context) {
-
+		MavenProjectCache currentCache = cache;
+		MavenExecutor currentExecutor = executor;
+		if (context.getType() != SaveContextType.DOCUMENT || context.getUri() == null
+				|| !context.getUri().endsWith(POM_XML) || currentCache == null || currentExecutor == null
+				|| currentCache.getBuildMode() != BuildMode.FAST) {
+			return;
+		}
+		URI uri = URI.create(context.getUri());
+		try {
+			currentExecutor.submit(uri, () -> currentCache.buildFull(uri)).thenAccept(project -> {
+				Consumer<String> refresher = diagnosticsRefresher;
+				if (refresher != null) {
+					refresher.accept(context.getUri());
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// stopping
+		}
 	}
 
 	@Override public void start(InitializeParams params, XMLExtensionsRegistry registry) {
+		metrics = new MavenMetrics(Boolean.getBoolean(MavenMetrics.ENABLED_PROPERTY));
+		ArtifactSearcherManager.getInstance().setMetrics(metrics);
 		try {
 			container = newPlexusContainer();
-			cache = new MavenProjectCache(container);
+			cache = new MavenProjectCache(container, metrics);
 		} catch (PlexusContainerException e) {
-			e.printStackTrace();
+			LOGGER.log(Level.SEVERE, "Error while creating the Maven container", e);
 		}
-		completionParticipant = new MavenCompletionParticipant(cache);
+		executor = new MavenExecutor(metrics);
+		if (cache != null) {
+			cache.setExecutor(executor);
+		}
+		cacheStore = CacheStore.createDefault();
+		if (cacheStore != null) {
+			cacheStore.restore(cache, ArtifactSearcherManager.getInstance().getLocalSearcher());
+		}
+		workspaceIndex = new WorkspaceIndex();
+		indexWorkspace(params);
+		dependencyTreeService = new DependencyTreeService(container, cache);
+		metrics.registerGauge("dependencyTree.pendingCollections", dependencyTreeService::getPendingCollections);
+		metrics.registerGauge("dependencyTree.subtrees", dependencyTreeService::getSubtreeCount);
+		metrics.registerGauge("coordinatePool.size", CoordinatePool.getInstance()::size);
+		Path localRepository = ArtifactSearcherManager.getInstance().getLocalSearcher().getLocalRepository();
+		PluginDescriptorIndex pluginDescriptorIndex = new PluginDescriptorIndex(localRepository);
+		metrics.registerGauge("pluginDescriptors.size", pluginDescriptorIndex::size);
+		completionParticipant = new MavenCompletionParticipant(cache, pluginDescriptorIndex, metrics);
 		registry.registerCompletionParticipant(completionParticipant);
-		diagnosticParticipant = new MavenDiagnosticParticipant(cache);
+		diagnosticParticipant = new MavenDiagnosticParticipant(cache, workspaceIndex, dependencyTreeService,
+				pluginDescriptorIndex, metrics);
 		registry.registerDiagnosticsParticipant(diagnosticParticipant);
+		PomSymbolsService symbolsService = new PomSymbolsService(metrics);
+		diagnosticParticipant.setDocumentListener(symbolsService::documentChanged);
+		referenceParticipant = new MavenReferenceParticipant(workspaceIndex);
+		registry.registerReferenceParticipant(referenceParticipant);
+		workspaceValidator = new WorkspaceValidator(cache, workspaceIndex, diagnosticParticipant, executor, metrics);
+		workspaceValidator.setDeletionListener(symbolsService::remove);
+		classIndex = ClassIndex.createDefault(localRepository);
+		classIndex.refresh();
+		metrics.registerGauge("classIndex.size", classIndex::size);
+		protocolService = new MavenProtocolService(cache, new EffectivePomService(cache), dependencyTreeService,
+				symbolsService, workspaceValidator, classIndex, executor, metrics);
+	}
+
+	/**
+	 * @return the implementation of the custom <code>maven/*</code> LSP requests.
+	 */
+	public MavenProtocolExtensions getProtocolService() {
+		return protocolService;
+	}
+
+	/**
+	 * @return the metrics registry, e.g. to send them as telemetry with
+	 *         {@link MavenMetrics#scheduleTelemetry}.
+	 */
+	public MavenMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Publishes the diagnostics in two phases: the DOM validations right away,
+	 * then the Maven model problems once the project is built in background,
+	 * which the given refresher is told to do by validating the document of the
+	 * given URI again. lsp4xml doesn't let extensions trigger a validation, so it
+	 * is up to the launcher owning the text document service; without refresher
+	 * the diagnostics wait for the build.
+	 */
+	public synchronized void setDiagnosticsRefresher(Consumer<String> diagnosticsRefresher) {
+		this.diagnosticsRefresher = diagnosticsRefresher;
+		workspaceValidator.setDiagnosticsRefresher(diagnosticsRefresher);
+		if (diagnosticsRefresher == null) {
+			diagnosticParticipant.setModelBuildExecutor(null, null);
+			return;
+		}
+		diagnosticParticipant.setModelBuildExecutor(executor,
+				document -> diagnosticsRefresher.accept(document.getDocumentURI()));
+	}
+
+	/**
+	 * Sends the diagnostics of the poms which aren't opened, validated when they
+	 * or their parents change on disk, e.g. to
+	 * <code>LanguageClient.publishDiagnostics</code>. lsp4xml doesn't give
+	 * extensions access to the client, so it is up to the launcher too; without
+	 * publisher, closed poms are only re-indexed.
+	 */
+	public void setDiagnosticsPublisher(Consumer<PublishDiagnosticsParams> diagnosticsPublisher) {
+		workspaceValidator.setDiagnosticsPublisher(diagnosticsPublisher);
+	}
+
+	private void indexWorkspace(InitializeParams params) {
+		List<Path> roots = new ArrayList<>();
+		if (params != null && params.getWorkspaceFolders() != null) {
+			for (WorkspaceFolder folder : params.getWorkspaceFolders()) {
+				roots.add(Paths.get(URI.create(folder.getUri())));
+			}
+		} else if (params != null && params.getRootUri() != null) {
+			roots.add(Paths.get(URI.create(params.getRootUri())));
+		}
+		WorkspaceIndex index = workspaceIndex;
+		executor.execute(() -> {
+			for (Path root : roots) {
+				try {
+					index.indexWorkspace(root);
+				} catch (IOException e) {
+					LOGGER.log(Level.WARNING, "Error while indexing the poms of " + root, e);
+				}
+			}
+		});
 	}
 
 	/* Copied from m2e */
@@ -97,7 +248,25 @@ public class MavenPlugin implements IXMLExtension {
 	@Override public void stop(XMLExtensionsRegistry registry) {
 		registry.unregisterCompletionParticipant(completionParticipant);
 		registry.unregisterDiagnosticsParticipant(diagnosticParticipant);
+		registry.unregisterReferenceParticipant(referenceParticipant);
+		if (cacheStore != null) {
+			cacheStore.save(cache, ArtifactSearcherManager.getInstance().getLocalSearcher());
+			cacheStore = null;
+		}
+		workspaceValidator.dispose();
+		classIndex.dispose();
+		classIndex = null;
+		workspaceValidator = null;
 		cache = null;
+		workspaceIndex = null;
+		dependencyTreeService.dispose();
+		dependencyTreeService = null;
+		protocolService = null;
+		executor.dispose();
+		executor = null;
+		metrics.dispose();
+		ArtifactSearcherManager.getInstance().setMetrics(new MavenMetrics(false));
+		metrics = null;
 		container = null;
 	}
 
@@ -10,51 +10,167 @@ package org.eclipse.lsp4xml.extensions.maven;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.ref.SoftReference;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
-import org.apache.maven.artifact.InvalidRepositoryException;
-import org.apache.maven.execution.DefaultMavenExecutionRequest;
-import org.apache.maven.execution.MavenExecutionRequest;
-import org.apache.maven.internal.aether.DefaultRepositorySystemSessionFactory;
+import org.apache.maven.execution.MavenExecutionRequestPopulationException;
 import org.apache.maven.model.building.DefaultModelProblem;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.building.ModelBuilder;
 import org.apache.maven.model.building.ModelBuildingException;
+import org.apache.maven.model.building.ModelBuildingResult;
 import org.apache.maven.model.building.ModelProblem;
 import org.apache.maven.model.building.ModelProblem.Severity;
 import org.apache.maven.model.building.ModelProblem.Version;
-import org.apache.maven.project.DefaultProjectBuildingRequest;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.ProjectBuilder;
 import org.apache.maven.project.ProjectBuildingException;
-import org.apache.maven.project.ProjectBuildingRequest;
 import org.apache.maven.project.ProjectBuildingResult;
-import org.apache.maven.repository.RepositorySystem;
 import org.codehaus.plexus.PlexusContainer;
 import org.codehaus.plexus.component.repository.exception.ComponentLookupException;
 import org.eclipse.aether.DefaultRepositorySystemSession;
 import org.eclipse.lsp4xml.dom.DOMDocument;
+import org.eclipse.lsp4xml.dom.DOMElement;
+import org.eclipse.lsp4xml.extensions.maven.metrics.MavenMetrics;
+import org.eclipse.lsp4xml.extensions.maven.metrics.OperationTrace;
 
+/**
+ * Builds the poms with Maven and keeps the result of the last build of each of
+ * them. Depending on the {@link BuildMode}, the changes of a document build its
+ * model only, and the full project with the ProjectBuilder is built by
+ * {@link #buildFull(URI)}, or the full project is built each time.
+ *
+ * Thread-safe: the builds of a pom are serialised by a lock per URI, so that
+ * concurrent requests for the same version share one build, while different
+ * poms build in parallel. The Maven state the builds share is initialised once.
+ */
 public class MavenProjectCache {
 
+	private static final Logger LOGGER = Logger.getLogger(MavenProjectCache.class.getName());
+
 	private final Map<URI, Integer> lastCheckedVersion;
-	private final Map<URI, MavenProject> projectCache;
+	// the full projects are big, only the snapshots are held strongly
+	private final Map<URI, SoftReference<MavenProject>> projectCache;
+	// the last project of each pom built with the ProjectBuilder
+	private final Map<URI, SoftReference<MavenProject>> fullProjectCache = new ConcurrentHashMap<>();
+	// the text each full project was built from, none for the file on disk
+	private final Map<URI, String> fullProjectTexts = new ConcurrentHashMap<>();
+	// the text of each failed full build, not built again on demand until it changes
+	private final Map<URI, String> failedFullBuilds = new ConcurrentHashMap<>();
+	private final Map<URI, ProjectSnapshot> snapshotCache;
+	// what could be salvaged from the documents whose last build failed
+	private final Map<URI, ProjectSnapshot> tolerantSnapshots = new ConcurrentHashMap<>();
+	// files each successful build read, to tell whether a saved build is still valid
+	private final Map<URI, List<CacheStore.FileStamp>> buildFiles = new ConcurrentHashMap<>();
+	// builds of a previous session, used if their files didn't change
+	private final Map<URI, CacheStore.ProjectEntry> restored = new ConcurrentHashMap<>();
 	private final Map<URI, Collection<ModelProblem>> problemCache;
+	// the text of the last checked version of each document, also built by the full builds
+	private final Map<URI, String> checkedTexts = new ConcurrentHashMap<>();
 	private final PlexusContainer plexusContainer;
+	private final MavenMetrics metrics;
+	private final AtomicInteger pendingBuilds = new AtomicInteger();
+
+	// builds of different poms run in parallel, the ones of a pom one at a time
+	private final Map<URI, Object> buildLocks = new ConcurrentHashMap<>();
+
+	private volatile MavenExecutor executor;
 
-	private MavenExecutionRequest mavenRequest;
-	private DefaultRepositorySystemSession repositorySystemSession;
-	private ProjectBuilder projectBuilder;
+	// the build configuration of each workspace, by directory
+	private final Map<Path, BuildConfiguration> configurations = new ConcurrentHashMap<>();
+	private volatile ProjectBuilder projectBuilder;
+	private volatile ModelBuilder modelBuilder;
+	private volatile BuildMode buildMode = BuildMode.getDefault();
 
 	public MavenProjectCache(PlexusContainer container) {
+		this(container, new MavenMetrics(false));
+	}
+
+	public MavenProjectCache(PlexusContainer container, MavenMetrics metrics) {
 		this.plexusContainer = container;
-		this.lastCheckedVersion = new HashMap<URI, Integer>();
-		this.projectCache = new HashMap<URI, MavenProject>();
-		this.problemCache = new HashMap<URI, Collection<ModelProblem>>();
+		this.metrics = metrics;
+		this.lastCheckedVersion = new ConcurrentHashMap<URI, Integer>();
+		this.projectCache = new ConcurrentHashMap<URI, SoftReference<MavenProject>>();
+		this.snapshotCache = new ConcurrentHashMap<URI, ProjectSnapshot>();
+		this.problemCache = new ConcurrentHashMap<URI, Collection<ModelProblem>>();
+		metrics.registerGauge("project.pendingBuilds", pendingBuilds::get);
+	}
+
+	/**
+	 * @param executor runs the builds of {@link #buildAsync(DOMDocument)}, can be
+	 *                 <code>null</code> to build on the calling thread.
+	 */
+	public void setExecutor(MavenExecutor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * @param buildMode how the next checks of the documents build them.
+	 */
+	public void setBuildMode(BuildMode buildMode) {
+		this.buildMode = buildMode;
+	}
+
+	public BuildMode getBuildMode() {
+		return buildMode;
+	}
+
+	/**
+	 * Builds the given version of the document if needed, on the executor after
+	 * the other tasks of the document.
+	 */
+	public CompletableFuture<Void> buildAsync(DOMDocument document) {
+		MavenExecutor current = executor;
+		if (current == null) {
+			check(document);
+			return CompletableFuture.completedFuture(null);
+		}
+		return current.submit(URI.create(document.getTextDocument().getUri()), () -> {
+			check(document);
+			return null;
+		});
+	}
+
+	/**
+	 * Like {@link #getCurrentSnapshot(DOMDocument)}, without waiting for the build
+	 * of a newer version of the document: it's submitted with
+	 * {@link #buildAsync(DOMDocument)} and the snapshot of the previous version is
+	 * returned. Only the first build of a document is waited for.
+	 */
+	public ProjectSnapshot getAvailableSnapshot(DOMDocument document) {
+		URI uri = URI.create(document.getTextDocument().getUri());
+		if (isUpToDate(document)) {
+			return getCurrentSnapshot(uri);
+		}
+		CompletableFuture<Void> build = buildAsync(document);
+		ProjectSnapshot snapshot = getCurrentSnapshot(uri);
+		if (snapshot == null) {
+			try {
+				build.join();
+			} catch (CancellationException | CompletionException e) {
+				LOGGER.log(Level.WARNING, "Error while building " + uri, e);
+			}
+			snapshot = getCurrentSnapshot(uri);
+		}
+		return snapshot;
 	}
 
 	/**
@@ -65,9 +181,190 @@ public class MavenProjectCache {
 	 */
 	public MavenProject getLastSuccessfulMavenProject(DOMDocument document) {
 		check(document);
-		return projectCache.get(URI.create(document.getTextDocument().getUri()));
+		return getMavenProject(URI.create(document.getTextDocument().getUri()));
 	}
-	
+
+	/**
+	 * @param document
+	 * @return the snapshot of the last project that could be built for the more
+	 *         recent version of the provided document. Can be <code>null</code>.
+	 */
+	public ProjectSnapshot getLastSuccessfulSnapshot(DOMDocument document) {
+		check(document);
+		return snapshotCache.get(URI.create(document.getTextDocument().getUri()));
+	}
+
+	/**
+	 * @param uri
+	 * @return the snapshot of the last project successfully built for the given
+	 *         URI, without triggering a new build. Can be <code>null</code>.
+	 */
+	public ProjectSnapshot getSnapshot(URI uri) {
+		return snapshotCache.get(uri);
+	}
+
+	/**
+	 * @param document
+	 * @return the snapshot of the more recent version of the provided document:
+	 *         the one of its last build, or if that build failed, the last
+	 *         successful one merged with what the document declares. Can be
+	 *         <code>null</code>.
+	 * @see ProjectSnapshot#merge(ProjectSnapshot, org.apache.maven.model.Model)
+	 */
+	public ProjectSnapshot getCurrentSnapshot(DOMDocument document) {
+		check(document);
+		return getCurrentSnapshot(URI.create(document.getTextDocument().getUri()));
+	}
+
+	/**
+	 * @param uri
+	 * @return the snapshot of the last checked version of the given URI, without
+	 *         triggering a new build. Can be <code>null</code>.
+	 * @see #getCurrentSnapshot(DOMDocument)
+	 */
+	public ProjectSnapshot getCurrentSnapshot(URI uri) {
+		ProjectSnapshot tolerant = tolerantSnapshots.get(uri);
+		return tolerant != null ? tolerant : snapshotCache.get(uri);
+	}
+
+	/**
+	 * @param uri
+	 * @return the last MavenProject successfully built for the given URI, without
+	 *         triggering a new build. Can be <code>null</code>, also when the
+	 *         project was reclaimed by the garbage collector.
+	 */
+	public MavenProject getCachedMavenProject(URI uri) {
+		SoftReference<MavenProject> project = projectCache.get(uri);
+		return project != null ? project.get() : null;
+	}
+
+	/**
+	 * @param uri
+	 * @return the last MavenProject successfully built for the given URI, built
+	 *         again if it was reclaimed by the garbage collector. Can be
+	 *         <code>null</code>.
+	 */
+	public MavenProject getMavenProject(URI uri) {
+		MavenProject project = getCachedMavenProject(uri);
+		return project != null ? project : getFullMavenProject(uri);
+	}
+
+	/**
+	 * @param uri
+	 * @return the last project built with the ProjectBuilder for the given URI,
+	 *         with its artifact, repositories and plugins, without triggering a
+	 *         build. Can be <code>null</code>.
+	 */
+	public MavenProject getCachedFullMavenProject(URI uri) {
+		SoftReference<MavenProject> project = fullProjectCache.get(uri);
+		return project != null ? project.get() : null;
+	}
+
+	/**
+	 * @param uri
+	 * @return the last project built with the ProjectBuilder for the given URI,
+	 *         built if there's none, e.g. after {@link BuildMode#FAST} builds, or
+	 *         if it was reclaimed by the garbage collector. Can be
+	 *         <code>null</code>, also when the URI was never built or its last
+	 *         full build failed and the pom didn't change since.
+	 */
+	public MavenProject getFullMavenProject(URI uri) {
+		MavenProject project = getCachedFullMavenProject(uri);
+		if (project != null || !snapshotCache.containsKey(uri)) {
+			return project;
+		}
+		synchronized (getBuildLock(uri)) {
+			project = getCachedFullMavenProject(uri);
+			String failed = failedFullBuilds.get(uri);
+			if (project == null && (failed == null || !failed.equals(checkedTexts.get(uri)))) {
+				metrics.increment("projectCache.rebuild");
+				project = buildFull(uri);
+			}
+			return project;
+		}
+	}
+
+	/**
+	 * @param document
+	 * @return the project built with the ProjectBuilder from the current version
+	 *         of the given document, built if the last full build is of another
+	 *         version. Can be <code>null</code> if it can't be built.
+	 */
+	public MavenProject getFullMavenProject(DOMDocument document) {
+		check(document);
+		URI uri = URI.create(document.getDocumentURI());
+		String text = document.getText();
+		synchronized (getBuildLock(uri)) {
+			MavenProject project = getCachedFullMavenProject(uri);
+			if (project != null && text.equals(fullProjectTexts.get(uri))) {
+				return project;
+			}
+			if (text.equals(failedFullBuilds.get(uri))) {
+				return null;
+			}
+			metrics.increment("projectCache.rebuild");
+			return buildFull(uri);
+		}
+	}
+
+	/**
+	 * Builds the pom of the given URI with the ProjectBuilder, whatever the
+	 * {@link BuildMode}, e.g. once it's saved. The result replaces the last
+	 * build, until the next check of a newer version of the document.
+	 *
+	 * @return the project, or <code>null</code> if it can't be built.
+	 */
+	public MavenProject buildFull(URI uri) {
+		synchronized (getBuildLock(uri)) {
+			OperationTrace trace = OperationTrace.start("fullBuild", uri);
+			pendingBuilds.incrementAndGet();
+			try {
+				String text = checkedTexts.get(uri);
+				BuildResult result = build(uri, text, BuildMode.FULL, trace);
+				if (result.project != null) {
+					store(uri, result);
+					tolerantSnapshots.remove(uri);
+					failedFullBuilds.remove(uri);
+				} else if (text != null) {
+					failedFullBuilds.put(uri, text);
+				}
+				problemCache.put(uri, result.problems);
+				return result.project;
+			} finally {
+				pendingBuilds.decrementAndGet();
+				trace.end();
+			}
+		}
+	}
+
+	/**
+	 * @param uri
+	 * @return the problems of the last build of the given URI, without triggering
+	 *         a new build. Can be <code>null</code>.
+	 */
+	public Collection<ModelProblem> getCachedProblems(URI uri) {
+		return problemCache.get(uri);
+	}
+
+	/**
+	 * @param document
+	 * @return whether the cached project and problems are the ones of this
+	 *         version of the document, so that getting them doesn't build.
+	 */
+	public boolean isUpToDate(DOMDocument document) {
+		Integer last = lastCheckedVersion.get(URI.create(document.getTextDocument().getUri()));
+		return last != null && last.intValue() >= document.getTextDocument().getVersion();
+	}
+
+	/**
+	 * @return the repository session of the builds of the given pom's workspace,
+	 *         or <code>null</code> if no project of it was built yet.
+	 */
+	public DefaultRepositorySystemSession getRepositorySystemSession(URI uri) {
+		BuildConfiguration configuration = configurations.get(getWorkspaceKey(new File(uri)));
+		return configuration != null ? configuration.getRepositorySystemSession() : null;
+	}
+
 	/**
 	 * 
 	 * @param document
@@ -78,63 +375,389 @@ public class MavenProjectCache {
 		return problemCache.get(URI.create(document.getTextDocument().getUri()));
 	}
 
+	/**
+	 * @return the successful builds, to be saved by a {@link CacheStore}.
+	 *         Restored builds not used yet are included.
+	 */
+	public Collection<CacheStore.ProjectEntry> getEntries() {
+		Collection<CacheStore.ProjectEntry> entries = new ArrayList<>(restored.values());
+		snapshotCache.forEach((uri, snapshot) -> {
+			List<CacheStore.FileStamp> files = buildFiles.get(uri);
+			Collection<ModelProblem> problems = problemCache.get(uri);
+			if (files != null && problems != null) {
+				entries.add(new CacheStore.ProjectEntry(uri, snapshot, problems, files));
+			}
+		});
+		return entries;
+	}
+
+	/**
+	 * Hands builds of a previous session to the cache: the first check of a
+	 * document uses its restored build instead of building, if the files it was
+	 * built from didn't change.
+	 */
+	public void restore(Collection<CacheStore.ProjectEntry> entries) {
+		for (CacheStore.ProjectEntry entry : entries) {
+			if (!lastCheckedVersion.containsKey(entry.getUri())) {
+				restored.put(entry.getUri(), entry);
+			}
+		}
+	}
+
+	/**
+	 * Makes the next check of the given pom build it again, whatever the version
+	 * of the document, e.g. when it changed on disk. The last build stays
+	 * available meanwhile, except the full project, built again on demand.
+	 */
+	public void invalidate(URI uri) {
+		synchronized (getBuildLock(uri)) {
+			lastCheckedVersion.remove(uri);
+			restored.remove(uri);
+			fullProjectCache.remove(uri);
+			fullProjectTexts.remove(uri);
+			failedFullBuilds.remove(uri);
+		}
+	}
+
+	/**
+	 * Forgets everything about the given pom, e.g. when it was deleted.
+	 */
+	public void remove(URI uri) {
+		synchronized (getBuildLock(uri)) {
+			lastCheckedVersion.remove(uri);
+			restored.remove(uri);
+			snapshotCache.remove(uri);
+			tolerantSnapshots.remove(uri);
+			projectCache.remove(uri);
+			fullProjectCache.remove(uri);
+			fullProjectTexts.remove(uri);
+			failedFullBuilds.remove(uri);
+			problemCache.remove(uri);
+			buildFiles.remove(uri);
+			checkedTexts.remove(uri);
+		}
+	}
+
+	/**
+	 * @param files paths of poms
+	 * @return the built poms whose last build read one of the given files, as
+	 *         pom or parent.
+	 */
+	public Set<URI> getProjectsReading(Set<String> files) {
+		// parents are often resolved through a relative path, e.g. child/../pom.xml
+		Set<String> normalized = new HashSet<>();
+		files.forEach(file -> normalized.add(normalize(file)));
+		Set<URI> res = new HashSet<>();
+		buildFiles.forEach((uri, stamps) -> {
+			for (CacheStore.FileStamp stamp : stamps) {
+				if (normalized.contains(normalize(stamp.getPath()))) {
+					res.add(uri);
+					return;
+				}
+			}
+		});
+		return res;
+	}
+
+	private static String normalize(String path) {
+		return new File(path).toPath().toAbsolutePath().normalize().toString();
+	}
+
+	private Object getBuildLock(URI uri) {
+		return buildLocks.computeIfAbsent(uri, u -> new Object());
+	}
+
+	// builds may run on background threads while completion asks for the project
 	private void check(DOMDocument document) {
-		Integer last = lastCheckedVersion.get(URI.create(document.getTextDocument().getUri()));
-		if (last == null || last.intValue() < document.getTextDocument().getVersion()) {
-			parse(document);
+		URI uri = URI.create(document.getTextDocument().getUri());
+		synchronized (getBuildLock(uri)) {
+			Integer last = lastCheckedVersion.get(uri);
+			if (last == null && adoptRestored(document)) {
+				metrics.increment("projectCache.restored");
+			} else if (last == null || last.intValue() < document.getTextDocument().getVersion()) {
+				metrics.increment("projectCache.miss");
+				pendingBuilds.incrementAndGet();
+				long start = metrics.start();
+				try {
+					parse(document);
+				} finally {
+					metrics.record("project.build", start);
+					pendingBuilds.decrementAndGet();
+				}
+			} else {
+				metrics.increment("projectCache.hit");
+			}
+		}
+	}
+
+	private boolean adoptRestored(DOMDocument document) {
+		URI uri = URI.create(document.getDocumentURI());
+		CacheStore.ProjectEntry entry = restored.remove(uri);
+		// the saved build is the one of the file on disk, builds use the editor content
+		if (entry == null || !entry.isUpToDate() || !isSaved(document)) {
+			return false;
+		}
+		snapshotCache.put(uri, entry.getSnapshot());
+		tolerantSnapshots.remove(uri);
+		buildFiles.put(uri, entry.getFiles());
+		problemCache.put(uri, entry.getProblems());
+		checkedTexts.put(uri, document.getText());
+		lastCheckedVersion.put(uri, document.getTextDocument().getVersion());
+		return true;
+	}
+
+	/**
+	 * @return whether the document has the content of its file on disk.
+	 */
+	private static boolean isSaved(DOMDocument document) {
+		try {
+			byte[] content = Files.readAllBytes(Paths.get(URI.create(document.getDocumentURI())));
+			return document.getText().equals(new String(content, StandardCharsets.UTF_8));
+		} catch (IOException | IllegalArgumentException e) {
+			return false;
 		}
 	}
 
 	private void parse(DOMDocument document) {
 		URI uri = URI.create(document.getDocumentURI());
+		OperationTrace trace = OperationTrace.start("build", uri);
+		String text = document.getText();
+		checkedTexts.put(uri, text);
+		failedFullBuilds.computeIfPresent(uri, (u, failed) -> failed.equals(text) ? failed : null);
+		BuildResult result = build(uri, text, buildMode, trace);
+		if (result.project != null) {
+			store(uri, result);
+			tolerantSnapshots.remove(uri);
+		} else {
+			salvage(document);
+			trace.phase("salvage");
+		}
+
+		// problems first, isUpToDate() readers don't lock
+		problemCache.put(uri, result.problems);
+		lastCheckedVersion.put(uri, document.getTextDocument().getVersion());
+		trace.end();
+	}
+
+	/**
+	 * What a build of a pom produced.
+	 */
+	private static class BuildResult {
+		private final BuildMode mode;
+		// null for the file on disk
+		private final String text;
+		private MavenProject project;
+		// the files of the parents the pom inherits from
+		private final List<File> parents = new ArrayList<>();
+		private Collection<ModelProblem> problems = new ArrayList<>();
+
+		private BuildResult(BuildMode mode, String text) {
+			this.mode = mode;
+			this.text = text;
+		}
+	}
+
+	/**
+	 * Builds a working copy of the pom, with the given text or, without, the one
+	 * on disk. Its problems are reported against the pom.
+	 */
+	private BuildResult build(URI uri, String text, BuildMode mode, OperationTrace trace) {
+		BuildResult result = new BuildResult(mode, text);
+		long start = metrics.start();
+		File file = new File(uri);
 		File workingCopy = null;
-		Collection<ModelProblem> problems = new ArrayList<ModelProblem>();
 		try {
-			if (mavenRequest == null) {
-				initializeMavenBuildState();
-			}
-			File file = new File(uri);
+			BuildConfiguration configuration = getConfiguration(file);
+			trace.phase("initialize");
 			workingCopy = File.createTempFile("workingCopy", '.' + file.getName(), file.getParentFile());
-			Files.copy(file.toPath(), workingCopy.toPath(), StandardCopyOption.REPLACE_EXISTING);
-			ProjectBuildingRequest request = new DefaultProjectBuildingRequest();
-			request.setLocalRepository(mavenRequest.getLocalRepository());
-			request.setRepositorySession(repositorySystemSession);
-			ProjectBuildingResult buildResult = projectBuilder.build(workingCopy, request);
-			problems.addAll(buildResult.getProblems());
-			if (buildResult.getProject() != null) {
-				projectCache.put(uri, buildResult.getProject());
+			if (text != null) {
+				Files.write(workingCopy.toPath(), text.getBytes(StandardCharsets.UTF_8));
+			} else {
+				Files.copy(file.toPath(), workingCopy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			trace.phase("workingCopy");
+			if (mode == BuildMode.FAST) {
+				buildModel(workingCopy, configuration, result);
+				trace.phase("modelBuilder");
+			} else {
+				buildProject(workingCopy, configuration, result);
+				trace.phase("projectBuilder");
+			}
+		} catch (ComponentLookupException | IOException | MavenExecutionRequestPopulationException e) {
+			LOGGER.log(Level.SEVERE, "Error while building " + uri, e);
+		}
+		if (workingCopy != null) {
+			workingCopy.delete();
+			result.problems = relocate(result.problems, workingCopy.getPath(), file.getPath());
+		}
+		metrics.record(mode == BuildMode.FAST ? "project.build.fast" : "project.build.full", start);
+		return result;
+	}
+
+	private void buildModel(File pom, BuildConfiguration configuration, BuildResult result)
+			throws ComponentLookupException {
+		try {
+			ModelBuildingResult modelResult = getModelBuilder().build(configuration.newModelBuildingRequest(pom));
+			result.problems.addAll(modelResult.getProblems());
+			MavenProject project = new MavenProject(modelResult.getEffectiveModel());
+			project.setFile(pom);
+			// the first one is the pom, the last one the super pom
+			for (String modelId : modelResult.getModelIds().subList(1, modelResult.getModelIds().size())) {
+				Model parent = modelResult.getRawModel(modelId);
+				if (parent != null && parent.getPomFile() != null) {
+					result.parents.add(parent.getPomFile());
+				}
+			}
+			result.project = project;
+		} catch (ModelBuildingException e) {
+			result.problems.addAll(e.getProblems());
+		}
+	}
+
+	private void buildProject(File pom, BuildConfiguration configuration, BuildResult result)
+			throws ComponentLookupException {
+		try {
+			ProjectBuildingResult buildResult = getProjectBuilder().build(pom,
+					configuration.newProjectBuildingRequest());
+			result.problems.addAll(buildResult.getProblems());
+			result.project = buildResult.getProject();
+			if (result.project != null) {
+				for (MavenProject parent = result.project.getParent(); parent != null; parent = parent.getParent()) {
+					if (parent.getFile() != null) {
+						result.parents.add(parent.getFile());
+					}
+				}
 			}
 		} catch (ProjectBuildingException e) {
 			if (e.getResults() == null) {
 				if (e.getCause() instanceof ModelBuildingException) {
 					ModelBuildingException modelBuildingException = (ModelBuildingException)e.getCause();
-					problems.addAll(modelBuildingException.getProblems());
+					result.problems.addAll(modelBuildingException.getProblems());
 				} else {
-					problems.add(new DefaultModelProblem(e.getMessage(), Severity.FATAL, Version.BASE, null, -1, -1, e));
+					result.problems.add(new DefaultModelProblem(e.getMessage(), Severity.FATAL, Version.BASE, null, -1, -1, e));
 				}
 			} else {
-				e.getResults().stream().flatMap(result -> result.getProblems().stream()).forEach(problems::add);
+				e.getResults().stream().flatMap(r -> r.getProblems().stream()).forEach(result.problems::add);
 			}
-		} catch (ComponentLookupException | IOException | InvalidRepositoryException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
 		}
-		if (workingCopy != null) {
-			workingCopy.delete();
+	}
+
+	/**
+	 * Makes a successful build the last one of the pom.
+	 */
+	private void store(URI uri, BuildResult result) {
+		// snapshot first, getMavenProject() only rebuilds what has one
+		snapshotCache.put(uri, ProjectSnapshot.of(result.project));
+		projectCache.put(uri, new SoftReference<>(result.project));
+		if (result.mode == BuildMode.FULL) {
+			fullProjectCache.put(uri, new SoftReference<>(result.project));
+			if (result.text != null) {
+				fullProjectTexts.put(uri, result.text);
+			} else {
+				fullProjectTexts.remove(uri);
+			}
 		}
+		buildFiles.put(uri, stampBuildFiles(new File(uri), result.parents));
+	}
 
-		lastCheckedVersion.put(uri, document.getTextDocument().getVersion());
-		problemCache.put(uri, problems);
+	/**
+	 * Keeps what the document declares available while it can't be built, rather
+	 * than only its last successful build, as long as it still has a project.
+	 */
+	private void salvage(DOMDocument document) {
+		URI uri = URI.create(document.getDocumentURI());
+		DOMElement project = document.getDocumentElement();
+		if (project == null || !"project".equals(project.getLocalName())) {
+			tolerantSnapshots.remove(uri);
+			return;
+		}
+		long start = metrics.start();
+		tolerantSnapshots.put(uri, ProjectSnapshot.merge(snapshotCache.get(uri), DOMModelReader.read(document)));
+		metrics.record("project.salvage", start);
+	}
+
+	/**
+	 * @return the stamps of the pom, which the project was built from a copy of,
+	 *         and of its parents.
+	 */
+	private static List<CacheStore.FileStamp> stampBuildFiles(File pom, List<File> parents) {
+		List<CacheStore.FileStamp> files = new ArrayList<>();
+		files.add(CacheStore.FileStamp.of(pom));
+		parents.forEach(parent -> files.add(CacheStore.FileStamp.of(parent)));
+		return files;
+	}
+
+	/**
+	 * Reports the problems of the working copy against the document it was copied
+	 * from.
+	 */
+	private static Collection<ModelProblem> relocate(Collection<ModelProblem> problems, String workingCopy,
+			String file) {
+		Collection<ModelProblem> relocated = new ArrayList<ModelProblem>(problems.size());
+		for (ModelProblem problem : problems) {
+			if (workingCopy.equals(problem.getSource())) {
+				problem = new DefaultModelProblem(problem.getMessage(), problem.getSeverity(), problem.getVersion(),
+						file, problem.getLineNumber(), problem.getColumnNumber(), problem.getModelId(),
+						problem.getException());
+			}
+			relocated.add(problem);
+		}
+		return relocated;
+	}
+
+	private ProjectBuilder getProjectBuilder() throws ComponentLookupException {
+		ProjectBuilder builder = projectBuilder;
+		if (builder == null) {
+			synchronized (this) {
+				if (projectBuilder == null) {
+					projectBuilder = plexusContainer.lookup(ProjectBuilder.class);
+				}
+				builder = projectBuilder;
+			}
+		}
+		return builder;
+	}
+
+	private ModelBuilder getModelBuilder() throws ComponentLookupException {
+		ModelBuilder builder = modelBuilder;
+		if (builder == null) {
+			synchronized (this) {
+				if (modelBuilder == null) {
+					modelBuilder = plexusContainer.lookup(ModelBuilder.class);
+				}
+				builder = modelBuilder;
+			}
+		}
+		return builder;
+	}
+
+	/**
+	 * @return the configuration of the workspace of the pom, loaded again if its
+	 *         settings or maven.config changed.
+	 */
+	private BuildConfiguration getConfiguration(File pom)
+			throws ComponentLookupException, MavenExecutionRequestPopulationException {
+		Path key = getWorkspaceKey(pom);
+		BuildConfiguration configuration = configurations.get(key);
+		if (configuration != null && configuration.isUpToDate()) {
+			return configuration;
+		}
+		// loaded once, whatever the number of poms building
+		synchronized (configurations) {
+			configuration = configurations.get(key);
+			if (configuration == null || !configuration.isUpToDate()) {
+				configuration = BuildConfiguration.load(plexusContainer, BuildConfiguration.findRoot(pom));
+				configurations.put(key, configuration);
+				metrics.increment("buildConfiguration.load");
+			}
+			return configuration;
+		}
 	}
 
-	private void initializeMavenBuildState() throws ComponentLookupException, InvalidRepositoryException {
-		projectBuilder = plexusContainer.lookup(ProjectBuilder.class);
-		mavenRequest = new DefaultMavenExecutionRequest();
-		mavenRequest.setLocalRepositoryPath(RepositorySystem.defaultUserLocalRepository);
-		RepositorySystem repositorySystem = plexusContainer.lookup(RepositorySystem.class);
-		mavenRequest.setLocalRepository(repositorySystem.createDefaultLocalRepository());
-		DefaultRepositorySystemSessionFactory repositorySessionFactory = plexusContainer.lookup(DefaultRepositorySystemSessionFactory.class);
-		repositorySystemSession = repositorySessionFactory.newRepositorySession(mavenRequest);
+	private static Path getWorkspaceKey(File pom) {
+		Path root = BuildConfiguration.findRoot(pom);
+		// poms outside of a workspace share the default configuration
+		return root != null ? root : Paths.get("");
 	}
 
 }
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven;
+
+import java.util.List;
+
+import org.eclipse.lsp4j.Location;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.ReferenceContext;
+import org.eclipse.lsp4j.jsonrpc.CancelChecker;
+import org.eclipse.lsp4xml.commons.BadLocationException;
+import org.eclipse.lsp4xml.dom.DOMDocument;
+import org.eclipse.lsp4xml.extensions.maven.index.WorkspaceIndex;
+import org.eclipse.lsp4xml.services.extensions.IReferenceParticipant;
+
+/**
+ * Finds the usages of a property or of an artifact version across all the poms
+ * of the workspace.
+ */
+public class MavenReferenceParticipant implements IReferenceParticipant {
+
+	private final WorkspaceIndex index;
+
+	public MavenReferenceParticipant(WorkspaceIndex index) {
+		this.index = index;
+	}
+
+	@Override
+	public void findReference(DOMDocument document, Position position, ReferenceContext context,
+			List<Location> locations, CancelChecker cancelChecker) {
+		if (!MavenPlugin.match(document)) {
+			return;
+		}
+		index.update(document);
+		String key;
+		try {
+			key = index.findKeyAt(document, document.offsetAt(position));
+		} catch (BadLocationException e) {
+			return;
+		}
+		if (key == null) {
+			return;
+		}
+		boolean includeDeclaration = context == null || context.isIncludeDeclaration();
+		index.getOccurrences(key).stream() //
+				.filter(occurrence -> includeDeclaration || !occurrence.isDeclaration()) //
+				.map(WorkspaceIndex.Occurrence::toLocation) //
+				.forEach(locations::add);
+	}
+
+}
@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.DiagnosticSeverity;
+import org.eclipse.lsp4xml.dom.DOMDocument;
+import org.eclipse.lsp4xml.dom.DOMElement;
+import org.eclipse.lsp4xml.dom.DOMNode;
+import org.eclipse.lsp4xml.extensions.maven.index.PluginDescriptorIndex;
+import org.eclipse.lsp4xml.extensions.maven.index.PluginDescriptorIndex.Descriptor;
+import org.eclipse.lsp4xml.extensions.maven.index.PluginDescriptorIndex.Parameter;
+import org.eclipse.lsp4xml.utils.XMLPositionUtility;
+
+/**
+ * Checks the <code>&lt;configuration&gt;</code> of plugins and executions
+ * against the parameters of the plugin descriptor: unknown and read-only
+ * parameters are reported, as are unknown execution goals. Plugins not in the
+ * local repository aren't checked.
+ */
+public class PluginConfigurationValidator {
+
+	private final PluginDescriptorIndex pluginDescriptorIndex;
+	private final ProjectSnapshot snapshot;
+
+	public PluginConfigurationValidator(PluginDescriptorIndex pluginDescriptorIndex, ProjectSnapshot snapshot) {
+		this.pluginDescriptorIndex = pluginDescriptorIndex;
+		this.snapshot = snapshot;
+	}
+
+	public Diagnostic validateConfiguration(DiagnosticRequest diagnosticRequest) {
+		DOMNode configuration = diagnosticRequest.getNode();
+		DOMElement plugin = findPlugin(configuration);
+		if (plugin == null) {
+			return null;
+		}
+		Descriptor descriptor = pluginDescriptorIndex.getDescriptor(plugin, snapshot);
+		if (descriptor == null) {
+			return null;
+		}
+		List<String> goals = getGoals(configuration);
+		// unknown goals are reported on their own
+		goals.removeIf(goal -> descriptor.getGoal(goal) == null);
+		Map<String, Parameter> parameters = descriptor.getParameters(goals);
+		DOMDocument document = diagnosticRequest.getDOMDocument();
+		for (DOMNode child : configuration.getChildren()) {
+			if (!child.isElement() || child.getLocalName() == null) {
+				continue;
+			}
+			String name = child.getLocalName();
+			Parameter parameter = parameters.get(name);
+			if (parameter == null) {
+				parameter = parameters.values().stream().filter(candidate -> candidate.matches(name)).findFirst()
+						.orElse(null);
+			}
+			String message = null;
+			if (parameter == null) {
+				message = String.format("Unknown parameter '%s' for %s", name, descriptor);
+			} else if (!parameter.isEditable()) {
+				message = String.format("Parameter '%s' of %s is read-only", name, descriptor);
+			}
+			if (message != null) {
+				DOMElement element = (DOMElement) child;
+				int start = element.getStartTagOpenOffset() + 1;
+				diagnosticRequest.getDiagnostics()
+						.add(new Diagnostic(XMLPositionUtility.createRange(start, start + name.length(), document),
+								message, DiagnosticSeverity.Warning, document.getDocumentURI(), "XML"));
+			}
+		}
+		return null;
+	}
+
+	public Diagnostic validateGoal(DiagnosticRequest diagnosticRequest) {
+		DOMNode goal = diagnosticRequest.getNode();
+		DOMElement goals = goal.getParentElement();
+		if (goals == null || !"goals".equals(goals.getLocalName()) || goals.getParentElement() == null
+				|| !"execution".equals(goals.getParentElement().getLocalName())) {
+			return null;
+		}
+		String name = DOMUtils.getText(goal);
+		DOMElement plugin = findPlugin(goals);
+		if (name == null || name.contains("${") || plugin == null) {
+			return null;
+		}
+		Descriptor descriptor = pluginDescriptorIndex.getDescriptor(plugin, snapshot);
+		if (descriptor == null || descriptor.getGoal(name) != null) {
+			return null;
+		}
+		return new Diagnostic(diagnosticRequest.getRange(),
+				String.format("Unknown goal '%s' for %s, must be one of %s", name, descriptor,
+						String.join(", ", descriptor.getGoalNames())),
+				DiagnosticSeverity.Warning, diagnosticRequest.getDOMDocument().getDocumentURI(), "XML");
+	}
+
+	/**
+	 * @param node a child of a plugin or execution, e.g. its
+	 *             <code>&lt;configuration&gt;</code>
+	 * @return the <code>&lt;plugin&gt;</code>, <code>null</code> if the node isn't
+	 *         in a plugin.
+	 */
+	static DOMElement findPlugin(DOMNode node) {
+		DOMElement parent = node.getParentElement();
+		if (parent == null) {
+			return null;
+		}
+		if ("plugin".equals(parent.getLocalName())) {
+			return parent;
+		}
+		if ("execution".equals(parent.getLocalName()) && parent.getParentElement() != null
+				&& parent.getParentElement().getParentElement() != null
+				&& "plugin".equals(parent.getParentElement().getParentElement().getLocalName())) {
+			return parent.getParentElement().getParentElement();
+		}
+		return null;
+	}
+
+	/**
+	 * @return the goals of the execution of the configuration, empty for a
+	 *         plugin configuration, which applies to all the goals.
+	 */
+	static List<String> getGoals(DOMNode configuration) {
+		DOMElement parent = configuration.getParentElement();
+		if (parent == null || !"execution".equals(parent.getLocalName())) {
+			return Collections.emptyList();
+		}
+		List<String> goals = new ArrayList<>();
+		for (DOMElement goal : DOMUtils.findChildElements(DOMUtils.findChildElement(parent, "goals"), "goal")) {
+			String name = DOMUtils.getText(goal);
+			if (name != null) {
+				goals.add(name);
+			}
+		}
+		return goals;
+	}
+}
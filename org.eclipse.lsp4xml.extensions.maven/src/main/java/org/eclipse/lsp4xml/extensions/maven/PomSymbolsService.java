@@ -0,0 +1,379 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven;
+
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.eclipse.lsp4j.DocumentSymbol;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.SymbolKind;
+import org.eclipse.lsp4xml.commons.BadLocationException;
+import org.eclipse.lsp4xml.dom.DOMDocument;
+import org.eclipse.lsp4xml.dom.DOMElement;
+import org.eclipse.lsp4xml.dom.DOMNode;
+import org.eclipse.lsp4xml.dom.DOMParser;
+import org.eclipse.lsp4xml.extensions.maven.metrics.MavenMetrics;
+
+/**
+ * The outline of a pom: its parent, modules, properties, dependencies,
+ * dependency management, build plugins and profiles, as typed document
+ * symbols.
+ *
+ * The symbols are computed once per version of the document, and the ones of
+ * the elements whose text didn't change since the previous version are reused,
+ * moved to their new lines, so that an edit in a pom with thousands of
+ * dependencies doesn't walk all of them again. Symbols are shared: they must
+ * not be modified. The symbols of a pom are held softly, and forgotten when it
+ * is deleted.
+ */
+public class PomSymbolsService {
+
+	/**
+	 * The symbol of an element, with the symbols of the elements it contains, to
+	 * be reused in a next version where the element has the same text.
+	 */
+	private static class CachedSymbol {
+		private final Position start;
+		private final DocumentSymbol symbol;
+		private final Map<String, CachedSymbol> nested;
+
+		private CachedSymbol(Position start, DocumentSymbol symbol, Map<String, CachedSymbol> nested) {
+			this.start = start;
+			this.symbol = symbol;
+			this.nested = nested;
+		}
+
+		private CachedSymbol move(int lines, Map<DocumentSymbol, DocumentSymbol> copies) {
+			if (lines == 0) {
+				return this;
+			}
+			Map<String, CachedSymbol> moved = new HashMap<>();
+			nested.forEach((text, cached) -> moved.put(text, cached.move(lines, copies)));
+			return new CachedSymbol(new Position(start.getLine() + lines, start.getCharacter()),
+					copy(symbol, lines, copies), moved);
+		}
+
+		private static DocumentSymbol copy(DocumentSymbol symbol, int lines, Map<DocumentSymbol, DocumentSymbol> copies) {
+			DocumentSymbol copy = copies.get(symbol);
+			if (copy == null) {
+				List<DocumentSymbol> children = new ArrayList<>(symbol.getChildren().size());
+				symbol.getChildren().forEach(child -> children.add(copy(child, lines, copies)));
+				copy = new DocumentSymbol(symbol.getName(), symbol.getKind(), move(symbol.getRange(), lines),
+						move(symbol.getSelectionRange(), lines), symbol.getDetail(), children);
+				copies.put(symbol, copy);
+			}
+			return copy;
+		}
+
+		private static Range move(Range range, int lines) {
+			return new Range(new Position(range.getStart().getLine() + lines, range.getStart().getCharacter()),
+					new Position(range.getEnd().getLine() + lines, range.getEnd().getCharacter()));
+		}
+	}
+
+	private static class SymbolTree {
+		private final WeakReference<DOMDocument> document;
+		private final List<DocumentSymbol> symbols;
+		// by text of the elements
+		private final Map<String, CachedSymbol> elements;
+
+		private SymbolTree(DOMDocument document, List<DocumentSymbol> symbols, Map<String, CachedSymbol> elements) {
+			this.document = new WeakReference<>(document);
+			this.symbols = symbols;
+			this.elements = elements;
+		}
+	}
+
+	private final MavenMetrics metrics;
+	// the last version of each opened pom
+	private final Map<URI, WeakReference<DOMDocument>> documents = new ConcurrentHashMap<>();
+	private final Map<URI, SoftReference<SymbolTree>> trees = new ConcurrentHashMap<>();
+
+	public PomSymbolsService(MavenMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Tells the version of an opened pom the next requests for its URI are about.
+	 */
+	public void documentChanged(DOMDocument document) {
+		URI uri = URI.create(document.getDocumentURI());
+		documents.compute(uri, (u, known) -> {
+			DOMDocument previous = known != null ? known.get() : null;
+			return previous != null
+					&& previous.getTextDocument().getVersion() > document.getTextDocument().getVersion() ? known
+							: new WeakReference<>(document);
+		});
+	}
+
+	/**
+	 * @return the symbols of the last version of the given opened pom, or of the
+	 *         file on disk.
+	 */
+	public List<DocumentSymbol> getSymbols(URI uri) throws IOException {
+		WeakReference<DOMDocument> known = documents.get(uri);
+		DOMDocument document = known != null ? known.get() : null;
+		if (document == null) {
+			Path pom = Paths.get(uri);
+			if (!Files.isRegularFile(pom)) {
+				return Collections.emptyList();
+			}
+			String text = new String(Files.readAllBytes(pom), StandardCharsets.UTF_8);
+			document = DOMParser.getInstance().parse(text, uri.toString(), null);
+		}
+		return getSymbols(document);
+	}
+
+	/**
+	 * @return the symbols of the given version of the document.
+	 */
+	public List<DocumentSymbol> getSymbols(DOMDocument document) {
+		URI uri = URI.create(document.getDocumentURI());
+		SymbolTree[] res = new SymbolTree[1];
+		trees.compute(uri, (u, reference) -> {
+			SymbolTree previous = reference != null ? reference.get() : null;
+			if (previous != null && previous.document.get() == document) {
+				metrics.increment("symbols.hit");
+				res[0] = previous;
+				return reference;
+			}
+			metrics.increment("symbols.miss");
+			long start = metrics.start();
+			res[0] = new SymbolBuilder(document, previous != null ? previous.elements : Collections.emptyMap())
+					.build();
+			metrics.record("symbols.compute", start);
+			return new SoftReference<>(res[0]);
+		});
+		return res[0].symbols;
+	}
+
+	/**
+	 * Forgets the given pom, e.g. when it was deleted.
+	 */
+	public void remove(URI uri) {
+		documents.remove(uri);
+		trees.remove(uri);
+	}
+
+	private class SymbolBuilder {
+
+		private final DOMDocument document;
+		private final String text;
+		private final Map<String, CachedSymbol> previous;
+		// the symbols built or reused in the element being built
+		private Map<String, CachedSymbol> current = new HashMap<>();
+
+		private SymbolBuilder(DOMDocument document, Map<String, CachedSymbol> previous) {
+			this.document = document;
+			this.text = document.getText();
+			this.previous = previous;
+		}
+
+		private SymbolTree build() {
+			DOMElement project = document.getDocumentElement();
+			if (project == null || !"project".equals(project.getLocalName())) {
+				return new SymbolTree(document, Collections.emptyList(), Collections.emptyMap());
+			}
+			String groupId = DOMUtils.getChildText(project, "groupId");
+			String version = DOMUtils.getChildText(project, "version");
+			DOMElement parent = DOMUtils.findChildElement(project, "parent");
+			if (parent != null) {
+				groupId = groupId != null ? groupId : DOMUtils.getChildText(parent, "groupId");
+				version = version != null ? version : DOMUtils.getChildText(parent, "version");
+			}
+			String artifactId = DOMUtils.getChildText(project, "artifactId");
+			DocumentSymbol root = symbol(project, artifactId, coordinates(groupId, artifactId, version),
+					SymbolKind.Module, sections(project));
+			return new SymbolTree(document, Collections.singletonList(root), current);
+		}
+
+		/**
+		 * @return the symbols of the sections of a project or profile.
+		 */
+		private List<DocumentSymbol> sections(DOMElement parent) {
+			List<DocumentSymbol> symbols = new ArrayList<>();
+			for (DOMElement element : children(parent)) {
+				switch (element.getLocalName()) {
+				case "parent":
+					symbols.add(cached(element, e -> symbol(e, "parent",
+							coordinates(DOMUtils.getChildText(e, "groupId"), DOMUtils.getChildText(e, "artifactId"),
+									DOMUtils.getChildText(e, "version")),
+							SymbolKind.Class, Collections.emptyList())));
+					break;
+				case "modules":
+					symbols.add(cached(element, e -> section(e, items(e, "module",
+							module -> symbol(module, DOMUtils.getText(module), null, SymbolKind.Module,
+									Collections.emptyList())))));
+					break;
+				case "properties":
+					symbols.add(cached(element, e -> section(e, properties(e))));
+					break;
+				case "dependencies":
+					symbols.add(cached(element, e -> section(e, items(e, "dependency", this::dependency))));
+					break;
+				case "dependencyManagement":
+					symbols.add(cached(element, e -> section(e,
+							items(DOMUtils.findChildElement(e, "dependencies"), "dependency", this::dependency))));
+					break;
+				case "build":
+					symbols.add(cached(element, e -> section(e, build(e))));
+					break;
+				case "profiles":
+					symbols.add(cached(element, e -> section(e, items(e, "profile",
+							profile -> symbol(profile, DOMUtils.getChildText(profile, "id"), null,
+									SymbolKind.Namespace, sections(profile))))));
+					break;
+				default:
+					break;
+				}
+			}
+			return symbols;
+		}
+
+		private List<DocumentSymbol> properties(DOMElement properties) {
+			List<DocumentSymbol> symbols = new ArrayList<>();
+			for (DOMElement property : children(properties)) {
+				symbols.add(cached(property, e -> symbol(e, e.getLocalName(), DOMUtils.getText(e),
+						SymbolKind.Property, Collections.emptyList())));
+			}
+			return symbols;
+		}
+
+		private List<DocumentSymbol> build(DOMElement build) {
+			List<DocumentSymbol> symbols = items(DOMUtils.findChildElement(build, "plugins"), "plugin", this::plugin);
+			DOMElement pluginManagement = DOMUtils.findChildElement(build, "pluginManagement");
+			if (pluginManagement != null) {
+				symbols.add(cached(pluginManagement, e -> section(e,
+						items(DOMUtils.findChildElement(e, "plugins"), "plugin", this::plugin))));
+			}
+			return symbols;
+		}
+
+		private DocumentSymbol dependency(DOMElement dependency) {
+			String version = DOMUtils.getChildText(dependency, "version");
+			String scope = DOMUtils.getChildText(dependency, "scope");
+			if (scope != null) {
+				version = version != null ? version + " (" + scope + ')' : '(' + scope + ')';
+			}
+			return symbol(dependency, coordinates(DOMUtils.getChildText(dependency, "groupId"),
+					DOMUtils.getChildText(dependency, "artifactId"), null), version, SymbolKind.Package,
+					Collections.emptyList());
+		}
+
+		private DocumentSymbol plugin(DOMElement plugin) {
+			List<DocumentSymbol> children = new ArrayList<>();
+			for (DOMElement execution : DOMUtils.findChildElements(DOMUtils.findChildElement(plugin, "executions"),
+					"execution")) {
+				children.add(cached(execution, e -> symbol(e, DOMUtils.getChildText(e, "id"),
+						DOMUtils.getChildText(e, "phase"), SymbolKind.Event, Collections.emptyList())));
+			}
+			DOMElement dependencies = DOMUtils.findChildElement(plugin, "dependencies");
+			if (dependencies != null) {
+				children.add(cached(dependencies, e -> section(e, items(e, "dependency", this::dependency))));
+			}
+			return symbol(plugin, coordinates(DOMUtils.getChildText(plugin, "groupId"),
+					DOMUtils.getChildText(plugin, "artifactId"), null), DOMUtils.getChildText(plugin, "version"),
+					SymbolKind.Function, children);
+		}
+
+		private List<DocumentSymbol> items(DOMElement parent, String name, Function<DOMElement, DocumentSymbol> factory) {
+			List<DocumentSymbol> symbols = new ArrayList<>();
+			for (DOMElement element : DOMUtils.findChildElements(parent, name)) {
+				symbols.add(cached(element, factory));
+			}
+			return symbols;
+		}
+
+		/**
+		 * @return the symbol of the element, reused from the previous version if the
+		 *         element has the same text and column.
+		 */
+		private DocumentSymbol cached(DOMElement element, Function<DOMElement, DocumentSymbol> factory) {
+			String key = text.substring(element.getStart(), element.getEnd());
+			Position start = position(element.getStart());
+			CachedSymbol known = previous.get(key);
+			if (known != null && known.start.getCharacter() == start.getCharacter()) {
+				CachedSymbol moved = known.move(start.getLine() - known.start.getLine(), new IdentityHashMap<>());
+				current.putAll(moved.nested);
+				current.put(key, moved);
+				metrics.increment("symbols.reused");
+				return moved.symbol;
+			}
+			Map<String, CachedSymbol> outer = current;
+			current = new HashMap<>();
+			DocumentSymbol symbol = factory.apply(element);
+			CachedSymbol built = new CachedSymbol(start, symbol, current);
+			current = outer;
+			current.putAll(built.nested);
+			current.put(key, built);
+			return symbol;
+		}
+
+		private DocumentSymbol section(DOMElement element, List<DocumentSymbol> children) {
+			return symbol(element, element.getLocalName(), String.valueOf(children.size()), SymbolKind.Struct,
+					children);
+		}
+
+		private DocumentSymbol symbol(DOMElement element, String name, String detail, SymbolKind kind,
+				List<DocumentSymbol> children) {
+			Range range = new Range(position(element.getStart()), position(element.getEnd()));
+			Integer startTagClose = element.getStartTagCloseOffset();
+			Range selectionRange = startTagClose != null
+					? new Range(range.getStart(), position(startTagClose + 1))
+					: range;
+			// names can't be empty
+			return new DocumentSymbol(name != null && !name.isEmpty() ? name : element.getLocalName(), kind, range,
+					selectionRange, detail, children);
+		}
+
+		private Position position(int offset) {
+			try {
+				return document.positionAt(offset);
+			} catch (BadLocationException e) {
+				return new Position(0, 0);
+			}
+		}
+
+		private List<DOMElement> children(DOMElement parent) {
+			List<DOMElement> elements = new ArrayList<>();
+			for (DOMNode child : parent.getChildren()) {
+				if (child.isElement() && child.getLocalName() != null) {
+					elements.add((DOMElement) child);
+				}
+			}
+			return elements;
+		}
+	}
+
+	private static String coordinates(String groupId, String artifactId, String version) {
+		StringBuilder res = new StringBuilder();
+		for (String part : new String[] { groupId, artifactId, version }) {
+			if (part != null) {
+				res.append(res.length() > 0 ? ":" : "").append(part);
+			}
+		}
+		return res.length() > 0 ? res.toString() : null;
+	}
+}
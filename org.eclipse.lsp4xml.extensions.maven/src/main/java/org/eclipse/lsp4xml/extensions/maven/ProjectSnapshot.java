@@ -0,0 +1,489 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.InputLocation;
+import org.apache.maven.model.InputLocationTracker;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Parent;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * What the editor features need from a built {@link MavenProject}, copied out
+ * of it so that the project, with its models, artifacts, repositories and
+ * parent chain, doesn't have to stay in memory. Immutable.
+ */
+public class ProjectSnapshot {
+
+	/**
+	 * Effective coordinates of a dependency, plugin or parent, and where they are
+	 * declared.
+	 */
+	public static class Coordinates {
+
+		private final ArtifactCoordinates coordinates;
+		private final String scope;
+		private final String source;
+		private final int line;
+		private final int column;
+
+		public Coordinates(String groupId, String artifactId, String version, String scope,
+				InputLocation location) {
+			this(groupId, artifactId, version, scope,
+					location != null && location.getSource() != null ? location.getSource().getModelId() : null,
+					location != null ? location.getLineNumber() : -1,
+					location != null ? location.getColumnNumber() : -1);
+		}
+
+		public Coordinates(String groupId, String artifactId, String version, String scope, String source,
+				int line, int column) {
+			CoordinatePool pool = CoordinatePool.getInstance();
+			this.coordinates = pool.get(groupId, artifactId, version);
+			this.scope = pool.intern(scope);
+			this.source = pool.intern(source);
+			this.line = line;
+			this.column = column;
+		}
+
+		/**
+		 * @return the pooled <code>groupId:artifactId:version</code>.
+		 */
+		public ArtifactCoordinates getCoordinates() {
+			return coordinates;
+		}
+
+		public String getGroupId() {
+			return coordinates.getGroupId();
+		}
+
+		public String getArtifactId() {
+			return coordinates.getArtifactId();
+		}
+
+		public String getVersion() {
+			return coordinates.getVersion();
+		}
+
+		/**
+		 * @return the scope of a dependency, <code>null</code> otherwise.
+		 */
+		public String getScope() {
+			return scope;
+		}
+
+		/**
+		 * @return the id (<code>groupId:artifactId:version</code>) of the model
+		 *         declaring these coordinates, which can be a parent. Can be
+		 *         <code>null</code>.
+		 */
+		public String getSource() {
+			return source;
+		}
+
+		/**
+		 * @return the 1-based line of the declaration, -1 if unknown.
+		 */
+		public int getLine() {
+			return line;
+		}
+
+		/**
+		 * @return the 1-based column of the declaration, -1 if unknown.
+		 */
+		public int getColumn() {
+			return column;
+		}
+
+		@Override
+		public String toString() {
+			return coordinates.toString();
+		}
+	}
+
+	private final ArtifactCoordinates coordinates;
+	private final String modelId;
+	private final String packaging;
+	private final Coordinates parent;
+	private final Map<String, String> properties;
+	private final List<String> modules;
+	private final List<Coordinates> dependencies;
+	private final List<Coordinates> managedDependencies;
+	private final List<Coordinates> plugins;
+	private volatile String fingerprint;
+
+	private ProjectSnapshot(MavenProject project) {
+		CoordinatePool pool = CoordinatePool.getInstance();
+		this.coordinates = pool.get(project.getGroupId(), project.getArtifactId(), project.getVersion());
+		InputLocation location = location(project.getModel());
+		this.modelId = pool.intern(location != null && location.getSource() != null
+				? location.getSource().getModelId()
+				: coordinates.toString());
+		this.packaging = pool.intern(project.getPackaging());
+		Parent modelParent = project.getModel().getParent();
+		this.parent = modelParent == null ? null
+				: new Coordinates(modelParent.getGroupId(), modelParent.getArtifactId(), modelParent.getVersion(),
+						null, modelParent.getLocation(""));
+		Map<String, String> properties = new HashMap<>();
+		if (project.getProperties() != null) {
+			for (Entry<Object, Object> property : project.getProperties().entrySet()) {
+				properties.put(pool.intern(String.valueOf(property.getKey())),
+						pool.intern(String.valueOf(property.getValue())));
+			}
+		}
+		this.properties = Collections.unmodifiableMap(properties);
+		List<String> modules = new ArrayList<>();
+		if (project.getModules() != null) {
+			project.getModules().forEach(module -> modules.add(pool.intern(module)));
+		}
+		this.modules = Collections.unmodifiableList(modules);
+		this.dependencies = toCoordinates(project.getDependencies());
+		this.managedDependencies = project.getDependencyManagement() == null ? Collections.emptyList()
+				: toCoordinates(project.getDependencyManagement().getDependencies());
+		List<Coordinates> plugins = new ArrayList<>();
+		if (project.getBuildPlugins() != null) {
+			for (Plugin plugin : project.getBuildPlugins()) {
+				plugins.add(new Coordinates(plugin.getGroupId(), plugin.getArtifactId(), plugin.getVersion(), null,
+						location(plugin)));
+			}
+		}
+		this.plugins = Collections.unmodifiableList(plugins);
+	}
+
+	/**
+	 * Restores a snapshot, e.g. from a {@link CacheStore}.
+	 */
+	public ProjectSnapshot(ArtifactCoordinates coordinates, String packaging, Coordinates parent,
+			Map<String, String> properties, List<String> modules, List<Coordinates> dependencies,
+			List<Coordinates> managedDependencies, List<Coordinates> plugins) {
+		this(coordinates, coordinates != null ? coordinates.toString() : null, packaging, parent, properties, modules, dependencies,
+				managedDependencies, plugins);
+	}
+
+	/**
+	 * Restores a snapshot, e.g. from a {@link CacheStore}.
+	 *
+	 * @param modelId see {@link #getModelId()}
+	 */
+	public ProjectSnapshot(ArtifactCoordinates coordinates, String modelId, String packaging, Coordinates parent,
+			Map<String, String> properties, List<String> modules, List<Coordinates> dependencies,
+			List<Coordinates> managedDependencies, List<Coordinates> plugins) {
+		CoordinatePool pool = CoordinatePool.getInstance();
+		this.coordinates = coordinates;
+		this.modelId = pool.intern(modelId);
+		this.packaging = pool.intern(packaging);
+		this.parent = parent;
+		Map<String, String> pooledProperties = new HashMap<>();
+		properties.forEach((key, value) -> pooledProperties.put(pool.intern(key), pool.intern(value)));
+		this.properties = Collections.unmodifiableMap(pooledProperties);
+		List<String> pooledModules = new ArrayList<>();
+		modules.forEach(module -> pooledModules.add(pool.intern(module)));
+		this.modules = Collections.unmodifiableList(pooledModules);
+		this.dependencies = Collections.unmodifiableList(new ArrayList<>(dependencies));
+		this.managedDependencies = Collections.unmodifiableList(new ArrayList<>(managedDependencies));
+		this.plugins = Collections.unmodifiableList(new ArrayList<>(plugins));
+	}
+
+	public static ProjectSnapshot of(MavenProject project) {
+		return new ProjectSnapshot(project);
+	}
+
+	/**
+	 * Salvages what a pom which can't be built declares, e.g. while it's being
+	 * edited: the sections read from its DOM replace the ones it declared in its
+	 * last successful build, what the build inherited from its parents is kept.
+	 * Declared versions are resolved against the last build's properties and
+	 * managed versions.
+	 *
+	 * @param lastBuild the last successful build of the pom, can be
+	 *                  <code>null</code>
+	 * @param model     the model read from the DOM of the pom, e.g. by
+	 *                  {@link DOMModelReader}
+	 */
+	public static ProjectSnapshot merge(ProjectSnapshot lastBuild, Model model) {
+		Parent modelParent = model.getParent();
+		String groupId = model.getGroupId() != null ? model.getGroupId()
+				: modelParent != null ? modelParent.getGroupId()
+						: lastBuild != null ? lastBuild.getGroupId() : null;
+		String artifactId = model.getArtifactId() != null ? model.getArtifactId()
+				: lastBuild != null ? lastBuild.getArtifactId() : null;
+		String version = model.getVersion() != null ? model.getVersion()
+				: modelParent != null ? modelParent.getVersion()
+						: lastBuild != null ? lastBuild.getVersion() : null;
+		// the raw model ids of the pom, which inherited declarations have another one of
+		String source = modelId(model);
+		String lastSource = lastBuild != null ? lastBuild.getModelId() : source;
+
+		Map<String, String> properties = new HashMap<>();
+		if (lastBuild != null) {
+			properties.putAll(lastBuild.getProperties());
+		}
+		model.getProperties().forEach((key, value) -> properties.put(String.valueOf(key), String.valueOf(value)));
+		Map<String, String> values = new HashMap<>(properties);
+		values.put("project.groupId", groupId);
+		values.put("project.artifactId", artifactId);
+		values.put("project.version", version);
+
+		Coordinates parent = modelParent == null ? null
+				: new Coordinates(modelParent.getGroupId(), modelParent.getArtifactId(), modelParent.getVersion(),
+						null, source, line(modelParent), column(modelParent));
+
+		List<Coordinates> managedDependencies = inherited(lastBuild, ProjectSnapshot::getManagedDependencies,
+				lastSource);
+		if (model.getDependencyManagement() != null) {
+			for (Dependency dependency : model.getDependencyManagement().getDependencies()) {
+				managedDependencies.add(new Coordinates(dependency.getGroupId(), dependency.getArtifactId(),
+						interpolate(dependency.getVersion(), values), dependency.getScope(), source,
+						line(dependency), column(dependency)));
+			}
+		}
+		List<Coordinates> dependencies = inherited(lastBuild, ProjectSnapshot::getDependencies, lastSource);
+		for (Dependency dependency : model.getDependencies()) {
+			String dependencyVersion = dependency.getVersion() != null
+					? interpolate(dependency.getVersion(), values)
+					: managedVersion(managedDependencies, dependency.getGroupId(), dependency.getArtifactId());
+			dependencies.add(new Coordinates(dependency.getGroupId(), dependency.getArtifactId(), dependencyVersion,
+					dependency.getScope(), source, line(dependency), column(dependency)));
+		}
+		List<Coordinates> plugins = inherited(lastBuild, ProjectSnapshot::getPlugins, lastSource);
+		if (model.getBuild() != null) {
+			for (Plugin plugin : model.getBuild().getPlugins()) {
+				String pluginVersion = plugin.getVersion() != null ? interpolate(plugin.getVersion(), values)
+						: lastBuild != null
+								? managedVersion(lastBuild.getPlugins(), plugin.getGroupId(), plugin.getArtifactId())
+								: null;
+				plugins.add(new Coordinates(plugin.getGroupId(), plugin.getArtifactId(), pluginVersion, null, source,
+						line(plugin), column(plugin)));
+			}
+		}
+
+		return new ProjectSnapshot(CoordinatePool.getInstance().get(groupId, artifactId, version), source,
+				model.getPackaging(), parent, properties, model.getModules(), dependencies, managedDependencies,
+				plugins);
+	}
+
+	/**
+	 * @return the id Maven gives to the raw model, e.g. as source of its
+	 *         locations: its groupId and version default to the parent's, and
+	 *         aren't interpolated.
+	 */
+	private static String modelId(Model model) {
+		Parent parent = model.getParent();
+		String groupId = model.getGroupId() != null || parent == null ? model.getGroupId() : parent.getGroupId();
+		String version = model.getVersion() != null || parent == null ? model.getVersion() : parent.getVersion();
+		return idPart(groupId, "[unknown-group-id]") + ':' + idPart(model.getArtifactId(), "[unknown-artifact-id]")
+				+ ':' + idPart(version, "[unknown-version]");
+	}
+
+	private static String idPart(String value, String unknown) {
+		return value != null && !value.isEmpty() ? value : unknown;
+	}
+
+	private static List<Coordinates> inherited(ProjectSnapshot lastBuild,
+			Function<ProjectSnapshot, List<Coordinates>> getter, String source) {
+		List<Coordinates> res = new ArrayList<>();
+		if (lastBuild != null) {
+			for (Coordinates coordinates : getter.apply(lastBuild)) {
+				if (!source.equals(coordinates.getSource())) {
+					res.add(coordinates);
+				}
+			}
+		}
+		return res;
+	}
+
+	private static String managedVersion(List<Coordinates> managed, String groupId, String artifactId) {
+		for (Coordinates coordinates : managed) {
+			if (Objects.equals(coordinates.getArtifactId(), artifactId)
+					&& Objects.equals(coordinates.getGroupId(), groupId)) {
+				return coordinates.getVersion();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the value with the <code>${property}</code> expressions of the
+	 *         given properties replaced, the other ones left as is.
+	 */
+	private static String interpolate(String value, Map<String, String> properties) {
+		int start = value.indexOf("${");
+		if (start < 0) {
+			return value;
+		}
+		StringBuilder res = new StringBuilder();
+		int end = 0;
+		while (start >= 0) {
+			int close = value.indexOf('}', start);
+			if (close < 0) {
+				break;
+			}
+			String property = properties.get(value.substring(start + 2, close));
+			res.append(value, end, start).append(property != null ? property : value.substring(start, close + 1));
+			end = close + 1;
+			start = value.indexOf("${", end);
+		}
+		return res.append(value.substring(end)).toString();
+	}
+
+	private static int line(InputLocationTracker tracker) {
+		InputLocation location = location(tracker);
+		return location != null ? location.getLineNumber() : -1;
+	}
+
+	private static int column(InputLocationTracker tracker) {
+		InputLocation location = location(tracker);
+		return location != null ? location.getColumnNumber() : -1;
+	}
+
+	private static List<Coordinates> toCoordinates(List<Dependency> dependencies) {
+		if (dependencies == null || dependencies.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<Coordinates> res = new ArrayList<>(dependencies.size());
+		for (Dependency dependency : dependencies) {
+			res.add(new Coordinates(dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion(),
+					dependency.getScope(), location(dependency)));
+		}
+		return Collections.unmodifiableList(res);
+	}
+
+	private static InputLocation location(InputLocationTracker tracker) {
+		return tracker.getLocation("");
+	}
+
+	/**
+	 * @return the pooled <code>groupId:artifactId:version</code> of the project.
+	 */
+	public ArtifactCoordinates getCoordinates() {
+		return coordinates;
+	}
+
+	/**
+	 * @return the id of the pom's own model, the {@link Coordinates#getSource()}
+	 *         of what it declares: its raw <code>groupId:artifactId:version</code>,
+	 *         e.g. <code>org.example:app:${revision}</code>.
+	 */
+	public String getModelId() {
+		return modelId;
+	}
+
+	public String getGroupId() {
+		return coordinates.getGroupId();
+	}
+
+	public String getArtifactId() {
+		return coordinates.getArtifactId();
+	}
+
+	public String getVersion() {
+		return coordinates.getVersion();
+	}
+
+	public String getPackaging() {
+		return packaging;
+	}
+
+	/**
+	 * @return the parent declared by the pom, or <code>null</code>.
+	 */
+	public Coordinates getParent() {
+		return parent;
+	}
+
+	/**
+	 * @return the effective properties, inherited ones included.
+	 */
+	public Map<String, String> getProperties() {
+		return properties;
+	}
+
+	public List<String> getModules() {
+		return modules;
+	}
+
+	/**
+	 * @return the effective dependencies, with their managed versions.
+	 */
+	public List<Coordinates> getDependencies() {
+		return dependencies;
+	}
+
+	public List<Coordinates> getManagedDependencies() {
+		return managedDependencies;
+	}
+
+	/**
+	 * @return the effective build plugins, with their managed versions.
+	 */
+	public List<Coordinates> getPlugins() {
+		return plugins;
+	}
+
+	/**
+	 * @return a SHA-256 digest of the content of the snapshot, equal for the
+	 *         snapshots of two builds which produced the same content. The
+	 *         positions of the declarations are left out, as any edit above them
+	 *         moves them.
+	 */
+	public String getFingerprint() {
+		String res = fingerprint;
+		if (res == null) {
+			StringBuilder content = new StringBuilder();
+			content.append(coordinates).append('|').append(modelId).append('|').append(packaging).append('|');
+			append(content, parent);
+			content.append(new TreeMap<>(properties)).append('|').append(modules).append('|');
+			dependencies.forEach(dependency -> append(content, dependency));
+			content.append('|');
+			managedDependencies.forEach(dependency -> append(content, dependency));
+			content.append('|');
+			plugins.forEach(plugin -> append(content, plugin));
+			try {
+				StringBuilder hex = new StringBuilder();
+				for (byte b : MessageDigest.getInstance("SHA-256")
+						.digest(content.toString().getBytes(StandardCharsets.UTF_8))) {
+					hex.append(String.format("%02x", b));
+				}
+				res = hex.toString();
+			} catch (NoSuchAlgorithmException e) {
+				// every Java platform has SHA-256
+				res = content.toString();
+			}
+			fingerprint = res;
+		}
+		return res;
+	}
+
+	private static void append(StringBuilder content, Coordinates coordinates) {
+		if (coordinates != null) {
+			content.append(coordinates).append(':').append(coordinates.getScope()).append(':')
+					.append(coordinates.getSource());
+		}
+		content.append(';');
+	}
+
+	@Override
+	public String toString() {
+		return coordinates.toString();
+	}
+}
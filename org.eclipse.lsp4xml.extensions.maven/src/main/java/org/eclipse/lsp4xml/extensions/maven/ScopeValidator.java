@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.DiagnosticSeverity;
+import org.eclipse.lsp4xml.dom.DOMElement;
+import org.eclipse.lsp4xml.dom.DOMNode;
+
+/**
+ * Checks the <code>&lt;scope&gt;</code> of dependencies against the
+ * {@link DependencyScope}s, from the DOM only. <code>import</code> is only
+ * allowed in the dependency management.
+ */
+public class ScopeValidator {
+
+	private static final String IMPORT_SCOPE = DependencyScope.IMPORT_SCOPE.getName();
+
+	public static Diagnostic validateScope(DiagnosticRequest diagnosticRequest) {
+		DOMNode node = diagnosticRequest.getNode();
+		DOMElement dependency = node.getParentElement();
+		if (dependency == null || !"dependency".equals(dependency.getLocalName())) {
+			return null;
+		}
+		String scope = DOMUtils.getText(node);
+		if (scope == null || scope.contains("${")) {
+			return null;
+		}
+		boolean managed = dependency.getParentElement() != null
+				&& dependency.getParentElement().getParentElement() != null
+				&& "dependencyManagement".equals(dependency.getParentElement().getParentElement().getLocalName());
+		for (DependencyScope dependencyScope : DependencyScope.values()) {
+			if (dependencyScope.getName().equals(scope) && (managed || !IMPORT_SCOPE.equals(scope))) {
+				return null;
+			}
+		}
+		String expected = Arrays.stream(DependencyScope.values()).map(DependencyScope::getName)
+				.filter(name -> managed || !IMPORT_SCOPE.equals(name)).collect(Collectors.joining(", "));
+		return new Diagnostic(diagnosticRequest.getRange(),
+				String.format("Invalid scope '%s', must be one of %s", scope, expected), DiagnosticSeverity.Warning,
+				diagnosticRequest.getDOMDocument().getDocumentURI(), "XML");
+	}
+
+}
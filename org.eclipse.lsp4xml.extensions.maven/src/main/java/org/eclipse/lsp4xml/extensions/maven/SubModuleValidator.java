@@ -9,13 +9,7 @@
 package org.eclipse.lsp4xml.extensions.maven;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.IOException;
 
-import org.apache.maven.model.Model;
-import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
-import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 import org.eclipse.lsp4j.Diagnostic;
 import org.eclipse.lsp4j.DiagnosticSeverity;
 import org.eclipse.lsp4j.Range;
@@ -23,30 +17,35 @@ import org.eclipse.lsp4xml.dom.DOMDocument;
 import org.eclipse.lsp4xml.dom.DOMNode;
 
 public class SubModuleValidator {
-	Model model;
-	MavenXpp3Reader mavenreader = new MavenXpp3Reader();
 
-	// TODO: This class shouldn't be instantiating the maven model, but be receiving it from a context class instead
-	public void setPomFile(File pomFile) throws FileNotFoundException, IOException, XmlPullParserException {
-		model = mavenreader.read(new FileReader(pomFile));
+	private final File pomDirectory;
+
+	public SubModuleValidator(File pomFile) {
+		this.pomDirectory = pomFile.getParentFile();
 	}
 
 	public Diagnostic validateSubModuleExistence(DiagnosticRequest diagnosticRequest) {
 		DOMNode node = diagnosticRequest.getNode();
 		DOMDocument xmlDocument = diagnosticRequest.getDOMDocument();
-		Diagnostic diagnostic = null;
 		Range range = diagnosticRequest.getRange();
-		String tagContent = null;
-		if (node.hasChildNodes()) {
-			tagContent = node.getChild(0).getNodeValue(); // tagContent is the module to validate eg. <module>tagContent</module>
-		}
-		if (node.hasChildNodes() && !model.getModules().contains(tagContent)) {
-			diagnostic = new Diagnostic(range, String.format("Module '%s' does not exist", tagContent), DiagnosticSeverity.Error,
-					xmlDocument.getDocumentURI(), "XML");
-			diagnosticRequest.getDiagnostics().add(diagnostic);
+		String tagContent = DOMUtils.getText(node); // tagContent is the module to validate eg. <module>tagContent</module>
+		if (tagContent == null || exists(tagContent)) {
+			return null;
 		}
-		return diagnostic;
+		return new Diagnostic(range, String.format("Module '%s' does not exist", tagContent), DiagnosticSeverity.Error,
+				xmlDocument.getDocumentURI(), "XML");
+	}
 
+	/**
+	 * @return whether the module is a directory with a pom, or a pom file. Modules
+	 *         using properties aren't checked.
+	 */
+	private boolean exists(String module) {
+		if (module.contains("${") || pomDirectory == null) {
+			return true;
+		}
+		File file = new File(pomDirectory, module);
+		return file.isDirectory() ? new File(file, "pom.xml").isFile() : file.isFile();
 	}
 
 }
@@ -8,70 +8,169 @@
  *******************************************************************************/
 package org.eclipse.lsp4xml.extensions.maven;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 import org.apache.maven.artifact.Artifact;
-import org.apache.maven.artifact.DefaultArtifact;
-import org.apache.maven.artifact.handler.DefaultArtifactHandler;
-import org.apache.maven.artifact.versioning.OverConstrainedVersionException;
+import org.apache.maven.artifact.versioning.ArtifactVersion;
+import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
+import org.apache.maven.artifact.versioning.InvalidVersionSpecificationException;
+import org.apache.maven.artifact.versioning.VersionRange;
 import org.eclipse.lsp4j.Diagnostic;
 import org.eclipse.lsp4j.DiagnosticSeverity;
 import org.eclipse.lsp4j.Range;
 import org.eclipse.lsp4xml.dom.DOMDocument;
+import org.eclipse.lsp4xml.dom.DOMElement;
 import org.eclipse.lsp4xml.dom.DOMNode;
+import org.eclipse.lsp4xml.extensions.maven.index.WorkspaceIndex;
+import org.eclipse.lsp4xml.extensions.maven.searcher.ArtifactSearcherManager;
 
+/**
+ * Validates the <code>&lt;version&gt;</code> of dependencies and plugins
+ * against the versions available in the local repository and in the workspace,
+ * and hints when a newer version is available. With a
+ * <code>&lt;classifier&gt;</code>, only the local versions having a file of
+ * that classifier count.
+ */
 public class VersionValidator {
 
-	private static Artifact setArtifact(DOMNode node) {
-		String groupId = null;
-		String artifactId = null;
-		String version = null;
-		String scope = "compile"; // Default scope if no scope is specified
-		String type = "jar"; // Default type is jar if no type is specified
-		String classifier = null; // Default classifier is null
-		for (DOMNode tag : node.getParentElement().getChildren()) {
-			switch (tag.getLocalName()) {
-			case "groupId":
-				groupId = tag.getChild(0).getNodeValue();
-				break;
-			case "artifactId":
-				artifactId = tag.getChild(0).getNodeValue();
-				break;
-			case "version":
-				version = tag.getChild(0).getNodeValue();
-				break;
-			case "scope":
-				scope = tag.getChild(0).getNodeValue();
-				break;
-			case "type":
-				type = tag.getChild(0).getNodeValue();
-				break;
-			case "classifier":
-				tag.getChild(0).getNodeValue();
-				break;
-			}
+	private static final String DEFAULT_PLUGIN_GROUP_ID = "org.apache.maven.plugins";
 
-		}
-		return new DefaultArtifact(groupId, artifactId, version, scope, type, classifier,
-				new DefaultArtifactHandler(type));
+	private final WorkspaceIndex workspaceIndex;
+	private final Map<String, String> properties;
+	private final ArtifactSearcherManager searchers;
+
+	/**
+	 * @param project the last built project, used to resolve
+	 *                <code>${property}</code> versions. Can be <code>null</code>.
+	 */
+	public VersionValidator(WorkspaceIndex workspaceIndex, ProjectSnapshot project) {
+		this(workspaceIndex, project, ArtifactSearcherManager.getInstance());
 	}
 
-	public static Diagnostic validateVersion(DiagnosticRequest diagnosticRequest) {
+	public VersionValidator(WorkspaceIndex workspaceIndex, ProjectSnapshot project,
+			ArtifactSearcherManager searchers) {
+		this.workspaceIndex = workspaceIndex;
+		this.properties = project != null ? project.getProperties() : null;
+		this.searchers = searchers;
+	}
+
+	public Diagnostic validateVersion(DiagnosticRequest diagnosticRequest) {
 		DOMNode node = diagnosticRequest.getNode();
+		DOMElement owner = node.getParentElement();
+		// project and parent versions are checked by the model builder
+		if (owner == null || !("dependency".equals(owner.getLocalName()) || "plugin".equals(owner.getLocalName()))) {
+			return null;
+		}
+		String groupId = DOMUtils.getChildText(owner, "groupId");
+		if (groupId == null && "plugin".equals(owner.getLocalName())) {
+			groupId = DEFAULT_PLUGIN_GROUP_ID;
+		}
+		String artifactId = DOMUtils.getChildText(owner, "artifactId");
+		String version = resolve(DOMUtils.getText(node));
+		if (groupId == null || artifactId == null || version == null) {
+			return null;
+		}
 		DOMDocument xmlDocument = diagnosticRequest.getDOMDocument();
-		Artifact artifact = setArtifact(node);
-		Diagnostic diagnostic = null;
 		Range range = diagnosticRequest.getRange();
-		try {
-			// TODO: This class doesn't work as intended - isSelectedVersionKnown() doesn't
-			// actually verify the version is legal
-			if (!artifact.isSelectedVersionKnown()) {
-				diagnostic = new Diagnostic(range, "Version Error", DiagnosticSeverity.Error,
-						xmlDocument.getDocumentURI(), "XML");
-				diagnosticRequest.getDiagnostics().add(diagnostic);
+		VersionRange versionRange = null;
+		if (version.startsWith("[") || version.startsWith("(")) {
+			// syntax first, it doesn't depend on what was downloaded
+			try {
+				versionRange = VersionRange.createFromVersionSpec(version);
+			} catch (InvalidVersionSpecificationException e) {
+				return new Diagnostic(range, e.getMessage(), DiagnosticSeverity.Error, xmlDocument.getDocumentURI(),
+						"XML");
+			}
+		}
+		List<ArtifactVersion> available = getAvailableVersions(groupId, artifactId, null);
+		if (available.isEmpty()) {
+			// never downloaded: nothing to compare with
+			return null;
+		}
+		String artifact = groupId + ':' + artifactId;
+		String classifier = resolve(DOMUtils.getChildText(owner, "classifier"));
+		if (classifier != null) {
+			artifact += ':' + classifier;
+			available = getAvailableVersions(groupId, artifactId, classifier);
+			if (available.isEmpty()) {
+				return new Diagnostic(range,
+						String.format("No version of %s:%s with the classifier %s is available in the local "
+								+ "repository nor in the workspace", groupId, artifactId, classifier),
+						DiagnosticSeverity.Warning, xmlDocument.getDocumentURI(), "XML");
 			}
-		} catch (OverConstrainedVersionException e) {
-			// TODO: Use plug-in error logger
-			e.printStackTrace();
 		}
-		return diagnostic;
+		if (versionRange != null) {
+			if (versionRange.matchVersion(available) == null) {
+				return new Diagnostic(range,
+						String.format("No available version of %s matches the range %s", artifact, version),
+						DiagnosticSeverity.Warning, xmlDocument.getDocumentURI(), "XML");
+			}
+			return null;
+		}
+		ArtifactVersion artifactVersion = new DefaultArtifactVersion(version);
+		if (Collections.binarySearch(available, artifactVersion) < 0) {
+			return new Diagnostic(range,
+					String.format("Version %s of %s is not available in the local repository nor in the workspace",
+							version, artifact),
+					DiagnosticSeverity.Warning, xmlDocument.getDocumentURI(), "XML");
+		}
+		ArtifactVersion newest = getNewest(available, version.endsWith(Artifact.SNAPSHOT_VERSION));
+		if (newest != null && newest.compareTo(artifactVersion) > 0) {
+			return new Diagnostic(range, String.format("Newer version of %s available: %s", artifact, newest),
+					DiagnosticSeverity.Hint, xmlDocument.getDocumentURI(), "XML");
+		}
+		return null;
+	}
+
+	/**
+	 * @return the sorted versions from the local repository and the workspace.
+	 *         The local repository list is cached by the searcher, only the few
+	 *         workspace versions are merged in. The workspace ones can't tell
+	 *         their classifiers before they are built, they are all kept.
+	 */
+	private List<ArtifactVersion> getAvailableVersions(String groupId, String artifactId, String classifier) {
+		List<ArtifactVersion> local = classifier == null ? searchers.searchLocalVersions(groupId, artifactId)
+				: searchers.searchLocalVersions(groupId, artifactId, classifier);
+		Collection<String> workspace = workspaceIndex.getDeclaredVersions(groupId, artifactId);
+		if (workspace.isEmpty()) {
+			return local;
+		}
+		List<ArtifactVersion> versions = new ArrayList<>(local);
+		for (String version : workspace) {
+			ArtifactVersion artifactVersion = new DefaultArtifactVersion(version);
+			int index = Collections.binarySearch(versions, artifactVersion);
+			if (index < 0) {
+				versions.add(-index - 1, artifactVersion);
+			}
+		}
+		return versions;
+	}
+
+	private static ArtifactVersion getNewest(List<ArtifactVersion> sortedVersions, boolean includeSnapshots) {
+		for (int i = sortedVersions.size() - 1; i >= 0; i--) {
+			ArtifactVersion version = sortedVersions.get(i);
+			if (includeSnapshots || !version.toString().endsWith(Artifact.SNAPSHOT_VERSION)) {
+				return version;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the version with its <code>${property}</code> resolved, or
+	 *         <code>null</code> if it can't be resolved.
+	 */
+	private String resolve(String version) {
+		if (version == null || !version.contains("${")) {
+			return version;
+		}
+		if (properties != null && version.startsWith("${") && version.endsWith("}")) {
+			return properties.get(version.substring(2, version.length() - 1));
+		}
+		return null;
 	}
 }
@@ -0,0 +1,250 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.FileChangeType;
+import org.eclipse.lsp4j.FileEvent;
+import org.eclipse.lsp4j.PublishDiagnosticsParams;
+import org.eclipse.lsp4xml.dom.DOMDocument;
+import org.eclipse.lsp4xml.dom.DOMParser;
+import org.eclipse.lsp4xml.extensions.maven.index.WorkspaceIndex;
+import org.eclipse.lsp4xml.extensions.maven.metrics.MavenMetrics;
+
+/**
+ * Validates the poms changed on disk (<code>workspace/didChangeWatchedFiles</code>)
+ * and the poms built from them, opened or not.
+ *
+ * Events are collected for a short delay and handled as one batch, so that a
+ * <code>git checkout</code> touching hundreds of poms re-indexes and builds
+ * each of them once, on the {@link MavenExecutor}. The diagnostics of
+ * closed poms are sent to the publisher; the opened ones are handed to the
+ * refresher, as lsp4xml publishes them along with its own diagnostics.
+ */
+public class WorkspaceValidator {
+
+	private static final Logger LOGGER = Logger.getLogger(WorkspaceValidator.class.getName());
+
+	private static final long BATCH_DELAY_MS = 300;
+
+	private final MavenProjectCache cache;
+	private final WorkspaceIndex workspaceIndex;
+	private final MavenDiagnosticParticipant diagnosticParticipant;
+	private final MavenMetrics metrics;
+	private final ScheduledExecutorService batcher;
+	private final MavenExecutor executor;
+	private final Set<URI> changed = ConcurrentHashMap.newKeySet();
+	private final Set<URI> deleted = ConcurrentHashMap.newKeySet();
+	private final AtomicBoolean batchScheduled = new AtomicBoolean();
+	private volatile Consumer<PublishDiagnosticsParams> diagnosticsPublisher;
+	private volatile Consumer<String> diagnosticsRefresher;
+	private volatile Consumer<URI> deletionListener;
+
+	public WorkspaceValidator(MavenProjectCache cache, WorkspaceIndex workspaceIndex,
+			MavenDiagnosticParticipant diagnosticParticipant, MavenExecutor executor, MavenMetrics metrics) {
+		this.cache = cache;
+		this.workspaceIndex = workspaceIndex;
+		this.diagnosticParticipant = diagnosticParticipant;
+		this.metrics = metrics;
+		this.batcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "maven-workspace-batcher");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.executor = executor;
+	}
+
+	/**
+	 * @param publisher sends the diagnostics of the poms which aren't opened, e.g.
+	 *                  to <code>LanguageClient.publishDiagnostics</code>. Without
+	 *                  it, closed poms are only re-indexed.
+	 */
+	public void setDiagnosticsPublisher(Consumer<PublishDiagnosticsParams> publisher) {
+		this.diagnosticsPublisher = publisher;
+	}
+
+	/**
+	 * @param refresher validates again the opened pom of the given URI
+	 */
+	public void setDiagnosticsRefresher(Consumer<String> refresher) {
+		this.diagnosticsRefresher = refresher;
+	}
+
+	/**
+	 * @param listener told about each deleted pom, once it's removed from the
+	 *                 index and the cache.
+	 */
+	public void setDeletionListener(Consumer<URI> listener) {
+		this.deletionListener = listener;
+	}
+
+	public void onFilesChanged(List<FileEvent> events) {
+		for (FileEvent event : events) {
+			if (event.getUri() == null) {
+				continue;
+			}
+			URI uri = URI.create(event.getUri());
+			// not the working copies the builds write next to the poms
+			if (!"pom.xml".equals(new File(uri.getPath()).getName())) {
+				continue;
+			}
+			if (event.getType() == FileChangeType.Deleted) {
+				changed.remove(uri);
+				deleted.add(uri);
+			} else {
+				deleted.remove(uri);
+				changed.add(uri);
+			}
+		}
+		if (!(changed.isEmpty() && deleted.isEmpty()) && batchScheduled.compareAndSet(false, true)) {
+			batcher.schedule(this::runBatch, BATCH_DELAY_MS, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	public void dispose() {
+		batcher.shutdownNow();
+	}
+
+	private void runBatch() {
+		// events arriving from now on go to the next batch
+		batchScheduled.set(false);
+		Set<URI> changedPoms = drain(changed);
+		Set<URI> deletedPoms = drain(deleted);
+		if (changedPoms.isEmpty() && deletedPoms.isEmpty()) {
+			return;
+		}
+		long start = metrics.start();
+		try {
+			Consumer<URI> listener = deletionListener;
+			for (URI uri : deletedPoms) {
+				workspaceIndex.remove(uri);
+				cache.remove(uri);
+				if (listener != null) {
+					listener.accept(uri);
+				}
+				publish(uri, Collections.emptyList());
+			}
+			runAll(changedPoms, this::reindex);
+			// the poms built from the changed ones, e.g. the modules of a changed parent
+			Set<String> files = new HashSet<>();
+			for (URI uri : changedPoms) {
+				files.add(new File(uri).getPath());
+			}
+			for (URI uri : deletedPoms) {
+				files.add(new File(uri).getPath());
+			}
+			Set<URI> affected = new HashSet<>(changedPoms);
+			affected.addAll(cache.getProjectsReading(files));
+			affected.removeAll(deletedPoms);
+			// invalidated in the task of the pom, not while a build of it runs
+			runAll(affected, uri -> {
+				cache.invalidate(uri);
+				validate(uri);
+			});
+		} finally {
+			metrics.record("workspace.batch", start);
+		}
+	}
+
+	private static Set<URI> drain(Set<URI> pending) {
+		Set<URI> res = new HashSet<>();
+		for (URI uri : new ArrayList<>(pending)) {
+			if (pending.remove(uri)) {
+				res.add(uri);
+			}
+		}
+		return res;
+	}
+
+	private void runAll(Set<URI> uris, Consumer<URI> task) {
+		List<CompletableFuture<Void>> tasks = new ArrayList<>();
+		try {
+			// after the builds the editor already asked for
+			for (URI uri : uris) {
+				tasks.add(executor.submit(uri, () -> {
+					task.accept(uri);
+					return null;
+				}));
+			}
+			CompletableFuture.allOf(tasks.toArray(new CompletableFuture[tasks.size()])).join();
+		} catch (RuntimeException e) {
+			LOGGER.log(Level.WARNING, "Error while validating the changed poms", e);
+		}
+	}
+
+	private void reindex(URI uri) {
+		if (workspaceIndex.isIndexedFromEditor(uri)) {
+			// the editor content is the one to index
+			return;
+		}
+		try {
+			workspaceIndex.indexFile(Paths.get(uri));
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Error while indexing " + uri, e);
+		}
+	}
+
+	private void validate(URI uri) {
+		if (workspaceIndex.isIndexedFromEditor(uri)) {
+			Consumer<String> refresher = diagnosticsRefresher;
+			if (refresher != null) {
+				refresher.accept(uri.toString());
+			}
+			return;
+		}
+		Consumer<PublishDiagnosticsParams> publisher = diagnosticsPublisher;
+		if (publisher == null) {
+			return;
+		}
+		Path pom = Paths.get(uri);
+		if (!Files.isRegularFile(pom)) {
+			return;
+		}
+		List<Diagnostic> diagnostics = new ArrayList<>();
+		try {
+			String text = new String(Files.readAllBytes(pom), StandardCharsets.UTF_8);
+			DOMDocument document = DOMParser.getInstance().parse(text, uri.toString(), null);
+			diagnosticParticipant.doFullDiagnostics(document, diagnostics);
+			metrics.increment("workspace.validations");
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Error while validating " + uri, e);
+			return;
+		}
+		publish(uri, diagnostics);
+	}
+
+	private void publish(URI uri, List<Diagnostic> diagnostics) {
+		Consumer<PublishDiagnosticsParams> publisher = diagnosticsPublisher;
+		if (publisher != null && !workspaceIndex.isIndexedFromEditor(uri)) {
+			publisher.accept(new PublishDiagnosticsParams(uri.toString(), diagnostics));
+		}
+	}
+}
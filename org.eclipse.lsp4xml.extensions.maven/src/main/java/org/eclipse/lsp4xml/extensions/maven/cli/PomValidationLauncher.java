@@ -0,0 +1,323 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.cli;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import org.codehaus.plexus.PlexusContainer;
+import org.codehaus.plexus.PlexusContainerException;
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.DiagnosticSeverity;
+import org.eclipse.lsp4xml.dom.DOMDocument;
+import org.eclipse.lsp4xml.dom.DOMParser;
+import org.eclipse.lsp4xml.extensions.maven.BuildMode;
+import org.eclipse.lsp4xml.extensions.maven.DependencyTreeService;
+import org.eclipse.lsp4xml.extensions.maven.MavenDiagnosticParticipant;
+import org.eclipse.lsp4xml.extensions.maven.MavenPlugin;
+import org.eclipse.lsp4xml.extensions.maven.MavenProjectCache;
+import org.eclipse.lsp4xml.extensions.maven.index.WorkspaceIndex;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * Headless validation of all the poms of a directory, with the same
+ * diagnostics as the editor, for use as a pre-commit or CI gate.
+ *
+ * <pre>
+ * PomValidationLauncher &lt;directory&gt; [--format json|sarif] [--output file] [--threads n]
+ * </pre>
+ *
+ * The exit code is 1 if any error was reported, 2 if the arguments are
+ * invalid, 0 otherwise.
+ */
+public class PomValidationLauncher {
+
+	private static final Logger LOGGER = Logger.getLogger(PomValidationLauncher.class.getName());
+
+	private static final String TOOL_NAME = "maven-xmlls-extension";
+
+	private static final String USAGE = "Usage: PomValidationLauncher <directory> [--format json|sarif] [--output file] [--threads n]";
+
+	/**
+	 * The parsed command line.
+	 */
+	public static class Options {
+
+		private Path root;
+		private String format = "json";
+		private Path output;
+		private int threads = Runtime.getRuntime().availableProcessors();
+
+		/**
+		 * @throws IllegalArgumentException if the arguments are invalid, with the
+		 *                                  reason as message.
+		 */
+		public static Options parse(String[] args) {
+			Options options = new Options();
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+				case "--format":
+					options.format = value(args, ++i);
+					if (!("json".equals(options.format) || "sarif".equals(options.format))) {
+						throw new IllegalArgumentException("Unknown format: " + options.format);
+					}
+					break;
+				case "--output":
+					options.output = Paths.get(value(args, ++i));
+					break;
+				case "--threads":
+					String threads = value(args, ++i);
+					try {
+						options.threads = Integer.parseInt(threads);
+					} catch (NumberFormatException e) {
+						throw new IllegalArgumentException("Invalid number of threads: " + threads);
+					}
+					if (options.threads < 1) {
+						throw new IllegalArgumentException("Invalid number of threads: " + threads);
+					}
+					break;
+				default:
+					if (options.root != null) {
+						throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+					}
+					options.root = Paths.get(args[i]);
+				}
+			}
+			if (options.root == null) {
+				throw new IllegalArgumentException("Missing directory");
+			}
+			if (!Files.isDirectory(options.root)) {
+				throw new IllegalArgumentException("Not a directory: " + options.root);
+			}
+			return options;
+		}
+
+		private static String value(String[] args, int i) {
+			if (i >= args.length) {
+				throw new IllegalArgumentException("Missing value for " + args[i - 1]);
+			}
+			return args[i];
+		}
+
+		public Path getRoot() {
+			return root;
+		}
+
+		public String getFormat() {
+			return format;
+		}
+
+		public Path getOutput() {
+			return output;
+		}
+
+		public int getThreads() {
+			return threads;
+		}
+	}
+
+	public static class PomDiagnostics {
+
+		private final Path pom;
+		private final List<Diagnostic> diagnostics;
+
+		public PomDiagnostics(Path pom, List<Diagnostic> diagnostics) {
+			this.pom = pom;
+			this.diagnostics = diagnostics;
+		}
+
+		public Path getPom() {
+			return pom;
+		}
+
+		public List<Diagnostic> getDiagnostics() {
+			return diagnostics;
+		}
+	}
+
+	private final WorkspaceIndex workspaceIndex;
+	// shared by the workers, so that the poms of the tree are built once
+	private final MavenProjectCache cache;
+	private final DependencyTreeService dependencyTreeService;
+	private final MavenDiagnosticParticipant participant;
+
+	public PomValidationLauncher(PlexusContainer container) {
+		this.workspaceIndex = new WorkspaceIndex();
+		this.cache = new MavenProjectCache(container);
+		// the dependency validations need the full projects anyway
+		cache.setBuildMode(BuildMode.FULL);
+		this.dependencyTreeService = new DependencyTreeService(container, cache);
+		this.participant = new MavenDiagnosticParticipant(cache, workspaceIndex, dependencyTreeService);
+	}
+
+	/**
+	 * Validates every pom under the given directory on a fork/join pool of the
+	 * given parallelism.
+	 */
+	public List<PomDiagnostics> validate(Path root, int parallelism)
+			throws IOException, InterruptedException, ExecutionException {
+		List<Path> poms = WorkspaceIndex.findPoms(root);
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			// index first, so that versions of the workspace modules are known
+			pool.submit(() -> poms.parallelStream().forEach(this::index)).get();
+			return pool.submit(() -> poms.parallelStream().map(this::validate).collect(Collectors.toList())).get();
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private void index(Path pom) {
+		try {
+			workspaceIndex.indexFile(pom);
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Error while indexing " + pom, e);
+		}
+	}
+
+	private PomDiagnostics validate(Path pom) {
+		List<Diagnostic> diagnostics = new ArrayList<>();
+		try {
+			String text = new String(Files.readAllBytes(pom), StandardCharsets.UTF_8);
+			DOMDocument document = DOMParser.getInstance().parse(text, pom.toUri().toString(), null);
+			// already indexed from disk
+			participant.doFullDiagnostics(document, diagnostics);
+		} catch (IOException e) {
+			Diagnostic diagnostic = new Diagnostic();
+			diagnostic.setMessage(e.getMessage());
+			diagnostic.setSeverity(DiagnosticSeverity.Error);
+			diagnostics.add(diagnostic);
+		}
+		return new PomDiagnostics(pom, diagnostics);
+	}
+
+	public static String toJson(List<PomDiagnostics> results) {
+		JsonArray files = new JsonArray();
+		Gson gson = new Gson();
+		for (PomDiagnostics result : results) {
+			JsonObject file = new JsonObject();
+			file.addProperty("uri", result.getPom().toUri().toString());
+			file.add("diagnostics", gson.toJsonTree(result.getDiagnostics()));
+			files.add(file);
+		}
+		return new GsonBuilder().setPrettyPrinting().create().toJson(files);
+	}
+
+	/**
+	 * @see https://docs.oasis-open.org/sarif/sarif/v2.1.0/sarif-v2.1.0.html
+	 */
+	public static String toSarif(List<PomDiagnostics> results) {
+		JsonObject driver = new JsonObject();
+		driver.addProperty("name", TOOL_NAME);
+		JsonObject tool = new JsonObject();
+		tool.add("driver", driver);
+		JsonArray sarifResults = new JsonArray();
+		for (PomDiagnostics result : results) {
+			for (Diagnostic diagnostic : result.getDiagnostics()) {
+				JsonObject sarifResult = new JsonObject();
+				sarifResult.addProperty("level", toSarifLevel(diagnostic.getSeverity()));
+				JsonObject message = new JsonObject();
+				message.addProperty("text", diagnostic.getMessage());
+				sarifResult.add("message", message);
+				JsonObject artifactLocation = new JsonObject();
+				artifactLocation.addProperty("uri", result.getPom().toUri().toString());
+				JsonObject physicalLocation = new JsonObject();
+				physicalLocation.add("artifactLocation", artifactLocation);
+				if (diagnostic.getRange() != null) {
+					// SARIF lines and columns are 1-based
+					JsonObject region = new JsonObject();
+					region.addProperty("startLine", diagnostic.getRange().getStart().getLine() + 1);
+					region.addProperty("startColumn", diagnostic.getRange().getStart().getCharacter() + 1);
+					region.addProperty("endLine", diagnostic.getRange().getEnd().getLine() + 1);
+					region.addProperty("endColumn", diagnostic.getRange().getEnd().getCharacter() + 1);
+					physicalLocation.add("region", region);
+				}
+				JsonObject location = new JsonObject();
+				location.add("physicalLocation", physicalLocation);
+				JsonArray locations = new JsonArray();
+				locations.add(location);
+				sarifResult.add("locations", locations);
+				sarifResults.add(sarifResult);
+			}
+		}
+		JsonObject run = new JsonObject();
+		run.add("tool", tool);
+		run.add("results", sarifResults);
+		JsonArray runs = new JsonArray();
+		runs.add(run);
+		JsonObject sarif = new JsonObject();
+		sarif.addProperty("$schema", "https://json.schemastore.org/sarif-2.1.0.json");
+		sarif.addProperty("version", "2.1.0");
+		sarif.add("runs", runs);
+		return new GsonBuilder().setPrettyPrinting().create().toJson(sarif);
+	}
+
+	private static String toSarifLevel(DiagnosticSeverity severity) {
+		if (severity == null) {
+			return "warning";
+		}
+		switch (severity) {
+		case Error:
+			return "error";
+		case Warning:
+			return "warning";
+		default:
+			return "note";
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		Options options;
+		try {
+			options = Options.parse(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(2);
+			return;
+		}
+		List<PomDiagnostics> results;
+		try {
+			results = new PomValidationLauncher(MavenPlugin.newPlexusContainer()).validate(options.getRoot(),
+					options.getThreads());
+		} catch (PlexusContainerException e) {
+			LOGGER.log(Level.SEVERE, "Error while creating the Maven container", e);
+			System.exit(2);
+			return;
+		}
+		String report = "sarif".equals(options.getFormat()) ? toSarif(results) : toJson(results);
+		if (options.getOutput() != null) {
+			Files.write(options.getOutput(), report.getBytes(StandardCharsets.UTF_8));
+		} else {
+			Writer writer = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+			writer.write(report);
+			writer.flush();
+		}
+		boolean hasErrors = results.stream().flatMap(result -> result.getDiagnostics().stream())
+				.anyMatch(diagnostic -> diagnostic.getSeverity() == DiagnosticSeverity.Error);
+		System.exit(hasErrors ? 1 : 0);
+	}
+
+}
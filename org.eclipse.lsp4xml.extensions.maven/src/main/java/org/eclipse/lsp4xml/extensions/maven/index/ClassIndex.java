@@ -0,0 +1,417 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.eclipse.lsp4xml.extensions.maven.ArtifactCoordinates;
+import org.eclipse.lsp4xml.extensions.maven.CoordinatePool;
+
+/**
+ * Maps the top-level classes of the jars of the local repository to the
+ * artifacts providing them, to suggest the dependency to add for a class.
+ *
+ * Only the central directory of the jars is read, no entry is inflated. The
+ * jars are scanned in parallel on low priority threads, the ones unchanged
+ * since the last scan are skipped, and the index stays queryable meanwhile:
+ * each scan swaps in a new immutable index. It is stored on disk as a table of
+ * packages and simple names per jar, restored before the first scan.
+ */
+public class ClassIndex {
+
+	public static final String FILE_PROPERTY = "maven.xmlls.classIndexFile";
+
+	private static final Logger LOGGER = Logger.getLogger(ClassIndex.class.getName());
+
+	private static final int FORMAT_VERSION = 1;
+
+	public static class Match {
+
+		private final String className;
+		private final ArtifactCoordinates coordinates;
+
+		Match(String className, ArtifactCoordinates coordinates) {
+			this.className = className;
+			this.coordinates = coordinates;
+		}
+
+		public String getClassName() {
+			return className;
+		}
+
+		public ArtifactCoordinates getCoordinates() {
+			return coordinates;
+		}
+
+		@Override
+		public String toString() {
+			return className + " in " + coordinates;
+		}
+	}
+
+	private static class Jar {
+
+		private final ArtifactCoordinates coordinates;
+		private final String path;
+		private final long lastModified;
+		private final long size;
+		private final String[] classNames;
+
+		Jar(ArtifactCoordinates coordinates, String path, long lastModified, long size, String[] classNames) {
+			this.coordinates = coordinates;
+			this.path = path;
+			this.lastModified = lastModified;
+			this.size = size;
+			this.classNames = classNames;
+		}
+	}
+
+	private static class Data {
+
+		private final List<Jar> jars;
+		// simple name -> (jar index << 32 | class index)
+		private final Map<String, long[]> bySimpleName;
+		private final int classCount;
+
+		Data(List<Jar> jars) {
+			this.jars = jars;
+			Map<String, List<Long>> names = new HashMap<>();
+			int classCount = 0;
+			for (int i = 0; i < jars.size(); i++) {
+				String[] classNames = jars.get(i).classNames;
+				classCount += classNames.length;
+				for (int j = 0; j < classNames.length; j++) {
+					names.computeIfAbsent(simpleName(classNames[j]), name -> new ArrayList<>(1))
+							.add(((long) i << 32) | j);
+				}
+			}
+			Map<String, long[]> bySimpleName = new HashMap<>(names.size() * 4 / 3 + 1);
+			names.forEach((name, refs) -> bySimpleName.put(name, refs.stream().mapToLong(Long::longValue).toArray()));
+			this.bySimpleName = bySimpleName;
+			this.classCount = classCount;
+		}
+	}
+
+	private final Path localRepository;
+	private final Path file;
+	private volatile Data data = new Data(Collections.emptyList());
+	private volatile CompletableFuture<Void> refresh;
+	private ExecutorService refresher;
+	private ExecutorService scanners;
+
+	/**
+	 * @param file where the index is stored, can be <code>null</code>.
+	 */
+	public ClassIndex(Path localRepository, Path file) {
+		this.localRepository = localRepository;
+		this.file = file;
+	}
+
+	/**
+	 * @return an index of the given local repository stored in
+	 *         <code>~/.lsp4xml/maven/classes.idx.gz</code>, or the
+	 *         <code>maven.xmlls.classIndexFile</code> system property, which
+	 *         disables the storage when empty.
+	 */
+	public static ClassIndex createDefault(Path localRepository) {
+		String configured = System.getProperty(FILE_PROPERTY);
+		if (configured == null) {
+			return new ClassIndex(localRepository,
+					Paths.get(System.getProperty("user.home"), ".lsp4xml", "maven", "classes.idx.gz"));
+		}
+		return new ClassIndex(localRepository, configured.trim().isEmpty() ? null : Paths.get(configured));
+	}
+
+	/**
+	 * @param name a simple or fully qualified class name
+	 * @return the classes of the given name and the artifacts providing them.
+	 */
+	public List<Match> find(String name) {
+		Data current = data;
+		boolean qualified = name.indexOf('.') >= 0;
+		long[] refs = current.bySimpleName.get(simpleName(name));
+		if (refs == null) {
+			return Collections.emptyList();
+		}
+		List<Match> res = new ArrayList<>(refs.length);
+		for (long ref : refs) {
+			Jar jar = current.jars.get((int) (ref >>> 32));
+			String className = jar.classNames[(int) ref];
+			if (!qualified || className.equals(name)) {
+				res.add(new Match(className, jar.coordinates));
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * @return the number of indexed classes.
+	 */
+	public int size() {
+		return data.classCount;
+	}
+
+	/**
+	 * Loads the stored index, then scans the jars changed since, in background.
+	 */
+	public synchronized CompletableFuture<Void> refresh() {
+		if (refresh != null && !refresh.isDone()) {
+			return refresh;
+		}
+		if (refresher == null) {
+			refresher = Executors.newSingleThreadExecutor(runnable -> newThread(runnable, "maven-class-index"));
+			AtomicInteger count = new AtomicInteger();
+			scanners = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+					runnable -> newThread(runnable, "maven-class-index-" + count.incrementAndGet()));
+		}
+		boolean load = refresh == null;
+		ExecutorService jarScanners = scanners;
+		refresh = CompletableFuture.runAsync(() -> {
+			if (load) {
+				load();
+			}
+			scan(jarScanners);
+			save();
+		}, refresher);
+		return refresh;
+	}
+
+	private static Thread newThread(Runnable runnable, String name) {
+		Thread thread = new Thread(runnable, name);
+		thread.setDaemon(true);
+		// editing first
+		thread.setPriority(Thread.MIN_PRIORITY);
+		return thread;
+	}
+
+	public synchronized void dispose() {
+		if (refresher != null) {
+			refresher.shutdownNow();
+			scanners.shutdownNow();
+			refresher = null;
+			scanners = null;
+		}
+	}
+
+	private void scan(ExecutorService scanners) {
+		if (!Files.isDirectory(localRepository)) {
+			return;
+		}
+		Map<String, Jar> previous = new HashMap<>();
+		data.jars.forEach(jar -> previous.put(jar.path, jar));
+		List<CompletableFuture<Jar>> jars = new ArrayList<>();
+		try {
+			Files.walkFileTree(localRepository, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+					return dir.getFileName().toString().startsWith(".") && !dir.equals(localRepository)
+							? FileVisitResult.SKIP_SUBTREE
+							: FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFile(Path jar, BasicFileAttributes attrs) {
+					ArtifactCoordinates coordinates = toCoordinates(jar);
+					if (coordinates == null) {
+						return FileVisitResult.CONTINUE;
+					}
+					Jar known = previous.get(jar.toString());
+					if (known != null && known.lastModified == attrs.lastModifiedTime().toMillis()
+							&& known.size == attrs.size()) {
+						jars.add(CompletableFuture.completedFuture(known));
+					} else {
+						jars.add(CompletableFuture.supplyAsync(() -> read(jar, coordinates, attrs), scanners));
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException e) {
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Error while listing the jars of " + localRepository, e);
+			return;
+		}
+		List<Jar> scanned = new ArrayList<>(jars.size());
+		for (CompletableFuture<Jar> jar : jars) {
+			Jar result = jar.join();
+			if (result != null) {
+				scanned.add(result);
+			}
+		}
+		data = new Data(Collections.unmodifiableList(scanned));
+	}
+
+	/**
+	 * @return the coordinates of the main jar of an artifact
+	 *         (<code>groupId/path/artifactId/version/artifactId-version.jar</code>),
+	 *         <code>null</code> for other files, e.g. sources or test jars.
+	 */
+	private ArtifactCoordinates toCoordinates(Path jar) {
+		Path relative = localRepository.relativize(jar);
+		int count = relative.getNameCount();
+		if (count < 4) {
+			return null;
+		}
+		String version = relative.getName(count - 2).toString();
+		String artifactId = relative.getName(count - 3).toString();
+		if (!jar.getFileName().toString().equals(artifactId + '-' + version + ".jar")) {
+			return null;
+		}
+		StringBuilder groupId = new StringBuilder();
+		for (int i = 0; i < count - 3; i++) {
+			if (i > 0) {
+				groupId.append('.');
+			}
+			groupId.append(relative.getName(i));
+		}
+		return CoordinatePool.getInstance().get(groupId.toString(), artifactId, version);
+	}
+
+	private static Jar read(Path path, ArtifactCoordinates coordinates, BasicFileAttributes attrs) {
+		List<String> classNames = new ArrayList<>();
+		// ZipFile only reads the central directory until an entry is opened
+		try (ZipFile zip = new ZipFile(path.toFile())) {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				String name = entries.nextElement().getName();
+				if (name.endsWith(".class") && name.indexOf('$') < 0 && !name.startsWith("META-INF/")
+						&& !name.endsWith("package-info.class") && !name.endsWith("module-info.class")) {
+					classNames.add(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+				}
+			}
+		} catch (IOException e) {
+			// broken downloads
+			LOGGER.log(Level.FINE, "Error while reading the entries of " + path, e);
+			return null;
+		}
+		return new Jar(coordinates, path.toString(), attrs.lastModifiedTime().toMillis(), attrs.size(),
+				classNames.toArray(new String[classNames.size()]));
+	}
+
+	private void load() {
+		if (file == null) {
+			return;
+		}
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))))) {
+			if (in.readInt() != FORMAT_VERSION) {
+				return;
+			}
+			CoordinatePool pool = CoordinatePool.getInstance();
+			String[] packages = new String[in.readInt()];
+			for (int i = 0; i < packages.length; i++) {
+				packages[i] = in.readUTF();
+			}
+			int jarCount = in.readInt();
+			List<Jar> jars = new ArrayList<>(jarCount);
+			for (int i = 0; i < jarCount; i++) {
+				ArtifactCoordinates coordinates = pool.get(in.readUTF(), in.readUTF(), in.readUTF());
+				String path = in.readUTF();
+				long lastModified = in.readLong();
+				long size = in.readLong();
+				String[] classNames = new String[in.readInt()];
+				for (int j = 0; j < classNames.length; j++) {
+					String packageName = packages[in.readInt()];
+					String simpleName = in.readUTF();
+					classNames[j] = packageName.isEmpty() ? simpleName : packageName + '.' + simpleName;
+				}
+				jars.add(new Jar(coordinates, path, lastModified, size, classNames));
+			}
+			data = new Data(Collections.unmodifiableList(jars));
+		} catch (NoSuchFileException e) {
+			// first start
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Error while loading the class index " + file, e);
+		}
+	}
+
+	private void save() {
+		if (file == null) {
+			return;
+		}
+		Data current = data;
+		Map<String, Integer> packages = new LinkedHashMap<>();
+		for (Jar jar : current.jars) {
+			for (String className : jar.classNames) {
+				packages.putIfAbsent(packageName(className), packages.size());
+			}
+		}
+		try {
+			Files.createDirectories(file.getParent());
+			Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(temp))))) {
+				out.writeInt(FORMAT_VERSION);
+				out.writeInt(packages.size());
+				for (String packageName : packages.keySet()) {
+					out.writeUTF(packageName);
+				}
+				out.writeInt(current.jars.size());
+				for (Jar jar : current.jars) {
+					out.writeUTF(jar.coordinates.getGroupId());
+					out.writeUTF(jar.coordinates.getArtifactId());
+					out.writeUTF(jar.coordinates.getVersion());
+					out.writeUTF(jar.path);
+					out.writeLong(jar.lastModified);
+					out.writeLong(jar.size);
+					out.writeInt(jar.classNames.length);
+					for (String className : jar.classNames) {
+						out.writeInt(packages.get(packageName(className)));
+						out.writeUTF(simpleName(className));
+					}
+				}
+			}
+			// readers never see a partial file
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Error while saving the class index " + file, e);
+		}
+	}
+
+	private static String simpleName(String className) {
+		return className.substring(className.lastIndexOf('.') + 1);
+	}
+
+	private static String packageName(String className) {
+		int index = className.lastIndexOf('.');
+		return index < 0 ? "" : className.substring(0, index);
+	}
+}
@@ -0,0 +1,347 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.index;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.codehaus.plexus.util.xml.Xpp3DomBuilder;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+import org.eclipse.lsp4xml.dom.DOMElement;
+import org.eclipse.lsp4xml.extensions.maven.ArtifactCoordinates;
+import org.eclipse.lsp4xml.extensions.maven.CoordinatePool;
+import org.eclipse.lsp4xml.extensions.maven.DOMUtils;
+import org.eclipse.lsp4xml.extensions.maven.ProjectSnapshot;
+
+/**
+ * Goals and configuration parameters of the plugins of the local repository,
+ * read from the <code>META-INF/maven/plugin.xml</code> of their jar. Only that
+ * entry is inflated, through the central directory of the jar.
+ *
+ * Descriptors are cached per plugin version and only read again when the jar
+ * changes, so a lookup costs a single stat.
+ */
+public class PluginDescriptorIndex {
+
+	private static final Logger LOGGER = Logger.getLogger(PluginDescriptorIndex.class.getName());
+
+	private static final String PLUGIN_DESCRIPTOR = "META-INF/maven/plugin.xml";
+	public static final String DEFAULT_PLUGIN_GROUP_ID = "org.apache.maven.plugins";
+
+	public static class Parameter {
+
+		private final String name;
+		private final String alias;
+		private final String type;
+		private final boolean required;
+		private final boolean editable;
+		private final String description;
+		private final String defaultValue;
+		private final String expression;
+		private final String deprecated;
+
+		public Parameter(String name, String alias, String type, boolean required, boolean editable,
+				String description, String defaultValue, String expression, String deprecated) {
+			CoordinatePool pool = CoordinatePool.getInstance();
+			this.name = pool.intern(name);
+			this.alias = pool.intern(alias);
+			this.type = pool.intern(type);
+			this.required = required;
+			this.editable = editable;
+			this.description = description;
+			this.defaultValue = defaultValue;
+			this.expression = expression;
+			this.deprecated = deprecated;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getAlias() {
+			return alias;
+		}
+
+		/**
+		 * @return the Java type, e.g. <code>java.lang.String</code> or
+		 *         <code>java.util.List</code>.
+		 */
+		public String getType() {
+			return type;
+		}
+
+		public boolean isRequired() {
+			return required;
+		}
+
+		/**
+		 * @return <code>false</code> for read-only parameters, which can't be
+		 *         configured in the pom.
+		 */
+		public boolean isEditable() {
+			return editable;
+		}
+
+		public String getDescription() {
+			return description;
+		}
+
+		public String getDefaultValue() {
+			return defaultValue;
+		}
+
+		/**
+		 * @return the property expression the value is read from, e.g.
+		 *         <code>${maven.compiler.source}</code>.
+		 */
+		public String getExpression() {
+			return expression;
+		}
+
+		public String getDeprecated() {
+			return deprecated;
+		}
+
+		public boolean matches(String configurationName) {
+			return name.equals(configurationName) || configurationName.equals(alias);
+		}
+	}
+
+	public static class Goal {
+
+		private final String name;
+		private final String description;
+		private final List<Parameter> parameters;
+
+		public Goal(String name, String description, List<Parameter> parameters) {
+			this.name = CoordinatePool.getInstance().intern(name);
+			this.description = description;
+			this.parameters = Collections.unmodifiableList(new ArrayList<>(parameters));
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getDescription() {
+			return description;
+		}
+
+		public List<Parameter> getParameters() {
+			return parameters;
+		}
+	}
+
+	public static class Descriptor {
+
+		private final ArtifactCoordinates coordinates;
+		private final String goalPrefix;
+		private final Map<String, Goal> goals;
+
+		public Descriptor(ArtifactCoordinates coordinates, String goalPrefix, Collection<Goal> goals) {
+			this.coordinates = coordinates;
+			this.goalPrefix = goalPrefix;
+			Map<String, Goal> byName = new LinkedHashMap<>();
+			goals.forEach(goal -> byName.put(goal.getName(), goal));
+			this.goals = Collections.unmodifiableMap(byName);
+		}
+
+		public ArtifactCoordinates getCoordinates() {
+			return coordinates;
+		}
+
+		public String getGoalPrefix() {
+			return goalPrefix;
+		}
+
+		public Collection<Goal> getGoals() {
+			return goals.values();
+		}
+
+		public Goal getGoal(String name) {
+			return goals.get(name);
+		}
+
+		public Collection<String> getGoalNames() {
+			return goals.keySet();
+		}
+
+		/**
+		 * @param goalNames the goals of an execution, all the goals when empty
+		 * @return the parameters of the given goals, by name.
+		 */
+		public Map<String, Parameter> getParameters(Collection<String> goalNames) {
+			Map<String, Parameter> res = new LinkedHashMap<>();
+			for (Goal goal : goals.values()) {
+				if (goalNames.isEmpty() || goalNames.contains(goal.getName())) {
+					goal.getParameters().forEach(parameter -> res.putIfAbsent(parameter.getName(), parameter));
+				}
+			}
+			return res;
+		}
+
+		@Override
+		public String toString() {
+			return coordinates.toString();
+		}
+	}
+
+	private static class CachedDescriptor {
+
+		private final long lastModified;
+		private final Descriptor descriptor;
+
+		CachedDescriptor(long lastModified, Descriptor descriptor) {
+			this.lastModified = lastModified;
+			this.descriptor = descriptor;
+		}
+	}
+
+	private final Path localRepository;
+	private final Map<ArtifactCoordinates, CachedDescriptor> descriptors = new ConcurrentHashMap<>();
+
+	public PluginDescriptorIndex(Path localRepository) {
+		this.localRepository = localRepository;
+	}
+
+	/**
+	 * @return the descriptor of the plugin jar of the local repository, or
+	 *         <code>null</code> if it isn't downloaded or has no descriptor.
+	 */
+	public Descriptor getDescriptor(String groupId, String artifactId, String version) {
+		if (artifactId == null || version == null || version.contains("${")) {
+			return null;
+		}
+		if (groupId == null) {
+			groupId = DEFAULT_PLUGIN_GROUP_ID;
+		}
+		Path jar = localRepository.resolve(groupId.replace('.', '/')).resolve(artifactId).resolve(version)
+				.resolve(artifactId + '-' + version + ".jar");
+		try {
+			if (!Files.isRegularFile(jar)) {
+				return null;
+			}
+			long lastModified = Files.getLastModifiedTime(jar).toMillis();
+			ArtifactCoordinates key = CoordinatePool.getInstance().get(groupId, artifactId, version);
+			CachedDescriptor cached = descriptors.get(key);
+			if (cached != null && cached.lastModified == lastModified) {
+				return cached.descriptor;
+			}
+			Descriptor descriptor = read(key, jar);
+			descriptors.put(key, new CachedDescriptor(lastModified, descriptor));
+			return descriptor;
+		} catch (IOException | XmlPullParserException e) {
+			LOGGER.log(Level.WARNING, "Error while reading the plugin descriptor of " + jar, e);
+			return null;
+		}
+	}
+
+	/**
+	 * @param plugin a <code>&lt;plugin&gt;</code> element
+	 * @param snapshot the last build of the pom, for the versions of managed or
+	 *                 inherited plugins. Can be <code>null</code>.
+	 * @return the descriptor of the plugin, or <code>null</code>.
+	 */
+	public Descriptor getDescriptor(DOMElement plugin, ProjectSnapshot snapshot) {
+		String groupId = DOMUtils.getChildText(plugin, "groupId");
+		if (groupId == null) {
+			groupId = DEFAULT_PLUGIN_GROUP_ID;
+		}
+		String artifactId = DOMUtils.getChildText(plugin, "artifactId");
+		String version = DOMUtils.getChildText(plugin, "version");
+		if (snapshot != null && (version == null || version.contains("${"))) {
+			for (ProjectSnapshot.Coordinates effective : snapshot.getPlugins()) {
+				if (groupId.equals(effective.getGroupId()) && effective.getArtifactId().equals(artifactId)) {
+					version = effective.getVersion();
+					break;
+				}
+			}
+		}
+		return getDescriptor(groupId, artifactId, version);
+	}
+
+	public int size() {
+		return descriptors.size();
+	}
+
+	private static Descriptor read(ArtifactCoordinates coordinates, Path jar)
+			throws IOException, XmlPullParserException {
+		try (ZipFile zip = new ZipFile(jar.toFile())) {
+			ZipEntry entry = zip.getEntry(PLUGIN_DESCRIPTOR);
+			if (entry == null) {
+				return null;
+			}
+			try (Reader reader = new InputStreamReader(zip.getInputStream(entry), StandardCharsets.UTF_8)) {
+				return toDescriptor(coordinates, Xpp3DomBuilder.build(reader));
+			}
+		}
+	}
+
+	private static Descriptor toDescriptor(ArtifactCoordinates coordinates, Xpp3Dom plugin) {
+		List<Goal> goals = new ArrayList<>();
+		Xpp3Dom mojos = plugin.getChild("mojos");
+		if (mojos != null) {
+			for (Xpp3Dom mojo : mojos.getChildren("mojo")) {
+				Xpp3Dom configuration = mojo.getChild("configuration");
+				List<Parameter> parameters = new ArrayList<>();
+				Xpp3Dom parametersElement = mojo.getChild("parameters");
+				if (parametersElement != null) {
+					for (Xpp3Dom parameter : parametersElement.getChildren("parameter")) {
+						String name = text(parameter, "name");
+						if (name == null) {
+							continue;
+						}
+						// defaults and expressions are in the mojo configuration:
+						// <source default-value="1.6">${maven.compiler.source}</source>
+						Xpp3Dom value = configuration != null ? configuration.getChild(name) : null;
+						parameters.add(new Parameter(name, text(parameter, "alias"), text(parameter, "type"),
+								Boolean.parseBoolean(text(parameter, "required")),
+								!"false".equals(text(parameter, "editable")), text(parameter, "description"),
+								value != null ? value.getAttribute("default-value") : null,
+								value != null ? trim(value.getValue()) : null, text(parameter, "deprecated")));
+					}
+				}
+				String goal = text(mojo, "goal");
+				if (goal != null) {
+					goals.add(new Goal(goal, text(mojo, "description"), parameters));
+				}
+			}
+		}
+		return new Descriptor(coordinates, text(plugin, "goalPrefix"), goals);
+	}
+
+	private static String text(Xpp3Dom parent, String name) {
+		Xpp3Dom child = parent.getChild(name);
+		return child != null ? trim(child.getValue()) : null;
+	}
+
+	private static String trim(String value) {
+		if (value == null) {
+			return null;
+		}
+		value = value.trim();
+		return value.isEmpty() ? null : value;
+	}
+}
@@ -0,0 +1,279 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.index;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4xml.commons.BadLocationException;
+import org.eclipse.lsp4xml.dom.DOMDocument;
+import org.eclipse.lsp4xml.dom.DOMElement;
+import org.eclipse.lsp4xml.dom.DOMNode;
+import org.eclipse.lsp4xml.extensions.maven.DOMUtils;
+
+/**
+ * Locations of the elements of one version of a pom, to map what Maven reports
+ * (1-based line and column, or model paths such as
+ * <code>dependencies.dependency[3].version</code>) back to DOM elements.
+ *
+ * Built in a single pass over the document, then lookups are a binary search
+ * or a map lookup. Indexes are cached per {@link DOMDocument}, like the models
+ * of {@link org.eclipse.lsp4xml.extensions.maven.DOMModelReader}.
+ */
+public class PomLocationIndex {
+
+	/**
+	 * Model path quoted in Maven validation messages, optionally followed by the
+	 * key of the dependency or plugin, e.g.
+	 * <code>'dependencies.dependency.version' for junit:junit:jar is missing.</code>
+	 */
+	private static final Pattern MESSAGE_PATH = Pattern.compile("'([\\w.\\[\\]]+)'(?: for ([^\\s]+?)[.,]?(?:\\s|$))?");
+
+	private static final Pattern SEGMENT_INDEX = Pattern.compile("\\[\\d+\\]$");
+
+	// an index references its document, so it's held softly to let the key be collected
+	private static final Map<DOMDocument, SoftReference<PomLocationIndex>> INDEXES = new WeakHashMap<>();
+
+	private final DOMDocument document;
+	private final int[] lineOffsets;
+	// elements in document order, so sorted by start offset
+	private final int[] starts;
+	private final DOMElement[] elements;
+	// model path with every segment indexed, e.g. dependencies[0].dependency[3].version[0]
+	private final Map<String, DOMElement> indexedPaths = new HashMap<>();
+	// model path without indexes, e.g. dependencies.dependency.version
+	private final Map<String, List<DOMElement>> paths = new HashMap<>();
+
+	private PomLocationIndex(DOMDocument document, int[] lineOffsets, List<DOMElement> elements) {
+		this.document = document;
+		this.lineOffsets = lineOffsets;
+		this.elements = elements.toArray(new DOMElement[elements.size()]);
+		this.starts = new int[elements.size()];
+		for (int i = 0; i < starts.length; i++) {
+			starts[i] = this.elements[i].getStart();
+		}
+	}
+
+	/**
+	 * @return the index of the given version of the document, built once.
+	 */
+	public static PomLocationIndex get(DOMDocument document) {
+		synchronized (INDEXES) {
+			SoftReference<PomLocationIndex> reference = INDEXES.get(document);
+			PomLocationIndex index = reference == null ? null : reference.get();
+			if (index == null) {
+				index = build(document);
+				INDEXES.put(document, new SoftReference<>(index));
+			}
+			return index;
+		}
+	}
+
+	public static PomLocationIndex build(DOMDocument document) {
+		String text = document.getText();
+		int[] lineOffsets = new int[16];
+		int lines = 1;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '\n' || (c == '\r' && (i + 1 == text.length() || text.charAt(i + 1) != '\n'))) {
+				if (lines == lineOffsets.length) {
+					lineOffsets = Arrays.copyOf(lineOffsets, lines * 2);
+				}
+				lineOffsets[lines++] = i + 1;
+			}
+		}
+		List<DOMElement> elements = new ArrayList<>();
+		PomLocationIndex index = new PomLocationIndex(document, Arrays.copyOf(lineOffsets, lines),
+				collectElements(document, elements));
+		DOMElement project = document.getDocumentElement();
+		if (project != null) {
+			index.indexPaths(project, "", "");
+		}
+		return index;
+	}
+
+	private static List<DOMElement> collectElements(DOMNode node, List<DOMElement> elements) {
+		for (DOMNode child : node.getChildren()) {
+			if (child.isElement()) {
+				elements.add((DOMElement) child);
+				collectElements(child, elements);
+			}
+		}
+		return elements;
+	}
+
+	private void indexPaths(DOMElement parent, String indexedPath, String path) {
+		Map<String, Integer> siblings = new HashMap<>();
+		for (DOMNode child : parent.getChildren()) {
+			if (!child.isElement() || child.getLocalName() == null) {
+				continue;
+			}
+			String name = child.getLocalName();
+			int position = siblings.merge(name, 1, Integer::sum) - 1;
+			String childIndexedPath = (indexedPath.isEmpty() ? "" : indexedPath + '.') + name + '[' + position + ']';
+			String childPath = (path.isEmpty() ? "" : path + '.') + name;
+			indexedPaths.put(childIndexedPath, (DOMElement) child);
+			paths.computeIfAbsent(childPath, p -> new ArrayList<>()).add((DOMElement) child);
+			indexPaths((DOMElement) child, childIndexedPath, childPath);
+		}
+	}
+
+	public DOMDocument getDocument() {
+		return document;
+	}
+
+	/**
+	 * @param line   1-based, as reported by Maven
+	 * @param column 1-based, as reported by Maven
+	 * @return the offset in the document, or -1 if the location is unknown or
+	 *         out of the document.
+	 */
+	public int getOffset(int line, int column) {
+		if (line < 1 || line > lineOffsets.length) {
+			return -1;
+		}
+		int lineStart = lineOffsets[line - 1];
+		int lineEnd = line < lineOffsets.length ? lineOffsets[line] : document.getText().length();
+		return Math.min(lineStart + Math.max(column, 1) - 1, lineEnd);
+	}
+
+	/**
+	 * @return the innermost element containing the offset, or <code>null</code>.
+	 */
+	public DOMElement findElementAt(int offset) {
+		int low = 0;
+		int high = starts.length - 1;
+		int found = -1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			if (starts[middle] <= offset) {
+				found = middle;
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+		DOMElement element = found < 0 ? null : elements[found];
+		while (element != null && element.getEnd() < offset) {
+			element = element.getParentElement();
+		}
+		return element;
+	}
+
+	/**
+	 * @param path model path relative to the project, segments without index
+	 *             being the first occurrence, e.g.
+	 *             <code>dependencies.dependency[3].version</code>
+	 * @return the element, or <code>null</code>.
+	 */
+	public DOMElement findElement(String path) {
+		StringBuilder indexedPath = new StringBuilder();
+		for (String segment : path.split("\\.")) {
+			if (indexedPath.length() > 0) {
+				indexedPath.append('.');
+			}
+			indexedPath.append(segment);
+			if (!SEGMENT_INDEX.matcher(segment).find()) {
+				indexedPath.append("[0]");
+			}
+		}
+		return indexedPaths.get(indexedPath.toString());
+	}
+
+	/**
+	 * @param path model path relative to the project, without index, e.g.
+	 *             <code>dependencies.dependency.version</code>
+	 * @return all the elements of this path, in document order.
+	 */
+	public List<DOMElement> findElements(String path) {
+		return paths.getOrDefault(path, Collections.emptyList());
+	}
+
+	/**
+	 * @return the element a Maven validation message is about, from the model
+	 *         path and the <code>groupId:artifactId</code> key it quotes. When the
+	 *         element is missing (e.g. <code>'...version' is missing</code>), its
+	 *         closest existing ancestor. <code>null</code> if the message quotes no
+	 *         path of this document.
+	 */
+	public DOMElement findElementForMessage(String message) {
+		if (message == null) {
+			return null;
+		}
+		Matcher matcher = MESSAGE_PATH.matcher(message);
+		if (!matcher.find()) {
+			return null;
+		}
+		String path = matcher.group(1);
+		String[] key = matcher.group(2) != null ? matcher.group(2).split(":") : null;
+		while (!path.isEmpty()) {
+			DOMElement element = path.contains("[") ? findElement(path) : findElement(findElements(path), key);
+			if (element != null) {
+				return element;
+			}
+			int lastSegment = path.lastIndexOf('.');
+			path = lastSegment < 0 ? "" : path.substring(0, lastSegment);
+		}
+		return null;
+	}
+
+	private static DOMElement findElement(List<DOMElement> candidates, String[] key) {
+		if (candidates.isEmpty()) {
+			return null;
+		}
+		if (key == null || key.length < 2) {
+			return candidates.get(0);
+		}
+		for (DOMElement candidate : candidates) {
+			for (DOMElement owner = candidate; owner != null; owner = owner.getParentElement()) {
+				String artifactId = DOMUtils.getChildText(owner, "artifactId");
+				if (artifactId != null) {
+					String groupId = DOMUtils.getChildText(owner, "groupId");
+					if (key[1].equals(artifactId) && (groupId == null || key[0].equals(groupId))) {
+						return candidate;
+					}
+					break;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the range to highlight for the element: the whole element if it
+	 *         only holds text, its start tag otherwise.
+	 */
+	public Range getRange(DOMElement element) throws BadLocationException {
+		int end = element.getEnd();
+		boolean hasChildElements = element.getChildren().stream().anyMatch(DOMNode::isElement);
+		if (hasChildElements && element.getStartTagCloseOffset() != null) {
+			end = element.getStartTagCloseOffset() + 1;
+		}
+		return new Range(document.positionAt(element.getStart()), document.positionAt(end));
+	}
+
+	/**
+	 * @return the 0-based position of a 1-based Maven location.
+	 */
+	public Position toPosition(int line, int column) throws BadLocationException {
+		int offset = getOffset(line, column);
+		return offset < 0 ? new Position(0, 0) : document.positionAt(offset);
+	}
+
+}
@@ -0,0 +1,402 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.index;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.lsp4j.Location;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.TextEdit;
+import org.eclipse.lsp4j.WorkspaceEdit;
+import org.eclipse.lsp4xml.commons.BadLocationException;
+import org.eclipse.lsp4xml.dom.DOMDocument;
+import org.eclipse.lsp4xml.dom.DOMElement;
+import org.eclipse.lsp4xml.dom.DOMNode;
+import org.eclipse.lsp4xml.dom.DOMParser;
+import org.eclipse.lsp4xml.extensions.maven.CoordinatePool;
+import org.eclipse.lsp4xml.extensions.maven.DOMUtils;
+
+/**
+ * Inverted index of the workspace poms: maps property names (<code>${foo}</code>
+ * usages and <code>&lt;properties&gt;</code> declarations) and artifact
+ * coordinates (project, parent, dependency and plugin versions) to their
+ * occurrences in every indexed pom.
+ *
+ * The index is updated per document, so a change only re-indexes the pom that
+ * changed, and queries are a single map lookup. Queries don't lock: the
+ * updates are serialised, and replace the entries of a pom key by key, so that
+ * it never looks missing meanwhile.
+ */
+public class WorkspaceIndex {
+
+	private static final String PROPERTY_PREFIX = "property:";
+	private static final String ARTIFACT_PREFIX = "artifact:";
+	private static final int DISK_VERSION = -1;
+
+	public static class Occurrence {
+
+		private final URI uri;
+		private final Range range;
+		private final boolean declaration;
+
+		public Occurrence(URI uri, Range range, boolean declaration) {
+			this.uri = uri;
+			this.range = range;
+			this.declaration = declaration;
+		}
+
+		public URI getUri() {
+			return uri;
+		}
+
+		public Range getRange() {
+			return range;
+		}
+
+		public boolean isDeclaration() {
+			return declaration;
+		}
+
+		public Location toLocation() {
+			return new Location(uri.toString(), range);
+		}
+	}
+
+	private final Map<String, Map<URI, List<Occurrence>>> occurrencesByKey = new ConcurrentHashMap<>();
+	private final Map<URI, Collection<String>> keysByUri = new ConcurrentHashMap<>();
+	private final Map<URI, Integer> indexedVersions = new ConcurrentHashMap<>();
+	private final Map<String, Map<URI, String>> declaredVersions = new ConcurrentHashMap<>();
+
+	// keys are pooled, the same ones are held for every pom using them
+	public static String propertyKey(String propertyName) {
+		return CoordinatePool.getInstance().intern(PROPERTY_PREFIX + propertyName);
+	}
+
+	public static String artifactKey(String groupId, String artifactId) {
+		return CoordinatePool.getInstance().intern(ARTIFACT_PREFIX + groupId + ':' + artifactId);
+	}
+
+	public static boolean isPropertyKey(String key) {
+		return key.startsWith(PROPERTY_PREFIX);
+	}
+
+	/**
+	 * Walks the given directory and indexes every pom.xml found on disk. Documents
+	 * already indexed from an editor buffer are left untouched.
+	 */
+	public void indexWorkspace(Path root) throws IOException {
+		for (Path pom : findPoms(root)) {
+			if (!indexedVersions.containsKey(pom.toUri())) {
+				indexFile(pom);
+			}
+		}
+	}
+
+	/**
+	 * @return the pom.xml files under the given directory, skipping hidden and
+	 *         build output directories.
+	 */
+	public static List<Path> findPoms(Path root) throws IOException {
+		List<Path> poms = new ArrayList<>();
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				String name = dir.getFileName() != null ? dir.getFileName().toString() : "";
+				if (!dir.equals(root) && (name.startsWith(".") || "target".equals(name) || "node_modules".equals(name))) {
+					return FileVisitResult.SKIP_SUBTREE;
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				if ("pom.xml".equals(file.getFileName().toString())) {
+					poms.add(file);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		return poms;
+	}
+
+	/**
+	 * (Re)indexes a pom from its content on disk.
+	 */
+	public void indexFile(Path file) throws IOException {
+		String text = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+		DOMDocument document = DOMParser.getInstance().parse(text, file.toUri().toString(), null);
+		index(document, DISK_VERSION);
+	}
+
+	/**
+	 * Re-indexes the given editor document, unless that version was already
+	 * indexed.
+	 */
+	public void update(DOMDocument document) {
+		int version = document.getTextDocument().getVersion();
+		Integer last = indexedVersions.get(URI.create(document.getDocumentURI()));
+		if (last == null || last.intValue() != version) {
+			index(document, version);
+		}
+	}
+
+	/**
+	 * @return whether the pom was last indexed from an editor buffer rather than
+	 *         from its content on disk.
+	 */
+	public boolean isIndexedFromEditor(URI uri) {
+		Integer version = indexedVersions.get(uri);
+		return version != null && version.intValue() != DISK_VERSION;
+	}
+
+	public synchronized void remove(URI uri) {
+		Collection<String> keys = keysByUri.remove(uri);
+		if (keys != null) {
+			keys.forEach(key -> removeOccurrences(key, uri));
+		}
+		indexedVersions.remove(uri);
+		declaredVersions.values().forEach(versions -> versions.remove(uri));
+	}
+
+	private void removeOccurrences(String key, URI uri) {
+		occurrencesByKey.computeIfPresent(key, (k, byUri) -> {
+			byUri.remove(uri);
+			return byUri.isEmpty() ? null : byUri;
+		});
+	}
+
+	/**
+	 * @return the versions declared by the workspace projects with the given
+	 *         groupId and artifactId.
+	 */
+	public Collection<String> getDeclaredVersions(String groupId, String artifactId) {
+		Map<URI, String> versions = declaredVersions.get(artifactKey(groupId, artifactId));
+		return versions == null ? Collections.emptyList() : new ArrayList<>(versions.values());
+	}
+
+	public List<Occurrence> getOccurrences(String key) {
+		Map<URI, List<Occurrence>> byUri = occurrencesByKey.get(key);
+		if (byUri == null) {
+			return Collections.emptyList();
+		}
+		List<Occurrence> res = new ArrayList<>();
+		byUri.values().forEach(res::addAll);
+		return res;
+	}
+
+	/**
+	 * @return the key of the property or artifact version under the given offset,
+	 *         or <code>null</code> if there is nothing indexable there.
+	 */
+	public String findKeyAt(DOMDocument document, int offset) {
+		DOMNode node = document.findNodeAt(offset);
+		if (node == null) {
+			return null;
+		}
+		if (node.isText()) {
+			String text = document.getText();
+			int start = text.lastIndexOf("${", offset);
+			if (start >= node.getStart()) {
+				int end = text.indexOf('}', start);
+				if (end >= offset && end <= node.getEnd()) {
+					return propertyKey(text.substring(start + 2, end));
+				}
+			}
+			node = node.getParentElement();
+		}
+		if (node == null || !node.isElement()) {
+			return null;
+		}
+		DOMElement element = (DOMElement) node;
+		DOMElement parent = element.getParentElement();
+		if (parent != null && "properties".equals(parent.getLocalName())) {
+			return propertyKey(element.getLocalName());
+		}
+		if ("version".equals(element.getLocalName()) && parent != null) {
+			String[] ga = getCoordinates(parent);
+			if (ga != null) {
+				return artifactKey(ga[0], ga[1]);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Computes the workspace edit renaming every occurrence of the given key. For
+	 * properties <code>newName</code> is the new property name, for artifacts it
+	 * is the new version.
+	 */
+	public WorkspaceEdit rename(String key, String newName) {
+		Map<String, List<TextEdit>> changes = new HashMap<>();
+		for (Occurrence occurrence : getOccurrences(key)) {
+			changes.computeIfAbsent(occurrence.getUri().toString(), uri -> new ArrayList<>())
+					.add(new TextEdit(occurrence.getRange(), newName));
+		}
+		return new WorkspaceEdit(changes);
+	}
+
+	private void index(DOMDocument document, int version) {
+		URI uri = URI.create(document.getDocumentURI());
+		Map<String, List<Occurrence>> found = new HashMap<>();
+		DOMElement project = document.getDocumentElement();
+		if (project != null) {
+			try {
+				collect(project, document, uri, found);
+			} catch (BadLocationException e) {
+				// the document changed while indexing, next update will fix it
+				return;
+			}
+		}
+		String declaredKey = null;
+		String declaredVersion = null;
+		if (project != null) {
+			String[] ga = getCoordinates(project);
+			String projectVersion = DOMUtils.getChildText(project, "version");
+			if (projectVersion == null) {
+				// version is inherited from the parent
+				projectVersion = DOMUtils.getChildText(DOMUtils.findChildElement(project, "parent"), "version");
+			}
+			if (ga != null && projectVersion != null) {
+				declaredKey = artifactKey(ga[0], ga[1]);
+				declaredVersion = CoordinatePool.getInstance().intern(projectVersion);
+			}
+		}
+		replace(uri, version, found, declaredKey, declaredVersion);
+	}
+
+	/**
+	 * Replaces the entries of the given pom with the new ones, then drops the
+	 * ones it no longer has.
+	 */
+	private synchronized void replace(URI uri, int version, Map<String, List<Occurrence>> found,
+			String declaredKey, String declaredVersion) {
+		found.forEach((key, occurrences) -> occurrencesByKey.computeIfAbsent(key, k -> new ConcurrentHashMap<>())
+				.put(uri, occurrences));
+		Collection<String> previous = keysByUri.put(uri, found.keySet());
+		if (previous != null) {
+			previous.stream().filter(key -> !found.containsKey(key)).forEach(key -> removeOccurrences(key, uri));
+		}
+		if (declaredKey != null) {
+			declaredVersions.computeIfAbsent(declaredKey, k -> new ConcurrentHashMap<>()).put(uri, declaredVersion);
+		}
+		declaredVersions.forEach((key, versions) -> {
+			if (!key.equals(declaredKey)) {
+				versions.remove(uri);
+			}
+		});
+		indexedVersions.put(uri, version);
+	}
+
+	private void collect(DOMNode node, DOMDocument document, URI uri, Map<String, List<Occurrence>> found)
+			throws BadLocationException {
+		for (DOMNode child : node.getChildren()) {
+			if (child.isText()) {
+				collectPropertyReferences(child, document, uri, found);
+			} else if (child.isElement()) {
+				DOMElement element = (DOMElement) child;
+				DOMElement parent = element.getParentElement();
+				if (parent != null && "properties".equals(parent.getLocalName())) {
+					collectPropertyDeclaration(element, document, uri, found);
+				} else if ("version".equals(element.getLocalName()) && parent != null) {
+					collectVersion(element, parent, document, uri, found);
+				}
+				collect(element, document, uri, found);
+			}
+		}
+	}
+
+	private void collectPropertyReferences(DOMNode textNode, DOMDocument document, URI uri,
+			Map<String, List<Occurrence>> found) throws BadLocationException {
+		String text = document.getText();
+		int end = textNode.getEnd();
+		int start = text.indexOf("${", textNode.getStart());
+		while (start >= 0 && start < end) {
+			int close = text.indexOf('}', start);
+			if (close < 0 || close > end) {
+				return;
+			}
+			Range range = new Range(document.positionAt(start + 2), document.positionAt(close));
+			add(found, propertyKey(text.substring(start + 2, close)), new Occurrence(uri, range, false));
+			start = text.indexOf("${", close);
+		}
+	}
+
+	private void collectPropertyDeclaration(DOMElement element, DOMDocument document, URI uri,
+			Map<String, List<Occurrence>> found) throws BadLocationException {
+		String name = element.getLocalName();
+		if (name == null || element.getStartTagOpenOffset() == null) {
+			return;
+		}
+		String key = propertyKey(name);
+		int startName = element.getStartTagOpenOffset() + 1;
+		add(found, key, new Occurrence(uri,
+				new Range(document.positionAt(startName), document.positionAt(startName + name.length())), true));
+		if (element.getEndTagOpenOffset() != null) {
+			int endName = element.getEndTagOpenOffset() + 2;
+			add(found, key, new Occurrence(uri,
+					new Range(document.positionAt(endName), document.positionAt(endName + name.length())), true));
+		}
+	}
+
+	private void collectVersion(DOMElement version, DOMElement owner, DOMDocument document, URI uri,
+			Map<String, List<Occurrence>> found) throws BadLocationException {
+		if (version.getStartTagCloseOffset() == null || version.getEndTagOpenOffset() == null) {
+			return;
+		}
+		String[] ga = getCoordinates(owner);
+		if (ga == null) {
+			return;
+		}
+		Range range = new Range(document.positionAt(version.getStartTagCloseOffset() + 1),
+				document.positionAt(version.getEndTagOpenOffset()));
+		// the version of the project itself is the declaration, the others reference it
+		boolean declaration = "project".equals(owner.getLocalName());
+		add(found, artifactKey(ga[0], ga[1]), new Occurrence(uri, range, declaration));
+	}
+
+	/**
+	 * @return groupId and artifactId of the project, parent, dependency or plugin
+	 *         element, or <code>null</code> if they can't be determined.
+	 */
+	private static String[] getCoordinates(DOMElement owner) {
+		String groupId = DOMUtils.getChildText(owner, "groupId");
+		String artifactId = DOMUtils.getChildText(owner, "artifactId");
+		if (groupId == null) {
+			if ("project".equals(owner.getLocalName())) {
+				// groupId is inherited from the parent
+				groupId = DOMUtils.getChildText(DOMUtils.findChildElement(owner, "parent"), "groupId");
+			} else if ("plugin".equals(owner.getLocalName())) {
+				groupId = "org.apache.maven.plugins";
+			}
+		}
+		if (groupId == null || artifactId == null) {
+			return null;
+		}
+		return new String[] { groupId, artifactId };
+	}
+
+	private static void add(Map<String, List<Occurrence>> found, String key, Occurrence occurrence) {
+		found.computeIfAbsent(key, k -> new ArrayList<>()).add(occurrence);
+	}
+
+}
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.lsp4xml.extensions.maven.protocol.HistogramSnapshot;
+
+/**
+ * Lock-free histogram of durations in microseconds. Each power of two is
+ * split in 4 buckets, so percentiles are accurate within 25%, with a fixed
+ * footprint whatever the number of samples.
+ */
+public class Histogram {
+
+	private static final int BUCKETS = 160;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	public void record(long micros) {
+		counts.incrementAndGet(bucket(micros));
+		count.increment();
+		sum.add(micros);
+		max.accumulateAndGet(micros, Math::max);
+	}
+
+	public HistogramSnapshot snapshot() {
+		long[] snapshot = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			total += snapshot[i];
+		}
+		HistogramSnapshot res = new HistogramSnapshot();
+		res.setCount(total);
+		if (total > 0) {
+			res.setMeanMs(toMillis(sum.sum() / (double) count.sum()));
+			res.setP50Ms(toMillis(percentile(snapshot, total, 0.50)));
+			res.setP90Ms(toMillis(percentile(snapshot, total, 0.90)));
+			res.setP99Ms(toMillis(percentile(snapshot, total, 0.99)));
+			res.setMaxMs(toMillis(max.get()));
+		}
+		return res;
+	}
+
+	private static long percentile(long[] counts, long total, double percentile) {
+		long rank = (long) Math.ceil(percentile * total);
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return upperBound(i);
+			}
+		}
+		return upperBound(counts.length - 1);
+	}
+
+	static int bucket(long micros) {
+		if (micros < 4) {
+			return (int) Math.max(0, micros);
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(micros);
+		int sub = (int) ((micros >>> (exponent - 2)) & 3);
+		return Math.min(BUCKETS - 1, 4 * (exponent - 1) + sub);
+	}
+
+	static long upperBound(int bucket) {
+		if (bucket < 4) {
+			return bucket;
+		}
+		int exponent = bucket / 4 + 1;
+		long lower = (4L + bucket % 4) << (exponent - 2);
+		return lower + (1L << (exponent - 2)) - 1;
+	}
+
+	private static double toMillis(double micros) {
+		return Math.round(micros / 10.0) / 100.0;
+	}
+}
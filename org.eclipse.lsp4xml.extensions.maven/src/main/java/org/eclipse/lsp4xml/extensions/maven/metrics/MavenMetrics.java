@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import org.eclipse.lsp4xml.extensions.maven.protocol.HistogramSnapshot;
+import org.eclipse.lsp4xml.extensions.maven.protocol.MetricsSnapshot;
+
+/**
+ * Registry of the timings, counters and gauges of the extension.
+ *
+ * When disabled, {@link #start()} returns <code>0</code> without reading the
+ * clock and every other call returns after a volatile read, so the
+ * instrumentation can stay in the hot paths:
+ *
+ * <pre>
+ * long start = metrics.start();
+ * ...
+ * metrics.record("project.build", start);
+ * </pre>
+ */
+public class MavenMetrics {
+
+	/**
+	 * System property enabling the metrics at startup.
+	 */
+	public static final String ENABLED_PROPERTY = "maven.xmlls.metrics";
+
+	private volatile boolean enabled;
+	private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+	private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+	private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+	private ScheduledExecutorService telemetryExecutor;
+	private ScheduledFuture<?> telemetry;
+
+	public MavenMetrics(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * @return the start of a timed operation, to give to
+	 *         {@link #record(String, long)}, or <code>0</code> when disabled.
+	 */
+	public long start() {
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Records the duration since <code>start</code> in the given histogram.
+	 */
+	public void record(String histogram, long start) {
+		if (start != 0 && enabled) {
+			recordNanos(histogram, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Records a duration measured by the caller, e.g. accumulated over several
+	 * calls.
+	 */
+	public void recordNanos(String histogram, long nanos) {
+		if (enabled) {
+			histograms.computeIfAbsent(histogram, name -> new Histogram()).record(nanos / 1000);
+		}
+	}
+
+	public void increment(String counter) {
+		if (enabled) {
+			counters.computeIfAbsent(counter, name -> new LongAdder()).increment();
+		}
+	}
+
+	/**
+	 * Registers a gauge, only evaluated when a snapshot is taken.
+	 */
+	public void registerGauge(String gauge, LongSupplier value) {
+		gauges.put(gauge, value);
+	}
+
+	public MetricsSnapshot snapshot() {
+		MetricsSnapshot snapshot = new MetricsSnapshot();
+		snapshot.setEnabled(enabled);
+		Map<String, HistogramSnapshot> histogramSnapshots = new TreeMap<>();
+		histograms.forEach((name, histogram) -> histogramSnapshots.put(name, histogram.snapshot()));
+		snapshot.setHistograms(histogramSnapshots);
+		Map<String, Long> counterValues = new TreeMap<>();
+		counters.forEach((name, counter) -> counterValues.put(name, counter.sum()));
+		snapshot.setCounters(counterValues);
+		Map<String, Long> gaugeValues = new TreeMap<>();
+		gauges.forEach((name, gauge) -> gaugeValues.put(name, gauge.getAsLong()));
+		snapshot.setGauges(gaugeValues);
+		return snapshot;
+	}
+
+	public void reset() {
+		histograms.clear();
+		counters.clear();
+	}
+
+	/**
+	 * Sends a snapshot to the given sink (typically
+	 * <code>LanguageClient::telemetryEvent</code>) at a fixed period, while
+	 * the metrics are enabled.
+	 */
+	public synchronized void scheduleTelemetry(Consumer<Object> sink, long period, TimeUnit unit) {
+		if (telemetryExecutor == null) {
+			telemetryExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "maven-metrics-telemetry");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		if (telemetry != null) {
+			telemetry.cancel(false);
+		}
+		telemetry = telemetryExecutor.scheduleAtFixedRate(() -> {
+			if (enabled) {
+				sink.accept(snapshot());
+			}
+		}, period, period, unit);
+	}
+
+	public synchronized void dispose() {
+		if (telemetryExecutor != null) {
+			telemetryExecutor.shutdownNow();
+			telemetryExecutor = null;
+			telemetry = null;
+		}
+	}
+}
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Times the phases of an operation (build, diagnostics, completion...) and
+ * logs their breakdown when the whole operation is slower than the threshold:
+ *
+ * <pre>
+ * OperationTrace trace = OperationTrace.start("build", uri);
+ * ...
+ * trace.phase("initialize");
+ * ...
+ * trace.phase("projectBuilder");
+ * trace.end();
+ * </pre>
+ *
+ * logs <code>Slow build of file:///.../pom.xml: 1523 ms (initialize 310 ms,
+ * projectBuilder 1213 ms)</code>. The threshold is read from the
+ * <code>maven.xmlls.slowOperationThreshold</code> system property, in
+ * milliseconds, and a negative value disables the tracing.
+ */
+public class OperationTrace {
+
+	public static final String THRESHOLD_PROPERTY = "maven.xmlls.slowOperationThreshold";
+
+	private static final Logger LOGGER = Logger.getLogger(OperationTrace.class.getName());
+
+	private static final long DEFAULT_THRESHOLD_MS = 1000;
+
+	private static volatile long thresholdNanos = TimeUnit.MILLISECONDS
+			.toNanos(Long.getLong(THRESHOLD_PROPERTY, DEFAULT_THRESHOLD_MS));
+
+	private static final OperationTrace DISABLED = new OperationTrace(null, null) {
+
+		@Override
+		public void phase(String phase) {
+		}
+
+		@Override
+		public void end() {
+		}
+	};
+
+	private final String operation;
+	private final Object subject;
+	private final long start;
+	private long last;
+	private List<String> phases;
+	private List<Long> durations;
+
+	private OperationTrace(String operation, Object subject) {
+		this.operation = operation;
+		this.subject = subject;
+		this.start = System.nanoTime();
+		this.last = start;
+	}
+
+	/**
+	 * @param operation what is traced, e.g. <code>build</code>
+	 * @param subject   what it is traced on, e.g. the pom URI
+	 */
+	public static OperationTrace start(String operation, Object subject) {
+		return thresholdNanos < 0 ? DISABLED : new OperationTrace(operation, subject);
+	}
+
+	/**
+	 * @param thresholdMillis duration above which operations are logged, negative
+	 *                        to disable the tracing
+	 */
+	public static void setThreshold(long thresholdMillis) {
+		thresholdNanos = thresholdMillis < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+	}
+
+	/**
+	 * Ends the current phase, started at the end of the previous one.
+	 */
+	public void phase(String phase) {
+		long now = System.nanoTime();
+		if (phases == null) {
+			phases = new ArrayList<>();
+			durations = new ArrayList<>();
+		}
+		phases.add(phase);
+		durations.add(now - last);
+		last = now;
+	}
+
+	public void end() {
+		long total = System.nanoTime() - start;
+		long threshold = thresholdNanos;
+		if (threshold < 0 || total < threshold || !LOGGER.isLoggable(Level.WARNING)) {
+			return;
+		}
+		StringBuilder message = new StringBuilder();
+		message.append("Slow ").append(operation).append(" of ").append(subject).append(": ")
+				.append(TimeUnit.NANOSECONDS.toMillis(total)).append(" ms");
+		if (phases != null) {
+			message.append(" (");
+			for (int i = 0; i < phases.size(); i++) {
+				if (i > 0) {
+					message.append(", ");
+				}
+				message.append(phases.get(i)).append(' ')
+						.append(TimeUnit.NANOSECONDS.toMillis(durations.get(i))).append(" ms");
+			}
+			message.append(')');
+		}
+		LOGGER.warning(message.toString());
+	}
+}
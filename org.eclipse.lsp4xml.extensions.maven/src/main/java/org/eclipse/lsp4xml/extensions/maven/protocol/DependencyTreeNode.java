@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.protocol;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class DependencyTreeNode {
+
+	private String groupId;
+
+	private String artifactId;
+
+	private String version;
+
+	private String classifier;
+
+	private String scope;
+
+	private boolean optional;
+
+	/**
+	 * The version which wins over this one, <code>null</code> if this node is not
+	 * omitted because of a conflict.
+	 */
+	private String omittedFor;
+
+	private List<DependencyTreeNode> children = new ArrayList<>();
+
+	public String getGroupId() {
+		return groupId;
+	}
+
+	public void setGroupId(String groupId) {
+		this.groupId = groupId;
+	}
+
+	public String getArtifactId() {
+		return artifactId;
+	}
+
+	public void setArtifactId(String artifactId) {
+		this.artifactId = artifactId;
+	}
+
+	public String getVersion() {
+		return version;
+	}
+
+	public void setVersion(String version) {
+		this.version = version;
+	}
+
+	public String getClassifier() {
+		return classifier;
+	}
+
+	public void setClassifier(String classifier) {
+		this.classifier = classifier;
+	}
+
+	public String getScope() {
+		return scope;
+	}
+
+	public void setScope(String scope) {
+		this.scope = scope;
+	}
+
+	public boolean isOptional() {
+		return optional;
+	}
+
+	public void setOptional(boolean optional) {
+		this.optional = optional;
+	}
+
+	public String getOmittedFor() {
+		return omittedFor;
+	}
+
+	public void setOmittedFor(String omittedFor) {
+		this.omittedFor = omittedFor;
+	}
+
+	public List<DependencyTreeNode> getChildren() {
+		return children;
+	}
+
+	public void setChildren(List<DependencyTreeNode> children) {
+		this.children = children;
+	}
+
+}
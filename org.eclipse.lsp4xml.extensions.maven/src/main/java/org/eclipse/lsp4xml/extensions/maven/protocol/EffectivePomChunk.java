@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.protocol;
+
+public class EffectivePomChunk {
+
+	private String uri;
+
+	private int chunk;
+
+	private int chunkCount;
+
+	private String content;
+
+	public EffectivePomChunk() {
+	}
+
+	public EffectivePomChunk(String uri, int chunk, int chunkCount, String content) {
+		this.uri = uri;
+		this.chunk = chunk;
+		this.chunkCount = chunkCount;
+		this.content = content;
+	}
+
+	public String getUri() {
+		return uri;
+	}
+
+	public void setUri(String uri) {
+		this.uri = uri;
+	}
+
+	public int getChunk() {
+		return chunk;
+	}
+
+	public void setChunk(int chunk) {
+		this.chunk = chunk;
+	}
+
+	public int getChunkCount() {
+		return chunkCount;
+	}
+
+	public void setChunkCount(int chunkCount) {
+		this.chunkCount = chunkCount;
+	}
+
+	public String getContent() {
+		return content;
+	}
+
+	public void setContent(String content) {
+		this.content = content;
+	}
+
+}
@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.protocol;
+
+public class EffectivePomParams {
+
+	private String uri;
+
+	private int chunk;
+
+	public EffectivePomParams() {
+	}
+
+	public EffectivePomParams(String uri, int chunk) {
+		this.uri = uri;
+		this.chunk = chunk;
+	}
+
+	public String getUri() {
+		return uri;
+	}
+
+	public void setUri(String uri) {
+		this.uri = uri;
+	}
+
+	public int getChunk() {
+		return chunk;
+	}
+
+	public void setChunk(int chunk) {
+		this.chunk = chunk;
+	}
+
+}
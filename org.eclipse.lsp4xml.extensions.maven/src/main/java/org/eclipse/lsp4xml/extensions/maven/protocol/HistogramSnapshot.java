@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.protocol;
+
+/**
+ * Durations are in milliseconds, percentiles are approximated within 25%.
+ */
+public class HistogramSnapshot {
+
+	private long count;
+
+	private double meanMs;
+
+	private double p50Ms;
+
+	private double p90Ms;
+
+	private double p99Ms;
+
+	private double maxMs;
+
+	public long getCount() {
+		return count;
+	}
+
+	public void setCount(long count) {
+		this.count = count;
+	}
+
+	public double getMeanMs() {
+		return meanMs;
+	}
+
+	public void setMeanMs(double meanMs) {
+		this.meanMs = meanMs;
+	}
+
+	public double getP50Ms() {
+		return p50Ms;
+	}
+
+	public void setP50Ms(double p50Ms) {
+		this.p50Ms = p50Ms;
+	}
+
+	public double getP90Ms() {
+		return p90Ms;
+	}
+
+	public void setP90Ms(double p90Ms) {
+		this.p90Ms = p90Ms;
+	}
+
+	public double getP99Ms() {
+		return p99Ms;
+	}
+
+	public void setP99Ms(double p99Ms) {
+		this.p99Ms = p99Ms;
+	}
+
+	public double getMaxMs() {
+		return maxMs;
+	}
+
+	public void setMaxMs(double maxMs) {
+		this.maxMs = maxMs;
+	}
+
+}
@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.protocol;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.eclipse.lsp4j.DidChangeWatchedFilesParams;
+import org.eclipse.lsp4j.DocumentSymbol;
+import org.eclipse.lsp4j.TextDocumentIdentifier;
+import org.eclipse.lsp4j.jsonrpc.services.JsonNotification;
+import org.eclipse.lsp4j.jsonrpc.services.JsonRequest;
+import org.eclipse.lsp4j.jsonrpc.services.JsonSegment;
+
+/**
+ * Custom LSP requests provided by the Maven extension, under the
+ * <code>maven/</code> prefix.
+ *
+ * lsp4xml doesn't let extensions contribute JSON-RPC services yet (see
+ * https://github.com/angelozerr/lsp4xml/issues/590), so the implementation is
+ * exposed by {@link org.eclipse.lsp4xml.extensions.maven.MavenPlugin#getProtocolService()}
+ * for the launcher to register.
+ */
+@JsonSegment("maven")
+public interface MavenProtocolExtensions {
+
+	/**
+	 * Returns one chunk of the effective POM of an already built pom, with origin
+	 * comments giving the file and line each element comes from.
+	 */
+	@JsonRequest
+	CompletableFuture<EffectivePomChunk> effectivePom(EffectivePomParams params);
+
+	/**
+	 * Returns the dependency tree of an already built pom, including the
+	 * dependencies omitted because of a version conflict.
+	 */
+	@JsonRequest
+	CompletableFuture<DependencyTreeNode> dependencyTree(TextDocumentIdentifier params);
+
+	/**
+	 * Returns the outline of a pom: its parent, modules, properties, dependencies,
+	 * plugins and profiles as typed symbols, for the last version of the opened
+	 * document or the file on disk. lsp4xml's own outline of the XML elements is
+	 * left as is.
+	 */
+	@JsonRequest
+	CompletableFuture<List<DocumentSymbol>> documentSymbol(TextDocumentIdentifier params);
+
+	/**
+	 * Returns the build, diagnostics and completion timings, the cache and local
+	 * repository counters, and the pending work gauges.
+	 */
+	@JsonRequest
+	CompletableFuture<MetricsSnapshot> metrics();
+
+	/**
+	 * Returns the artifacts of the local repository providing the class of the
+	 * given simple or fully qualified name, to suggest the dependency to add.
+	 * Results come from the class index, which may still be scanning.
+	 */
+	@JsonRequest
+	CompletableFuture<List<DependencySuggestion>> searchClass(String className);
+
+	/**
+	 * Enables or disables the collection of the metrics. They are disabled
+	 * unless the server runs with <code>-Dmaven.xmlls.metrics=true</code>.
+	 */
+	@JsonNotification
+	void setMetricsEnabled(Boolean enabled);
+
+	/**
+	 * Forwards the <code>workspace/didChangeWatchedFiles</code> notification,
+	 * which lsp4xml keeps for itself, so that the poms changed on disk and the
+	 * ones built from them are validated again.
+	 */
+	@JsonNotification
+	void didChangeWatchedFiles(DidChangeWatchedFilesParams params);
+
+}
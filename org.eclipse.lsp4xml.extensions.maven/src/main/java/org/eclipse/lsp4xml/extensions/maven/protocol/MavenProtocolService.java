@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.protocol;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.graph.DependencyNode;
+import org.eclipse.aether.util.graph.transformer.ConflictResolver;
+import org.eclipse.lsp4j.DidChangeWatchedFilesParams;
+import org.eclipse.lsp4j.DocumentSymbol;
+import org.eclipse.lsp4j.TextDocumentIdentifier;
+import org.eclipse.lsp4j.jsonrpc.ResponseErrorException;
+import org.eclipse.lsp4j.jsonrpc.messages.ResponseError;
+import org.eclipse.lsp4j.jsonrpc.messages.ResponseErrorCode;
+import org.eclipse.lsp4xml.extensions.maven.DependencyTreeService;
+import org.eclipse.lsp4xml.extensions.maven.EffectivePomService;
+import org.eclipse.lsp4xml.extensions.maven.MavenExecutor;
+import org.eclipse.lsp4xml.extensions.maven.MavenProjectCache;
+import org.eclipse.lsp4xml.extensions.maven.PomSymbolsService;
+import org.eclipse.lsp4xml.extensions.maven.WorkspaceValidator;
+import org.eclipse.lsp4xml.extensions.maven.index.ClassIndex;
+import org.eclipse.lsp4xml.extensions.maven.metrics.MavenMetrics;
+
+public class MavenProtocolService implements MavenProtocolExtensions {
+
+	private final MavenProjectCache cache;
+	private final EffectivePomService effectivePomService;
+	private final DependencyTreeService dependencyTreeService;
+	private final PomSymbolsService symbolsService;
+	private final WorkspaceValidator workspaceValidator;
+	private final ClassIndex classIndex;
+	private final MavenExecutor executor;
+	private final MavenMetrics metrics;
+
+	public MavenProtocolService(MavenProjectCache cache, EffectivePomService effectivePomService,
+			DependencyTreeService dependencyTreeService, PomSymbolsService symbolsService,
+			WorkspaceValidator workspaceValidator, ClassIndex classIndex, MavenExecutor executor,
+			MavenMetrics metrics) {
+		this.cache = cache;
+		this.effectivePomService = effectivePomService;
+		this.dependencyTreeService = dependencyTreeService;
+		this.symbolsService = symbolsService;
+		this.workspaceValidator = workspaceValidator;
+		this.classIndex = classIndex;
+		this.executor = executor;
+		this.metrics = metrics;
+	}
+
+	@Override
+	public CompletableFuture<EffectivePomChunk> effectivePom(EffectivePomParams params) {
+		return executor.submit(URI.create(params.getUri()), () -> effectivePomService.getEffectivePom(params));
+	}
+
+	@Override
+	public CompletableFuture<DependencyTreeNode> dependencyTree(TextDocumentIdentifier params) {
+		URI uri = URI.create(params.getUri());
+		// builds again if the project was reclaimed, not on the message thread
+		return executor.submit(uri, () -> cache.getFullMavenProject(uri)).thenCompose(project -> {
+			if (project == null) {
+				CompletableFuture<DependencyTreeNode> error = new CompletableFuture<>();
+				error.completeExceptionally(new ResponseErrorException(new ResponseError(
+						ResponseErrorCode.InvalidParams, "No Maven project was built yet for " + params.getUri(), null)));
+				return error;
+			}
+			return dependencyTreeService.getDependencyTree(uri, project)
+					.thenApply(root -> toTreeNode(root, new IdentityHashMap<>()));
+		});
+	}
+
+	@Override
+	public CompletableFuture<List<DocumentSymbol>> documentSymbol(TextDocumentIdentifier params) {
+		// may read the file, not behind the builds of the pom
+		return executor.submit(null, () -> symbolsService.getSymbols(URI.create(params.getUri())));
+	}
+
+	@Override
+	public CompletableFuture<MetricsSnapshot> metrics() {
+		return CompletableFuture.completedFuture(metrics.snapshot());
+	}
+
+	@Override
+	public void setMetricsEnabled(Boolean enabled) {
+		metrics.setEnabled(Boolean.TRUE.equals(enabled));
+	}
+
+	@Override
+	public CompletableFuture<List<DependencySuggestion>> searchClass(String className) {
+		if (className == null || className.trim().isEmpty()) {
+			return CompletableFuture.completedFuture(new ArrayList<>());
+		}
+		// one suggestion per class and artifact, with the latest version
+		Map<String, DependencySuggestion> suggestions = new LinkedHashMap<>();
+		for (ClassIndex.Match match : classIndex.find(className.trim())) {
+			String key = match.getClassName() + ' ' + match.getCoordinates().getGroupId() + ':'
+					+ match.getCoordinates().getArtifactId();
+			DependencySuggestion known = suggestions.get(key);
+			String version = match.getCoordinates().getVersion();
+			if (known == null || new DefaultArtifactVersion(version)
+					.compareTo(new DefaultArtifactVersion(known.getVersion())) > 0) {
+				suggestions.put(key, new DependencySuggestion(match.getClassName(),
+						match.getCoordinates().getGroupId(), match.getCoordinates().getArtifactId(), version));
+			}
+		}
+		return CompletableFuture.completedFuture(new ArrayList<>(suggestions.values()));
+	}
+
+	@Override
+	public void didChangeWatchedFiles(DidChangeWatchedFilesParams params) {
+		if (params != null && params.getChanges() != null) {
+			workspaceValidator.onFilesChanged(params.getChanges());
+		}
+	}
+
+	private static DependencyTreeNode toTreeNode(DependencyNode node, Map<DependencyNode, Boolean> visited) {
+		DependencyTreeNode res = new DependencyTreeNode();
+		Artifact artifact = node.getArtifact();
+		if (artifact != null) {
+			res.setGroupId(artifact.getGroupId());
+			res.setArtifactId(artifact.getArtifactId());
+			res.setVersion(artifact.getBaseVersion());
+			res.setClassifier(artifact.getClassifier().isEmpty() ? null : artifact.getClassifier());
+		}
+		if (node.getDependency() != null) {
+			res.setScope(node.getDependency().getScope());
+			res.setOptional(node.getDependency().isOptional());
+		}
+		Object winner = node.getData().get(ConflictResolver.NODE_DATA_WINNER);
+		if (winner instanceof DependencyNode && ((DependencyNode) winner).getArtifact() != null) {
+			res.setOmittedFor(((DependencyNode) winner).getArtifact().getBaseVersion());
+		}
+		if (visited.put(node, Boolean.TRUE) == null) {
+			for (DependencyNode child : node.getChildren()) {
+				res.getChildren().add(toTreeNode(child, visited));
+			}
+			visited.remove(node);
+		}
+		return res;
+	}
+
+}
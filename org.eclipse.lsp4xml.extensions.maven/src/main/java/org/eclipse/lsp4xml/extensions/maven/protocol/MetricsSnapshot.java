@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.protocol;
+
+import java.util.Map;
+
+public class MetricsSnapshot {
+
+	private boolean enabled;
+
+	private Map<String, HistogramSnapshot> histograms;
+
+	private Map<String, Long> counters;
+
+	private Map<String, Long> gauges;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public Map<String, HistogramSnapshot> getHistograms() {
+		return histograms;
+	}
+
+	public void setHistograms(Map<String, HistogramSnapshot> histograms) {
+		this.histograms = histograms;
+	}
+
+	public Map<String, Long> getCounters() {
+		return counters;
+	}
+
+	public void setCounters(Map<String, Long> counters) {
+		this.counters = counters;
+	}
+
+	public Map<String, Long> getGauges() {
+		return gauges;
+	}
+
+	public void setGauges(Map<String, Long> gauges) {
+		this.gauges = gauges;
+	}
+
+}
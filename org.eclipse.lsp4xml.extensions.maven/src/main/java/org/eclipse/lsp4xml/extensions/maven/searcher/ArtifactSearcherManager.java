@@ -8,24 +8,70 @@
  *******************************************************************************/
 package org.eclipse.lsp4xml.extensions.maven.searcher;
 
+import java.util.List;
 import java.util.Set;
 
+import org.apache.maven.artifact.versioning.ArtifactVersion;
+import org.eclipse.lsp4xml.extensions.maven.metrics.MavenMetrics;
+
 public class ArtifactSearcherManager {
 
 	private static final ArtifactSearcherManager INSTANCE = new ArtifactSearcherManager();
 
-	private final IArtifactSearcher localSearcher;
+	private final LocalArtifactSearcher localSearcher;
+	private volatile MavenMetrics metrics = new MavenMetrics(false);
 
 	public ArtifactSearcherManager() {
-		localSearcher = new LocalArtifactSearcher();
+		this(new LocalArtifactSearcher());
+	}
+
+	public ArtifactSearcherManager(LocalArtifactSearcher localSearcher) {
+		this.localSearcher = localSearcher;
 	}
 
 	public static ArtifactSearcherManager getInstance() {
 		return INSTANCE;
 	}
 
+	public LocalArtifactSearcher getLocalSearcher() {
+		return localSearcher;
+	}
+
+	public void setMetrics(MavenMetrics metrics) {
+		this.metrics = metrics;
+	}
+
 	public Set<String> searchLocalGroupIds(String groupIdHint) {
-		return localSearcher.searchGroupIds(groupIdHint);
+		MavenMetrics metrics = this.metrics;
+		metrics.increment("localRepository.groupIdSearches");
+		long start = metrics.start();
+		try {
+			return localSearcher.searchGroupIds(groupIdHint);
+		} finally {
+			metrics.record("localRepository.groupIdSearch", start);
+		}
+	}
+
+	public List<ArtifactVersion> searchLocalVersions(String groupId, String artifactId) {
+		MavenMetrics metrics = this.metrics;
+		metrics.increment("localRepository.versionLookups");
+		long start = metrics.start();
+		try {
+			return localSearcher.searchVersions(groupId, artifactId);
+		} finally {
+			metrics.record("localRepository.versionLookup", start);
+		}
+	}
+
+	public List<ArtifactVersion> searchLocalVersions(String groupId, String artifactId, String classifier) {
+		MavenMetrics metrics = this.metrics;
+		metrics.increment("localRepository.classifierLookups");
+		long start = metrics.start();
+		try {
+			return localSearcher.searchVersions(groupId, artifactId, classifier);
+		} finally {
+			metrics.record("localRepository.classifierLookup", start);
+		}
 	}
 
 }
@@ -8,9 +8,18 @@
  *******************************************************************************/
 package org.eclipse.lsp4xml.extensions.maven.searcher;
 
+import java.util.List;
 import java.util.Set;
 
+import org.apache.maven.artifact.versioning.ArtifactVersion;
+
 public interface IArtifactSearcher {
 
 	Set<String> searchGroupIds(String groupIdHint);
+
+	/**
+	 * @return the versions available for the given artifact, sorted from the
+	 *         oldest to the newest.
+	 */
+	List<ArtifactVersion> searchVersions(String groupId, String artifactId);
 }
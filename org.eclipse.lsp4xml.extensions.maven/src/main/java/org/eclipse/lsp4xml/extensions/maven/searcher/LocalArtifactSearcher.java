@@ -9,6 +9,7 @@
 package org.eclipse.lsp4xml.extensions.maven.searcher;
 
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.FileVisitResult;
 import java.nio.file.FileVisitor;
 import java.nio.file.Files;
@@ -16,17 +17,94 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.maven.artifact.versioning.ArtifactVersion;
+import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
+import org.eclipse.lsp4xml.extensions.maven.ArtifactCoordinates;
+import org.eclipse.lsp4xml.extensions.maven.CoordinatePool;
 
 public class LocalArtifactSearcher implements IArtifactSearcher {
 
-	private static Path MAVEN_LOCAL_REPOSITORY = Paths.get(System.getProperty("user.home"), ".m2", "repository");
+	private static final Logger LOGGER = Logger.getLogger(LocalArtifactSearcher.class.getName());
+
+	private static final Path MAVEN_LOCAL_REPOSITORY = Paths.get(System.getProperty("user.home"), ".m2", "repository");
+
+	public static class CachedVersions {
+
+		private final long lastModified;
+		private final List<ArtifactVersion> versions;
+		// the version directories left out, e.g. without pom yet, with their modification time
+		private final Map<String, Long> skipped;
+
+		CachedVersions(long lastModified, List<ArtifactVersion> versions, Map<String, Long> skipped) {
+			this.lastModified = lastModified;
+			this.versions = versions;
+			this.skipped = skipped;
+		}
+
+		/**
+		 * @return the modification time of the artifact directory the versions
+		 *         were listed from.
+		 */
+		public long getLastModified() {
+			return lastModified;
+		}
+
+		public List<ArtifactVersion> getVersions() {
+			return versions;
+		}
+
+		/**
+		 * @return the modification times of the version directories which weren't
+		 *         listed, by version.
+		 */
+		public Map<String, Long> getSkipped() {
+			return skipped;
+		}
+
+		private boolean isUpToDate(Path artifactDir, long lastModified) {
+			if (this.lastModified != lastModified) {
+				return false;
+			}
+			for (Map.Entry<String, Long> entry : skipped.entrySet()) {
+				if (lastModified(artifactDir.resolve(entry.getKey())) != entry.getValue()) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private final Path localRepository;
+	private final Map<ArtifactCoordinates, CachedVersions> versionsCache = new ConcurrentHashMap<>();
+	// the versions of each artifact with a classifier, by classifier
+	private final Map<ArtifactCoordinates, Map<String, CachedVersions>> classifiedVersionsCache = new ConcurrentHashMap<>();
+
+	public LocalArtifactSearcher() {
+		this(MAVEN_LOCAL_REPOSITORY);
+	}
+
+	public LocalArtifactSearcher(Path localRepository) {
+		this.localRepository = localRepository;
+	}
+
+	public Path getLocalRepository() {
+		return localRepository;
+	}
 
 	@Override
 	public Set<String> searchGroupIds(String groupIdHint) {
-		if (Files.exists(MAVEN_LOCAL_REPOSITORY)) {
+		if (Files.exists(localRepository)) {
 			Set<String> groupIds = new HashSet<>();
 			FileVisitor<Path> fv = new SimpleFileVisitor<Path>() {
 				@Override
@@ -36,21 +114,21 @@ public class LocalArtifactSearcher implements IArtifactSearcher {
 
 				@Override
 				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-					if (MAVEN_LOCAL_REPOSITORY.equals(dir)) {
+					if (localRepository.equals(dir)) {
 						return FileVisitResult.CONTINUE;
 					}
 					if (dir.getFileName().toString().startsWith(".")) {
 						return FileVisitResult.SKIP_SUBTREE;
 					}
-					groupIds.add(dir.getFileName().toString());
+					groupIds.add(CoordinatePool.getInstance().intern(dir.getFileName().toString()));
 					return FileVisitResult.SKIP_SUBTREE;
 				}
 			};
 
 			try {
-				Files.walkFileTree(MAVEN_LOCAL_REPOSITORY, fv);
+				Files.walkFileTree(localRepository, fv);
 			} catch (IOException e) {
-				e.printStackTrace();
+				LOGGER.log(Level.WARNING, "Error while listing the groupIds of " + localRepository, e);
 			}
 			return groupIds;
 
@@ -58,4 +136,145 @@ public class LocalArtifactSearcher implements IArtifactSearcher {
 		return Collections.emptySet();
 	}
 
+	/**
+	 * Lists the version directories of the artifact which contain a pom. The
+	 * sorted list is cached and only recomputed when the artifact directory, or
+	 * one of its version directories without pom, changes, so repeated lookups
+	 * cost a few stats.
+	 */
+	@Override
+	public List<ArtifactVersion> searchVersions(String groupId, String artifactId) {
+		Path artifactDir = localRepository.resolve(groupId.replace('.', '/')).resolve(artifactId);
+		try {
+			CachedVersions versions = listVersions(artifactDir, groupId, artifactId);
+			return versions != null ? versions.versions : Collections.emptyList();
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Error while listing the versions of " + artifactDir, e);
+			return Collections.emptyList();
+		}
+	}
+
+	private CachedVersions listVersions(Path artifactDir, String groupId, String artifactId) throws IOException {
+		if (!Files.isDirectory(artifactDir)) {
+			return null;
+		}
+		long lastModified = Files.getLastModifiedTime(artifactDir).toMillis();
+		// only pooled once the artifact is known to exist, not for every name typed
+		ArtifactCoordinates key = CoordinatePool.getInstance().get(groupId, artifactId, null);
+		CachedVersions cached = versionsCache.get(key);
+		if (cached != null && cached.isUpToDate(artifactDir, lastModified)) {
+			return cached;
+		}
+		List<ArtifactVersion> versions = new ArrayList<>();
+		Map<String, Long> skipped = new HashMap<>();
+		try (DirectoryStream<Path> versionDirs = Files.newDirectoryStream(artifactDir, Files::isDirectory)) {
+			for (Path versionDir : versionDirs) {
+				// before looking, so that a pom written meanwhile changes it
+				long versionModified = lastModified(versionDir);
+				if (containsPom(versionDir)) {
+					versions.add(new DefaultArtifactVersion(versionDir.getFileName().toString()));
+				} else {
+					skipped.put(versionDir.getFileName().toString(), versionModified);
+				}
+			}
+		}
+		Collections.sort(versions);
+		cached = new CachedVersions(lastModified, Collections.unmodifiableList(versions), skipped);
+		versionsCache.put(key, cached);
+		return cached;
+	}
+
+	/**
+	 * @return the versions listed so far, by <code>groupId:artifactId</code>.
+	 */
+	public Map<ArtifactCoordinates, CachedVersions> getCachedVersions() {
+		return Collections.unmodifiableMap(versionsCache);
+	}
+
+	/**
+	 * Restores versions listed by a previous session. They are used as long as the
+	 * artifact directory and the skipped version directories keep the given
+	 * modification times.
+	 */
+	public void restoreVersions(String groupId, String artifactId, long lastModified, List<String> versions,
+			Map<String, Long> skipped) {
+		List<ArtifactVersion> artifactVersions = new ArrayList<>(versions.size());
+		for (String version : versions) {
+			artifactVersions.add(new DefaultArtifactVersion(version));
+		}
+		Collections.sort(artifactVersions);
+		versionsCache.putIfAbsent(CoordinatePool.getInstance().get(groupId, artifactId, null),
+				new CachedVersions(lastModified, Collections.unmodifiableList(artifactVersions), skipped));
+	}
+
+	/**
+	 * @return the versions of {@link #searchVersions(String, String)} which
+	 *         contain a file of the given classifier, e.g. a
+	 *         <code>-sources.jar</code>. Cached like them, the version
+	 *         directories without the classifier being skipped ones.
+	 */
+	public List<ArtifactVersion> searchVersions(String groupId, String artifactId, String classifier) {
+		Path artifactDir = localRepository.resolve(groupId.replace('.', '/')).resolve(artifactId);
+		CachedVersions all;
+		try {
+			all = listVersions(artifactDir, groupId, artifactId);
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Error while listing the versions of " + artifactDir, e);
+			return Collections.emptyList();
+		}
+		if (all == null) {
+			return Collections.emptyList();
+		}
+		ArtifactCoordinates key = CoordinatePool.getInstance().get(groupId, artifactId, null);
+		Map<String, CachedVersions> byClassifier = classifiedVersionsCache.computeIfAbsent(key,
+				k -> new ConcurrentHashMap<>());
+		CachedVersions cached = byClassifier.get(classifier);
+		if (cached != null && cached.isUpToDate(artifactDir, all.lastModified)) {
+			return cached.versions;
+		}
+		List<ArtifactVersion> res = new ArrayList<>();
+		// a pom added to a version directory lists it again
+		Map<String, Long> skipped = new HashMap<>(all.skipped);
+		for (ArtifactVersion version : all.versions) {
+			Path versionDir = artifactDir.resolve(version.toString());
+			long versionModified = lastModified(versionDir);
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(versionDir,
+					file -> isClassified(file.getFileName().toString(), artifactId, classifier))) {
+				if (files.iterator().hasNext()) {
+					res.add(version);
+				} else {
+					skipped.put(version.toString(), versionModified);
+				}
+			} catch (IOException e) {
+				LOGGER.log(Level.WARNING, "Error while listing the files of " + versionDir, e);
+				skipped.put(version.toString(), versionModified);
+			}
+		}
+		res = Collections.unmodifiableList(res);
+		byClassifier.put(classifier, new CachedVersions(all.lastModified, res, skipped));
+		return res;
+	}
+
+	private static boolean isClassified(String fileName, String artifactId, String classifier) {
+		// a-1.0-sources.jar, or a-1.0-20200101.120000-1-sources.jar for snapshots
+		return fileName.startsWith(artifactId + '-') && fileName.contains('-' + classifier + '.')
+				&& !fileName.endsWith(".lastUpdated");
+	}
+
+	private static long lastModified(Path dir) {
+		try {
+			return Files.getLastModifiedTime(dir).toMillis();
+		} catch (IOException e) {
+			// deleted meanwhile
+			return -1;
+		}
+	}
+
+	private static boolean containsPom(Path versionDir) throws IOException {
+		// failed downloads leave directories with only *.lastUpdated files
+		try (DirectoryStream<Path> poms = Files.newDirectoryStream(versionDir, "*.pom")) {
+			return poms.iterator().hasNext();
+		}
+	}
+
 }
@@ -8,20 +8,13 @@
  *******************************************************************************/
 package org.eclipse.lsp4xml.extensions.maven.searcher;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.IOException;
-
-import org.apache.maven.model.Model;
-import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
-import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+import org.apache.maven.model.Parent;
+import org.eclipse.lsp4xml.dom.DOMDocument;
+import org.eclipse.lsp4xml.extensions.maven.DOMModelReader;
 
 public class ParentSearcher {
 
 	//TODO: Maybe this class shouldn't be a singleton, but instead a field instance in ArtifactSearcherManager?
-		Model model;
-		MavenXpp3Reader mavenreader = new MavenXpp3Reader();
 		private static final ParentSearcher INSTANCE = new ParentSearcher();
 
 		private ParentSearcher() {
@@ -32,20 +25,23 @@ public class ParentSearcher {
 			return INSTANCE;
 		}
 
-		public void setPomFile(File pomFile) throws FileNotFoundException, IOException, XmlPullParserException {
-			model = mavenreader.read(new FileReader(pomFile));
+		public String getParentVersion(DOMDocument document) {
+			Parent parent = getParent(document);
+			return parent != null ? parent.getVersion() : null;
 		}
 
-		public String getParentVersion() {
-			return model.getParent().getVersion();
+		public String getParentGroupId(DOMDocument document) {
+			Parent parent = getParent(document);
+			return parent != null ? parent.getGroupId() : null;
 		}
 
-		public String getParentGroupId() {
-			return model.getParent().getGroupId();
+		public String getParentArtifactId(DOMDocument document) {
+			Parent parent = getParent(document);
+			return parent != null ? parent.getArtifactId() : null;
 		}
 
-		public String getParentArtifactId() {
-			return model.getParent().getArtifactId();
+		private Parent getParent(DOMDocument document) {
+			return DOMModelReader.getModel(document).getParent();
 		}
 
 }
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import org.apache.maven.model.building.ModelBuildingRequest;
+import org.apache.maven.project.ProjectBuildingRequest;
+import org.eclipse.lsp4xml.extensions.maven.BuildConfiguration;
+import org.eclipse.lsp4xml.extensions.maven.MavenPlugin;
+import org.junit.Test;
+
+public class BuildConfigurationTest {
+
+	@Test
+	public void testMavenConfigIsHonoured() throws Exception {
+		Path root = Files.createTempDirectory("workspace");
+		Files.createDirectories(root.resolve("module"));
+		Files.createDirectories(root.resolve(".mvn"));
+		Files.write(root.resolve(".mvn/settings.xml"),
+				"<settings><profiles><profile><id>mirror</id></profile></profiles></settings>"
+						.getBytes(StandardCharsets.UTF_8));
+		Files.write(root.resolve(BuildConfiguration.MAVEN_CONFIG),
+				"-Pdev,!slow -Drevision=1.2 -o -Dmaven.repo.local=repository -s .mvn/settings.xml"
+						.getBytes(StandardCharsets.UTF_8));
+		assertEquals(root, BuildConfiguration.findRoot(root.resolve("module/pom.xml").toFile()));
+
+		BuildConfiguration configuration = BuildConfiguration.load(MavenPlugin.newPlexusContainer(), root);
+		ProjectBuildingRequest request = configuration.newProjectBuildingRequest();
+		assertNotSame(request, configuration.newProjectBuildingRequest());
+		assertEquals("1.2", request.getUserProperties().getProperty("revision"));
+		assertEquals(Collections.singletonList("dev"), request.getActiveProfileIds());
+		assertEquals(Collections.singletonList("slow"), request.getInactiveProfileIds());
+		// the profiles of settings.xml
+		assertEquals(1, request.getProfiles().size());
+		assertEquals("mirror", request.getProfiles().get(0).getId());
+		assertTrue(request.isProcessPlugins());
+		ModelBuildingRequest modelRequest = configuration.newModelBuildingRequest(root.resolve("module/pom.xml").toFile());
+		assertFalse(modelRequest.isProcessPlugins());
+		assertEquals("1.2", modelRequest.getUserProperties().getProperty("revision"));
+		assertEquals(Collections.singletonList("dev"), modelRequest.getActiveProfileIds());
+		assertTrue(configuration.getRepositorySystemSession().isOffline());
+		assertEquals(root.resolve("repository").toString(), configuration.getLocalRepository().getBasedir());
+		assertTrue(configuration.isUpToDate());
+
+		Files.write(root.resolve(BuildConfiguration.MAVEN_CONFIG), "-o".getBytes(StandardCharsets.UTF_8));
+		assertFalse(configuration.isUpToDate());
+	}
+}
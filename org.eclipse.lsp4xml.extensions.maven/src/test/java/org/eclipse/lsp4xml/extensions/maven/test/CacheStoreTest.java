@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.lsp4xml.commons.TextDocument;
+import org.eclipse.lsp4xml.dom.DOMDocument;
+import org.eclipse.lsp4xml.extensions.maven.CacheStore;
+import org.eclipse.lsp4xml.extensions.maven.MavenPlugin;
+import org.eclipse.lsp4xml.extensions.maven.MavenProjectCache;
+import org.eclipse.lsp4xml.extensions.maven.metrics.MavenMetrics;
+import org.junit.Test;
+
+public class CacheStoreTest {
+
+	@Test
+	public void testRestoredBuildIsUsedUntilThePomChanges() throws Exception {
+		Path dir = Files.createTempDirectory("test");
+		File pom = dir.resolve("pom.xml").toFile();
+		FileUtils.copyURLToFile(getClass().getResource("/pom-with-properties.xml"), pom);
+		String content = FileUtils.readFileToString(pom, "UTF-8");
+		CacheStore store = new CacheStore(dir.resolve("caches.json.gz"));
+
+		MavenProjectCache cache = new MavenProjectCache(MavenPlugin.newPlexusContainer());
+		cache.getLastSuccessfulSnapshot(new DOMDocument(new TextDocument(content, pom.toURI().toString()), null));
+		store.save(cache, null);
+
+		MavenMetrics metrics = new MavenMetrics(true);
+		MavenProjectCache restored = new MavenProjectCache(MavenPlugin.newPlexusContainer(), metrics);
+		store.restore(restored, null).join();
+		assertEquals("$", restored
+				.getLastSuccessfulSnapshot(new DOMDocument(new TextDocument(content, pom.toURI().toString()), null))
+				.getProperties().get("myProperty"));
+		assertEquals(Long.valueOf(1), metrics.snapshot().getCounters().get("projectCache.restored"));
+
+		String changed = content.replace("<myProperty>$</myProperty>", "<myProperty>changed</myProperty>");
+		FileUtils.write(pom, changed, "UTF-8");
+		pom.setLastModified(pom.lastModified() + 2000);
+		MavenProjectCache stale = new MavenProjectCache(MavenPlugin.newPlexusContainer(), metrics);
+		store.restore(stale, null).join();
+		assertEquals("changed", stale
+				.getLastSuccessfulSnapshot(new DOMDocument(new TextDocument(changed, pom.toURI().toString()), null))
+				.getProperties().get("myProperty"));
+		// the changed pom was built again
+		assertEquals(Long.valueOf(1), metrics.snapshot().getCounters().get("projectCache.restored"));
+	}
+
+	@Test
+	public void testRestoredBuildIsNotUsedForUnsavedChanges() throws Exception {
+		Path dir = Files.createTempDirectory("test");
+		File pom = dir.resolve("pom.xml").toFile();
+		FileUtils.copyURLToFile(getClass().getResource("/pom-with-properties.xml"), pom);
+		String content = FileUtils.readFileToString(pom, "UTF-8");
+		CacheStore store = new CacheStore(dir.resolve("caches.json.gz"));
+
+		MavenProjectCache cache = new MavenProjectCache(MavenPlugin.newPlexusContainer());
+		cache.getLastSuccessfulSnapshot(new DOMDocument(new TextDocument(content, pom.toURI().toString()), null));
+		store.save(cache, null);
+
+		MavenMetrics metrics = new MavenMetrics(true);
+		MavenProjectCache restored = new MavenProjectCache(MavenPlugin.newPlexusContainer(), metrics);
+		store.restore(restored, null).join();
+		String edited = content.replace("<myProperty>$</myProperty>", "<myProperty>edited</myProperty>");
+		assertEquals("edited", restored
+				.getLastSuccessfulSnapshot(new DOMDocument(new TextDocument(edited, pom.toURI().toString()), null))
+				.getProperties().get("myProperty"));
+		assertNull(metrics.snapshot().getCounters().get("projectCache.restored"));
+	}
+}
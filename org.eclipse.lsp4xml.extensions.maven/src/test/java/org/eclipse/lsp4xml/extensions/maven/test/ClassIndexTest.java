@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.lsp4xml.extensions.maven.index.ClassIndex;
+import org.junit.Test;
+
+public class ClassIndexTest {
+
+	@Test
+	public void testClassesAreMappedToArtifacts() throws Exception {
+		Path repository = Files.createTempDirectory("repository");
+		createJar(repository.resolve("org/example/lib/1.0/lib-1.0.jar"), "org/example/Foo.class",
+				"org/example/Foo$Inner.class", "org/example/package-info.class");
+		createJar(repository.resolve("org/example/lib/1.0/lib-1.0-sources.jar"), "org/example/Foo.class");
+		createJar(repository.resolve("com/other/tools/2.1/tools-2.1.jar"), "com/other/Foo.class");
+		Path file = Files.createTempDirectory("index").resolve("classes.idx.gz");
+
+		ClassIndex index = new ClassIndex(repository, file);
+		index.refresh().join();
+		assertEquals(2, index.size());
+		assertEquals(2, index.find("Foo").size());
+		List<ClassIndex.Match> matches = index.find("org.example.Foo");
+		assertEquals(1, matches.size());
+		assertEquals("org.example:lib:1.0", matches.get(0).getCoordinates().toString());
+		assertTrue(index.find("Inner").isEmpty());
+		index.dispose();
+
+		// restored from the stored index
+		ClassIndex restored = new ClassIndex(repository, file);
+		restored.refresh().join();
+		assertEquals("com.other:tools:2.1", restored.find("com.other.Foo").get(0).getCoordinates().toString());
+		restored.dispose();
+	}
+
+	private static void createJar(Path jar, String... entries) throws Exception {
+		Files.createDirectories(jar.getParent());
+		try (OutputStream out = Files.newOutputStream(jar); ZipOutputStream zip = new ZipOutputStream(out)) {
+			for (String entry : entries) {
+				zip.putNextEntry(new ZipEntry(entry));
+				zip.closeEntry();
+			}
+		}
+	}
+}
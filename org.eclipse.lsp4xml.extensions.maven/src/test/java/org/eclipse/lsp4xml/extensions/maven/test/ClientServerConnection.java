@@ -15,6 +15,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 import org.eclipse.lsp4j.ClientCapabilities;
@@ -38,8 +39,13 @@ public class ClientServerConnection {
 	private final Future<Void> clientFuture;
 	public final LanguageServer languageServer;
 	protected List<Diagnostic> diagnostics;
+	private volatile Consumer<PublishDiagnosticsParams> diagnosticsListener;
 
 	public ClientServerConnection() throws IOException {
+		this(new InitializeParams());
+	}
+
+	public ClientServerConnection(InitializeParams initParams) throws IOException {
 		PipedInputStream serverInputStream = new PipedInputStream();
 		PipedOutputStream clientOutputStream = new PipedOutputStream(serverInputStream);
 		PipedOutputStream serverOutputStream = new PipedOutputStream();
@@ -59,6 +65,10 @@ public class ClientServerConnection {
 
 			@Override public void publishDiagnostics(PublishDiagnosticsParams diagnostics) {
 				ClientServerConnection.this.diagnostics = diagnostics.getDiagnostics();
+				Consumer<PublishDiagnosticsParams> listener = diagnosticsListener;
+				if (listener != null) {
+					listener.accept(diagnostics);
+				}
 			}
 
 			@Override public void logMessage(MessageParams message) {
@@ -66,11 +76,18 @@ public class ClientServerConnection {
 		}, clientInputStream, clientOutputStream);
 		clientFuture = clientLauncher.startListening();
 		languageServer = clientLauncher.getRemoteProxy();
-		InitializeParams initParams = new InitializeParams();
 		initParams.setCapabilities(new ClientCapabilities(new WorkspaceClientCapabilities(), new TextDocumentClientCapabilities(), false));
 		languageServer.initialize(initParams);
 	}
 
+	/**
+	 * @param listener notified of every publishDiagnostics, whatever the
+	 *                 document.
+	 */
+	public void setDiagnosticsListener(Consumer<PublishDiagnosticsParams> listener) {
+		this.diagnosticsListener = listener;
+	}
+
 	public void stop() {
 		languageServer.shutdown();
 		server.cancel(true);
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.eclipse.lsp4j.CompletionItem;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.TextEdit;
+import org.eclipse.lsp4xml.dom.DOMDocument;
+import org.eclipse.lsp4xml.dom.DOMElement;
+import org.eclipse.lsp4xml.dom.DOMParser;
+import org.eclipse.lsp4xml.extensions.maven.CompletionCache;
+import org.eclipse.lsp4xml.extensions.maven.CoordinatePool;
+import org.eclipse.lsp4xml.extensions.maven.DOMUtils;
+import org.eclipse.lsp4xml.extensions.maven.ProjectSnapshot;
+import org.eclipse.lsp4xml.extensions.maven.metrics.MavenMetrics;
+import org.junit.Test;
+
+public class CompletionCacheTest {
+
+	@Test
+	public void testItemsAreReusedUntilTheSnapshotChanges() {
+		DOMElement scope = scope();
+		AtomicInteger computations = new AtomicInteger();
+		Consumer<List<CompletionItem>> collect = collector(computations);
+		CompletionCache cache = new CompletionCache(new MavenMetrics(false));
+
+		cache.get(scope, "scope", snapshot("4.12").getFingerprint(), range(44), collect);
+		// another build with the same content
+		List<CompletionItem> items = cache.get(scope, "scope", snapshot("4.12").getFingerprint(), range(45),
+				collect);
+		assertEquals(1, computations.get());
+		// moved to the range of the request
+		assertEquals(range(45), items.get(0).getTextEdit().getRange());
+
+		cache.get(scope, "scope", snapshot("4.13").getFingerprint(), range(45), collect);
+		assertEquals(2, computations.get());
+		cache.get(scope, "scope", null, range(45), collect);
+		assertEquals(3, computations.get());
+	}
+
+	@Test
+	public void testFingerprintIgnoresPositions() {
+		// a line added above the dependency
+		assertEquals(snapshot("4.12", 10).getFingerprint(), snapshot("4.12", 11).getFingerprint());
+	}
+
+	@Test
+	public void testStatelessItemsAreReused() {
+		DOMElement scope = scope();
+		AtomicInteger computations = new AtomicInteger();
+		CompletionCache cache = new CompletionCache(new MavenMetrics(false));
+		cache.get(scope, "scope", null, range(44), collector(computations));
+		cache.get(scope, "scope", null, range(45), collector(computations));
+		assertEquals(1, computations.get());
+	}
+
+	private static DOMElement scope() {
+		DOMDocument document = DOMParser.getInstance().parse(
+				"<project><dependencies><dependency><scope>co</scope></dependency></dependencies></project>",
+				"file:///test/pom.xml", null);
+		return DOMUtils.findChildElement(DOMUtils.findChildElement(
+				DOMUtils.findChildElement(document.getDocumentElement(), "dependencies"), "dependency"), "scope");
+	}
+
+	private static Consumer<List<CompletionItem>> collector(AtomicInteger computations) {
+		return items -> {
+			computations.incrementAndGet();
+			CompletionItem item = new CompletionItem("compile");
+			item.setTextEdit(new TextEdit(range(43), "compile"));
+			items.add(item);
+		};
+	}
+
+	private static ProjectSnapshot snapshot(String junitVersion, int dependencyLine) {
+		return new ProjectSnapshot(CoordinatePool.getInstance().get("org.test", "test", "1"), "jar", null,
+				Collections.singletonMap("junit.version", junitVersion), Collections.emptyList(),
+				Collections.singletonList(new ProjectSnapshot.Coordinates("junit", "junit", junitVersion, "test",
+						"org.test:test:1", dependencyLine, 5)),
+				Collections.emptyList(), Collections.emptyList());
+	}
+
+	private static ProjectSnapshot snapshot(String junitVersion) {
+		return new ProjectSnapshot(CoordinatePool.getInstance().get("org.test", "test", "1"), "jar", null,
+				Collections.singletonMap("junit.version", junitVersion), Collections.emptyList(),
+				Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+	}
+
+	private static Range range(int end) {
+		return new Range(new Position(0, 43), new Position(0, end));
+	}
+}
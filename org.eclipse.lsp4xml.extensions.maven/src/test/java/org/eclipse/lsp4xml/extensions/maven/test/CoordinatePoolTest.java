@@ -0,0 +1,32 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.test;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.eclipse.lsp4xml.extensions.maven.ArtifactCoordinates;
+import org.eclipse.lsp4xml.extensions.maven.CoordinatePool;
+import org.junit.Test;
+
+public class CoordinatePoolTest {
+
+	@Test
+	public void testCanonicalInstances() {
+		CoordinatePool pool = CoordinatePool.getInstance();
+		String groupId = new String("org.apache.maven.plugins");
+		assertSame(pool.intern(groupId), pool.intern(new String("org.apache.maven.plugins")));
+		ArtifactCoordinates coordinates = pool.get(groupId, "maven-compiler-plugin", "3.8.1");
+		assertSame(coordinates, pool.get(new String(groupId), "maven-compiler-plugin", "3.8.1"));
+		assertSame(pool.intern(groupId), coordinates.getGroupId());
+		assertNotSame(coordinates, pool.get(groupId, "maven-compiler-plugin", null));
+		assertNull(pool.get(groupId, "maven-compiler-plugin", null).getVersion());
+	}
+}
@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Plugin;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.eclipse.lsp4xml.dom.DOMDocument;
+import org.eclipse.lsp4xml.dom.DOMParser;
+import org.eclipse.lsp4xml.extensions.maven.DOMModelReader;
+import org.junit.Test;
+
+public class DOMModelReaderTest {
+
+	@Test
+	public void testModelIsReadFromTheDOM() {
+		DOMDocument document = DOMParser.getInstance().parse(String.join("\n", //
+				"<project>", //
+				"  <parent><groupId>org.example</groupId><artifactId>parent</artifactId><version>1.0</version></parent>", //
+				"  <artifactId>child</artifactId>", //
+				"  <modules><module>a</module><module> b </module></modules>", //
+				"  <properties><junit.version>4.12</junit.version></properties>", //
+				"  <dependencies>", //
+				"    <dependency>", //
+				"      <groupId>junit</groupId><artifactId>junit</artifactId><version>${junit.version}</version>", //
+				"      <scope>test</scope>", //
+				"    </dependency>", //
+				"  </dependencies>", //
+				"  <build><plugins><plugin>", //
+				"    <artifactId>maven-compiler-plugin</artifactId>", //
+				"    <configuration><source>1.8</source></configuration>", //
+				"  </plugin></plugins></build>", //
+				"</project>"), "file:///test/pom.xml", null);
+
+		Model model = DOMModelReader.getModel(document);
+		assertSame(model, DOMModelReader.getModel(document));
+		assertEquals("org.example", model.getParent().getGroupId());
+		assertEquals("child", model.getArtifactId());
+		assertEquals(Arrays.asList("a", "b"), model.getModules());
+		assertEquals("4.12", model.getProperties().getProperty("junit.version"));
+
+		Dependency dependency = model.getDependencies().get(0);
+		assertEquals("junit:junit:jar", dependency.getManagementKey());
+		assertEquals("test", dependency.getScope());
+		assertEquals(7, dependency.getLocation("").getLineNumber());
+		assertEquals(8, dependency.getLocation("version").getLineNumber());
+
+		Plugin plugin = model.getBuild().getPlugins().get(0);
+		assertEquals("org.apache.maven.plugins:maven-compiler-plugin", plugin.getKey());
+		assertEquals("1.8", ((Xpp3Dom) plugin.getConfiguration()).getChild("source").getValue());
+	}
+}
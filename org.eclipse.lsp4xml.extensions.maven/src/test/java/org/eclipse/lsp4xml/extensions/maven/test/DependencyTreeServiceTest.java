@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.PlexusContainer;
+import org.eclipse.aether.graph.DependencyNode;
+import org.eclipse.aether.util.graph.transformer.ConflictResolver;
+import org.eclipse.lsp4xml.commons.TextDocument;
+import org.eclipse.lsp4xml.dom.DOMDocument;
+import org.eclipse.lsp4xml.extensions.maven.BuildMode;
+import org.eclipse.lsp4xml.extensions.maven.DependencyTreeService;
+import org.eclipse.lsp4xml.extensions.maven.MavenPlugin;
+import org.eclipse.lsp4xml.extensions.maven.MavenProjectCache;
+import org.junit.Test;
+
+public class DependencyTreeServiceTest {
+
+	@Test
+	public void testNearestWinsAcrossDirectDependencies() throws Exception {
+		Path workspace = Files.createTempDirectory("workspace");
+		// a -> c:1, b -> d -> c:2
+		Path repository = workspace.resolve("repository");
+		deploy(repository, "a", "1", "c", "1");
+		deploy(repository, "b", "1", "d", "1");
+		deploy(repository, "d", "1", "c", "2");
+		deploy(repository, "c", "1", null, null);
+		deploy(repository, "c", "2", null, null);
+		FileUtils.write(workspace.resolve(".mvn/maven.config").toFile(),
+				"-o -Dmaven.repo.local=" + repository.toAbsolutePath(), "UTF-8");
+
+		PlexusContainer container = MavenPlugin.newPlexusContainer();
+		MavenProjectCache cache = new MavenProjectCache(container);
+		cache.setBuildMode(BuildMode.FULL);
+		DependencyTreeService service = new DependencyTreeService(container, cache);
+		try {
+			URI uri = writeProject(workspace, "a", "b");
+			MavenProject project = build(cache, uri);
+			DependencyNode tree = service.getDependencyTree(uri, project).get(30, TimeUnit.SECONDS);
+			assertEquals(2, tree.getChildren().size());
+			DependencyNode nearest = tree.getChildren().get(0).getChildren().get(0);
+			assertEquals("1", nearest.getArtifact().getVersion());
+			assertNull(nearest.getData().get(ConflictResolver.NODE_DATA_WINNER));
+			DependencyNode farthest = tree.getChildren().get(1).getChildren().get(0).getChildren().get(0);
+			assertEquals("2", farthest.getArtifact().getVersion());
+			DependencyNode winner = (DependencyNode) farthest.getData().get(ConflictResolver.NODE_DATA_WINNER);
+			assertNotNull(winner);
+			assertEquals("1", winner.getArtifact().getVersion());
+
+			// the shared subtree of b isn't changed by the resolution of a's tree
+			URI other = writeProject(workspace.resolve("other"), "b");
+			DependencyNode otherTree = service.getDependencyTree(other, build(cache, other)).get(30,
+					TimeUnit.SECONDS);
+			DependencyNode alone = otherTree.getChildren().get(0).getChildren().get(0).getChildren().get(0);
+			assertEquals("2", alone.getArtifact().getVersion());
+			assertNull(alone.getData().get(ConflictResolver.NODE_DATA_WINNER));
+			assertEquals(2, service.getSubtreeCount());
+
+			// a new build replaces the subtrees only its previous one used
+			writeProject(workspace, "b");
+			service.getDependencyTree(uri, build(cache, uri)).get(30, TimeUnit.SECONDS);
+			assertEquals(1, service.getSubtreeCount());
+		} finally {
+			service.dispose();
+		}
+	}
+
+	private static MavenProject build(MavenProjectCache cache, URI uri) throws Exception {
+		String content = FileUtils.readFileToString(new File(uri), "UTF-8");
+		cache.invalidate(uri);
+		return cache.getLastSuccessfulMavenProject(new DOMDocument(new TextDocument(content, uri.toString()), null));
+	}
+
+	private static URI writeProject(Path directory, String... dependencies) throws Exception {
+		StringBuilder pom = new StringBuilder("<project><modelVersion>4.0.0</modelVersion>"
+				+ "<groupId>org.test</groupId><artifactId>" + directory.getFileName() + "</artifactId>"
+				+ "<version>1</version><packaging>pom</packaging><dependencies>");
+		for (String dependency : dependencies) {
+			pom.append("<dependency><groupId>org.test</groupId><artifactId>").append(dependency)
+					.append("</artifactId><version>1</version></dependency>");
+		}
+		pom.append("</dependencies></project>");
+		File file = directory.resolve("pom.xml").toFile();
+		FileUtils.write(file, pom, "UTF-8");
+		return file.toURI();
+	}
+
+	private static void deploy(Path repository, String artifactId, String version, String dependencyArtifactId,
+			String dependencyVersion) throws Exception {
+		String pom = "<project><modelVersion>4.0.0</modelVersion><groupId>org.test</groupId><artifactId>"
+				+ artifactId + "</artifactId><version>" + version + "</version><packaging>pom</packaging>";
+		if (dependencyArtifactId != null) {
+			pom += "<dependencies><dependency><groupId>org.test</groupId><artifactId>" + dependencyArtifactId
+					+ "</artifactId><version>" + dependencyVersion + "</version></dependency></dependencies>";
+		}
+		pom += "</project>";
+		FileUtils.write(repository.resolve("org/test/" + artifactId + '/' + version + '/' + artifactId + '-'
+				+ version + ".pom").toFile(), pom, "UTF-8");
+	}
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.graph.DefaultDependencyNode;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.graph.DependencyNode;
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.DiagnosticSeverity;
+import org.eclipse.lsp4xml.dom.DOMDocument;
+import org.eclipse.lsp4xml.dom.DOMElement;
+import org.eclipse.lsp4xml.dom.DOMNode;
+import org.eclipse.lsp4xml.dom.DOMParser;
+import org.eclipse.lsp4xml.extensions.maven.DOMUtils;
+import org.eclipse.lsp4xml.extensions.maven.DependencyValidator;
+import org.eclipse.lsp4xml.extensions.maven.DiagnosticRequest;
+import org.junit.Test;
+
+public class DependencyValidatorTest {
+
+	private static final String POM = String.join("\n", //
+			"<project>", //
+			"  <dependencies>", //
+			"    <dependency><groupId>org.test</groupId><artifactId>a</artifactId><version>1</version></dependency>", //
+			"    <dependency><groupId>org.test</groupId><artifactId>b</artifactId><version>1</version></dependency>", //
+			"    <dependency><groupId>org.test</groupId><artifactId>c</artifactId><version>1</version></dependency>", //
+			"  </dependencies>", //
+			"</project>");
+
+	// a -> c:1, b -> d -> c:2, c:1
+	private static DependencyNode tree() {
+		DependencyNode a = node("a", "1", node("c", "1"));
+		DependencyNode b = node("b", "1", node("d", "1", node("c", "2")));
+		return node("project", "1", a, b, node("c", "1"));
+	}
+
+	@Test
+	public void testConflictsAreReportedOnTheDependencyBringingThem() {
+		DOMDocument document = DOMParser.getInstance().parse(POM, "file:///test/pom.xml", null);
+		DependencyValidator validator = new DependencyValidator(tree());
+
+		assertNull(validate(validator, document, "a"));
+		Diagnostic conflict = validate(validator, document, "b");
+		assertNotNull(conflict);
+		assertEquals(DiagnosticSeverity.Warning, conflict.getSeverity());
+		assertTrue(conflict.getMessage(), conflict.getMessage().contains("org.test:c:2 is overridden by 1"));
+		assertEquals(3, conflict.getRange().getStart().getLine());
+
+		Diagnostic duplicate = validate(validator, document, "c");
+		assertNotNull(duplicate);
+		assertEquals(DiagnosticSeverity.Information, duplicate.getSeverity());
+		assertTrue(duplicate.getMessage(), duplicate.getMessage().contains("org.test:a"));
+	}
+
+	@Test
+	public void testUnclosedStartTag() {
+		String edited = POM.replace("<dependency><groupId>org.test</groupId><artifactId>b</artifactId>",
+				"<dependency <groupId>org.test</groupId><artifactId>b</artifactId>");
+		DOMDocument document = DOMParser.getInstance().parse(edited, "file:///test/pom.xml", null);
+		DOMElement dependency = find(document, "b");
+		assertNotNull(dependency);
+		assertNull(dependency.getStartTagCloseOffset());
+
+		Diagnostic conflict = validate(new DependencyValidator(tree()), document, "b");
+		assertNotNull(conflict);
+		assertEquals(3, conflict.getRange().getStart().getLine());
+	}
+
+	private static Diagnostic validate(DependencyValidator validator, DOMDocument document, String artifactId) {
+		return validator.validateDependency(
+				new DiagnosticRequest(find(document, artifactId), document, new ArrayList<>()));
+	}
+
+	private static DOMElement find(DOMDocument document, String artifactId) {
+		for (DOMNode dependencies : document.getDocumentElement().getChildren()) {
+			for (DOMNode dependency : dependencies.getChildren()) {
+				if (dependency.isElement() && artifactId.equals(DOMUtils.getChildText(dependency, "artifactId"))) {
+					return (DOMElement) dependency;
+				}
+			}
+		}
+		return null;
+	}
+
+	private static DependencyNode node(String artifactId, String version, DependencyNode... children) {
+		DefaultDependencyNode node = new DefaultDependencyNode(
+				new Dependency(new DefaultArtifact("org.test", artifactId, "jar", version), "compile"));
+		node.setChildren(new ArrayList<>(Arrays.asList(children)));
+		return node;
+	}
+}
@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URI;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.lsp4xml.commons.TextDocument;
+import org.eclipse.lsp4xml.dom.DOMDocument;
+import org.eclipse.lsp4xml.extensions.maven.BuildMode;
+import org.eclipse.lsp4xml.extensions.maven.EffectivePomService;
+import org.eclipse.lsp4xml.extensions.maven.MavenPlugin;
+import org.eclipse.lsp4xml.extensions.maven.MavenProjectCache;
+import org.eclipse.lsp4xml.extensions.maven.protocol.EffectivePomChunk;
+import org.eclipse.lsp4xml.extensions.maven.protocol.EffectivePomParams;
+import org.junit.Test;
+
+public class EffectivePomServiceTest {
+
+	@Test
+	public void testOwnElementsAreReportedAgainstThePom() throws Exception {
+		URI uri = getClass().getResource("/pom-with-properties.xml").toURI();
+		String content = FileUtils.readFileToString(new File(uri), "UTF-8");
+		DOMDocument doc = new DOMDocument(new TextDocument(content, uri.toString()), null);
+		MavenProjectCache cache = new MavenProjectCache(MavenPlugin.newPlexusContainer());
+		assertNotNull(cache.getLastSuccessfulMavenProject(doc));
+
+		EffectivePomChunk chunk = new EffectivePomService(cache)
+				.getEffectivePom(new EffectivePomParams(uri.toString(), 0));
+		String pom = chunk.getContent();
+		String file = new File(uri).getPath();
+		assertTrue(pom, pom.contains("<artifactId>test</artifactId><!-- " + file + ", line 7 -->"));
+		assertTrue(pom, pom.contains("<myProperty>$</myProperty><!-- " + file + ", line 11 -->"));
+		assertFalse(pom, pom.contains("workingCopy"));
+	}
+
+	@Test
+	public void testCachedFastBuildIsReused() throws Exception {
+		URI uri = getClass().getResource("/pom-with-properties.xml").toURI();
+		String content = FileUtils.readFileToString(new File(uri), "UTF-8");
+		DOMDocument doc = new DOMDocument(new TextDocument(content, uri.toString()), null);
+		MavenProjectCache cache = new MavenProjectCache(MavenPlugin.newPlexusContainer());
+		cache.setBuildMode(BuildMode.FAST);
+		assertNotNull(cache.getLastSuccessfulMavenProject(doc));
+
+		new EffectivePomService(cache).getEffectivePom(new EffectivePomParams(uri.toString(), 0));
+		assertNull(cache.getCachedFullMavenProject(uri));
+	}
+}
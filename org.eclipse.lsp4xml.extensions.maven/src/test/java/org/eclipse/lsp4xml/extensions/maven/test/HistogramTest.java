@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.lsp4xml.extensions.maven.metrics.Histogram;
+import org.eclipse.lsp4xml.extensions.maven.protocol.HistogramSnapshot;
+import org.junit.Test;
+
+public class HistogramTest {
+
+	@Test
+	public void testEmpty() {
+		HistogramSnapshot snapshot = new Histogram().snapshot();
+		assertEquals(0, snapshot.getCount());
+		assertEquals(0, snapshot.getP99Ms(), 0);
+		assertEquals(0, snapshot.getMaxMs(), 0);
+	}
+
+	@Test
+	public void testBucketsAreWithinAQuarter() {
+		// around every power of two, where the buckets change; above 10ms, so that
+		// the rounding of the snapshot to 10us doesn't matter
+		for (int exponent = 14; exponent < 40; exponent++) {
+			long power = 1L << exponent;
+			for (long micros : new long[] { power - 1, power, power + 1, power + power / 4 - 1, power + power / 4,
+					power + power / 2 + 1 }) {
+				Histogram histogram = new Histogram();
+				histogram.record(micros);
+				double upperBound = histogram.snapshot().getP50Ms() * 1000;
+				assertTrue(micros + " -> " + upperBound, upperBound >= micros - 5);
+				assertTrue(micros + " -> " + upperBound, upperBound < micros * 1.25 + 5);
+			}
+		}
+	}
+
+	@Test
+	public void testSmallAndHugeDurations() {
+		Histogram histogram = new Histogram();
+		histogram.record(-1);
+		histogram.record(0);
+		histogram.record(3);
+		histogram.record(Long.MAX_VALUE);
+		HistogramSnapshot snapshot = histogram.snapshot();
+		assertEquals(4, snapshot.getCount());
+		assertEquals(0, snapshot.getP50Ms(), 0);
+		// the last bucket is open ended
+		assertTrue(snapshot.getP99Ms() > 1e9);
+		assertEquals(Long.MAX_VALUE / 1000.0, snapshot.getMaxMs(), 1e12);
+	}
+
+	@Test
+	public void testPercentiles() {
+		Histogram histogram = new Histogram();
+		// 1ms to 100ms
+		for (int i = 1; i <= 100; i++) {
+			histogram.record(i * 1000);
+		}
+		HistogramSnapshot snapshot = histogram.snapshot();
+		assertEquals(100, snapshot.getCount());
+		assertEquals(50.5, snapshot.getMeanMs(), 0.01);
+		assertEquals(100, snapshot.getMaxMs(), 0);
+		assertBetween(50, snapshot.getP50Ms(), 50 * 1.25);
+		assertBetween(90, snapshot.getP90Ms(), 90 * 1.25);
+		assertBetween(99, snapshot.getP99Ms(), 99 * 1.25);
+	}
+
+	@Test
+	public void testConcurrentRecords() throws Exception {
+		Histogram histogram = new Histogram();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int thread = 0; thread < 4; thread++) {
+				futures.add(executor.submit(() -> {
+					for (int i = 1; i <= 10000; i++) {
+						histogram.record(i);
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		HistogramSnapshot snapshot = histogram.snapshot();
+		assertEquals(40000, snapshot.getCount());
+		assertEquals(10, snapshot.getMaxMs(), 0);
+		assertEquals(5, snapshot.getMeanMs(), 0.01);
+	}
+
+	private static void assertBetween(double min, double actual, double max) {
+		assertTrue(actual + " < " + min, actual >= min);
+		assertTrue(actual + " > " + max, actual <= max);
+	}
+}
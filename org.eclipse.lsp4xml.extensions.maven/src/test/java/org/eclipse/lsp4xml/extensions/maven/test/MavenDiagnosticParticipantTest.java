@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.plexus.PlexusContainer;
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4xml.commons.TextDocument;
+import org.eclipse.lsp4xml.dom.DOMDocument;
+import org.eclipse.lsp4xml.dom.DOMParser;
+import org.eclipse.lsp4xml.extensions.maven.BuildMode;
+import org.eclipse.lsp4xml.extensions.maven.DependencyTreeService;
+import org.eclipse.lsp4xml.extensions.maven.MavenDiagnosticParticipant;
+import org.eclipse.lsp4xml.extensions.maven.MavenExecutor;
+import org.eclipse.lsp4xml.extensions.maven.MavenPlugin;
+import org.eclipse.lsp4xml.extensions.maven.MavenProjectCache;
+import org.eclipse.lsp4xml.extensions.maven.index.PluginDescriptorIndex;
+import org.eclipse.lsp4xml.extensions.maven.index.WorkspaceIndex;
+import org.eclipse.lsp4xml.extensions.maven.metrics.MavenMetrics;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MavenDiagnosticParticipantTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private MavenExecutor executor;
+	private DependencyTreeService dependencyTreeService;
+
+	@After
+	public void tearDown() {
+		if (executor != null) {
+			executor.dispose();
+		}
+		if (dependencyTreeService != null) {
+			dependencyTreeService.dispose();
+		}
+	}
+
+	@Test
+	public void testModelProblemsAreDeferred() throws Exception {
+		MavenMetrics metrics = new MavenMetrics(false);
+		PlexusContainer container = MavenPlugin.newPlexusContainer();
+		MavenProjectCache cache = new MavenProjectCache(container, metrics);
+		cache.setBuildMode(BuildMode.FAST);
+		dependencyTreeService = new DependencyTreeService(container, cache);
+		MavenDiagnosticParticipant participant = new MavenDiagnosticParticipant(cache, new WorkspaceIndex(),
+				dependencyTreeService, new PluginDescriptorIndex(folder.newFolder("repository").toPath()), metrics);
+		executor = new MavenExecutor(metrics);
+		BlockingQueue<DOMDocument> built = new LinkedBlockingQueue<>();
+		participant.setModelBuildExecutor(executor, built::add);
+
+		Path pom = folder.getRoot().toPath().resolve("pom.xml");
+		String text = String.join("\n", //
+				"<project>", //
+				"  <modelVersion>4.0.0</modelVersion>", //
+				"  <groupId>org.example</groupId>", //
+				"  <artifactId>aggregator</artifactId>", //
+				"  <version>1.0</version>", //
+				"  <packaging>pom</packaging>", //
+				"  <modules><module>missing</module></modules>", //
+				"  <dependencies><dependency><groupId>junit</groupId><artifactId>junit</artifactId></dependency></dependencies>", //
+				"</project>");
+		Files.write(pom, text.getBytes(StandardCharsets.UTF_8));
+		URI uri = pom.toUri();
+		DOMDocument document = DOMParser.getInstance().parse(new TextDocument(text, uri.toString()), null);
+
+		// the build waits for the tasks queued before it for the document
+		CountDownLatch release = new CountDownLatch(1);
+		executor.submit(uri, () -> release.await(30, TimeUnit.SECONDS));
+		List<Diagnostic> first = validate(participant, document);
+		assertEquals(first.toString(), 1, first.size());
+		assertTrue(first.get(0).getMessage(), first.get(0).getMessage().contains("missing"));
+		assertNull(built.poll(200, TimeUnit.MILLISECONDS));
+
+		release.countDown();
+		assertSame(document, built.poll(30, TimeUnit.SECONDS));
+		List<Diagnostic> second = validate(participant, document);
+		assertTrue(second.toString(), second.stream()
+				.anyMatch(diagnostic -> diagnostic.getMessage().contains("dependencies.dependency.version")));
+	}
+
+	private static List<Diagnostic> validate(MavenDiagnosticParticipant participant, DOMDocument document) {
+		List<Diagnostic> diagnostics = new ArrayList<>();
+		participant.doDiagnostics(document, diagnostics, () -> {
+		});
+		return diagnostics;
+	}
+}
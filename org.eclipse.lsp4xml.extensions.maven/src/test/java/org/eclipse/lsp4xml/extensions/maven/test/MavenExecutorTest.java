@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.lsp4xml.extensions.maven.MavenExecutor;
+import org.eclipse.lsp4xml.extensions.maven.metrics.MavenMetrics;
+import org.junit.Test;
+
+public class MavenExecutorTest {
+
+	@Test
+	public void testTasksOfADocumentRunInOrder() throws Exception {
+		MavenExecutor executor = new MavenExecutor(new MavenMetrics(false));
+		List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+		List<CompletableFuture<Integer>> tasks = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			int index = i;
+			tasks.add(executor.submit("file:///pom.xml", () -> {
+				Thread.sleep(index % 3);
+				order.add(index);
+				return index;
+			}));
+		}
+		assertEquals(Integer.valueOf(19), tasks.get(19).get(10, TimeUnit.SECONDS));
+		for (int i = 0; i < 20; i++) {
+			assertEquals(Integer.valueOf(i), order.get(i));
+		}
+		executor.dispose();
+	}
+
+	@Test
+	public void testCancellation() throws Exception {
+		MavenExecutor executor = new MavenExecutor(new MavenMetrics(false));
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch interrupted = new CountDownLatch(1);
+		CompletableFuture<Object> running = executor.submit("file:///pom.xml", () -> {
+			started.countDown();
+			try {
+				Thread.sleep(10000);
+			} catch (InterruptedException e) {
+				interrupted.countDown();
+			}
+			return null;
+		});
+		List<String> ran = Collections.synchronizedList(new ArrayList<>());
+		CompletableFuture<Object> queued = executor.submit("file:///pom.xml", () -> ran.add("queued"));
+		CompletableFuture<Object> next = executor.submit("file:///pom.xml", () -> ran.add("next"));
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+
+		assertTrue(queued.cancel(true));
+		assertTrue(running.cancel(true));
+		assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+		next.get(10, TimeUnit.SECONDS);
+		assertEquals(Collections.singletonList("next"), ran);
+		executor.dispose();
+	}
+}
@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.lsp4xml.extensions.maven.metrics.MavenMetrics;
+import org.eclipse.lsp4xml.extensions.maven.protocol.HistogramSnapshot;
+import org.eclipse.lsp4xml.extensions.maven.protocol.MetricsSnapshot;
+import org.junit.Test;
+
+public class MavenMetricsTest {
+
+	@Test
+	public void testDisabled() {
+		MavenMetrics metrics = new MavenMetrics(false);
+		assertEquals(0, metrics.start());
+		metrics.record("build", System.nanoTime());
+		metrics.recordNanos("build", 1_000_000);
+		metrics.increment("builds");
+		MetricsSnapshot snapshot = metrics.snapshot();
+		assertFalse(snapshot.isEnabled());
+		assertTrue(snapshot.getHistograms().isEmpty());
+		assertTrue(snapshot.getCounters().isEmpty());
+	}
+
+	@Test
+	public void testSnapshot() {
+		MavenMetrics metrics = new MavenMetrics(true);
+		metrics.recordNanos("build", 20_000_000);
+		metrics.recordNanos("build", 40_000_000);
+		metrics.record("build", metrics.start());
+		metrics.increment("builds");
+		metrics.increment("builds");
+		AtomicLong size = new AtomicLong(3);
+		metrics.registerGauge("size", size::get);
+
+		MetricsSnapshot snapshot = metrics.snapshot();
+		assertTrue(snapshot.isEnabled());
+		HistogramSnapshot build = snapshot.getHistograms().get("build");
+		assertEquals(3, build.getCount());
+		assertEquals(40, build.getMaxMs(), 0);
+		assertEquals(2L, snapshot.getCounters().get("builds").longValue());
+		assertEquals(3L, snapshot.getGauges().get("size").longValue());
+
+		// snapshots are copies, gauges are evaluated when they are taken
+		metrics.increment("builds");
+		size.set(5);
+		assertEquals(2L, snapshot.getCounters().get("builds").longValue());
+		assertEquals(5L, metrics.snapshot().getGauges().get("size").longValue());
+	}
+
+	@Test
+	public void testReset() {
+		MavenMetrics metrics = new MavenMetrics(true);
+		metrics.recordNanos("build", 1_000_000);
+		metrics.increment("builds");
+		metrics.registerGauge("size", () -> 1);
+		metrics.reset();
+		MetricsSnapshot snapshot = metrics.snapshot();
+		assertTrue(snapshot.getHistograms().isEmpty());
+		assertTrue(snapshot.getCounters().isEmpty());
+		// gauges are registered once, they aren't reset
+		assertEquals(1L, snapshot.getGauges().get("size").longValue());
+	}
+}
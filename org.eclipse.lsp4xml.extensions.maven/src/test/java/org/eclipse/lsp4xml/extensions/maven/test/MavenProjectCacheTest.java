@@ -8,17 +8,33 @@
  *******************************************************************************/
 package org.eclipse.lsp4xml.extensions.maven.test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.maven.project.MavenProject;
 import org.eclipse.lsp4xml.commons.TextDocument;
 import org.eclipse.lsp4xml.dom.DOMDocument;
+import org.eclipse.lsp4xml.dom.DOMParser;
+import org.eclipse.lsp4xml.extensions.maven.BuildMode;
 import org.eclipse.lsp4xml.extensions.maven.MavenPlugin;
 import org.eclipse.lsp4xml.extensions.maven.MavenProjectCache;
+import org.eclipse.lsp4xml.extensions.maven.ProjectSnapshot;
+import org.eclipse.lsp4xml.extensions.maven.metrics.MavenMetrics;
 import org.junit.Test;
 
 public class MavenProjectCacheTest {
@@ -32,4 +48,166 @@ public class MavenProjectCacheTest {
 		MavenProject project = cache.getLastSuccessfulMavenProject(doc);
 		assertNotNull(project);
 	}
+
+	@Test
+	public void testSnapshot() throws Exception {
+		URI uri = getClass().getResource("/pom-with-properties.xml").toURI();
+		String content = FileUtils.readFileToString(new File(uri), "UTF-8");
+		DOMDocument doc = new DOMDocument(new TextDocument(content, uri.toString()), null);
+		MavenProjectCache cache = new MavenProjectCache(MavenPlugin.newPlexusContainer());
+		ProjectSnapshot snapshot = cache.getLastSuccessfulSnapshot(doc);
+		assertNotNull(snapshot);
+		assertEquals("$", snapshot.getProperties().get("myProperty"));
+		assertNotNull(cache.getMavenProject(uri));
+	}
+
+	@Test
+	public void testProjectsReadingAParent() throws Exception {
+		Path dir = Files.createTempDirectory("test");
+		File parent = dir.resolve("pom.xml").toFile();
+		FileUtils.write(parent, "<project><modelVersion>4.0.0</modelVersion><groupId>org.test</groupId>"
+				+ "<artifactId>parent</artifactId><version>1</version><packaging>pom</packaging>"
+				+ "<modules><module>child</module></modules></project>", "UTF-8");
+		File child = dir.resolve("child/pom.xml").toFile();
+		String content = "<project><modelVersion>4.0.0</modelVersion><parent><groupId>org.test</groupId>"
+				+ "<artifactId>parent</artifactId><version>1</version></parent><artifactId>child</artifactId></project>";
+		FileUtils.write(child, content, "UTF-8");
+		MavenProjectCache cache = new MavenProjectCache(MavenPlugin.newPlexusContainer());
+		assertNotNull(cache.getLastSuccessfulSnapshot(
+				new DOMDocument(new TextDocument(content, child.toURI().toString()), null)));
+		assertTrue(cache.getProjectsReading(Collections.singleton(parent.getPath())).contains(child.toURI()));
+	}
+
+	@Test
+	public void testFastBuildOnlyBuildsTheModel() throws Exception {
+		URI uri = getClass().getResource("/pom-with-properties.xml").toURI();
+		String content = FileUtils.readFileToString(new File(uri), "UTF-8");
+		DOMDocument doc = new DOMDocument(new TextDocument(content, uri.toString()), null);
+		MavenProjectCache cache = new MavenProjectCache(MavenPlugin.newPlexusContainer());
+		cache.setBuildMode(BuildMode.FAST);
+		ProjectSnapshot snapshot = cache.getLastSuccessfulSnapshot(doc);
+		assertEquals("$", snapshot.getProperties().get("myProperty"));
+		assertNull(cache.getCachedFullMavenProject(uri));
+
+		MavenProject project = cache.getFullMavenProject(uri);
+		assertNotNull(project.getArtifact());
+		assertSame(project, cache.getCachedFullMavenProject(uri));
+		assertEquals(snapshot.getCoordinates(), cache.getSnapshot(uri).getCoordinates());
+	}
+
+	@Test
+	public void testConcurrentRequestsShareABuild() throws Exception {
+		URI uri = getClass().getResource("/pom-with-properties.xml").toURI();
+		String content = FileUtils.readFileToString(new File(uri), "UTF-8");
+		DOMDocument doc = new DOMDocument(new TextDocument(content, uri.toString()), null);
+		MavenMetrics metrics = new MavenMetrics(true);
+		MavenProjectCache cache = new MavenProjectCache(MavenPlugin.newPlexusContainer(), metrics);
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<ProjectSnapshot>> snapshots = new ArrayList<>();
+			for (int i = 0; i < 16; i++) {
+				snapshots.add(pool.submit(() -> cache.getLastSuccessfulSnapshot(doc)));
+			}
+			ProjectSnapshot snapshot = snapshots.get(0).get();
+			assertNotNull(snapshot);
+			for (Future<ProjectSnapshot> other : snapshots) {
+				assertSame(snapshot, other.get());
+			}
+		} finally {
+			pool.shutdown();
+		}
+		assertEquals(Long.valueOf(1), metrics.snapshot().getCounters().get("projectCache.miss"));
+	}
+
+	@Test
+	public void testBrokenPomIsSalvaged() throws Exception {
+		File pom = Files.createTempDirectory("test").resolve("pom.xml").toFile();
+		String content = "<project><modelVersion>4.0.0</modelVersion><groupId>org.test</groupId>"
+				+ "<artifactId>test</artifactId><version>1</version>"
+				+ "<properties><junit.version>4.12</junit.version></properties>"
+				+ "<dependencies><dependency><groupId>junit</groupId><artifactId>junit</artifactId>"
+				+ "<version>${junit.version}</version></dependency></dependencies></project>";
+		FileUtils.write(pom, content, "UTF-8");
+		MavenProjectCache cache = new MavenProjectCache(MavenPlugin.newPlexusContainer());
+		TextDocument document = new TextDocument(content, pom.toURI().toString());
+		ProjectSnapshot built = cache.getCurrentSnapshot(DOMParser.getInstance().parse(document, null));
+		assertEquals("4.12", built.getDependencies().get(0).getVersion());
+
+		// mid-edit: a new dependency, and an unclosed element
+		String broken = content.replace("</dependencies>", "<dependency><groupId>org.test</groupId>"
+				+ "<artifactId>other</artifactId><version>${junit.version}</version></dependency><scope></dependencies>");
+		document = new TextDocument(broken, pom.toURI().toString());
+		document.setVersion(1);
+		ProjectSnapshot salvaged = cache.getCurrentSnapshot(DOMParser.getInstance().parse(document, null));
+		assertEquals(2, salvaged.getDependencies().size());
+		assertEquals("4.12", salvaged.getDependencies().get(1).getVersion());
+		assertEquals("4.12", salvaged.getProperties().get("junit.version"));
+		assertSame(built, cache.getLastSuccessfulSnapshot(DOMParser.getInstance().parse(document, null)));
+	}
+
+	@Test
+	public void testUnsavedTextIsBuilt() throws Exception {
+		File pom = Files.createTempDirectory("test").resolve("pom.xml").toFile();
+		String content = "<project><modelVersion>4.0.0</modelVersion><groupId>org.test</groupId>"
+				+ "<artifactId>test</artifactId><version>1</version>"
+				+ "<properties><junit.version>4.12</junit.version></properties></project>";
+		FileUtils.write(pom, content, "UTF-8");
+		MavenProjectCache cache = new MavenProjectCache(MavenPlugin.newPlexusContainer());
+		TextDocument document = new TextDocument(content.replace("4.12", "4.13"), pom.toURI().toString());
+		ProjectSnapshot snapshot = cache.getCurrentSnapshot(DOMParser.getInstance().parse(document, null));
+		assertEquals("4.13", snapshot.getProperties().get("junit.version"));
+		assertEquals("4.13", cache.buildFull(pom.toURI()).getProperties().get("junit.version"));
+	}
+
+	@Test
+	public void testFailedFullBuildIsRetriedForANewText() throws Exception {
+		File pom = Files.createTempDirectory("test").resolve("pom.xml").toFile();
+		String content = "<project><modelVersion>4.0.0</modelVersion><groupId>org.test</groupId>"
+				+ "<artifactId>test</artifactId><version>1</version></project>";
+		FileUtils.write(pom, content, "UTF-8");
+		MavenMetrics metrics = new MavenMetrics(true);
+		MavenProjectCache cache = new MavenProjectCache(MavenPlugin.newPlexusContainer(), metrics);
+		cache.setBuildMode(BuildMode.FAST);
+		TextDocument document = new TextDocument(content, pom.toURI().toString());
+		assertNotNull(cache.getCurrentSnapshot(DOMParser.getInstance().parse(document, null)));
+
+		// unsaved edits, the pom on disk doesn't change
+		String broken = content.replace("</project>", "<dependencies><dependency><groupId>junit</groupId>"
+				+ "<artifactId>junit</artifactId></dependency></dependencies></project>");
+		document = new TextDocument(broken, pom.toURI().toString());
+		document.setVersion(1);
+		cache.getCurrentSnapshot(DOMParser.getInstance().parse(document, null));
+		assertNull(cache.getFullMavenProject(pom.toURI()));
+		assertNull(cache.getFullMavenProject(pom.toURI()));
+		assertEquals(Long.valueOf(1), metrics.snapshot().getCounters().get("projectCache.rebuild"));
+
+		document = new TextDocument(broken.replace("</artifactId></dependency>",
+				"</artifactId><version>4.12</version></dependency>"), pom.toURI().toString());
+		document.setVersion(2);
+		cache.getCurrentSnapshot(DOMParser.getInstance().parse(document, null));
+		assertNotNull(cache.getFullMavenProject(pom.toURI()));
+		assertEquals(Long.valueOf(2), metrics.snapshot().getCounters().get("projectCache.rebuild"));
+	}
+
+	@Test
+	public void testSalvagedDeclarationsAreNotDuplicated() throws Exception {
+		File pom = Files.createTempDirectory("test").resolve("pom.xml").toFile();
+		String content = "<project><modelVersion>4.0.0</modelVersion><groupId>org.test</groupId>"
+				+ "<artifactId>test</artifactId><version>${revision}</version>"
+				+ "<properties><revision>1.0</revision></properties>"
+				+ "<dependencies><dependency><groupId>junit</groupId><artifactId>junit</artifactId>"
+				+ "<version>4.12</version></dependency></dependencies></project>";
+		FileUtils.write(pom, content, "UTF-8");
+		MavenProjectCache cache = new MavenProjectCache(MavenPlugin.newPlexusContainer());
+		TextDocument document = new TextDocument(content, pom.toURI().toString());
+		ProjectSnapshot built = cache.getCurrentSnapshot(DOMParser.getInstance().parse(document, null));
+		assertEquals("1.0", built.getVersion());
+		assertEquals("org.test:test:${revision}", built.getModelId());
+
+		document = new TextDocument(content.replace("</dependencies>", "<scope></dependencies>"),
+				pom.toURI().toString());
+		document.setVersion(1);
+		ProjectSnapshot salvaged = cache.getCurrentSnapshot(DOMParser.getInstance().parse(document, null));
+		assertEquals(1, salvaged.getDependencies().size());
+	}
 }
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.eclipse.lsp4xml.extensions.maven.metrics.OperationTrace;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OperationTraceTest {
+
+	private final Logger logger = Logger.getLogger(OperationTrace.class.getName());
+	private final List<String> messages = new ArrayList<>();
+	private final Handler handler = new Handler() {
+
+		@Override
+		public void publish(LogRecord record) {
+			messages.add(record.getMessage());
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	};
+
+	@Before
+	public void setUp() {
+		logger.addHandler(handler);
+	}
+
+	@After
+	public void tearDown() {
+		logger.removeHandler(handler);
+		OperationTrace.setThreshold(1000);
+		System.clearProperty(OperationTrace.THRESHOLD_PROPERTY);
+	}
+
+	@Test
+	public void testPhasesOfSlowOperationsAreLogged() {
+		OperationTrace.setThreshold(0);
+		OperationTrace trace = OperationTrace.start("build", "file:///project/pom.xml");
+		trace.phase("initialize");
+		trace.phase("projectBuilder");
+		trace.end();
+		assertEquals(1, messages.size());
+		assertTrue(messages.get(0), messages.get(0).matches(
+				"Slow build of file:///project/pom\\.xml: \\d+ ms \\(initialize \\d+ ms, projectBuilder \\d+ ms\\)"));
+
+		OperationTrace.start("completion", "file:///project/pom.xml").end();
+		assertEquals(2, messages.size());
+		assertTrue(messages.get(1), messages.get(1).matches("Slow completion of file:///project/pom\\.xml: \\d+ ms"));
+	}
+
+	@Test
+	public void testFastOperationsAreNotLogged() {
+		OperationTrace.setThreshold(60000);
+		OperationTrace trace = OperationTrace.start("build", "file:///project/pom.xml");
+		trace.phase("initialize");
+		trace.end();
+		OperationTrace.setThreshold(-1);
+		OperationTrace.start("build", "file:///project/pom.xml").end();
+		assertTrue(messages.toString(), messages.isEmpty());
+	}
+
+	@Test
+	public void testThresholdProperty() throws Exception {
+		System.setProperty(OperationTrace.THRESHOLD_PROPERTY, "-1");
+		Class<?> disabledCopy = loadCopy();
+		Method start = disabledCopy.getMethod("start", String.class, Object.class);
+		Object disabled = start.invoke(null, "build", "file:///project/pom.xml");
+		assertSame(disabled, start.invoke(null, "completion", "file:///project/pom.xml"));
+		disabledCopy.getMethod("end").invoke(disabled);
+		assertTrue(messages.toString(), messages.isEmpty());
+
+		System.setProperty(OperationTrace.THRESHOLD_PROPERTY, "0");
+		Class<?> copy = loadCopy();
+		Object trace = copy.getMethod("start", String.class, Object.class).invoke(null, "build",
+				"file:///project/pom.xml");
+		copy.getMethod("end").invoke(trace);
+		assertEquals(1, messages.size());
+	}
+
+	/**
+	 * @return a new copy of {@link OperationTrace}, which reads the system property
+	 *         again.
+	 */
+	private static Class<?> loadCopy() throws Exception {
+		URL classes = OperationTrace.class.getProtectionDomain().getCodeSource().getLocation();
+		@SuppressWarnings("resource")
+		ClassLoader loader = new URLClassLoader(new URL[] { classes }, null);
+		return loader.loadClass(OperationTrace.class.getName());
+	}
+}
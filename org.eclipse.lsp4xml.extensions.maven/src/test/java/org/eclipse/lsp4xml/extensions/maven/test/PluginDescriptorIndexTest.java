@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.lsp4xml.extensions.maven.index.PluginDescriptorIndex;
+import org.eclipse.lsp4xml.extensions.maven.index.PluginDescriptorIndex.Descriptor;
+import org.eclipse.lsp4xml.extensions.maven.index.PluginDescriptorIndex.Parameter;
+import org.junit.Test;
+
+public class PluginDescriptorIndexTest {
+
+	private static final String PLUGIN_XML = "<plugin><artifactId>maven-test-plugin</artifactId>"
+			+ "<goalPrefix>test</goalPrefix><mojos>"
+			+ "<mojo><goal>compile</goal><description>Compiles.</description><parameters>"
+			+ "<parameter><name>source</name><type>java.lang.String</type><required>false</required>"
+			+ "<editable>true</editable><description>The source level.</description></parameter>"
+			+ "<parameter><name>project</name><type>org.apache.maven.project.MavenProject</type>"
+			+ "<required>true</required><editable>false</editable></parameter>"
+			+ "</parameters><configuration>"
+			+ "<source implementation=\"java.lang.String\" default-value=\"1.6\">${maven.compiler.source}</source>"
+			+ "</configuration></mojo>"
+			+ "<mojo><goal>testCompile</goal><parameters>"
+			+ "<parameter><name>skip</name><alias>maven.test.skip</alias><type>boolean</type></parameter>"
+			+ "</parameters></mojo>"
+			+ "</mojos></plugin>";
+
+	@Test
+	public void testDescriptorIsReadFromTheJar() throws Exception {
+		Path repository = Files.createTempDirectory("repository");
+		Path versionDir = repository.resolve("org/apache/maven/plugins/maven-test-plugin/1.0");
+		Files.createDirectories(versionDir);
+		try (OutputStream out = Files.newOutputStream(versionDir.resolve("maven-test-plugin-1.0.jar"));
+				ZipOutputStream zip = new ZipOutputStream(out)) {
+			zip.putNextEntry(new ZipEntry("META-INF/maven/plugin.xml"));
+			zip.write(PLUGIN_XML.getBytes(StandardCharsets.UTF_8));
+			zip.closeEntry();
+		}
+		PluginDescriptorIndex index = new PluginDescriptorIndex(repository);
+
+		Descriptor descriptor = index.getDescriptor(null, "maven-test-plugin", "1.0");
+		assertNotNull(descriptor);
+		assertEquals("test", descriptor.getGoalPrefix());
+		assertEquals(Arrays.asList("compile", "testCompile"), new ArrayList<>(descriptor.getGoalNames()));
+		Map<String, Parameter> compile = descriptor.getParameters(Collections.singleton("compile"));
+		assertEquals(2, compile.size());
+		Parameter source = compile.get("source");
+		assertEquals("1.6", source.getDefaultValue());
+		assertEquals("${maven.compiler.source}", source.getExpression());
+		assertFalse(compile.get("project").isEditable());
+		assertTrue(descriptor.getParameters(Collections.emptyList()).get("skip").matches("maven.test.skip"));
+
+		// cached until the jar changes
+		assertSame(descriptor, index.getDescriptor("org.apache.maven.plugins", "maven-test-plugin", "1.0"));
+		assertNull(index.getDescriptor(null, "maven-test-plugin", "2.0"));
+		assertNull(index.getDescriptor(null, "maven-test-plugin", "${plugin.version}"));
+	}
+}
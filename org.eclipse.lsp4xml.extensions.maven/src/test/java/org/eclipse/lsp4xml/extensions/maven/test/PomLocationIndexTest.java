@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4xml.dom.DOMDocument;
+import org.eclipse.lsp4xml.dom.DOMElement;
+import org.eclipse.lsp4xml.dom.DOMParser;
+import org.eclipse.lsp4xml.extensions.maven.DOMUtils;
+import org.eclipse.lsp4xml.extensions.maven.index.PomLocationIndex;
+import org.junit.Test;
+
+public class PomLocationIndexTest {
+
+	private static final String POM = "<project>\n" + //
+			"	<artifactId>test</artifactId>\n" + //
+			"	<dependencies>\n" + //
+			"		<dependency>\n" + //
+			"			<groupId>org.foo</groupId>\n" + //
+			"			<artifactId>foo</artifactId>\n" + //
+			"			<version>1.0</version>\n" + //
+			"		</dependency>\n" + //
+			"		<dependency>\n" + //
+			"			<groupId>org.bar</groupId>\n" + //
+			"			<artifactId>bar</artifactId>\n" + //
+			"		</dependency>\n" + //
+			"	</dependencies>\n" + //
+			"</project>";
+
+	private PomLocationIndex createIndex() {
+		DOMDocument document = DOMParser.getInstance().parse(POM, "file:///test/pom.xml", null);
+		return PomLocationIndex.build(document);
+	}
+
+	@Test
+	public void testFindElementAt() {
+		PomLocationIndex index = createIndex();
+		// Maven reports the column after the start tag of <version>
+		DOMElement element = index.findElementAt(index.getOffset(7, 13) - 1);
+		assertEquals("version", element.getLocalName());
+		assertEquals("project", index.findElementAt(index.getOffset(14, 1)).getLocalName());
+		assertEquals(-1, index.getOffset(0, 1));
+	}
+
+	@Test
+	public void testFindElementByPath() {
+		PomLocationIndex index = createIndex();
+		assertEquals("org.bar", DOMUtils.getText(index.findElement("dependencies.dependency[1].groupId")));
+		assertEquals("org.foo", DOMUtils.getText(index.findElement("dependencies.dependency.groupId")));
+		assertNull(index.findElement("dependencies.dependency[2]"));
+		assertEquals(2, index.findElements("dependencies.dependency.artifactId").size());
+	}
+
+	@Test
+	public void testFindElementForMessage() throws Exception {
+		PomLocationIndex index = createIndex();
+		DOMElement missingVersion = index
+				.findElementForMessage("'dependencies.dependency.version' for org.bar:bar:jar is missing.");
+		assertEquals("bar", DOMUtils.getChildText(missingVersion, "artifactId"));
+		// the dependency only holds elements, its start tag is highlighted
+		Range range = index.getRange(missingVersion);
+		assertEquals(8, range.getStart().getLine());
+		assertEquals(8, range.getEnd().getLine());
+		DOMElement version = index.findElementForMessage(
+				"'dependencies.dependency.version' for org.foo:foo:jar must be a valid version but is '1.0'.");
+		assertEquals("1.0", DOMUtils.getText(version));
+		assertNull(index.findElementForMessage("Non-parseable POM"));
+	}
+
+	@Test
+	public void testIndexIsCachedPerDocument() {
+		DOMDocument document = DOMParser.getInstance().parse(POM, "file:///test/pom.xml", null);
+		PomLocationIndex index = PomLocationIndex.get(document);
+		assertSame(index, PomLocationIndex.get(document));
+		DOMDocument edited = DOMParser.getInstance().parse(POM, "file:///test/pom.xml", null);
+		assertNotSame(index, PomLocationIndex.get(edited));
+	}
+
+}
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.List;
+
+import org.eclipse.lsp4j.DocumentSymbol;
+import org.eclipse.lsp4j.SymbolKind;
+import org.eclipse.lsp4xml.dom.DOMDocument;
+import org.eclipse.lsp4xml.dom.DOMParser;
+import org.eclipse.lsp4xml.extensions.maven.PomSymbolsService;
+import org.eclipse.lsp4xml.extensions.maven.metrics.MavenMetrics;
+import org.junit.Test;
+
+public class PomSymbolsServiceTest {
+
+	private static final String POM = String.join("\n", //
+			"<project>", //
+			"  <parent><groupId>org.example</groupId><artifactId>parent</artifactId><version>1.0</version></parent>", //
+			"  <artifactId>child</artifactId>", //
+			"  <modules><module>a</module></modules>", //
+			"  <properties><junit.version>4.12</junit.version></properties>", //
+			"  <dependencies>", //
+			"    <dependency><groupId>junit</groupId><artifactId>junit</artifactId><version>4.12</version><scope>test</scope></dependency>", //
+			"  </dependencies>", //
+			"  <profiles><profile><id>dev</id><dependencies></dependencies></profile></profiles>", //
+			"</project>");
+
+	@Test
+	public void testSymbolsAreTyped() {
+		DOMDocument document = DOMParser.getInstance().parse(POM, "file:///test/pom.xml", null);
+		PomSymbolsService service = new PomSymbolsService(new MavenMetrics(false));
+		List<DocumentSymbol> symbols = service.getSymbols(document);
+		assertSame(symbols, service.getSymbols(document));
+
+		DocumentSymbol project = symbols.get(0);
+		assertEquals("child", project.getName());
+		assertEquals("org.example:child:1.0", project.getDetail());
+		assertEquals(5, project.getChildren().size());
+		assertEquals(SymbolKind.Class, project.getChildren().get(0).getKind());
+		assertEquals(SymbolKind.Module, project.getChildren().get(1).getChildren().get(0).getKind());
+		DocumentSymbol property = project.getChildren().get(2).getChildren().get(0);
+		assertEquals("junit.version", property.getName());
+		assertEquals(SymbolKind.Property, property.getKind());
+
+		DocumentSymbol dependency = project.getChildren().get(3).getChildren().get(0);
+		assertEquals("junit:junit", dependency.getName());
+		assertEquals("4.12 (test)", dependency.getDetail());
+		assertEquals(SymbolKind.Package, dependency.getKind());
+		assertEquals(6, dependency.getRange().getStart().getLine());
+
+		DocumentSymbol profile = project.getChildren().get(4).getChildren().get(0);
+		assertEquals("dev", profile.getName());
+		assertEquals("dependencies", profile.getChildren().get(0).getName());
+	}
+
+	@Test
+	public void testUnchangedElementsAreReused() {
+		MavenMetrics metrics = new MavenMetrics(true);
+		PomSymbolsService service = new PomSymbolsService(metrics);
+		service.getSymbols(DOMParser.getInstance().parse(POM, "file:///test/pom.xml", null));
+
+		String edited = POM.replace("<artifactId>child</artifactId>",
+				"<artifactId>child</artifactId>\n  <name>Child</name>");
+		List<DocumentSymbol> symbols = service
+				.getSymbols(DOMParser.getInstance().parse(edited, "file:///test/pom.xml", null));
+		DocumentSymbol dependency = symbols.get(0).getChildren().get(3).getChildren().get(0);
+		assertEquals("junit:junit", dependency.getName());
+		assertEquals(7, dependency.getRange().getStart().getLine());
+		assertTrue(metrics.snapshot().getCounters().get("symbols.reused") > 0);
+	}
+
+	@Test
+	public void testRemovedPomsAreForgotten() {
+		MavenMetrics metrics = new MavenMetrics(true);
+		PomSymbolsService service = new PomSymbolsService(metrics);
+		service.getSymbols(DOMParser.getInstance().parse(POM, "file:///test/pom.xml", null));
+		service.remove(URI.create("file:///test/pom.xml"));
+
+		service.getSymbols(DOMParser.getInstance().parse(POM, "file:///test/pom.xml", null));
+		assertNull(metrics.snapshot().getCounters().get("symbols.reused"));
+	}
+}
@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.DiagnosticSeverity;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4xml.extensions.maven.MavenPlugin;
+import org.eclipse.lsp4xml.extensions.maven.cli.PomValidationLauncher;
+import org.eclipse.lsp4xml.extensions.maven.cli.PomValidationLauncher.Options;
+import org.eclipse.lsp4xml.extensions.maven.cli.PomValidationLauncher.PomDiagnostics;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class PomValidationLauncherTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testParseArguments() throws Exception {
+		String root = folder.getRoot().toString();
+		Options options = Options.parse(
+				new String[] { "--format", "sarif", root, "--output", "report.sarif", "--threads", "3" });
+		assertEquals(folder.getRoot().toPath(), options.getRoot());
+		assertEquals("sarif", options.getFormat());
+		assertEquals("report.sarif", options.getOutput().toString());
+		assertEquals(3, options.getThreads());
+
+		Options defaults = Options.parse(new String[] { root });
+		assertEquals("json", defaults.getFormat());
+		assertNull(defaults.getOutput());
+		assertTrue(defaults.getThreads() > 0);
+	}
+
+	@Test
+	public void testInvalidArguments() throws Exception {
+		String root = folder.getRoot().toString();
+		assertInvalid("Missing directory");
+		assertInvalid("Not a directory", folder.newFile().toString());
+		assertInvalid("Missing value for --format", root, "--format");
+		assertInvalid("Missing value for --output", root, "--output");
+		assertInvalid("Unknown format: xml", root, "--format", "xml");
+		assertInvalid("Invalid number of threads: many", root, "--threads", "many");
+		assertInvalid("Invalid number of threads: 0", root, "--threads", "0");
+		assertInvalid("Unexpected argument", root, root);
+	}
+
+	@Test
+	public void testValidate() throws Exception {
+		Path pom = folder.getRoot().toPath().resolve("pom.xml");
+		Files.write(pom, String.join("\n", //
+				"<project>", //
+				"  <modelVersion>4.0.0</modelVersion>", //
+				"  <groupId>org.example</groupId>", //
+				"  <artifactId>aggregator</artifactId>", //
+				"  <version>1.0</version>", //
+				"  <packaging>pom</packaging>", //
+				"  <modules><module>missing</module></modules>", //
+				"</project>").getBytes(StandardCharsets.UTF_8));
+		List<PomDiagnostics> results = new PomValidationLauncher(MavenPlugin.newPlexusContainer())
+				.validate(folder.getRoot().toPath(), 2);
+		assertEquals(1, results.size());
+		assertEquals(pom, results.get(0).getPom());
+		assertFalse(results.get(0).getDiagnostics().isEmpty());
+	}
+
+	@Test
+	public void testDependencyConflictsAreReported() throws Exception {
+		// a -> c:1, b -> d -> c:2
+		Path repository = folder.newFolder("repository").toPath();
+		deploy(repository, "a", "1", "c", "1");
+		deploy(repository, "b", "1", "d", "1");
+		deploy(repository, "d", "1", "c", "2");
+		deploy(repository, "c", "1", null, null);
+		deploy(repository, "c", "2", null, null);
+		Path workspace = folder.newFolder("workspace").toPath();
+		Files.createDirectories(workspace.resolve(".mvn"));
+		Files.write(workspace.resolve(".mvn/maven.config"),
+				("-o -Dmaven.repo.local=" + repository.toAbsolutePath()).getBytes(StandardCharsets.UTF_8));
+		Files.write(workspace.resolve("pom.xml"), ("<project><modelVersion>4.0.0</modelVersion>"
+				+ "<groupId>org.test</groupId><artifactId>test</artifactId><version>1</version>"
+				+ "<packaging>pom</packaging><dependencies>"
+				+ "<dependency><groupId>org.test</groupId><artifactId>a</artifactId><version>1</version></dependency>"
+				+ "<dependency><groupId>org.test</groupId><artifactId>b</artifactId><version>1</version></dependency>"
+				+ "</dependencies></project>").getBytes(StandardCharsets.UTF_8));
+
+		// the validation waits for the dependency tree, every run reports the conflict
+		for (int i = 0; i < 3; i++) {
+			List<PomDiagnostics> results = new PomValidationLauncher(MavenPlugin.newPlexusContainer())
+					.validate(workspace, 2);
+			assertEquals(1, results.size());
+			assertTrue(results.get(0).getDiagnostics().toString(), results.get(0).getDiagnostics().stream()
+					.anyMatch(diagnostic -> diagnostic.getMessage().startsWith("Dependency conflicts")));
+		}
+	}
+
+	@Test
+	public void testJson() {
+		JsonArray files = new JsonParser().parse(PomValidationLauncher.toJson(results())).getAsJsonArray();
+		assertEquals(1, files.size());
+		JsonObject file = files.get(0).getAsJsonObject();
+		assertTrue(file.get("uri").getAsString().endsWith("/project/pom.xml"));
+		JsonArray diagnostics = file.getAsJsonArray("diagnostics");
+		assertEquals(2, diagnostics.size());
+		JsonObject error = diagnostics.get(0).getAsJsonObject();
+		assertEquals("Broken", error.get("message").getAsString());
+		assertEquals(2, error.getAsJsonObject("range").getAsJsonObject("start").get("line").getAsInt());
+	}
+
+	@Test
+	public void testSarif() {
+		JsonObject sarif = new JsonParser().parse(PomValidationLauncher.toSarif(results())).getAsJsonObject();
+		assertEquals("2.1.0", sarif.get("version").getAsString());
+		JsonArray results = sarif.getAsJsonArray("runs").get(0).getAsJsonObject().getAsJsonArray("results");
+		assertEquals(2, results.size());
+
+		JsonObject error = results.get(0).getAsJsonObject();
+		assertEquals("error", error.get("level").getAsString());
+		assertEquals("Broken", error.getAsJsonObject("message").get("text").getAsString());
+		JsonObject location = error.getAsJsonArray("locations").get(0).getAsJsonObject()
+				.getAsJsonObject("physicalLocation");
+		assertTrue(location.getAsJsonObject("artifactLocation").get("uri").getAsString().endsWith("/project/pom.xml"));
+		// 1-based
+		JsonObject region = location.getAsJsonObject("region");
+		assertEquals(3, region.get("startLine").getAsInt());
+		assertEquals(5, region.get("startColumn").getAsInt());
+		assertEquals(3, region.get("endLine").getAsInt());
+		assertEquals(9, region.get("endColumn").getAsInt());
+
+		JsonObject hint = results.get(1).getAsJsonObject();
+		assertEquals("note", hint.get("level").getAsString());
+		assertFalse(hint.getAsJsonArray("locations").get(0).getAsJsonObject().getAsJsonObject("physicalLocation")
+				.has("region"));
+	}
+
+	private static List<PomDiagnostics> results() {
+		Diagnostic error = new Diagnostic(new Range(new Position(2, 4), new Position(2, 8)), "Broken");
+		error.setSeverity(DiagnosticSeverity.Error);
+		Diagnostic hint = new Diagnostic();
+		hint.setMessage("Newer");
+		hint.setSeverity(DiagnosticSeverity.Hint);
+		return Collections.singletonList(
+				new PomDiagnostics(Paths.get("/project/pom.xml").toAbsolutePath(), Arrays.asList(error, hint)));
+	}
+
+	private static void deploy(Path repository, String artifactId, String version, String dependencyArtifactId,
+			String dependencyVersion) throws Exception {
+		String pom = "<project><modelVersion>4.0.0</modelVersion><groupId>org.test</groupId><artifactId>"
+				+ artifactId + "</artifactId><version>" + version + "</version><packaging>pom</packaging>";
+		if (dependencyArtifactId != null) {
+			pom += "<dependencies><dependency><groupId>org.test</groupId><artifactId>" + dependencyArtifactId
+					+ "</artifactId><version>" + dependencyVersion + "</version></dependency></dependencies>";
+		}
+		pom += "</project>";
+		Path file = repository.resolve("org/test/" + artifactId + '/' + version + '/' + artifactId + '-' + version + ".pom");
+		Files.createDirectories(file.getParent());
+		Files.write(file, pom.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void assertInvalid(String message, String... args) {
+		try {
+			Options.parse(args);
+			fail("Expected invalid arguments: " + Arrays.toString(args));
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith(message));
+		}
+	}
+}
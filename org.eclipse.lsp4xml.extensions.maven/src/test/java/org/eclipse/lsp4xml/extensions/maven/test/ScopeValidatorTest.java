@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.DiagnosticSeverity;
+import org.eclipse.lsp4xml.dom.DOMDocument;
+import org.eclipse.lsp4xml.dom.DOMElement;
+import org.eclipse.lsp4xml.dom.DOMParser;
+import org.eclipse.lsp4xml.extensions.maven.DOMUtils;
+import org.eclipse.lsp4xml.extensions.maven.DiagnosticRequest;
+import org.eclipse.lsp4xml.extensions.maven.ScopeValidator;
+import org.junit.Test;
+
+public class ScopeValidatorTest {
+
+	@Test
+	public void testImportScopeInDependencyManagement() {
+		assertNull(validate("<project><dependencyManagement><dependencies>"
+				+ "<dependency><groupId>org.test</groupId><artifactId>bom</artifactId><type>pom</type>"
+				+ "<scope>import</scope></dependency></dependencies></dependencyManagement></project>",
+				"dependencyManagement", "dependencies"));
+	}
+
+	@Test
+	public void testImportScopeInDependencies() {
+		Diagnostic diagnostic = validate("<project><dependencies>"
+				+ "<dependency><groupId>org.test</groupId><artifactId>bom</artifactId><type>pom</type>"
+				+ "<scope>import</scope></dependency></dependencies></project>", "dependencies");
+		assertNotNull(diagnostic);
+		assertEquals(DiagnosticSeverity.Warning, diagnostic.getSeverity());
+		assertTrue(diagnostic.getMessage(), diagnostic.getMessage().startsWith("Invalid scope 'import'"));
+		assertFalse(diagnostic.getMessage(), diagnostic.getMessage().contains(", import"));
+	}
+
+	@Test
+	public void testOtherScopes() {
+		assertNull(validate("<project><dependencies><dependency><scope>test</scope></dependency></dependencies></project>",
+				"dependencies"));
+		assertNull(validate(
+				"<project><dependencies><dependency><scope>${scope}</scope></dependency></dependencies></project>",
+				"dependencies"));
+		Diagnostic unknown = validate(
+				"<project><dependencies><dependency><scope>tests</scope></dependency></dependencies></project>",
+				"dependencies");
+		assertNotNull(unknown);
+		assertTrue(unknown.getMessage(), unknown.getMessage().startsWith("Invalid scope 'tests'"));
+	}
+
+	private static Diagnostic validate(String pom, String... path) {
+		DOMDocument document = DOMParser.getInstance().parse(pom, "file:///test/pom.xml", null);
+		DOMElement element = document.getDocumentElement();
+		for (String name : path) {
+			element = DOMUtils.findChildElement(element, name);
+		}
+		DOMElement scope = DOMUtils.findChildElement(DOMUtils.findChildElement(element, "dependency"), "scope");
+		return ScopeValidator.validateScope(new DiagnosticRequest(scope, document, new ArrayList<>()));
+	}
+}
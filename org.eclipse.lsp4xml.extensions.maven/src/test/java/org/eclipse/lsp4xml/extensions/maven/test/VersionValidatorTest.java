@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.DiagnosticSeverity;
+import org.eclipse.lsp4xml.dom.DOMDocument;
+import org.eclipse.lsp4xml.dom.DOMElement;
+import org.eclipse.lsp4xml.dom.DOMParser;
+import org.eclipse.lsp4xml.extensions.maven.DOMUtils;
+import org.eclipse.lsp4xml.extensions.maven.DiagnosticRequest;
+import org.eclipse.lsp4xml.extensions.maven.VersionValidator;
+import org.eclipse.lsp4xml.extensions.maven.index.WorkspaceIndex;
+import org.eclipse.lsp4xml.extensions.maven.searcher.ArtifactSearcherManager;
+import org.eclipse.lsp4xml.extensions.maven.searcher.LocalArtifactSearcher;
+import org.junit.Before;
+import org.junit.Test;
+
+public class VersionValidatorTest {
+
+	private Path repository;
+	private VersionValidator validator;
+
+	@Before
+	public void setUp() throws Exception {
+		repository = Files.createTempDirectory("repository");
+		install(repository, "1.0");
+		install(repository, "1.1", "sources");
+		install(repository, "2.0");
+		validator = new VersionValidator(new WorkspaceIndex(), null,
+				new ArtifactSearcherManager(new LocalArtifactSearcher(repository)));
+	}
+
+	@Test
+	public void testAvailableVersions() {
+		assertNull(validate("<version>2.0</version>"));
+		Diagnostic newer = validate("<version>1.0</version>");
+		assertEquals(DiagnosticSeverity.Hint, newer.getSeverity());
+		assertTrue(newer.getMessage(), newer.getMessage().endsWith("available: 2.0"));
+		Diagnostic missing = validate("<version>3.0</version>");
+		assertEquals(DiagnosticSeverity.Warning, missing.getSeverity());
+		assertTrue(missing.getMessage(), missing.getMessage().startsWith("Version 3.0 of org.test:lib "));
+	}
+
+	@Test
+	public void testRanges() {
+		assertNull(validate("<version>[1.0,2.0)</version>"));
+		assertEquals(DiagnosticSeverity.Warning, validate("<version>[3.0,)</version>").getSeverity());
+		assertEquals(DiagnosticSeverity.Error, validate("<version>[1.0</version>").getSeverity());
+	}
+
+	@Test
+	public void testClassifiers() {
+		// the newest version has no sources
+		assertNull(validate("<version>1.1</version><classifier>sources</classifier>"));
+		Diagnostic missing = validate("<version>2.0</version><classifier>sources</classifier>");
+		assertNotNull(missing);
+		assertEquals(DiagnosticSeverity.Warning, missing.getSeverity());
+		assertTrue(missing.getMessage(), missing.getMessage().contains("org.test:lib:sources"));
+
+		Diagnostic unknown = validate("<version>2.0</version><classifier>javadoc</classifier>");
+		assertNotNull(unknown);
+		assertTrue(unknown.getMessage(), unknown.getMessage().contains("with the classifier javadoc"));
+	}
+
+	@Test
+	public void testVersionDownloadedLater() throws Exception {
+		// a failed download, then a successful one in the same directory
+		File directory = repository.resolve("org/test/lib/3.0").toFile();
+		FileUtils.write(new File(directory, "lib-3.0.pom.lastUpdated"), "", "UTF-8");
+		assertEquals(DiagnosticSeverity.Warning, validate("<version>3.0</version>").getSeverity());
+		long lastModified = directory.lastModified();
+		FileUtils.write(new File(directory, "lib-3.0.pom"), "<project/>", "UTF-8");
+		directory.setLastModified(lastModified + 2000);
+		assertNull(validate("<version>3.0</version>"));
+	}
+
+	@Test
+	public void testClassifierDownloadedLater() throws Exception {
+		assertNotNull(validate("<version>2.0</version><classifier>sources</classifier>"));
+		File directory = repository.resolve("org/test/lib/2.0").toFile();
+		long lastModified = directory.lastModified();
+		FileUtils.write(new File(directory, "lib-2.0-sources.jar"), "", "UTF-8");
+		directory.setLastModified(lastModified + 2000);
+		assertNull(validate("<version>2.0</version><classifier>sources</classifier>"));
+	}
+
+	private Diagnostic validate(String versionAndClassifier) {
+		DOMDocument document = DOMParser.getInstance()
+				.parse("<project><dependencies><dependency><groupId>org.test</groupId><artifactId>lib</artifactId>"
+						+ versionAndClassifier + "</dependency></dependencies></project>", "file:///test/pom.xml",
+						null);
+		DOMElement version = DOMUtils.findChildElement(DOMUtils.findChildElement(
+				DOMUtils.findChildElement(document.getDocumentElement(), "dependencies"), "dependency"), "version");
+		return validator.validateVersion(new DiagnosticRequest(version, document, new ArrayList<>()));
+	}
+
+	private static void install(Path repository, String version, String... classifiers) throws Exception {
+		Path directory = repository.resolve("org/test/lib").resolve(version);
+		FileUtils.write(directory.resolve("lib-" + version + ".pom").toFile(), "<project/>", "UTF-8");
+		FileUtils.write(directory.resolve("lib-" + version + ".jar").toFile(), "", "UTF-8");
+		for (String classifier : classifiers) {
+			FileUtils.write(directory.resolve("lib-" + version + '-' + classifier + ".jar").toFile(), "", "UTF-8");
+		}
+	}
+}
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.eclipse.lsp4j.TextEdit;
+import org.eclipse.lsp4j.WorkspaceEdit;
+import org.eclipse.lsp4xml.dom.DOMDocument;
+import org.eclipse.lsp4xml.dom.DOMParser;
+import org.eclipse.lsp4xml.extensions.maven.index.WorkspaceIndex;
+import org.junit.Test;
+
+public class WorkspaceIndexTest {
+
+	private static final String PARENT = "<project>\n" + //
+			"	<groupId>org.test</groupId>\n" + //
+			"	<artifactId>parent</artifactId>\n" + //
+			"	<version>1.0.0</version>\n" + //
+			"	<properties>\n" + //
+			"		<foo.version>2.0</foo.version>\n" + //
+			"	</properties>\n" + //
+			"</project>";
+
+	private static final String CHILD = "<project>\n" + //
+			"	<parent>\n" + //
+			"		<groupId>org.test</groupId>\n" + //
+			"		<artifactId>parent</artifactId>\n" + //
+			"		<version>1.0.0</version>\n" + //
+			"	</parent>\n" + //
+			"	<artifactId>child</artifactId>\n" + //
+			"	<dependencies>\n" + //
+			"		<dependency>\n" + //
+			"			<groupId>org.foo</groupId>\n" + //
+			"			<artifactId>foo</artifactId>\n" + //
+			"			<version>${foo.version}</version>\n" + //
+			"		</dependency>\n" + //
+			"	</dependencies>\n" + //
+			"</project>";
+
+	@Test
+	public void testPropertyReferences() throws Exception {
+		WorkspaceIndex index = createIndex();
+		List<WorkspaceIndex.Occurrence> occurrences = index.getOccurrences(WorkspaceIndex.propertyKey("foo.version"));
+		// start and end tag of the declaration, plus the usage in the child
+		assertEquals(3, occurrences.size());
+		assertEquals(1, occurrences.stream().filter(o -> !o.isDeclaration()).count());
+	}
+
+	@Test
+	public void testInheritedVersionReferences() throws Exception {
+		WorkspaceIndex index = createIndex();
+		List<WorkspaceIndex.Occurrence> occurrences = index
+				.getOccurrences(WorkspaceIndex.artifactKey("org.test", "parent"));
+		assertEquals(2, occurrences.size());
+		WorkspaceEdit edit = index.rename(WorkspaceIndex.artifactKey("org.test", "parent"), "1.1.0");
+		assertEquals(2, edit.getChanges().size());
+		assertTrue(edit.getChanges().values().stream().flatMap(List::stream).map(TextEdit::getNewText)
+				.allMatch("1.1.0"::equals));
+	}
+
+	@Test
+	public void testIncrementalUpdate() throws Exception {
+		WorkspaceIndex index = createIndex();
+		File other = Files.createTempDirectory("other").resolve("pom.xml").toFile();
+		index.update(DOMParser.getInstance().parse(CHILD, other.toURI().toString(), null));
+		assertEquals(4, index.getOccurrences(WorkspaceIndex.propertyKey("foo.version")).size());
+		DOMDocument edited = DOMParser.getInstance().parse(CHILD.replace("${foo.version}", "2.0"),
+				other.toURI().toString(), null);
+		edited.getTextDocument().setVersion(2);
+		index.update(edited);
+		assertEquals(3, index.getOccurrences(WorkspaceIndex.propertyKey("foo.version")).size());
+		index.remove(other.toURI());
+		assertEquals(3, index.getOccurrences(WorkspaceIndex.propertyKey("foo.version")).size());
+	}
+
+	@Test
+	public void testReindexedPomIsNeverMissing() throws Exception {
+		WorkspaceIndex index = new WorkspaceIndex();
+		File pom = Files.createTempDirectory("workspace").resolve("pom.xml").toFile();
+		String uri = pom.toURI().toString();
+		index.update(DOMParser.getInstance().parse(PARENT, uri, null));
+		Thread writer = new Thread(() -> {
+			for (int version = 1; version <= 2000; version++) {
+				DOMDocument document = DOMParser.getInstance()
+						.parse(PARENT.replace("2.0", version % 2 == 0 ? "2.0" : "2.1"), uri, null);
+				document.getTextDocument().setVersion(version);
+				index.update(document);
+			}
+		});
+		writer.start();
+		while (writer.isAlive()) {
+			assertEquals(2, index.getOccurrences(WorkspaceIndex.propertyKey("foo.version")).size());
+			assertEquals(1, index.getDeclaredVersions("org.test", "parent").size());
+		}
+		writer.join();
+	}
+
+	private WorkspaceIndex createIndex() throws Exception {
+		Path root = Files.createTempDirectory("workspace");
+		Files.write(root.resolve("pom.xml"), PARENT.getBytes(StandardCharsets.UTF_8));
+		Path child = Files.createDirectory(root.resolve("child"));
+		Files.write(child.resolve("pom.xml"), CHILD.getBytes(StandardCharsets.UTF_8));
+		WorkspaceIndex index = new WorkspaceIndex();
+		index.indexWorkspace(root);
+		return index;
+	}
+}
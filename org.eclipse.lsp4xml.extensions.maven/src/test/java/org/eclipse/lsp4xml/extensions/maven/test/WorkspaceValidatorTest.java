@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat Inc. and others.
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.lsp4xml.extensions.maven.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.plexus.PlexusContainer;
+import org.eclipse.lsp4j.FileChangeType;
+import org.eclipse.lsp4j.FileEvent;
+import org.eclipse.lsp4j.PublishDiagnosticsParams;
+import org.eclipse.lsp4xml.extensions.maven.DependencyTreeService;
+import org.eclipse.lsp4xml.extensions.maven.MavenDiagnosticParticipant;
+import org.eclipse.lsp4xml.extensions.maven.MavenExecutor;
+import org.eclipse.lsp4xml.extensions.maven.MavenPlugin;
+import org.eclipse.lsp4xml.extensions.maven.MavenProjectCache;
+import org.eclipse.lsp4xml.extensions.maven.WorkspaceValidator;
+import org.eclipse.lsp4xml.extensions.maven.index.PluginDescriptorIndex;
+import org.eclipse.lsp4xml.extensions.maven.index.WorkspaceIndex;
+import org.eclipse.lsp4xml.extensions.maven.metrics.MavenMetrics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class WorkspaceValidatorTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private WorkspaceIndex workspaceIndex;
+	private MavenExecutor executor;
+	private WorkspaceValidator validator;
+	private final BlockingQueue<PublishDiagnosticsParams> published = new LinkedBlockingQueue<>();
+
+	@Before
+	public void setUp() throws Exception {
+		MavenMetrics metrics = new MavenMetrics(false);
+		PlexusContainer container = MavenPlugin.newPlexusContainer();
+		MavenProjectCache cache = new MavenProjectCache(container, metrics);
+		workspaceIndex = new WorkspaceIndex();
+		MavenDiagnosticParticipant participant = new MavenDiagnosticParticipant(cache, workspaceIndex,
+				new DependencyTreeService(container, cache),
+				new PluginDescriptorIndex(folder.newFolder("repository").toPath()), metrics);
+		executor = new MavenExecutor(metrics);
+		validator = new WorkspaceValidator(cache, workspaceIndex, participant, executor, metrics);
+		validator.setDiagnosticsPublisher(published::add);
+	}
+
+	@After
+	public void tearDown() {
+		validator.dispose();
+		executor.dispose();
+	}
+
+	@Test
+	public void testClosedPomDiagnosticsArePublished() throws Exception {
+		Path pom = writePom("pom.xml");
+		URI uri = pom.toUri();
+		validator.onFilesChanged(Arrays.asList(new FileEvent(uri.toString(), FileChangeType.Created)));
+
+		PublishDiagnosticsParams params = published.poll(30, TimeUnit.SECONDS);
+		assertNotNull(params);
+		assertEquals(uri.toString(), params.getUri());
+		assertFalse(params.getDiagnostics().isEmpty());
+		// still indexed from disk, later changes are picked up
+		assertFalse(workspaceIndex.isIndexedFromEditor(uri));
+
+		validator.onFilesChanged(Arrays.asList(new FileEvent(uri.toString(), FileChangeType.Changed)));
+		assertNotNull(published.poll(30, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testDeletionsAreNotified() throws Exception {
+		URI uri = writePom("pom.xml").toUri();
+		BlockingQueue<URI> deleted = new LinkedBlockingQueue<>();
+		validator.setDeletionListener(deleted::add);
+		validator.onFilesChanged(Arrays.asList(new FileEvent(uri.toString(), FileChangeType.Deleted)));
+
+		assertEquals(uri, deleted.poll(30, TimeUnit.SECONDS));
+		// the diagnostics are cleared
+		assertTrue(published.poll(30, TimeUnit.SECONDS).getDiagnostics().isEmpty());
+	}
+
+	@Test
+	public void testWorkingCopiesAreIgnored() throws Exception {
+		Path workingCopy = writePom("workingCopy1.pom.xml");
+		validator.onFilesChanged(
+				Arrays.asList(new FileEvent(workingCopy.toUri().toString(), FileChangeType.Created)));
+		assertNull(published.poll(1, TimeUnit.SECONDS));
+	}
+
+	private Path writePom(String name) throws Exception {
+		File project = folder.newFolder();
+		Path pom = project.toPath().resolve(name);
+		String text = String.join("\n", //
+				"<project>", //
+				"  <modelVersion>4.0.0</modelVersion>", //
+				"  <groupId>org.example</groupId>", //
+				"  <artifactId>aggregator</artifactId>", //
+				"  <version>1.0</version>", //
+				"  <packaging>pom</packaging>", //
+				"  <modules><module>missing</module></modules>", //
+				"</project>");
+		Files.write(pom, text.getBytes(StandardCharsets.UTF_8));
+		return pom;
+	}
+}